@@ -18,8 +18,8 @@
 package bisq.chat.bisqeasy.offerbook;
 
 import bisq.chat.ChatChannelDomain;
+import bisq.chat.ChatMessage;
 import bisq.chat.Citation;
-import bisq.chat.pub.PublicChatChannel;
 import bisq.chat.pub.PublicChatChannelService;
 import bisq.common.currency.Market;
 import bisq.common.currency.MarketRepository;
@@ -28,6 +28,7 @@ import bisq.common.observable.collection.ObservableSet;
 import bisq.network.NetworkService;
 import bisq.network.p2p.services.data.storage.DistributedData;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.offer.OfferbookIndex;
 import bisq.offer.bisq_easy.BisqEasyOffer;
 import bisq.persistence.Persistence;
 import bisq.persistence.PersistenceService;
@@ -45,6 +46,9 @@ public class BisqEasyOfferbookChannelService extends PublicChatChannelService<Bi
     private final BisqEasyOfferbookChannelStore persistableStore = new BisqEasyOfferbookChannelStore();
     @Getter
     private final Persistence<BisqEasyOfferbookChannelStore> persistence;
+    @Getter
+    private final OfferbookIndex<BisqEasyOfferbookMessage> offerbookIndex =
+            new OfferbookIndex<>(message -> message.getBisqEasyOffer().orElseThrow());
 
     public BisqEasyOfferbookChannelService(PersistenceService persistenceService,
                                            NetworkService networkService,
@@ -130,11 +134,11 @@ public class BisqEasyOfferbookChannelService extends PublicChatChannelService<Bi
     }
 
     public Optional<BisqEasyOfferbookMessage> findMessageByOffer(BisqEasyOffer offer) {
-        return findChannel(offer.getMarket())
-                .map(PublicChatChannel::getChatMessages).stream()
-                .flatMap(Collection::stream)
+        return offerbookIndex.findEntry(offer.getId())
                 .filter(chatMessage -> offer.equals(chatMessage.getBisqEasyOffer().orElse(null)))
-                .findAny();
+                .filter(chatMessage -> findChannel(offer.getMarket())
+                        .map(channel -> channel.getChatMessages().contains(chatMessage))
+                        .orElse(false));
     }
 
 
@@ -142,6 +146,32 @@ public class BisqEasyOfferbookChannelService extends PublicChatChannelService<Bi
     // Protected 
     ///////////////////////////////////////////////////////////////////////////////////////////////////
 
+    @Override
+    protected void processAddedMessage(BisqEasyOfferbookMessage message) {
+        super.processAddedMessage(message);
+        // Only messages which passed validation and got added to their channel are indexed
+        boolean isInChannel = findChannel(message)
+                .map(channel -> channel.getChatMessages().contains(message))
+                .orElse(false);
+        if (message.hasBisqEasyOffer() && isInChannel) {
+            offerbookIndex.add(message);
+        }
+    }
+
+    @Override
+    protected void processRemovedMessage(BisqEasyOfferbookMessage message) {
+        super.processRemovedMessage(message);
+        removeFromOfferbookIndex(message);
+    }
+
+    @Override
+    protected void doRemoveExpiredMessages(BisqEasyOfferbookChannel channel) {
+        channel.getChatMessages().stream()
+                .filter(ChatMessage::isExpired)
+                .forEach(this::removeFromOfferbookIndex);
+        super.doRemoveExpiredMessages(channel);
+    }
+
     @Override
     protected BisqEasyOfferbookMessage createChatMessage(String text,
                                                          Optional<Citation> citation,
@@ -169,6 +199,11 @@ public class BisqEasyOfferbookChannelService extends PublicChatChannelService<Bi
                 true);
     }
 
+    @Override
+    protected Class<BisqEasyOfferbookMessage> getChatMessageClass() {
+        return BisqEasyOfferbookMessage.class;
+    }
+
     @Override
     protected void maybeAddDefaultChannels() {
         if (getChannels().isEmpty()) {
@@ -182,6 +217,13 @@ public class BisqEasyOfferbookChannelService extends PublicChatChannelService<Bi
         }
     }
 
+    private void removeFromOfferbookIndex(BisqEasyOfferbookMessage message) {
+        message.getBisqEasyOffer().ifPresent(offer ->
+                offerbookIndex.findEntry(offer.getId())
+                        .filter(message::equals)
+                        .ifPresent(indexed -> offerbookIndex.remove(offer)));
+    }
+
     private void maybeAddPublicTradeChannel(BisqEasyOfferbookChannel channel) {
         if (!getChannels().contains(channel)) {
             getChannels().add(channel);
@@ -131,6 +131,11 @@ public final class CommonPublicChatChannelService extends PublicChatChannelServi
                 true);
     }
 
+    @Override
+    protected Class<CommonPublicChatMessage> getChatMessageClass() {
+        return CommonPublicChatMessage.class;
+    }
+
     @Override
     protected void maybeAddDefaultChannels() {
         if (!getChannels().isEmpty()) {
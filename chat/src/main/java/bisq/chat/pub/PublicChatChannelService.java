@@ -55,7 +55,7 @@ public abstract class PublicChatChannelService<M extends PublicChatMessage, C ex
 
         networkService.addDataServiceListener(this);
         networkService.getDataService().ifPresent(dataService ->
-                dataService.getAuthenticatedData().forEach(this::onAuthenticatedDataAdded));
+                dataService.getAuthenticatedData(getChatMessageClass()).forEach(this::onAuthenticatedDataAdded));
 
         return CompletableFuture.completedFuture(true);
     }
@@ -147,4 +147,6 @@ public abstract class PublicChatChannelService<M extends PublicChatMessage, C ex
     protected abstract M createEditedChatMessage(M originalChatMessage, String editedText, UserProfile userProfile);
 
     protected abstract void maybeAddDefaultChannels();
+
+    protected abstract Class<M> getChatMessageClass();
 }
\ No newline at end of file
@@ -0,0 +1,640 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Thread safe map based on an immutable hash array mapped trie (HAMT).
+ * A write copies only the nodes on the path from the root to the changed entry (O(log32 n)) and publishes the new
+ * root with a CAS, so readers never block and never see a partially applied update. {@link #snapshot()} returns an
+ * independent map in O(1) by sharing the current trie. Iterators work on the state at the time the iterator was
+ * created, while the entrySet view itself reflects the current state.
+ * All single key operations including the compound ones (putIfAbsent, remove(key, value), replace, compute,
+ * computeIfAbsent, computeIfPresent and merge) are atomic. As with ConcurrentSkipListMap, the functions passed to the
+ * compute and merge methods might be called multiple times if there are concurrent updates, so they should be free
+ * of side effects. Bulk operations like putAll and equals are not atomic.
+ * Null keys and values are not supported.
+ */
+public final class SnapshotHashMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final State EMPTY = new State(null, 0);
+
+    // A node is either a Leaf, a Branch or a Collision
+    private static final class Leaf<K, V> extends SimpleImmutableEntry<K, V> {
+        private final int hash;
+
+        private Leaf(int hash, K key, V value) {
+            super(key, value);
+            this.hash = hash;
+        }
+    }
+
+    private static final class Branch {
+        private final int bitmap;
+        private final Object[] children;
+
+        private Branch(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+
+    // Leaves with the same hash but different keys
+    private static final class Collision {
+        private final int hash;
+        private final Leaf<?, ?>[] leaves;
+
+        private Collision(int hash, Leaf<?, ?>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    private static final class State {
+        private final Object root;
+        private final int size;
+
+        private State(Object root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+    }
+
+    private static final class Change {
+        private Object oldValue;
+        private boolean added;
+        private boolean removed;
+    }
+
+    private final AtomicReference<State> state;
+
+    public SnapshotHashMap() {
+        this(EMPTY);
+    }
+
+    public SnapshotHashMap(Map<? extends K, ? extends V> map) {
+        this(EMPTY);
+        putAll(map);
+    }
+
+    private SnapshotHashMap(State state) {
+        this.state = new AtomicReference<>(state);
+    }
+
+    /**
+     * @return An independent copy of the current state. Changes to the copy are not visible in this map and vice versa.
+     */
+    public SnapshotHashMap<K, V> snapshot() {
+        return new SnapshotHashMap<>(state.get());
+    }
+
+    @Override
+    public int size() {
+        return state.get().size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && find(state.get().root, hash(key), key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Leaf<K, V> leaf = find(state.get().root, hash(key), key);
+        return leaf != null ? leaf.getValue() : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hash(key);
+        while (true) {
+            State current = state.get();
+            Change change = new Change();
+            Object root = remove(current.root, hash, key, 0, change);
+            if (!change.removed) {
+                return null;
+            }
+            if (state.compareAndSet(current, new State(root, current.size - 1))) {
+                return (V) change.oldValue;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (key == null || value == null) {
+            return false;
+        }
+        int hash = hash(key);
+        while (true) {
+            State current = state.get();
+            Leaf<K, V> leaf = find(current.root, hash, key);
+            if (leaf == null || !leaf.getValue().equals(value)) {
+                return false;
+            }
+            Object root = remove(current.root, hash, key, 0, new Change());
+            if (state.compareAndSet(current, new State(root, current.size - 1))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkNotNull(key, "key must not be null");
+        checkNotNull(oldValue, "oldValue must not be null");
+        checkNotNull(newValue, "newValue must not be null");
+        int hash = hash(key);
+        Leaf<K, V> leaf = new Leaf<>(hash, key, newValue);
+        while (true) {
+            State current = state.get();
+            Leaf<K, V> existing = find(current.root, hash, key);
+            if (existing == null || !existing.getValue().equals(oldValue)) {
+                return false;
+            }
+            Object root = put(current.root, leaf, 0, new Change());
+            if (root == current.root || state.compareAndSet(current, new State(root, current.size))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        checkNotNull(key, "key must not be null");
+        checkNotNull(value, "value must not be null");
+        int hash = hash(key);
+        Leaf<K, V> leaf = new Leaf<>(hash, key, value);
+        while (true) {
+            State current = state.get();
+            Leaf<K, V> existing = find(current.root, hash, key);
+            if (existing == null) {
+                return null;
+            }
+            Object root = put(current.root, leaf, 0, new Change());
+            if (root == current.root || state.compareAndSet(current, new State(root, current.size))) {
+                return existing.getValue();
+            }
+        }
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        checkNotNull(key, "key must not be null");
+        checkNotNull(remappingFunction, "remappingFunction must not be null");
+        int hash = hash(key);
+        while (true) {
+            State current = state.get();
+            Leaf<K, V> existing = find(current.root, hash, key);
+            V oldValue = existing != null ? existing.getValue() : null;
+            V newValue = remappingFunction.apply(key, oldValue);
+            if (newValue == null) {
+                if (existing == null) {
+                    return null;
+                }
+                Object root = remove(current.root, hash, key, 0, new Change());
+                if (state.compareAndSet(current, new State(root, current.size - 1))) {
+                    return null;
+                }
+            } else {
+                Object root = put(current.root, new Leaf<>(hash, key, newValue), 0, new Change());
+                int size = existing == null ? current.size + 1 : current.size;
+                if (root == current.root || state.compareAndSet(current, new State(root, size))) {
+                    return newValue;
+                }
+            }
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        checkNotNull(mappingFunction, "mappingFunction must not be null");
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        return compute(key, (k, oldValue) -> oldValue != null ? oldValue : mappingFunction.apply(k));
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        checkNotNull(remappingFunction, "remappingFunction must not be null");
+        return compute(key, (k, oldValue) -> oldValue != null ? remappingFunction.apply(k, oldValue) : null);
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        checkNotNull(value, "value must not be null");
+        checkNotNull(remappingFunction, "remappingFunction must not be null");
+        return compute(key, (k, oldValue) -> oldValue != null ? remappingFunction.apply(oldValue, value) : value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        checkNotNull(function, "function must not be null");
+        while (true) {
+            State current = state.get();
+            Object root = current.root;
+            Iterator<Entry<K, V>> iterator = new EntryIterator(current.root);
+            while (iterator.hasNext()) {
+                Leaf<K, V> leaf = (Leaf<K, V>) iterator.next();
+                V value = checkNotNull(function.apply(leaf.getKey(), leaf.getValue()), "value must not be null");
+                root = put(root, new Leaf<>(leaf.hash, leaf.getKey(), value), 0, new Change());
+            }
+            if (root == current.root || state.compareAndSet(current, new State(root, current.size))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        state.set(EMPTY);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @SuppressWarnings("unchecked")
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        checkNotNull(key, "key must not be null");
+        checkNotNull(value, "value must not be null");
+        int hash = hash(key);
+        Leaf<K, V> leaf = new Leaf<>(hash, key, value);
+        while (true) {
+            State current = state.get();
+            if (onlyIfAbsent) {
+                Leaf<K, V> existing = find(current.root, hash, key);
+                if (existing != null) {
+                    return existing.getValue();
+                }
+            }
+            Change change = new Change();
+            Object root = put(current.root, leaf, 0, change);
+            if (root == current.root ||
+                    state.compareAndSet(current, new State(root, change.added ? current.size + 1 : current.size))) {
+                return (V) change.oldValue;
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        int hashCode = key.hashCode();
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    private static int bitPosition(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Leaf<K, V> find(Object node, int hash, Object key) {
+        int shift = 0;
+        while (node != null) {
+            if (node instanceof Branch) {
+                Branch branch = (Branch) node;
+                int bit = bitPosition(hash, shift);
+                if ((branch.bitmap & bit) == 0) {
+                    return null;
+                }
+                node = branch.children[index(branch.bitmap, bit)];
+                shift += BITS;
+            } else if (node instanceof Leaf) {
+                Leaf<K, V> leaf = (Leaf<K, V>) node;
+                return leaf.hash == hash && leaf.getKey().equals(key) ? leaf : null;
+            } else {
+                Collision collision = (Collision) node;
+                if (collision.hash != hash) {
+                    return null;
+                }
+                for (Leaf<?, ?> leaf : collision.leaves) {
+                    if (leaf.getKey().equals(key)) {
+                        return (Leaf<K, V>) leaf;
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static Object put(Object node, Leaf<?, ?> leaf, int shift, Change change) {
+        if (node == null) {
+            change.added = true;
+            return leaf;
+        }
+
+        if (node instanceof Leaf) {
+            Leaf<?, ?> existing = (Leaf<?, ?>) node;
+            if (existing.hash == leaf.hash && existing.getKey().equals(leaf.getKey())) {
+                change.oldValue = existing.getValue();
+                return existing.getValue() == leaf.getValue() ? existing : leaf;
+            }
+            change.added = true;
+            return merge(existing, existing.hash, leaf, shift);
+        }
+
+        if (node instanceof Collision) {
+            Collision collision = (Collision) node;
+            if (collision.hash != leaf.hash) {
+                change.added = true;
+                return merge(collision, collision.hash, leaf, shift);
+            }
+            Leaf<?, ?>[] leaves = collision.leaves;
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].getKey().equals(leaf.getKey())) {
+                    change.oldValue = leaves[i].getValue();
+                    Leaf<?, ?>[] updated = leaves.clone();
+                    updated[i] = leaf;
+                    return new Collision(collision.hash, updated);
+                }
+            }
+            change.added = true;
+            Leaf<?, ?>[] extended = Arrays.copyOf(leaves, leaves.length + 1);
+            extended[leaves.length] = leaf;
+            return new Collision(collision.hash, extended);
+        }
+
+        Branch branch = (Branch) node;
+        int bit = bitPosition(leaf.hash, shift);
+        int index = index(branch.bitmap, bit);
+        Object[] children = branch.children;
+        if ((branch.bitmap & bit) == 0) {
+            change.added = true;
+            Object[] extended = new Object[children.length + 1];
+            System.arraycopy(children, 0, extended, 0, index);
+            extended[index] = leaf;
+            System.arraycopy(children, index, extended, index + 1, children.length - index);
+            return new Branch(branch.bitmap | bit, extended);
+        }
+
+        Object child = children[index];
+        Object updatedChild = put(child, leaf, shift + BITS, change);
+        if (updatedChild == child) {
+            return branch;
+        }
+        Object[] updated = children.clone();
+        updated[index] = updatedChild;
+        return new Branch(branch.bitmap, updated);
+    }
+
+    // Combines an existing leaf or collision with a new leaf with a different key
+    private static Object merge(Object existing, int existingHash, Leaf<?, ?> leaf, int shift) {
+        if (existingHash == leaf.hash) {
+            if (existing instanceof Collision) {
+                Leaf<?, ?>[] leaves = ((Collision) existing).leaves;
+                Leaf<?, ?>[] extended = Arrays.copyOf(leaves, leaves.length + 1);
+                extended[leaves.length] = leaf;
+                return new Collision(existingHash, extended);
+            }
+            return new Collision(existingHash, new Leaf<?, ?>[]{(Leaf<?, ?>) existing, leaf});
+        }
+
+        int existingFragment = (existingHash >>> shift) & MASK;
+        int fragment = (leaf.hash >>> shift) & MASK;
+        if (existingFragment == fragment) {
+            return new Branch(1 << fragment, new Object[]{merge(existing, existingHash, leaf, shift + BITS)});
+        }
+        Object[] children = existingFragment < fragment ?
+                new Object[]{existing, leaf} :
+                new Object[]{leaf, existing};
+        return new Branch((1 << existingFragment) | (1 << fragment), children);
+    }
+
+    private static Object remove(Object node, int hash, Object key, int shift, Change change) {
+        if (node == null) {
+            return null;
+        }
+
+        if (node instanceof Leaf) {
+            Leaf<?, ?> leaf = (Leaf<?, ?>) node;
+            if (leaf.hash == hash && leaf.getKey().equals(key)) {
+                change.oldValue = leaf.getValue();
+                change.removed = true;
+                return null;
+            }
+            return node;
+        }
+
+        if (node instanceof Collision) {
+            Collision collision = (Collision) node;
+            if (collision.hash != hash) {
+                return node;
+            }
+            Leaf<?, ?>[] leaves = collision.leaves;
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].getKey().equals(key)) {
+                    change.oldValue = leaves[i].getValue();
+                    change.removed = true;
+                    if (leaves.length == 2) {
+                        return leaves[1 - i];
+                    }
+                    Leaf<?, ?>[] reduced = new Leaf<?, ?>[leaves.length - 1];
+                    System.arraycopy(leaves, 0, reduced, 0, i);
+                    System.arraycopy(leaves, i + 1, reduced, i, leaves.length - i - 1);
+                    return new Collision(hash, reduced);
+                }
+            }
+            return node;
+        }
+
+        Branch branch = (Branch) node;
+        int bit = bitPosition(hash, shift);
+        if ((branch.bitmap & bit) == 0) {
+            return node;
+        }
+        int index = index(branch.bitmap, bit);
+        Object[] children = branch.children;
+        Object child = children[index];
+        Object updatedChild = remove(child, hash, key, shift + BITS, change);
+        if (updatedChild == child) {
+            return node;
+        }
+
+        if (updatedChild == null) {
+            if (children.length == 1) {
+                return null;
+            }
+            Object[] reduced = new Object[children.length - 1];
+            System.arraycopy(children, 0, reduced, 0, index);
+            System.arraycopy(children, index + 1, reduced, index, children.length - index - 1);
+            // A single leaf or collision can be found at any level of its path, so we pull it up
+            if (reduced.length == 1 && !(reduced[0] instanceof Branch)) {
+                return reduced[0];
+            }
+            return new Branch(branch.bitmap & ~bit, reduced);
+        }
+
+        if (children.length == 1 && !(updatedChild instanceof Branch)) {
+            return updatedChild;
+        }
+        Object[] updated = children.clone();
+        updated[index] = updatedChild;
+        return new Branch(branch.bitmap, updated);
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator(state.get().root);
+        }
+
+        @Override
+        public int size() {
+            return SnapshotHashMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            SnapshotHashMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            Object key = entry.getKey();
+            if (key == null) {
+                return false;
+            }
+            Leaf<K, V> leaf = find(state.get().root, hash(key), key);
+            return leaf != null && leaf.getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return SnapshotHashMap.this.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Deque<Object[]> nodesStack = new ArrayDeque<>();
+        private final Deque<Integer> indexStack = new ArrayDeque<>();
+        private Leaf<K, V> next;
+        private Leaf<K, V> last;
+
+        private EntryIterator(Object root) {
+            if (root != null) {
+                push(new Object[]{root});
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            // We only remove the entry if it has not been changed since it has been returned
+            SnapshotHashMap.this.remove(last.getKey(), last.getValue());
+            last = null;
+        }
+
+        private void push(Object[] nodes) {
+            nodesStack.push(nodes);
+            indexStack.push(0);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (!nodesStack.isEmpty()) {
+                Object[] nodes = nodesStack.peek();
+                int index = indexStack.pop();
+                if (index >= nodes.length) {
+                    nodesStack.pop();
+                    continue;
+                }
+                indexStack.push(index + 1);
+                Object node = nodes[index];
+                if (node instanceof Leaf) {
+                    next = (Leaf<K, V>) node;
+                    return;
+                } else if (node instanceof Branch) {
+                    push(((Branch) node).children);
+                } else {
+                    push(((Collision) node).leaves);
+                }
+            }
+        }
+    }
+}
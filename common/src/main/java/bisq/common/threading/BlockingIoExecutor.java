@@ -0,0 +1,102 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.threading;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor for blocking IO tasks which can be declared as a static field while its ExecutorMode is only known once the
+ * application config has been read. The underlying executor is created with ExecutorFactory.newBlockingIoExecutor at
+ * the first executed task, using the mode set by setExecutorMode or PLATFORM_THREADS if no mode was set.
+ * Once created, the mode cannot be changed anymore.
+ */
+@Slf4j
+public final class BlockingIoExecutor extends AbstractExecutorService {
+    private final String name;
+    @Getter
+    private volatile ExecutorFactory.ExecutorMode executorMode = ExecutorFactory.ExecutorMode.PLATFORM_THREADS;
+    private volatile ExecutorService delegate;
+
+    public BlockingIoExecutor(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Must be called before the first task is executed (e.g. at the constructor of the service owning the executor).
+     */
+    public synchronized void setExecutorMode(ExecutorFactory.ExecutorMode executorMode) {
+        if (executorMode == this.executorMode) {
+            return;
+        }
+        if (delegate != null) {
+            log.warn("Executor {} is already in use with mode {}. We ignore the new mode {}.",
+                    name, this.executorMode, executorMode);
+            return;
+        }
+        this.executorMode = executorMode;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        getDelegate().execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        getDelegate().shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return getDelegate().shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return getDelegate().isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return getDelegate().isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return getDelegate().awaitTermination(timeout, unit);
+    }
+
+    private ExecutorService getDelegate() {
+        ExecutorService result = delegate;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            if (delegate == null) {
+                delegate = ExecutorFactory.newBlockingIoExecutor(name, executorMode);
+            }
+            return delegate;
+        }
+    }
+}
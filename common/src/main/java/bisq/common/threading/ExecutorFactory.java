@@ -22,12 +22,21 @@ import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.*;
 
 @Slf4j
 public class ExecutorFactory {
     public static final ExecutorService WORKER_POOL = newFixedThreadPool("Worker-pool");
 
+    /**
+     * Defines which kind of threads are used for executors running blocking IO tasks.
+     */
+    public enum ExecutorMode {
+        PLATFORM_THREADS,
+        VIRTUAL_THREADS
+    }
+
     public static void shutdownAndAwaitTermination(ExecutorService executor) {
         shutdownAndAwaitTermination(executor, 100);
     }
@@ -82,6 +91,34 @@ public class ExecutorFactory {
         return executorService;
     }
 
+    /**
+     * Executor for tasks which spend most of their time in blocking IO (socket reads, handshakes, sends).
+     * With VIRTUAL_THREADS each task runs on its own virtual thread, thus there is no upper limit of concurrent tasks
+     * and a blocked task does not occupy a platform thread. Virtual threads require Java 21+. As we compile against
+     * Java 17 we access the API by reflection and fall back to the cached thread pool if it is not available.
+     */
+    public static ExecutorService newBlockingIoExecutor(String name, ExecutorMode executorMode) {
+        if (executorMode == ExecutorMode.VIRTUAL_THREADS) {
+            try {
+                return newVirtualThreadPerTaskExecutor(name);
+            } catch (Exception e) {
+                log.warn("Virtual threads are not supported by the Java runtime {}. " +
+                                "We use platform threads for executor {}. Error: {}",
+                        Runtime.version(), name, e.toString());
+            }
+        }
+        return newCachedThreadPool(name);
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        try {
+            newVirtualThreadFactory("test");
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /**
      * Used when queuing is desired.
      */
@@ -118,6 +155,25 @@ public class ExecutorFactory {
                 TimeUnit.MILLISECONDS, workQueue, threadFactory);
     }
 
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String name) throws ReflectiveOperationException {
+        ThreadFactory threadFactory = newVirtualThreadFactory(name);
+        return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, threadFactory);
+    }
+
+    // Equivalent to Thread.ofVirtual().name(name + "-", 0).factory()
+    private static ThreadFactory newVirtualThreadFactory(String name) throws ReflectiveOperationException {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (InvocationTargetException e) {
+            // On Java 19/20 virtual threads are a preview feature and throw an UnsupportedOperationException
+            throw new ReflectiveOperationException(e.getCause());
+        }
+    }
+
     private static String getNameWithThreadNum(String name) {
         return name + "-%d";
     }
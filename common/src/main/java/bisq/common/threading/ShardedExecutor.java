@@ -0,0 +1,161 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.threading;
+
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Distributes tasks to a fixed number of single threaded executors (shards) based on a shard key.
+ * Tasks with the same shard key are always executed on the same shard and therefore in the order they have been
+ * submitted, while tasks with different keys can run in parallel.
+ */
+@Slf4j
+public class ShardedExecutor {
+    @Getter
+    @ToString
+    public static class ShardMetrics {
+        private final int index;
+        private final AtomicInteger queueSize = new AtomicInteger();
+        private final AtomicInteger maxQueueSize = new AtomicInteger();
+        private final AtomicLong numExecutedTasks = new AtomicLong();
+        private final AtomicLong accumulatedQueueTime = new AtomicLong();
+        private final AtomicLong maxQueueTime = new AtomicLong();
+        private final AtomicLong accumulatedExecutionTime = new AtomicLong();
+        private final AtomicLong maxExecutionTime = new AtomicLong();
+
+        private ShardMetrics(int index) {
+            this.index = index;
+        }
+
+        public double getAverageQueueTime() {
+            long numExecuted = numExecutedTasks.get();
+            return numExecuted == 0 ? 0 : accumulatedQueueTime.get() / (double) numExecuted;
+        }
+
+        public double getAverageExecutionTime() {
+            long numExecuted = numExecutedTasks.get();
+            return numExecuted == 0 ? 0 : accumulatedExecutionTime.get() / (double) numExecuted;
+        }
+
+        private void onSubmitted() {
+            int size = queueSize.incrementAndGet();
+            maxQueueSize.accumulateAndGet(size, Math::max);
+        }
+
+        private void onRejected() {
+            queueSize.decrementAndGet();
+        }
+
+        private void onStarted(long queueTime) {
+            queueSize.decrementAndGet();
+            accumulatedQueueTime.addAndGet(queueTime);
+            maxQueueTime.accumulateAndGet(queueTime, Math::max);
+        }
+
+        private void onCompleted(long executionTime) {
+            numExecutedTasks.incrementAndGet();
+            accumulatedExecutionTime.addAndGet(executionTime);
+            maxExecutionTime.accumulateAndGet(executionTime, Math::max);
+        }
+    }
+
+    private final String name;
+    private final ExecutorService[] shards;
+    @Getter
+    private final List<ShardMetrics> shardMetrics;
+
+    public ShardedExecutor(String name, int numShards) {
+        if (numShards < 1) {
+            throw new IllegalArgumentException("numShards must be at least 1");
+        }
+        this.name = name;
+        shards = new ExecutorService[numShards];
+        ShardMetrics[] metrics = new ShardMetrics[numShards];
+        for (int i = 0; i < numShards; i++) {
+            shards[i] = ExecutorFactory.newSingleThreadExecutor(name + "-shard-" + i);
+            metrics[i] = new ShardMetrics(i);
+        }
+        shardMetrics = Collections.unmodifiableList(Arrays.asList(metrics));
+    }
+
+    public Future<?> submit(Object shardKey, Runnable task) {
+        int index = getShardIndex(shardKey);
+        ShardMetrics metrics = shardMetrics.get(index);
+        long submitTime = System.nanoTime();
+        metrics.onSubmitted();
+        try {
+            return shards[index].submit(() -> {
+                long startTime = System.nanoTime();
+                metrics.onStarted(TimeUnit.NANOSECONDS.toMillis(startTime - submitTime));
+                try {
+                    task.run();
+                } catch (Throwable throwable) {
+                    log.error("Task at {} shard {} failed", name, index, throwable);
+                    throw throwable;
+                } finally {
+                    metrics.onCompleted(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.onRejected();
+            throw e;
+        }
+    }
+
+    public int getNumShards() {
+        return shards.length;
+    }
+
+    public int getShardIndex(Object shardKey) {
+        return Math.floorMod(shardKey.hashCode(), shards.length);
+    }
+
+    public int getTotalQueueSize() {
+        return shardMetrics.stream().mapToInt(metrics -> metrics.getQueueSize().get()).sum();
+    }
+
+    public String getMetricsAsString() {
+        return shardMetrics.stream()
+                .map(metrics -> "shard " + metrics.getIndex() +
+                        ": queueSize=" + metrics.getQueueSize().get() +
+                        ", maxQueueSize=" + metrics.getMaxQueueSize().get() +
+                        ", numExecutedTasks=" + metrics.getNumExecutedTasks().get() +
+                        ", avgQueueTime=" + String.format("%.2f", metrics.getAverageQueueTime()) + " ms" +
+                        ", maxQueueTime=" + metrics.getMaxQueueTime().get() + " ms" +
+                        ", avgExecutionTime=" + String.format("%.2f", metrics.getAverageExecutionTime()) + " ms" +
+                        ", maxExecutionTime=" + metrics.getMaxExecutionTime().get() + " ms")
+                .collect(Collectors.joining("\n", name + " metrics:\n", ""));
+    }
+
+    public void shutdown() {
+        Arrays.stream(shards).forEach(ExecutorFactory::shutdownAndAwaitTermination);
+    }
+}
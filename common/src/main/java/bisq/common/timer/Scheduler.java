@@ -17,30 +17,31 @@
 
 package bisq.common.timer;
 
-import bisq.common.threading.ExecutorFactory;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Optional;
-import java.util.Random;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Runs a task once, periodically or for a given number of cycles using the shared TimerService.
+ * The next execution gets scheduled with the given delay after the previous execution has completed, thus executions
+ * of a task never overlap. If the task throws an exception no further executions are scheduled.
+ */
 @Slf4j
 public class Scheduler implements TaskScheduler {
-    // We do not use a ScheduledThreadPoolExecutor as the queue cannot be customized. It would cause undesired behaviour 
-    // in case we would use a static executor for all Scheduler instances and multiple schedule calls would get 
-    // queued up instead of starting a new scheduler.
-    private final ScheduledExecutorService executor;
     private final Runnable task;
+    private final AtomicBoolean active = new AtomicBoolean();
     private volatile boolean stopped;
+    private volatile ScheduledFuture<?> future;
     @Getter
-    private long counter;
+    private volatile long counter;
     private Optional<String> threadName = Optional.empty();
 
     private Scheduler(Runnable task) {
         this.task = task;
-        executor = ExecutorFactory.newSingleThreadScheduledExecutor("Scheduler-" + new Random().nextInt(1000));
     }
 
     public static Scheduler run(Runnable task) {
@@ -92,40 +93,57 @@ public class Scheduler implements TaskScheduler {
         if (stopped) {
             return this;
         }
-        if (cycles == 1) {
-            executor.schedule(() -> {
-                if (stopped) {
-                    return;
-                }
-                threadName.ifPresent(name -> Thread.currentThread().setName(name));
-                try {
-                    task.run();
-                } finally {
-                    stop();
-                }
-            }, delay, timeUnit);
-        } else {
-            executor.scheduleWithFixedDelay(() -> {
-                if (stopped) {
-                    return;
-                }
-                threadName.ifPresent(name -> Thread.currentThread().setName(name));
-                try {
-                    task.run();
-                } finally {
-                    counter++;
-                    if (counter >= cycles) {
-                        stop();
-                    }
-                }
-            }, initialDelay, delay, timeUnit);
+        if (active.compareAndSet(false, true)) {
+            TimerService.onTaskActivated();
         }
+        scheduleNext(timeUnit.toNanos(initialDelay), timeUnit.toNanos(delay), cycles);
         return this;
     }
 
     @Override
     public void stop() {
         stopped = true;
-        ExecutorFactory.shutdownAndAwaitTermination(executor);
+        ScheduledFuture<?> scheduledFuture = future;
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+        if (active.compareAndSet(true, false)) {
+            TimerService.onTaskDeactivated();
+        }
+    }
+
+    private void scheduleNext(long delayNanos, long periodNanos, long cycles) {
+        long dueTime = System.nanoTime() + delayNanos;
+        future = TimerService.schedule(() -> execute(dueTime, periodNanos, cycles), delayNanos);
+        if (stopped) {
+            // stop() might have been called before we assigned the future
+            future.cancel(false);
+        }
+    }
+
+    private void execute(long dueTime, long periodNanos, long cycles) {
+        if (stopped) {
+            return;
+        }
+        TimerService.onExecutionStarted(System.nanoTime() - dueTime);
+        Thread thread = Thread.currentThread();
+        String previousThreadName = thread.getName();
+        threadName.ifPresent(thread::setName);
+        boolean success = false;
+        try {
+            task.run();
+            success = true;
+        } catch (Throwable throwable) {
+            log.error("Scheduled task failed. No further executions will be scheduled.", throwable);
+        } finally {
+            thread.setName(previousThreadName);
+            TimerService.onExecutionCompleted();
+            counter++;
+            if (!success || counter >= cycles) {
+                stop();
+            } else if (!stopped) {
+                scheduleNext(periodNanos, periodNanos, cycles);
+            }
+        }
     }
 }
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.timer;
+
+import bisq.common.threading.ExecutorFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared timer for all Scheduler instances.
+ * A single timer thread only keeps track of the due times and hands over due tasks to a cached thread pool. Thus a
+ * blocking task does not delay other tasks and idle Schedulers do not hold a thread.
+ * A Scheduler schedules its next execution only after the previous one has completed, so executions of the same task
+ * never overlap or queue up, as it was the case with scheduleWithFixedDelay on a dedicated executor.
+ */
+public final class TimerService {
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+    private static final ExecutorService TASK_EXECUTOR = ExecutorFactory.newCachedThreadPool("Scheduler");
+
+    private static final AtomicInteger numActiveTasks = new AtomicInteger();
+    private static final AtomicInteger numRunningTasks = new AtomicInteger();
+    private static final AtomicLong numExecutions = new AtomicLong();
+    private static final AtomicLong totalLagNanos = new AtomicLong();
+    private static final AtomicLong maxLagNanos = new AtomicLong();
+
+    private TimerService() {
+    }
+
+    /**
+     * @return Number of Schedulers which have been started and are not stopped yet.
+     */
+    public static int getNumActiveTasks() {
+        return numActiveTasks.get();
+    }
+
+    /**
+     * @return Number of tasks currently executing.
+     */
+    public static int getNumRunningTasks() {
+        return numRunningTasks.get();
+    }
+
+    public static long getNumExecutions() {
+        return numExecutions.get();
+    }
+
+    /**
+     * @return Average delay in ms between the due time of a task and the start of its execution.
+     */
+    public static double getAverageLagMs() {
+        long executions = numExecutions.get();
+        return executions == 0 ? 0 : totalLagNanos.get() / (double) executions / 1_000_000d;
+    }
+
+    /**
+     * @return Max. delay in ms between the due time of a task and the start of its execution.
+     */
+    public static double getMaxLagMs() {
+        return maxLagNanos.get() / 1_000_000d;
+    }
+
+    public static String getStatsAsString() {
+        return "TimerService: activeTasks=" + getNumActiveTasks() +
+                ", runningTasks=" + getNumRunningTasks() +
+                ", pendingTimers=" + TIMER.getQueue().size() +
+                ", executions=" + getNumExecutions() +
+                ", averageLag=" + String.format("%.3f", getAverageLagMs()) + " ms" +
+                ", maxLag=" + String.format("%.3f", getMaxLagMs()) + " ms";
+    }
+
+    static ScheduledFuture<?> schedule(Runnable runnable, long delayNanos) {
+        return TIMER.schedule(() -> TASK_EXECUTOR.execute(runnable), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    static void onTaskActivated() {
+        numActiveTasks.incrementAndGet();
+    }
+
+    static void onTaskDeactivated() {
+        numActiveTasks.decrementAndGet();
+    }
+
+    static void onExecutionStarted(long lagNanos) {
+        long lag = Math.max(0, lagNanos);
+        numRunningTasks.incrementAndGet();
+        numExecutions.incrementAndGet();
+        totalLagNanos.addAndGet(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+    }
+
+    static void onExecutionCompleted() {
+        numRunningTasks.decrementAndGet();
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat("Timer-%d")
+                .setDaemon(true)
+                .build());
+        // Stopped Schedulers must not leave their cancelled timers in the queue until the due time
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
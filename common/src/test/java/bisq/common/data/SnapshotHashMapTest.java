@@ -0,0 +1,232 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotHashMapTest {
+    // Key with a configurable hash to produce collisions
+    private static final class Key {
+        private final int value;
+        private final int hash;
+
+        private Key(int value, int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    public void testSameBehaviourAsHashMap() {
+        // Small hash range forces collisions, the large one deep tries
+        for (int hashRange : new int[]{8, 1000, Integer.MAX_VALUE}) {
+            Random random = new Random(hashRange);
+            SnapshotHashMap<Key, Integer> map = new SnapshotHashMap<>();
+            Map<Key, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 50_000; i++) {
+                int value = random.nextInt(2000);
+                Key key = new Key(value, (int) ((value * 2654435761L) % hashRange));
+                int operation = random.nextInt(3);
+                if (operation == 0) {
+                    assertEquals(expected.put(key, i), map.put(key, i));
+                } else if (operation == 1) {
+                    assertEquals(expected.remove(key), map.remove(key));
+                } else {
+                    assertEquals(expected.get(key), map.get(key));
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            assertEquals(expected, map);
+            assertEquals(expected.hashCode(), map.hashCode());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsIndependent() {
+        SnapshotHashMap<String, Integer> map = new SnapshotHashMap<>();
+        map.put("A", 1);
+        map.put("B", 2);
+
+        SnapshotHashMap<String, Integer> snapshot = map.snapshot();
+        map.put("A", 10);
+        map.remove("B");
+        snapshot.put("C", 3);
+
+        assertEquals(Map.of("A", 10), map);
+        assertEquals(Map.of("A", 1, "B", 2, "C", 3), snapshot);
+    }
+
+    @Test
+    public void testIteratorUsesStateAtCreation() {
+        SnapshotHashMap<String, Integer> map = new SnapshotHashMap<>();
+        map.put("A", 1);
+        map.put("B", 2);
+
+        Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+        map.put("C", 3);
+        int count = 0;
+        while (iterator.hasNext()) {
+            Map.Entry<String, Integer> entry = iterator.next();
+            if (entry.getKey().equals("A")) {
+                iterator.remove();
+            }
+            count++;
+        }
+
+        assertEquals(2, count);
+        assertFalse(map.containsKey("A"));
+        assertTrue(map.containsKey("C"));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testEntrySetReflectsCurrentState() {
+        SnapshotHashMap<String, Integer> map = new SnapshotHashMap<>();
+        map.put("A", 1);
+        Set<Map.Entry<String, Integer>> entrySet = map.entrySet();
+        map.put("B", 2);
+
+        assertEquals(2, entrySet.size());
+        assertTrue(entrySet.contains(Map.entry("B", 2)));
+        Iterator<Map.Entry<String, Integer>> iterator = entrySet.iterator();
+        map.put("C", 3);
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        assertEquals(2, count);
+        assertEquals(3, entrySet.size());
+
+        assertFalse(entrySet.remove(Map.entry("A", 10)));
+        assertTrue(entrySet.remove(Map.entry("A", 1)));
+        assertEquals(Map.of("B", 2, "C", 3), map);
+    }
+
+    @Test
+    public void testCompoundOperations() {
+        SnapshotHashMap<String, Integer> map = new SnapshotHashMap<>();
+        assertEquals(1, map.merge("A", 1, Integer::sum));
+        assertEquals(3, map.merge("A", 2, Integer::sum));
+        assertEquals(4, map.compute("A", (key, value) -> value + 1));
+        assertNull(map.compute("A", (key, value) -> null));
+        assertFalse(map.containsKey("A"));
+
+        assertEquals(5, map.computeIfAbsent("B", key -> 5));
+        assertEquals(5, map.computeIfAbsent("B", key -> 6));
+        assertEquals(6, map.computeIfPresent("B", (key, value) -> value + 1));
+        assertNull(map.computeIfPresent("C", (key, value) -> 1));
+
+        assertNull(map.replace("C", 1));
+        assertEquals(6, map.replace("B", 7));
+        assertFalse(map.replace("B", 6, 8));
+        assertTrue(map.replace("B", 7, 8));
+        assertFalse(map.remove("B", 7));
+        assertTrue(map.remove("B", 8));
+        assertTrue(map.isEmpty());
+
+        map.put("A", 1);
+        map.put("B", 2);
+        map.replaceAll((key, value) -> value * 10);
+        assertEquals(Map.of("A", 10, "B", 20), map);
+    }
+
+    @Test
+    public void testConcurrentCompoundOperationsAreAtomic() throws Exception {
+        SnapshotHashMap<Integer, Integer> map = new SnapshotHashMap<>();
+        int numThreads = 8;
+        int numIterations = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicInteger numInserted = new AtomicInteger();
+        AtomicInteger numRemoved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                for (int j = 0; j < numIterations; j++) {
+                    int key = j % 16;
+                    map.merge(key, 1, Integer::sum);
+                    map.compute(100 + key, (k, value) -> value == null ? 1 : value + 1);
+                    // Each inserted entry gets removed exactly once
+                    if (map.putIfAbsent(200 + j, j) == null) {
+                        numInserted.incrementAndGet();
+                    }
+                    if (map.remove(200 + j, j)) {
+                        numRemoved.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int expectedPerKey = numThreads * numIterations / 16;
+        for (int key = 0; key < 16; key++) {
+            assertEquals(expectedPerKey, map.get(key));
+            assertEquals(expectedPerKey, map.get(100 + key));
+        }
+        assertEquals(32, map.size());
+        assertEquals(numInserted.get(), numRemoved.get());
+    }
+
+    @Test
+    public void testPutIfAbsentAndClear() {
+        SnapshotHashMap<String, Integer> map = new SnapshotHashMap<>();
+        assertNull(map.putIfAbsent("A", 1));
+        assertEquals(1, map.putIfAbsent("A", 2));
+        assertEquals(1, map.get("A"));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("A"));
+    }
+}
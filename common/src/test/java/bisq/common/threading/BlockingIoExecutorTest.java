@@ -0,0 +1,64 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.threading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockingIoExecutorTest {
+    @Test
+    void testExecutorModeIsAppliedAtFirstUse() throws Exception {
+        BlockingIoExecutor executor = new BlockingIoExecutor("test");
+        assertEquals(ExecutorFactory.ExecutorMode.PLATFORM_THREADS, executor.getExecutorMode());
+
+        executor.setExecutorMode(ExecutorFactory.ExecutorMode.VIRTUAL_THREADS);
+        assertEquals(ExecutorFactory.ExecutorMode.VIRTUAL_THREADS, executor.getExecutorMode());
+        boolean isVirtual = executor.submit(BlockingIoExecutorTest::isCurrentThreadVirtual).get(10, TimeUnit.SECONDS);
+        // Falls back to platform threads on runtimes without virtual threads
+        assertEquals(ExecutorFactory.isVirtualThreadSupported(), isVirtual);
+
+        // Once in use the mode cannot be changed anymore
+        executor.setExecutorMode(ExecutorFactory.ExecutorMode.PLATFORM_THREADS);
+        assertEquals(ExecutorFactory.ExecutorMode.VIRTUAL_THREADS, executor.getExecutorMode());
+        assertEquals(isVirtual, executor.submit(BlockingIoExecutorTest::isCurrentThreadVirtual).get(10, TimeUnit.SECONDS));
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testPlatformThreadsAreUsedByDefault() throws Exception {
+        BlockingIoExecutor executor = new BlockingIoExecutor("test");
+        assertFalse(executor.submit(BlockingIoExecutorTest::isCurrentThreadVirtual).get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    // Thread.isVirtual is only available at Java 21+
+    private static boolean isCurrentThreadVirtual() {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
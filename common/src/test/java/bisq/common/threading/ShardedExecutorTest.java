@@ -0,0 +1,41 @@
+package bisq.common.threading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ShardedExecutorTest {
+    @Test
+    void testOrderIsPreservedPerShardKey() throws Exception {
+        ShardedExecutor executor = new ShardedExecutor("test", 4);
+        List<Integer> resultA = new CopyOnWriteArrayList<>();
+        List<Integer> resultB = new CopyOnWriteArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            futures.add(executor.submit("A", () -> resultA.add(value)));
+            futures.add(executor.submit("B", () -> resultB.add(value)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, resultA.get(i));
+            assertEquals(i, resultB.get(i));
+        }
+
+        long numExecutedTasks = executor.getShardMetrics().stream()
+                .mapToLong(metrics -> metrics.getNumExecutedTasks().get())
+                .sum();
+        assertEquals(200, numExecutedTasks);
+        assertEquals(0, executor.getTotalQueueSize());
+        assertEquals(executor.getShardIndex("A"), executor.getShardIndex("A"));
+        executor.shutdown();
+    }
+}
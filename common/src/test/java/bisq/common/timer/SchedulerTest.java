@@ -0,0 +1,107 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SchedulerTest {
+    @Test
+    public void testAfter() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger numRuns = new AtomicInteger();
+        Scheduler scheduler = Scheduler.run(() -> {
+            numRuns.incrementAndGet();
+            latch.countDown();
+        }).after(10);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(1, numRuns.get());
+        assertEquals(1, scheduler.getCounter());
+    }
+
+    @Test
+    public void testRepeated() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(3);
+        Scheduler scheduler = Scheduler.run(latch::countDown).repeated(5, 3);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(3, scheduler.getCounter());
+    }
+
+    @Test
+    public void testExecutionsDoNotOverlap() throws InterruptedException {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(5);
+        Scheduler scheduler = Scheduler.run(() -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                // Task takes longer than the period
+                Thread.sleep(20);
+            } catch (InterruptedException ignore) {
+            }
+            concurrent.decrementAndGet();
+            latch.countDown();
+        }).periodically(1);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        scheduler.stop();
+        assertEquals(1, maxConcurrent.get());
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        AtomicInteger numRuns = new AtomicInteger();
+        Scheduler scheduler = Scheduler.run(numRuns::incrementAndGet).after(100);
+        scheduler.stop();
+        Thread.sleep(200);
+        assertEquals(0, numRuns.get());
+
+        CountDownLatch latch = new CountDownLatch(3);
+        Scheduler periodic = Scheduler.run(latch::countDown).periodically(5);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        periodic.stop();
+        long counter = periodic.getCounter();
+        Thread.sleep(50);
+        assertTrue(periodic.getCounter() <= counter + 1);
+    }
+
+    @Test
+    public void testSharedTimerDoesNotCreateThreadPerScheduler() throws InterruptedException {
+        int numActiveTasks = TimerService.getNumActiveTasks();
+        int numThreads = Thread.activeCount();
+        Scheduler[] schedulers = new Scheduler[100];
+        for (int i = 0; i < schedulers.length; i++) {
+            schedulers[i] = Scheduler.run(() -> {
+            }).periodically(1, TimeUnit.HOURS);
+        }
+        assertEquals(numActiveTasks + 100, TimerService.getNumActiveTasks());
+        assertTrue(Thread.activeCount() < numThreads + 10);
+
+        for (Scheduler scheduler : schedulers) {
+            scheduler.stop();
+        }
+        assertEquals(numActiveTasks, TimerService.getNumActiveTasks());
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import bisq.common.util.FileUtils;
+import bisq.common.util.NetworkUtils;
+import bisq.network.p2p.BaseNetworkTest;
+import bisq.network.p2p.message.NetworkEnvelope;
+import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.authorization.AuthorizationService;
+import bisq.network.p2p.node.authorization.AuthorizationToken;
+import bisq.network.p2p.node.transport.Transport;
+import bisq.network.p2p.services.confidential.ConfidentialMessage;
+import bisq.network.p2p.services.peergroup.BanList;
+import bisq.network.p2p.services.peergroup.keepalive.Ping;
+import bisq.network.p2p.services.peergroup.keepalive.Pong;
+import bisq.security.ConfidentialData;
+import bisq.security.KeyGeneration;
+import bisq.security.SignatureUtil;
+import bisq.security.pow.EquihashProofOfWorkService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs nodes in IoMode.NIO through the lifecycle of a connection: connect and handshake, send and receive (including
+ * a message spanning multiple read buffers and a message arriving in several chunks) and close. Also checks that a
+ * message we cannot parse only closes the connection of that peer.
+ */
+@Slf4j
+public class ClearNetNioNodeIntegrationTest extends BaseNetworkTest {
+    private final List<Node> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(node -> node.shutdown().join());
+    }
+
+    @Test
+    void connectSendReceiveAndClose() throws Exception {
+        Node alice = createNode("alice");
+        Node bob = createNode("bob");
+        MessageCollector bobsMessages = new MessageCollector();
+        bob.addListener(bobsMessages);
+        MessageCollector alicesMessages = new MessageCollector();
+        alice.addListener(alicesMessages);
+        bob.addListener(new Node.Listener() {
+            @Override
+            public void onMessage(NetworkMessage networkMessage, Connection connection, String nodeId) {
+                if (networkMessage instanceof Ping) {
+                    bob.send(new Pong(((Ping) networkMessage).getNonce()), connection);
+                }
+            }
+
+            @Override
+            public void onConnection(Connection connection) {
+            }
+
+            @Override
+            public void onDisconnect(Connection connection, CloseReason closeReason) {
+            }
+        });
+
+        // Connect and handshake
+        Address bobsAddress = bob.findMyAddress().orElseThrow();
+        Connection connection = alice.getConnection(bobsAddress);
+        assertThat(connection.getPeersCapability().hasFeature(Feature.REUSABLE_AUTHORIZATION_TOKEN)).isTrue();
+        assertThat(bobsMessages.connections.poll(getTimeout(), TimeUnit.SECONDS)).isNotNull();
+
+        // Send and receive
+        alice.send(new Ping(42), connection);
+        assertThat(bobsMessages.messages.poll(getTimeout(), TimeUnit.SECONDS)).isEqualTo(new Ping(42));
+        assertThat(alicesMessages.messages.poll(getTimeout(), TimeUnit.SECONDS)).isEqualTo(new Pong(42));
+
+        // Message which does not fit into a single read buffer
+        ConfidentialMessage largeMessage = createLargeMessage();
+        assertThat(largeMessage.toProto().getSerializedSize())
+                .isGreaterThan(NetworkEnvelopeSocketChannel.BYTE_BUFFER_SIZE);
+        alice.send(largeMessage, connection);
+        assertThat(bobsMessages.messages.poll(getTimeout(), TimeUnit.SECONDS)).isEqualTo(largeMessage);
+
+        // Close
+        alice.closeConnectionGracefully(connection, CloseReason.SHUTDOWN);
+        assertThat(bobsMessages.disconnects.poll(getTimeout(), TimeUnit.SECONDS)).isNotNull();
+        assertThat(alicesMessages.disconnects.poll(getTimeout(), TimeUnit.SECONDS)).isNotNull();
+        assertThat(alice.getNumConnections()).isEqualTo(0);
+        assertThat(bob.getNumConnections()).isEqualTo(0);
+    }
+
+    @Test
+    void receiveMessageArrivingInChunks() throws Exception {
+        Node bob = createNode("bob");
+        MessageCollector bobsMessages = new MessageCollector();
+        bob.addListener(bobsMessages);
+        Address bobsAddress = bob.findMyAddress().orElseThrow();
+
+        // A blocking client on the other side, so that we control how the bytes arrive at bob
+        AuthorizationService authorizationService = new AuthorizationService(new EquihashProofOfWorkService());
+        Capability clientCapability = new Capability(Address.localHost(NetworkUtils.findFreeSystemPort()),
+                new ArrayList<>(List.of(Transport.Type.CLEAR)));
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(bobsAddress.getHost(), bobsAddress.getPort()));
+            ConnectionHandshake connectionHandshake = new ConnectionHandshake(socket,
+                    new BanList(),
+                    (int) TimeUnit.SECONDS.toMillis(getTimeout()),
+                    clientCapability,
+                    authorizationService);
+            ConnectionHandshake.Result result = connectionHandshake.start(Load.INITIAL_LOAD, bobsAddress);
+            // Bob announces its features. We did not announce any, so we are treated like a peer of an older version.
+            assertThat(result.getCapability().hasFeature(Feature.REUSABLE_AUTHORIZATION_TOKEN)).isTrue();
+            assertThat(bobsMessages.connections.poll(getTimeout(), TimeUnit.SECONDS)).isNotNull();
+
+            ConfidentialMessage message = createLargeMessage();
+            AuthorizationToken token = authorizationService.createToken(message,
+                    result.getLoad(),
+                    bobsAddress.getFullAddress(),
+                    1);
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            new NetworkEnvelope(NetworkEnvelope.VERSION, token, message).toProto().writeDelimitedTo(byteArrayOutputStream);
+            byte[] bytes = byteArrayOutputStream.toByteArray();
+
+            // First chunk ends inside the length prefix, the others inside the message
+            OutputStream outputStream = socket.getOutputStream();
+            int[] chunkEnds = {1, 100, bytes.length / 2, bytes.length};
+            int start = 0;
+            for (int end : chunkEnds) {
+                outputStream.write(bytes, start, end - start);
+                outputStream.flush();
+                start = end;
+                if (end < bytes.length) {
+                    Thread.sleep(100);
+                    assertThat(bobsMessages.messages).isEmpty();
+                }
+            }
+            assertThat(bobsMessages.messages.poll(getTimeout(), TimeUnit.SECONDS)).isEqualTo(message);
+        }
+
+        // Close by peer
+        assertThat(bobsMessages.disconnects.poll(getTimeout(), TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void unparseableMessageClosesOnlyItsConnection() throws Exception {
+        Node bob = createNode("bob");
+        MessageCollector bobsMessages = new MessageCollector();
+        bob.addListener(bobsMessages);
+        Address bobsAddress = bob.findMyAddress().orElseThrow();
+
+        AuthorizationService authorizationService = new AuthorizationService(new EquihashProofOfWorkService());
+        Capability clientCapability = new Capability(Address.localHost(NetworkUtils.findFreeSystemPort()),
+                new ArrayList<>(List.of(Transport.Type.CLEAR)));
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(bobsAddress.getHost(), bobsAddress.getPort()));
+            ConnectionHandshake connectionHandshake = new ConnectionHandshake(socket,
+                    new BanList(),
+                    (int) TimeUnit.SECONDS.toMillis(getTimeout()),
+                    clientCapability,
+                    authorizationService);
+            ConnectionHandshake.Result result = connectionHandshake.start(Load.INITIAL_LOAD, bobsAddress);
+            assertThat(bobsMessages.connections.poll(getTimeout(), TimeUnit.SECONDS)).isNotNull();
+
+            // Without a network message NetworkEnvelope.fromProto throws an UnresolvableProtobufMessageException,
+            // like for an unknown message type sent by a peer with a newer version
+            Ping ping = new Ping(1);
+            AuthorizationToken token = authorizationService.createToken(ping,
+                    result.getLoad(),
+                    bobsAddress.getFullAddress(),
+                    1);
+            new NetworkEnvelope(NetworkEnvelope.VERSION, token, ping).toProto().toBuilder()
+                    .clearNetworkMessage()
+                    .build()
+                    .writeDelimitedTo(socket.getOutputStream());
+            socket.getOutputStream().flush();
+
+            assertThat(bobsMessages.disconnects.poll(getTimeout(), TimeUnit.SECONDS)).isNotNull();
+            assertThat(bobsMessages.messages).isEmpty();
+        }
+
+        // Bob's selector thread is still serving new connections
+        Node alice = createNode("alice");
+        MessageCollector alicesMessages = new MessageCollector();
+        alice.addListener(alicesMessages);
+        bob.addListener(new Node.Listener() {
+            @Override
+            public void onMessage(NetworkMessage networkMessage, Connection connection, String nodeId) {
+                if (networkMessage instanceof Ping) {
+                    bob.send(new Pong(((Ping) networkMessage).getNonce()), connection);
+                }
+            }
+
+            @Override
+            public void onConnection(Connection connection) {
+            }
+
+            @Override
+            public void onDisconnect(Connection connection, CloseReason closeReason) {
+            }
+        });
+        Connection connection = alice.getConnection(bobsAddress);
+        alice.send(new Ping(42), connection);
+        assertThat(bobsMessages.messages.poll(getTimeout(), TimeUnit.SECONDS)).isEqualTo(new Ping(42));
+        assertThat(alicesMessages.messages.poll(getTimeout(), TimeUnit.SECONDS)).isEqualTo(new Pong(42));
+    }
+
+    @Override
+    protected long getTimeout() {
+        return 10;
+    }
+
+    private Node createNode(String nodeId) {
+        Node.Config config = new Node.Config(Transport.Type.CLEAR,
+                Set.of(Transport.Type.CLEAR),
+                new AuthorizationService(new EquihashProofOfWorkService()),
+                getTransportConfig(FileUtils.createTempDir()),
+                (int) TimeUnit.SECONDS.toMillis(getTimeout()),
+                Node.IoMode.NIO);
+        Node node = new Node(new BanList(), config, nodeId);
+        nodes.add(node);
+        node.initialize(NetworkUtils.findFreeSystemPort());
+        return node;
+    }
+
+    private static ConfidentialMessage createLargeMessage() throws GeneralSecurityException {
+        KeyPair keyPair = KeyGeneration.generateKeyPair();
+        byte[] cipherText = new byte[19_000];
+        new Random().nextBytes(cipherText);
+        byte[] signature = SignatureUtil.sign(cipherText, keyPair.getPrivate());
+        ConfidentialData confidentialData = new ConfidentialData(keyPair.getPublic().getEncoded(),
+                new byte[16],
+                cipherText,
+                signature);
+        return new ConfidentialMessage(confidentialData, "receiverKeyId");
+    }
+
+    private static class MessageCollector implements Node.Listener {
+        private final BlockingQueue<NetworkMessage> messages = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Connection> connections = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Connection> disconnects = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onMessage(NetworkMessage networkMessage, Connection connection, String nodeId) {
+            messages.add(networkMessage);
+        }
+
+        @Override
+        public void onConnection(Connection connection) {
+            connections.add(connection);
+        }
+
+        @Override
+        public void onDisconnect(Connection connection, CloseReason closeReason) {
+            disconnects.add(connection);
+        }
+    }
+}
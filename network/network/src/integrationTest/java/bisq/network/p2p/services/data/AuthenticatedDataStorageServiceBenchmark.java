@@ -0,0 +1,179 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data;
+
+import bisq.common.util.FileUtils;
+import bisq.network.p2p.services.data.storage.DataStorageService;
+import bisq.network.p2p.services.data.storage.DistributedData;
+import bisq.network.p2p.services.data.storage.MetaData;
+import bisq.network.p2p.services.data.storage.Result;
+import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataStorageService;
+import bisq.network.p2p.services.data.storage.auth.DefaultAuthenticatedData;
+import bisq.persistence.PersistenceService;
+import bisq.security.KeyGeneration;
+import com.google.protobuf.StringValue;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of adding AddAuthenticatedDataRequests to an AuthenticatedDataStorageService, with a single
+ * thread, with concurrent threads and with addAll as used for inventory batches. It is not run by the test tasks, run
+ * the main method to get the results logged. The number of entries (at most 10000) and threads can be passed as
+ * arguments.
+ */
+@Slf4j
+public class AuthenticatedDataStorageServiceBenchmark {
+    // The store rejects data beyond the max map size of the MetaData
+    private static final int MAX_NUM_DATA = MetaData.MAX_MAP_SIZE_10_000;
+    private static final int DEFAULT_NUM_THREADS = 8;
+    private static final int NUM_ROUNDS = 5;
+
+    @EqualsAndHashCode
+    private static final class BenchmarkData implements DistributedData {
+        private final String text;
+        private final MetaData metaData = new MetaData(MetaData.TTL_10_DAYS,
+                getClass().getSimpleName(),
+                MetaData.MAX_MAP_SIZE_10_000);
+
+        private BenchmarkData(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public StringValue toProto() {
+            return StringValue.of(text);
+        }
+
+        @Override
+        public MetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public boolean isDataInvalid(byte[] pubKeyHash) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int numData = args.length > 0 ? Math.min(Integer.parseInt(args[0]), MAX_NUM_DATA) : MAX_NUM_DATA;
+        int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUM_THREADS;
+        KeyPair keyPair = KeyGeneration.generateKeyPair();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            // The first round warms up the JIT, so we log only the later rounds
+            for (int round = 0; round < NUM_ROUNDS; round++) {
+                runRound(round, numData, numThreads, keyPair, executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        System.exit(0);
+    }
+
+    private static void runRound(int round,
+                                 int numData,
+                                 int numThreads,
+                                 KeyPair keyPair,
+                                 ExecutorService executor) throws Exception {
+        long singleThreaded;
+        AuthenticatedDataStorageService store = createStore();
+        try {
+            List<AddAuthenticatedDataRequest> requests = createRequests(store, numData, keyPair, "single");
+            long ts = System.nanoTime();
+            requests.forEach(store::add);
+            singleThreaded = System.nanoTime() - ts;
+        } finally {
+            store.shutdown();
+        }
+
+        long multiThreaded;
+        store = createStore();
+        try {
+            List<AddAuthenticatedDataRequest> requests = createRequests(store, numData, keyPair, "multi");
+            long ts = System.nanoTime();
+            List<Future<Result>> futures = new ArrayList<>();
+            AuthenticatedDataStorageService finalStore = store;
+            requests.forEach(request -> futures.add(executor.submit(() -> finalStore.add(request))));
+            for (Future<Result> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            multiThreaded = System.nanoTime() - ts;
+        } finally {
+            store.shutdown();
+        }
+
+        long batched;
+        store = createStore();
+        try {
+            List<AddAuthenticatedDataRequest> requests = createRequests(store, numData, keyPair, "batch");
+            long ts = System.nanoTime();
+            store.addAll(requests, executor).get(5, TimeUnit.MINUTES);
+            batched = System.nanoTime() - ts;
+        } finally {
+            store.shutdown();
+        }
+
+        if (round > 0) {
+            log.info("Round {}: add throughput for {} entries: " +
+                            "1 thread: {} ops/s; {} threads: {} ops/s; addAll: {} ops/s",
+                    round,
+                    numData,
+                    toOpsPerSec(numData, singleThreaded),
+                    numThreads,
+                    toOpsPerSec(numData, multiThreaded),
+                    toOpsPerSec(numData, batched));
+        }
+    }
+
+    private static AuthenticatedDataStorageService createStore() throws IOException {
+        Path tmpDir = FileUtils.createTempDir();
+        PersistenceService persistenceService = new PersistenceService(tmpDir.toAbsolutePath().toString());
+        return new AuthenticatedDataStorageService(persistenceService,
+                "AuthenticatedDataStore",
+                BenchmarkData.class.getSimpleName(),
+                DataStorageService.PersistenceMode.SNAPSHOT);
+    }
+
+    private static List<AddAuthenticatedDataRequest> createRequests(AuthenticatedDataStorageService store,
+                                                                    int numData,
+                                                                    KeyPair keyPair,
+                                                                    String prefix) throws Exception {
+        List<AddAuthenticatedDataRequest> requests = new ArrayList<>();
+        for (int i = 0; i < numData; i++) {
+            DefaultAuthenticatedData data = new DefaultAuthenticatedData(new BenchmarkData(prefix + "-" + i));
+            requests.add(AddAuthenticatedDataRequest.from(store, data, keyPair));
+        }
+        return requests;
+    }
+
+    private static long toOpsPerSec(int numOps, long nanos) {
+        return numOps * 1_000_000_000L / Math.max(1, nanos);
+    }
+}
@@ -19,10 +19,15 @@ package bisq.network;
 
 
 import bisq.common.application.Service;
+import bisq.common.data.ByteArray;
 import bisq.common.observable.Observable;
+import bisq.common.threading.BlockingIoExecutor;
 import bisq.common.threading.ExecutorFactory;
+import bisq.common.threading.ShardedExecutor;
+import bisq.common.timer.TimerService;
 import bisq.common.util.CompletableFutureUtils;
 import bisq.common.util.NetworkUtils;
+import bisq.common.util.OsUtils;
 import bisq.network.http.HttpService;
 import bisq.network.http.common.BaseHttpClient;
 import bisq.network.p2p.ServiceNode;
@@ -31,6 +36,7 @@ import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.Address;
 import bisq.network.p2p.node.Connection;
 import bisq.network.p2p.node.Node;
+import bisq.network.p2p.node.NodesById;
 import bisq.network.p2p.node.transport.Transport;
 import bisq.network.p2p.services.confidential.ConfidentialMessageListener;
 import bisq.network.p2p.services.confidential.ConfidentialMessageService;
@@ -42,6 +48,7 @@ import bisq.network.p2p.services.data.storage.append.AppendOnlyData;
 import bisq.network.p2p.services.data.storage.auth.DefaultAuthenticatedData;
 import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedData;
 import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedDistributedData;
+import bisq.network.p2p.services.data.storage.mailbox.MailboxReceiverTag;
 import bisq.persistence.Persistence;
 import bisq.persistence.PersistenceClient;
 import bisq.persistence.PersistenceService;
@@ -61,6 +68,7 @@ import java.security.PublicKey;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -78,8 +86,23 @@ import static java.util.concurrent.CompletableFuture.*;
 @Slf4j
 @Getter
 public class NetworkService implements PersistenceClient<NetworkServiceStore>, Service {
-    public static final ExecutorService NETWORK_IO_POOL = ExecutorFactory.newCachedThreadPool("NetworkService.network-IO-pool");
+    /**
+     * Executor for blocking network IO (connection read loops, handshakes, sends, broadcasts, inventory responses).
+     * Runs on platform threads by default. Seed nodes with many connections can use virtual threads
+     * (requires Java 21+) by setting ioExecutorMode=VIRTUAL_THREADS in the network config.
+     */
+    public static final BlockingIoExecutor NETWORK_IO_POOL = new BlockingIoExecutor("NetworkService.network-IO-pool");
     public static final ExecutorService DISPATCHER = ExecutorFactory.newSingleThreadExecutor("NetworkService.dispatcher");
+    /**
+     * Dispatcher for inbound messages and connection lifecycle events. Tasks are sharded by the connection id, thus
+     * ordering is preserved per connection while messages from different peers are processed in parallel.
+     */
+    public static final ShardedExecutor MESSAGE_DISPATCHER = new ShardedExecutor("NetworkService.message-dispatcher",
+            OsUtils.availableProcessors());
+    /**
+     * Bounded pool for the CPU bound signature verification of bulk data like the entries of inventory responses.
+     */
+    public static final ExecutorService VERIFICATION_POOL = ExecutorFactory.newFixedThreadPool("NetworkService.verification-pool");
 
     public static class SendMessageResult extends HashMap<Transport.Type, ConfidentialMessageService.Result> {
         public SendMessageResult() {
@@ -96,16 +119,26 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
     private final Set<Transport.Type> supportedTransportTypes;
     private final ServiceNodesByTransport serviceNodesByTransport;
     private final Optional<DataService> dataService;
+    private final NodesById.IdentityMode identityMode;
 
     public NetworkService(NetworkServiceConfig config,
                           PersistenceService persistenceService,
                           KeyPairService keyPairService,
                           ProofOfWorkService proofOfWorkService) {
         this.keyPairService = keyPairService;
+        // Needs to be set before any network IO task is executed
+        NETWORK_IO_POOL.setExecutorMode(config.getIoExecutorMode());
         httpService = new HttpService();
 
         boolean supportsDataService = config.getServiceNodeConfig().getServices().contains(ServiceNode.Service.DATA);
-        dataService = supportsDataService ? Optional.of(new DataService(new StorageService(persistenceService))) : Optional.empty();
+        Optional<Supplier<Set<ByteArray>>> mailboxReceiverTagsSupplier = config.isFilterMailboxInventory() ?
+                Optional.of(() -> keyPairService.getPublicKeys().stream()
+                        .map(MailboxReceiverTag::fromPublicKey)
+                        .collect(Collectors.toSet())) :
+                Optional.empty();
+        dataService = supportsDataService ? Optional.of(new DataService(new StorageService(persistenceService, config.getDataStorePersistenceMode()),
+                config.getBroadcasterConfig(),
+                mailboxReceiverTagsSupplier)) : Optional.empty();
 
         socks5ProxyAddress = config.getSocks5ProxyAddress();
         supportedTransportTypes = config.getSupportedTransportTypes();
@@ -117,9 +150,12 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
                 dataService,
                 keyPairService,
                 persistenceService,
-                proofOfWorkService);
+                proofOfWorkService,
+                config.getNodeIoMode(),
+                config.getOutboundQueueConfig());
 
         defaultNodePortByTransportType = config.getDefaultNodePortByTransportType();
+        identityMode = config.getServiceNodeConfig().getIdentityMode();
 
         persistence = persistenceService.getOrCreatePersistence(this, persistableStore);
     }
@@ -161,6 +197,7 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
 
     public CompletableFuture<Boolean> shutdown() {
         log.info("shutdown");
+        log.info(TimerService.getStatsAsString());
         return CompletableFutureUtils.allOf(dataService.map(DataService::shutdown).orElse(completedFuture(true)),
                         serviceNodesByTransport.shutdown(),
                         httpService.shutdown())
@@ -178,6 +215,20 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
     }
 
     public Map<Transport.Type, CompletableFuture<Void>> initializeNode(String nodeId, PubKey pubKey) {
+        if (identityMode == NodesById.IdentityMode.ISOLATED && persistableStore.removeNetworkIdIfHasDefaultNodeAddress(nodeId)) {
+            // The identity got created in MULTIPLEXED mode. We create a new networkId with the address of its own
+            // node. Messages to the old address are still received by the default node.
+            log.info("Removed networkId of {} as it has the address of the default node", nodeId);
+            persist();
+        }
+        if (identityMode == NodesById.IdentityMode.MULTIPLEXED && !nodeId.equals(Node.DEFAULT)) {
+            if (hasOwnPublishedAddress(nodeId, pubKey)) {
+                serviceNodesByTransport.addIsolatedNodeId(nodeId);
+            } else {
+                // The node shares the default node, so we must not start it with a port of its own
+                return initializeNode(getDefaultPortByTransport(), nodeId, pubKey);
+            }
+        }
         return initializeNode(getOrCreatePortByTransport(nodeId, pubKey), nodeId, pubKey);
     }
 
@@ -490,6 +541,14 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
     }
 
     // If not persisted we try to create the networkId and persist if available.
+    /**
+     * Identities created before MULTIPLEXED mode got enabled have published the address of their own node (e.g. in
+     * offers). We keep their node, so they stay reachable.
+     */
+    private boolean hasOwnPublishedAddress(String nodeId, PubKey pubKey) {
+        return findNetworkId(nodeId, pubKey).isPresent() && !persistableStore.hasDefaultNodeAddress(nodeId);
+    }
+
     private Optional<NetworkId> maybePersistNewNetworkId(String nodeId, PubKey pubKey) {
         return findNetworkId(nodeId, pubKey)
                 .or(() -> createNetworkId(nodeId, pubKey)
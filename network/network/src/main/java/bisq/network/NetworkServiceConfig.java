@@ -17,13 +17,19 @@
 
 package bisq.network;
 
+import bisq.common.threading.ExecutorFactory;
 import bisq.common.util.ConfigUtil;
 import bisq.network.common.TransportConfig;
 import bisq.network.p2p.ServiceNode;
 import bisq.network.p2p.node.Address;
+import bisq.network.p2p.node.Node;
+import bisq.network.p2p.node.NodesById;
+import bisq.network.p2p.node.OutboundQueue;
 import bisq.network.p2p.node.transport.ClearNetTransport;
 import bisq.network.p2p.node.transport.I2PTransport;
 import bisq.network.p2p.node.transport.Transport;
+import bisq.network.p2p.services.data.broadcast.Broadcaster;
+import bisq.network.p2p.services.data.storage.DataStorageService;
 import bisq.network.p2p.services.peergroup.PeerGroup;
 import bisq.network.p2p.services.peergroup.PeerGroupService;
 import bisq.network.p2p.services.peergroup.exchange.PeerExchangeStrategy;
@@ -43,11 +49,15 @@ public final class NetworkServiceConfig {
     public static NetworkServiceConfig from(Path baseDir, Config config) {
         Set<Transport.Type> supportedTransportTypes = new HashSet<>(config.getEnumList(Transport.Type.class, "supportedTransportTypes"));
 
+        NodesById.IdentityMode identityMode = config.hasPath("identityMode") ?
+                config.getEnum(NodesById.IdentityMode.class, "identityMode") :
+                NodesById.IdentityMode.DEFAULT;
         ServiceNode.Config serviceNodeConfig = new ServiceNode.Config(Set.of(
                 ServiceNode.Service.CONFIDENTIAL,
                 ServiceNode.Service.PEER_GROUP,
                 ServiceNode.Service.DATA,
-                ServiceNode.Service.MONITOR));
+                ServiceNode.Service.MONITOR),
+                identityMode);
 
         Config seedConfig = config.getConfig("seedAddressByTransportType");
         // Only read seed addresses for explicitly supported address types
@@ -92,6 +102,28 @@ public final class NetworkServiceConfig {
 
         Map<Transport.Type, TransportConfig> configByTransportType = createConfigByTransportType(config, baseDir);
 
+        Node.IoMode nodeIoMode = config.hasPath("nodeIoMode") ?
+                config.getEnum(Node.IoMode.class, "nodeIoMode") :
+                Node.IoMode.BLOCKING;
+
+        ExecutorFactory.ExecutorMode ioExecutorMode = config.hasPath("ioExecutorMode") ?
+                config.getEnum(ExecutorFactory.ExecutorMode.class, "ioExecutorMode") :
+                ExecutorFactory.ExecutorMode.PLATFORM_THREADS;
+
+        Broadcaster.Config broadcasterConfig = config.hasPath("broadcaster") ?
+                Broadcaster.Config.from(config.getConfig("broadcaster")) :
+                new Broadcaster.Config();
+
+        OutboundQueue.Config outboundQueueConfig = config.hasPath("outboundQueue") ?
+                OutboundQueue.Config.from(config.getConfig("outboundQueue")) :
+                new OutboundQueue.Config();
+
+        DataStorageService.PersistenceMode dataStorePersistenceMode = config.hasPath("dataStorePersistenceMode") ?
+                config.getEnum(DataStorageService.PersistenceMode.class, "dataStorePersistenceMode") :
+                DataStorageService.PersistenceMode.SNAPSHOT;
+
+        boolean filterMailboxInventory = config.hasPath("filterMailboxInventory") &&
+                config.getBoolean("filterMailboxInventory");
 
         return new NetworkServiceConfig(baseDir.toAbsolutePath().toString(),
                 supportedTransportTypes,
@@ -100,7 +132,13 @@ public final class NetworkServiceConfig {
                 peerGroupServiceConfigByTransport,
                 defaultNodePortByTransportType,
                 seedAddressesByTransport,
-                Optional.empty());
+                Optional.empty(),
+                nodeIoMode,
+                ioExecutorMode,
+                broadcasterConfig,
+                outboundQueueConfig,
+                dataStorePersistenceMode,
+                filterMailboxInventory);
     }
 
     private static Map<Transport.Type, Integer> createDefaultNodePortByTransportType(Config config) {
@@ -177,6 +215,12 @@ public final class NetworkServiceConfig {
     private final Map<Transport.Type, Integer> defaultNodePortByTransportType;
     private final Map<Transport.Type, Set<Address>> seedAddressesByTransport;
     private final Optional<String> socks5ProxyAddress;
+    private final Node.IoMode nodeIoMode;
+    private final ExecutorFactory.ExecutorMode ioExecutorMode;
+    private final Broadcaster.Config broadcasterConfig;
+    private final OutboundQueue.Config outboundQueueConfig;
+    private final DataStorageService.PersistenceMode dataStorePersistenceMode;
+    private final boolean filterMailboxInventory;
 
     public NetworkServiceConfig(String baseDir,
                                 Set<Transport.Type> supportedTransportTypes,
@@ -185,7 +229,13 @@ public final class NetworkServiceConfig {
                                 Map<Transport.Type, PeerGroupService.Config> peerGroupServiceConfigByTransport,
                                 Map<Transport.Type, Integer> defaultNodePortByTransportType,
                                 Map<Transport.Type, Set<Address>> seedAddressesByTransport,
-                                Optional<String> socks5ProxyAddress) {
+                                Optional<String> socks5ProxyAddress,
+                                Node.IoMode nodeIoMode,
+                                ExecutorFactory.ExecutorMode ioExecutorMode,
+                                Broadcaster.Config broadcasterConfig,
+                                OutboundQueue.Config outboundQueueConfig,
+                                DataStorageService.PersistenceMode dataStorePersistenceMode,
+                                boolean filterMailboxInventory) {
         this.baseDir = baseDir;
         this.supportedTransportTypes = supportedTransportTypes;
         this.configByTransportType = filterMap(supportedTransportTypes, configByTransportType);
@@ -194,6 +244,12 @@ public final class NetworkServiceConfig {
         this.defaultNodePortByTransportType = filterMap(supportedTransportTypes, defaultNodePortByTransportType);
         this.seedAddressesByTransport = filterMap(supportedTransportTypes, seedAddressesByTransport);
         this.socks5ProxyAddress = socks5ProxyAddress;
+        this.nodeIoMode = nodeIoMode;
+        this.ioExecutorMode = ioExecutorMode;
+        this.broadcasterConfig = broadcasterConfig;
+        this.outboundQueueConfig = outboundQueueConfig;
+        this.dataStorePersistenceMode = dataStorePersistenceMode;
+        this.filterMailboxInventory = filterMailboxInventory;
     }
 
     // In case our config contains not supported transport types we remove them
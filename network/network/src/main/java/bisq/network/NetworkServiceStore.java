@@ -19,6 +19,7 @@ package bisq.network;
 
 import bisq.common.proto.ProtoResolver;
 import bisq.common.proto.UnresolvableProtobufMessageException;
+import bisq.network.p2p.node.Node;
 import bisq.persistence.PersistableStore;
 import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.Getter;
@@ -45,6 +46,32 @@ public final class NetworkServiceStore implements PersistableStore<NetworkServic
         this.networkIdByNodeId.putAll(networkIdByNodeId);
     }
 
+    /**
+     * @return True if the networkId of the given nodeId has the address of the default node. This is the case for
+     * identities which got created in MULTIPLEXED mode.
+     */
+    public boolean hasDefaultNodeAddress(String nodeId) {
+        if (nodeId.equals(Node.DEFAULT)) {
+            return false;
+        }
+        NetworkId defaultNetworkId = networkIdByNodeId.get(Node.DEFAULT);
+        NetworkId networkId = networkIdByNodeId.get(nodeId);
+        return defaultNetworkId != null && networkId != null &&
+                defaultNetworkId.getAddressByNetworkType().equals(networkId.getAddressByNetworkType());
+    }
+
+    /**
+     * Removes the networkId of the given nodeId if it has the address of the default node, so that a new networkId
+     * with the address of its own node gets created. Used if we run in ISOLATED mode, but the identity got created
+     * in MULTIPLEXED mode. Otherwise, we would start the node of the identity with the port of the default node.
+     *
+     * @return True if the networkId got removed.
+     */
+    public boolean removeNetworkIdIfHasDefaultNodeAddress(String nodeId) {
+        NetworkId networkId = networkIdByNodeId.get(nodeId);
+        return networkId != null && hasDefaultNodeAddress(nodeId) && networkIdByNodeId.remove(nodeId, networkId);
+    }
+
     @Override
     public bisq.network.protobuf.NetworkServiceStore toProto() {
         return bisq.network.protobuf.NetworkServiceStore.newBuilder()
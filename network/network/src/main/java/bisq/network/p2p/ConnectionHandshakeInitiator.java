@@ -26,7 +26,6 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
@@ -83,7 +82,6 @@ public class ConnectionHandshakeInitiator {
         boolean isAuthorized = authorizationService.isAuthorized(response,
                 responseNetworkEnvelope.getAuthorizationToken(),
                 myLoad,
-                UUID.randomUUID().toString(),
                 myAddress);
 
         if (isAuthorized) {
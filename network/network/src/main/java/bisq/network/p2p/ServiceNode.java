@@ -61,9 +61,15 @@ public class ServiceNode {
     @Getter
     public static final class Config {
         private final Set<Service> services;
+        private final NodesById.IdentityMode identityMode;
 
         public Config(Set<Service> services) {
+            this(services, NodesById.IdentityMode.DEFAULT);
+        }
+
+        public Config(Set<Service> services, NodesById.IdentityMode identityMode) {
             this.services = services;
+            this.identityMode = identityMode;
         }
     }
 
@@ -112,7 +118,7 @@ public class ServiceNode {
                        Set<Address> seedNodeAddresses,
                        Transport.Type transportType) {
         BanList banList = new BanList();
-        nodesById = new NodesById(banList, nodeConfig);
+        nodesById = new NodesById(banList, nodeConfig, config.getIdentityMode());
         defaultNode = nodesById.getOrCreateDefaultNode();
         Set<Service> services = config.getServices();
 
@@ -172,6 +178,10 @@ public class ServiceNode {
         return nodesById.isNodeInitialized(nodeId);
     }
 
+    public void addIsolatedNodeId(String nodeId) {
+        nodesById.addIsolatedNodeId(nodeId);
+    }
+
     public void initializePeerGroup() {
         peerGroupService.ifPresent(PeerGroupService::initialize);
     }
@@ -28,6 +28,7 @@ import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.Address;
 import bisq.network.p2p.node.Connection;
 import bisq.network.p2p.node.Node;
+import bisq.network.p2p.node.OutboundQueue;
 import bisq.network.p2p.node.authorization.AuthorizationService;
 import bisq.network.p2p.node.transport.Transport;
 import bisq.network.p2p.services.confidential.ConfidentialMessageListener;
@@ -72,7 +73,9 @@ public class ServiceNodesByTransport {
                                    Optional<DataService> dataService,
                                    KeyPairService keyPairService,
                                    PersistenceService persistenceService,
-                                   ProofOfWorkService proofOfWorkService) {
+                                   ProofOfWorkService proofOfWorkService,
+                                   Node.IoMode nodeIoMode,
+                                   OutboundQueue.Config outboundQueueConfig) {
         this.supportedTransportTypes = supportedTransportTypes;
         supportedTransportTypes.forEach(transportType -> {
             TransportConfig transportConfig = configByTransportType.get(transportType);
@@ -81,7 +84,9 @@ public class ServiceNodesByTransport {
                     supportedTransportTypes,
                     new AuthorizationService(proofOfWorkService),
                     transportConfig,
-                    transportConfig.getSocketTimeout());
+                    transportConfig.getSocketTimeout(),
+                    nodeIoMode,
+                    outboundQueueConfig);
             Set<Address> seedAddresses = seedAddressesByTransport.get(transportType);
             checkNotNull(seedAddresses, "Seed nodes must be setup for %s", transportType);
             PeerGroupService.Config peerGroupServiceConfig = peerGroupServiceConfigByTransport.get(transportType);
@@ -120,6 +125,10 @@ public class ServiceNodesByTransport {
         return map.get(type).isNodeInitialized(nodeId);
     }
 
+    public void addIsolatedNodeId(String nodeId) {
+        map.values().forEach(serviceNode -> serviceNode.addIsolatedNodeId(nodeId));
+    }
+
     public void initializePeerGroup(Transport.Type type) {
         map.get(type).initializePeerGroup();
     }
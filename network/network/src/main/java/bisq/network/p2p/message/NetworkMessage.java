@@ -47,6 +47,14 @@ public interface NetworkMessage extends Proto {
 
     bisq.network.protobuf.NetworkMessage toProto();
 
+    /**
+     * The payload used for the proof of work of the AuthorizationToken. Older versions parse the message with their
+     * proto definition and serialize it again for the check, so fields they do not know must be excluded.
+     */
+    default byte[] getAuthorizationPayload() {
+        return toProto().toByteArray();
+    }
+
     static NetworkMessage fromProto(bisq.network.protobuf.NetworkMessage proto) {
         switch (proto.getMessageCase()) {
             case CONNECTIONHANDSHAKEREQUEST: {
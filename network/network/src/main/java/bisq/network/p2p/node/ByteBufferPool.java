@@ -0,0 +1,149 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct ByteBuffers organized in power of two size classes.
+ * Buffers larger than MAX_POOLED_BUFFER_SIZE are allocated on the heap and not pooled, so that rare large messages
+ * do not pin direct memory. The total capacity of the retained buffers is limited by maxPooledBytes, buffers
+ * released beyond that limit are left to the garbage collector.
+ */
+public class ByteBufferPool {
+    public static final int MIN_BUFFER_SIZE = 64;
+    public static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    private static final int NUM_SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_POOLED_BUFFER_SIZE) -
+            Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE) + 1;
+
+    private final String name;
+    private final long maxPooledBytes;
+    private final Queue<ByteBuffer>[] freeBuffersBySizeClass;
+
+    // Metrics
+    @Getter
+    private final AtomicLong numAcquired = new AtomicLong();
+    @Getter
+    private final AtomicLong numReleased = new AtomicLong();
+    @Getter
+    private final AtomicLong numPoolHits = new AtomicLong();
+    @Getter
+    private final AtomicLong numPoolMisses = new AtomicLong();
+    @Getter
+    private final AtomicLong numUnpooledAllocations = new AtomicLong();
+    @Getter
+    private final AtomicLong numDiscarded = new AtomicLong();
+    @Getter
+    private final AtomicLong allocatedDirectBytes = new AtomicLong();
+    @Getter
+    private final AtomicLong pooledBytes = new AtomicLong();
+    @Getter
+    private final AtomicLong borrowedBytes = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public ByteBufferPool(String name, long maxPooledBytes) {
+        this.name = name;
+        this.maxPooledBytes = maxPooledBytes;
+        freeBuffersBySizeClass = new Queue[NUM_SIZE_CLASSES];
+        for (int i = 0; i < NUM_SIZE_CLASSES; i++) {
+            freeBuffersBySizeClass[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * @return A cleared buffer with a capacity of at least minCapacity. The buffer has to be passed to release once
+     * it is not used anymore.
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        numAcquired.incrementAndGet();
+        if (minCapacity > MAX_POOLED_BUFFER_SIZE) {
+            numUnpooledAllocations.incrementAndGet();
+            borrowedBytes.addAndGet(minCapacity);
+            return ByteBuffer.allocate(minCapacity);
+        }
+
+        int sizeClass = getSizeClass(minCapacity);
+        int capacity = MIN_BUFFER_SIZE << sizeClass;
+        ByteBuffer buffer = freeBuffersBySizeClass[sizeClass].poll();
+        if (buffer != null) {
+            numPoolHits.incrementAndGet();
+            pooledBytes.addAndGet(-capacity);
+        } else {
+            numPoolMisses.incrementAndGet();
+            allocatedDirectBytes.addAndGet(capacity);
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+        borrowedBytes.addAndGet(capacity);
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        numReleased.incrementAndGet();
+        int capacity = buffer.capacity();
+        borrowedBytes.addAndGet(-capacity);
+        if (!buffer.isDirect() || !isSizeClassCapacity(capacity)) {
+            // Unpooled heap buffer
+            return;
+        }
+
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            allocatedDirectBytes.addAndGet(-capacity);
+            numDiscarded.incrementAndGet();
+            return;
+        }
+        buffer.clear();
+        freeBuffersBySizeClass[getSizeClass(capacity)].offer(buffer);
+    }
+
+    public double getHitRate() {
+        long hits = numPoolHits.get();
+        long total = hits + numPoolMisses.get();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    public String getMetricsAsString() {
+        return name + " metrics:" +
+                " numAcquired=" + numAcquired.get() +
+                ", numReleased=" + numReleased.get() +
+                ", hitRate=" + String.format("%.2f", getHitRate() * 100) + " %" +
+                ", numUnpooledAllocations=" + numUnpooledAllocations.get() +
+                ", numDiscarded=" + numDiscarded.get() +
+                ", allocatedDirectBytes=" + allocatedDirectBytes.get() +
+                ", pooledBytes=" + pooledBytes.get() +
+                ", borrowedBytes=" + borrowedBytes.get();
+    }
+
+    private static int getSizeClass(int minCapacity) {
+        int capacity = Math.max(MIN_BUFFER_SIZE, minCapacity);
+        // Round up to next power of two
+        int exponent = 32 - Integer.numberOfLeadingZeros(capacity - 1);
+        return exponent - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+
+    private static boolean isSizeClassCapacity(int capacity) {
+        return capacity >= MIN_BUFFER_SIZE &&
+                capacity <= MAX_POOLED_BUFFER_SIZE &&
+                Integer.bitCount(capacity) == 1;
+    }
+}
@@ -24,8 +24,10 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Getter
@@ -34,12 +36,42 @@ import java.util.stream.Collectors;
 public final class Capability implements Proto {
     private final Address address;
     private final List<Transport.Type> supportedTransportTypes;
+    // Features are only exchanged in the connection handshake and are not part of the Capability proto, as older
+    // versions would drop the unknown field, which would break the proof of work check of messages containing a
+    // Capability (e.g. Peer at PeerExchange). See ConnectionHandshake.
+    @EqualsAndHashCode.Exclude
+    private final List<Feature> features;
 
     public Capability(Address address, List<Transport.Type> supportedTransportTypes) {
+        this(address, supportedTransportTypes, new ArrayList<>());
+    }
+
+    public Capability(Address address, List<Transport.Type> supportedTransportTypes, List<Feature> features) {
         this.address = address;
         this.supportedTransportTypes = supportedTransportTypes;
+        this.features = new ArrayList<>(features);
         // We need to sort deterministically as the data is used in the proof of work check
         Collections.sort(this.supportedTransportTypes);
+        Collections.sort(this.features);
+    }
+
+    public Capability withFeatures(List<Feature> features) {
+        return new Capability(address, supportedTransportTypes, features);
+    }
+
+    public boolean hasFeature(Feature feature) {
+        return features.contains(feature);
+    }
+
+    public List<String> getFeaturesAsStrings() {
+        return features.stream().map(Enum::name).collect(Collectors.toList());
+    }
+
+    public static List<Feature> featuresFromStrings(List<String> features) {
+        return features.stream()
+                .map(feature -> ProtobufUtils.enumFromProto(Feature.class, feature))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     public bisq.network.protobuf.Capability toProto() {
@@ -59,7 +59,7 @@ public abstract class Connection {
     }
 
     @Getter
-    protected final String id = StringUtils.createUid();
+    protected final String id;
     @Getter
     private final Capability peersCapability;
     @Getter
@@ -67,7 +67,11 @@ public abstract class Connection {
     @Getter
     private final Metrics metrics;
 
+    @Nullable
     private NetworkEnvelopeSocket networkEnvelopeSocket;
+    // Set if the connection is backed by a non-blocking socket channel. Reading is done by a selector thread in that case.
+    @Nullable
+    private final ConnectionChannel connectionChannel;
 
     private final Handler handler;
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
@@ -79,21 +83,28 @@ public abstract class Connection {
     private volatile boolean listeningStopped;
     @Getter
     private final AtomicInteger sentMessageCounter = new AtomicInteger(0);
-    private final Object writeLock = new Object();
+    // Only used for socket based connections. Connections backed by a ConnectionChannel are non-blocking and batch
+    // queued data at the NetworkEnvelopeSocketChannel.
+    @Nullable
+    private OutboundQueue outboundQueue;
 
     protected Connection(Socket socket,
                          Capability peersCapability,
                          Load peersLoad,
                          Metrics metrics,
                          Handler handler,
+                         OutboundQueue.Config outboundQueueConfig,
                          BiConsumer<Connection, Exception> errorHandler) {
+        this.id = StringUtils.createUid();
+        this.connectionChannel = null;
         this.peersCapability = peersCapability;
         this.peersLoad = peersLoad;
         this.handler = handler;
         this.metrics = metrics;
 
         try {
-            this.networkEnvelopeSocket = new NetworkEnvelopeSocket(socket);
+            this.networkEnvelopeSocket = new NetworkEnvelopeSocket(socket, metrics);
+            this.outboundQueue = new OutboundQueue(outboundQueueConfig, networkEnvelopeSocket::send);
         } catch (IOException exception) {
             log.error("Could not create objectOutputStream/objectInputStream for socket " + socket, exception);
             errorHandler.accept(this, exception);
@@ -105,11 +116,10 @@ public abstract class Connection {
             Thread.currentThread().setName("Connection.read-" + getThreadNameId());
             try {
                 while (isInputStreamActive()) {
-                    var proto = networkEnvelopeSocket.receiveNextEnvelope();
+                    NetworkEnvelope networkEnvelope = networkEnvelopeSocket.receiveNextEnvelope();
                     // parsing might need some time wo we check again if connection is still active
                     if (isInputStreamActive()) {
-                        checkNotNull(proto, "Proto from NetworkEnvelope.parseDelimitedFrom(inputStream) must not be null");
-                        NetworkEnvelope networkEnvelope = NetworkEnvelope.fromProto(proto);
+                        checkNotNull(networkEnvelope, "NetworkEnvelope from networkEnvelopeSocket.receiveNextEnvelope() must not be null");
                         if (networkEnvelope.getVersion() != NetworkEnvelope.VERSION) {
                             throw new ConnectionException("Invalid network version. " +
                                     networkEnvelope.getClass().getSimpleName());
@@ -117,8 +127,7 @@ public abstract class Connection {
                         NetworkMessage networkMessage = networkEnvelope.getNetworkMessage();
                         log.debug("Received message: {} at: {}",
                                 StringUtils.truncate(networkMessage.toString(), 200), this);
-                        metrics.onReceived(networkEnvelope);
-                        NetworkService.DISPATCHER.submit(() -> handler.handleNetworkMessage(networkMessage,
+                        NetworkService.MESSAGE_DISPATCHER.submit(getId(), () -> handler.handleNetworkMessage(networkMessage,
                                 networkEnvelope.getAuthorizationToken(),
                                 this));
                     }
@@ -137,27 +146,54 @@ public abstract class Connection {
         });
     }
 
+    protected Connection(ConnectionChannel connectionChannel, Handler handler) {
+        // We use the same id as the connectionChannel, so we can map from the channel to the connection
+        this.id = connectionChannel.getId();
+        this.connectionChannel = connectionChannel;
+        this.peersCapability = connectionChannel.getPeersCapability();
+        this.peersLoad = connectionChannel.getPeersLoad();
+        this.metrics = connectionChannel.getMetrics();
+        this.handler = handler;
+
+        connectionChannel.addListener(new ConnectionChannel.Listener() {
+            @Override
+            public void onNetworkMessage(NetworkMessage networkMessage) {
+                // Messages are delivered by the selector thread via Node.handleNetworkMessage
+            }
+
+            @Override
+            public void onConnectionClosed(CloseReason closeReason) {
+                close(closeReason);
+            }
+        });
+    }
+
     Connection send(NetworkMessage networkMessage, AuthorizationToken authorizationToken) {
         if (isStopped) {
             log.warn("Message not sent as connection has been shut down already. Message={}, Connection={}",
                     StringUtils.truncate(networkMessage.toString(), 200), this);
             throw new ConnectionClosedException(this);
         }
+        if (connectionChannel != null) {
+            try {
+                connectionChannel.send(networkMessage, authorizationToken);
+                return this;
+            } catch (ConnectionClosedException e) {
+                throw new ConnectionClosedException(this);
+            }
+        }
         try {
             NetworkEnvelope networkEnvelope = new NetworkEnvelope(NetworkEnvelope.VERSION, authorizationToken, networkMessage);
             boolean sent = false;
-            synchronized (writeLock) {
-                try {
-                    networkEnvelopeSocket.send(networkEnvelope);
-                    sent = true;
-                } catch (Throwable throwable) {
-                    if (!isStopped) {
-                        throw throwable;
-                    }
+            try {
+                checkNotNull(outboundQueue).send(networkEnvelope, OutboundQueue.Lane.from(networkMessage));
+                sent = true;
+            } catch (Throwable throwable) {
+                if (!isStopped) {
+                    throw throwable;
                 }
             }
             if (sent) {
-                metrics.onSent(networkEnvelope);
                 if (networkMessage instanceof CloseConnectionMessage) {
                     log.info("Sent {} from {}",
                             StringUtils.truncate(networkMessage.toString(), 300), this);
@@ -192,17 +228,29 @@ public abstract class Connection {
         if (future != null) {
             future.cancel(true);
         }
+        if (connectionChannel != null) {
+            connectionChannel.close(closeReason);
+        }
+        if (outboundQueue != null) {
+            outboundQueue.close();
+        }
         try {
-            networkEnvelopeSocket.close();
+            if (networkEnvelopeSocket != null) {
+                networkEnvelopeSocket.close();
+            }
         } catch (IOException ignore) {
         }
-        NetworkService.DISPATCHER.submit(() -> {
+        NetworkService.MESSAGE_DISPATCHER.submit(getId(), () -> {
             handler.handleConnectionClosed(this, closeReason);
             listeners.forEach(listener -> listener.onConnectionClosed(closeReason));
             listeners.clear();
         });
     }
 
+    boolean isListening() {
+        return !listeningStopped && !isStopped;
+    }
+
     void notifyListeners(NetworkMessage networkMessage) {
         listeners.forEach(listener -> listener.onNetworkMessage(networkMessage));
     }
@@ -240,7 +288,7 @@ public abstract class Connection {
     @Override
     public String toString() {
         return "'" + getClass().getSimpleName() + " [peerAddress=" + getPeersCapability().getAddress() +
-                ", socket=" + networkEnvelopeSocket +
+                ", socket=" + (connectionChannel != null ? connectionChannel.getNetworkEnvelopeSocketChannel() : networkEnvelopeSocket) +
                 ", keyId=" + getId() + "]'";
     }
 
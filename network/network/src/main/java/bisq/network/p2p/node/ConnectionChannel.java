@@ -101,7 +101,6 @@ public abstract class ConnectionChannel {
                 }
             }
             if (sent) {
-                metrics.onSent(networkEnvelope);
                 if (networkMessage instanceof CloseConnectionMessage) {
                     log.info("Sent {} from {}",
                             StringUtils.truncate(networkMessage.toString(), 300), this);
@@ -137,7 +136,7 @@ public abstract class ConnectionChannel {
             networkEnvelopeSocketChannel.close();
         } catch (IOException ignore) {
         }
-        NetworkService.DISPATCHER.submit(() -> {
+        NetworkService.MESSAGE_DISPATCHER.submit(getId(), () -> {
             listeners.forEach(listener -> listener.onConnectionClosed(closeReason));
             listeners.clear();
         });
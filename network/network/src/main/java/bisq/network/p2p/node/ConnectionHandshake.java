@@ -30,7 +30,6 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.net.Socket;
-import java.util.UUID;
 
 /**
  * At initial connection we exchange capabilities and require a valid AuthorizationToken (e.g. PoW).
@@ -44,6 +43,7 @@ public final class ConnectionHandshake {
     private final BanList banList;
     private final Capability capability;
     private final AuthorizationService authorizationService;
+    private final Metrics metrics = new Metrics();
 
     private NetworkEnvelopeSocket networkEnvelopeSocket;
 
@@ -61,16 +61,27 @@ public final class ConnectionHandshake {
 
         @Override
         public bisq.network.protobuf.NetworkMessage toProto() {
-            return getNetworkMessageBuilder().setConnectionHandshakeRequest(
-                            bisq.network.protobuf.ConnectionHandshake.Request.newBuilder()
-                                    .setCapability(capability.toProto())
-                                    .setLoad(load.toProto()))
+            return getNetworkMessageBuilder().setConnectionHandshakeRequest(getBuilder()
+                            .addAllFeatures(capability.getFeaturesAsStrings()))
                     .build();
         }
 
+        // Older versions do not know the features field, so we exclude it from the proof of work payload
+        @Override
+        public byte[] getAuthorizationPayload() {
+            return getNetworkMessageBuilder().setConnectionHandshakeRequest(getBuilder()).build().toByteArray();
+        }
+
+        private bisq.network.protobuf.ConnectionHandshake.Request.Builder getBuilder() {
+            return bisq.network.protobuf.ConnectionHandshake.Request.newBuilder()
+                    .setCapability(capability.toProto())
+                    .setLoad(load.toProto());
+        }
+
         public static Request fromProto(bisq.network.protobuf.ConnectionHandshake.Request proto) {
-            return new Request(Capability.fromProto(proto.getCapability()),
-                    Load.fromProto(proto.getLoad()));
+            Capability capability = Capability.fromProto(proto.getCapability())
+                    .withFeatures(Capability.featuresFromStrings(proto.getFeaturesList()));
+            return new Request(capability, Load.fromProto(proto.getLoad()));
         }
     }
 
@@ -88,16 +99,27 @@ public final class ConnectionHandshake {
 
         @Override
         public bisq.network.protobuf.NetworkMessage toProto() {
-            return getNetworkMessageBuilder().setConnectionHandshakeResponse(
-                            bisq.network.protobuf.ConnectionHandshake.Response.newBuilder()
-                                    .setCapability(capability.toProto())
-                                    .setLoad(load.toProto()))
+            return getNetworkMessageBuilder().setConnectionHandshakeResponse(getBuilder()
+                            .addAllFeatures(capability.getFeaturesAsStrings()))
                     .build();
         }
 
+        // Older versions do not know the features field, so we exclude it from the proof of work payload
+        @Override
+        public byte[] getAuthorizationPayload() {
+            return getNetworkMessageBuilder().setConnectionHandshakeResponse(getBuilder()).build().toByteArray();
+        }
+
+        private bisq.network.protobuf.ConnectionHandshake.Response.Builder getBuilder() {
+            return bisq.network.protobuf.ConnectionHandshake.Response.newBuilder()
+                    .setCapability(capability.toProto())
+                    .setLoad(load.toProto());
+        }
+
         public static Response fromProto(bisq.network.protobuf.ConnectionHandshake.Response proto) {
-            return new Response(Capability.fromProto(proto.getCapability()),
-                    Load.fromProto(proto.getLoad()));
+            Capability capability = Capability.fromProto(proto.getCapability())
+                    .withFeatures(Capability.featuresFromStrings(proto.getFeaturesList()));
+            return new Response(capability, Load.fromProto(proto.getLoad()));
         }
     }
 
@@ -130,7 +152,7 @@ public final class ConnectionHandshake {
             // socket.setSoLinger(true, 100);
             socket.setSoTimeout(socketTimeout);
 
-            this.networkEnvelopeSocket = new NetworkEnvelopeSocket(socket);
+            this.networkEnvelopeSocket = new NetworkEnvelopeSocket(socket, metrics);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -139,7 +161,6 @@ public final class ConnectionHandshake {
     // Client side protocol
     Result start(Load myLoad, Address peerAddress) {
         try {
-            Metrics metrics = new Metrics();
             Request request = new Request(capability, myLoad);
             AuthorizationToken token = authorizationService.createToken(request,
                     Load.INITIAL_LOAD,
@@ -149,14 +170,11 @@ public final class ConnectionHandshake {
             long ts = System.currentTimeMillis();
 
             networkEnvelopeSocket.send(requestNetworkEnvelope);
-            metrics.onSent(requestNetworkEnvelope);
 
-            bisq.network.protobuf.NetworkEnvelope responseProto = networkEnvelopeSocket.receiveNextEnvelope();
-            if (responseProto == null) {
-                throw new ConnectionException("Response NetworkEnvelope protobuf is null");
+            NetworkEnvelope responseNetworkEnvelope = networkEnvelopeSocket.receiveNextEnvelope();
+            if (responseNetworkEnvelope == null) {
+                throw new ConnectionException("Response NetworkEnvelope is null");
             }
-
-            NetworkEnvelope responseNetworkEnvelope = NetworkEnvelope.fromProto(responseProto);
             if (responseNetworkEnvelope.getVersion() != NetworkEnvelope.VERSION) {
                 throw new ConnectionException("Invalid version. responseEnvelope.version()=" +
                         responseNetworkEnvelope.getVersion() + "; Version.VERSION=" + NetworkEnvelope.VERSION);
@@ -174,15 +192,13 @@ public final class ConnectionHandshake {
             boolean isAuthorized = authorizationService.isAuthorized(response,
                     responseNetworkEnvelope.getAuthorizationToken(),
                     myLoad,
-                    UUID.randomUUID().toString(),
                     myAddress);
 
             if (!isAuthorized) {
                 throw new ConnectionException("Request authorization failed. request=" + request);
             }
 
-            metrics.onReceived(responseNetworkEnvelope);
-            metrics.addRtt(System.currentTimeMillis() - ts);
+            metrics.addRtt(Request.class, System.currentTimeMillis() - ts);
             log.debug("Servers capability {}, load={}", response.getCapability(), response.getLoad());
             return new Result(response.getCapability(), response.getLoad(), metrics);
         } catch (Exception e) {
@@ -201,12 +217,10 @@ public final class ConnectionHandshake {
     // Server side protocol
     Result onSocket(Load myLoad) {
         try {
-            Metrics metrics = new Metrics();
-            bisq.network.protobuf.NetworkEnvelope requestProto = networkEnvelopeSocket.receiveNextEnvelope();
-            if (requestProto == null) {
-                throw new ConnectionException("Request NetworkEnvelope protobuf is null");
+            NetworkEnvelope requestNetworkEnvelope = networkEnvelopeSocket.receiveNextEnvelope();
+            if (requestNetworkEnvelope == null) {
+                throw new ConnectionException("Request NetworkEnvelope is null");
             }
-            NetworkEnvelope requestNetworkEnvelope = NetworkEnvelope.fromProto(requestProto);
 
             long ts = System.currentTimeMillis();
             if (requestNetworkEnvelope.getVersion() != NetworkEnvelope.VERSION) {
@@ -227,22 +241,19 @@ public final class ConnectionHandshake {
             boolean isAuthorized = authorizationService.isAuthorized(request,
                     requestNetworkEnvelope.getAuthorizationToken(),
                     Load.INITIAL_LOAD,
-                    UUID.randomUUID().toString(),
                     myAddress);
             if (!isAuthorized) {
                 throw new ConnectionException("Request authorization failed. request=" + request);
             }
 
             log.debug("Clients capability {}, load={}", request.getCapability(), request.getLoad());
-            metrics.onReceived(requestNetworkEnvelope);
 
             Response response = new Response(capability, myLoad);
             AuthorizationToken token = authorizationService.createToken(response, request.getLoad(), peerAddress.getFullAddress(), 0);
             NetworkEnvelope responseNetworkEnvelope = new NetworkEnvelope(NetworkEnvelope.VERSION, token, response);
             networkEnvelopeSocket.send(responseNetworkEnvelope);
 
-            metrics.onSent(responseNetworkEnvelope);
-            metrics.addRtt(System.currentTimeMillis() - ts);
+            metrics.addRtt(Request.class, System.currentTimeMillis() - ts);
             return new Result(request.getCapability(), request.getLoad(), metrics);
         } catch (Exception e) {
             try {
@@ -26,7 +26,6 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.UUID;
 
 @Slf4j
 public class ConnectionHandshakeResponder {
@@ -48,6 +47,13 @@ public class ConnectionHandshakeResponder {
 
     public Pair<ConnectionHandshake.Request, NetworkEnvelope> verifyAndBuildRespond() throws IOException {
         List<NetworkEnvelope> requestEnvelopes = networkEnvelopeSocketChannel.receiveNetworkEnvelopes();
+        return verifyAndBuildRespond(requestEnvelopes);
+    }
+
+    /**
+     * Used if the request envelopes have been already read from the channel by the selector thread.
+     */
+    public Pair<ConnectionHandshake.Request, NetworkEnvelope> verifyAndBuildRespond(List<NetworkEnvelope> requestEnvelopes) {
         validateRequestEnvelopes(requestEnvelopes);
 
         NetworkEnvelope requestProto = requestEnvelopes.get(0);
@@ -81,7 +87,6 @@ public class ConnectionHandshakeResponder {
                 request,
                 requestNetworkEnvelope.getAuthorizationToken(),
                 Load.INITIAL_LOAD,
-                UUID.randomUUID().toString(),
                 myAddress
         );
 
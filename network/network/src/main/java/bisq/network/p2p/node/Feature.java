@@ -0,0 +1,40 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import java.util.List;
+
+/**
+ * Optional protocol features a node supports. They are exchanged in the connection handshake, so we only use a
+ * feature with peers which have announced it. Unknown features of newer peers are ignored.
+ */
+public enum Feature {
+    // Peer accepts AuthorizationTokens with a reusable proof of work which is signed by the sender
+    REUSABLE_AUTHORIZATION_TOKEN,
+    // Peer accepts a DataFilter with a BloomFilter at InventoryRequests
+    INVENTORY_BLOOM_FILTER,
+    // Peer accepts paginated InventoryRequests and responds with batches
+    PAGINATED_INVENTORY,
+    // Peer accepts mailbox receiver tags in the DataFilter of InventoryRequests
+    MAILBOX_RECEIVER_TAGS;
+
+    // Features we announce to our peers
+    public static List<Feature> getSupportedFeatures() {
+        return List.of(REUSABLE_AUTHORIZATION_TOKEN, INVENTORY_BLOOM_FILTER, PAGINATED_INVENTORY, MAILBOX_RECEIVER_TAGS);
+    }
+}
@@ -22,12 +22,15 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
 import java.net.Socket;
 import java.util.function.BiConsumer;
 
 @Slf4j
 public class InboundConnection extends Connection {
+    // Null if connection is backed by an InboundConnectionChannel
     @Getter
+    @Nullable
     private final Transport.ServerSocketResult serverSocketResult;
 
     @Setter
@@ -39,12 +42,19 @@ public class InboundConnection extends Connection {
                       Load peersLoad,
                       Metrics metrics,
                       Handler handler,
+                      OutboundQueue.Config outboundQueueConfig,
                       BiConsumer<Connection, Exception> errorHandler) {
-        super(socket, peersCapability, peersLoad, metrics, handler, errorHandler);
+        super(socket, peersCapability, peersLoad, metrics, handler, outboundQueueConfig, errorHandler);
         this.serverSocketResult = serverSocketResult;
         log.debug("Create inboundConnection from server: {}", serverSocketResult);
     }
 
+    InboundConnection(InboundConnectionChannel inboundConnectionChannel, Handler handler) {
+        super(inboundConnectionChannel, handler);
+        this.serverSocketResult = null;
+        log.debug("Create inboundConnection from channel: {}", inboundConnectionChannel);
+    }
+
     @Override
     public boolean isPeerAddressVerified() {
         return isPeerAddressVerified;
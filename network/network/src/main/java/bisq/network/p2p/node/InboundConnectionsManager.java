@@ -18,20 +18,24 @@
 package bisq.network.p2p.node;
 
 import bisq.common.data.Pair;
+import bisq.network.NetworkService;
 import bisq.network.p2p.message.NetworkEnvelope;
+import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.authorization.AuthorizationService;
 import bisq.network.p2p.services.peergroup.BanList;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.channels.*;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Handles the inbound connections of the ServerChannel. All methods except the handshake completion are called from
+ * the selector thread of the ServerChannel. As the handshake response requires a proof of work, we create it on the
+ * NETWORK_IO_POOL and do not read from the channel until the handshake is completed.
+ */
 @Slf4j
 public class InboundConnectionsManager {
 
@@ -42,8 +46,7 @@ public class InboundConnectionsManager {
     private final ServerSocketChannel serverSocketChannel;
     private final Selector selector;
     private final Node node;
-    private final List<SocketChannel> inboundHandshakeChannels = new CopyOnWriteArrayList<>();
-    private final List<SocketChannel> verifiedConnections = new CopyOnWriteArrayList<>();
+    private final Set<SocketChannel> inboundHandshakeChannels = ConcurrentHashMap.newKeySet();
     private final Map<SocketChannel, InboundConnectionChannel> connectionByChannel = new ConcurrentHashMap<>();
     private final Map<Address, InboundConnectionChannel> connectionByAddress = new ConcurrentHashMap<>();
     private final Map<SocketChannel, NetworkEnvelopeSocketChannel> networkEnvelopeChannelBySocketChannel = new ConcurrentHashMap<>();
@@ -78,11 +81,17 @@ public class InboundConnectionsManager {
         try {
             ServerSocketChannel nextReadySocketChannel = (ServerSocketChannel) selectionKey.channel();
             newConnectionSocketChannel = nextReadySocketChannel.accept();
-            log.info("Accepted new inbound connection with peer: {}", newConnectionSocketChannel.getRemoteAddress());
+            if (newConnectionSocketChannel == null) {
+                return;
+            }
+            log.debug("Accepted new inbound connection with peer: {}", newConnectionSocketChannel.getRemoteAddress());
 
             newConnectionSocketChannel.configureBlocking(false);
-            newConnectionSocketChannel.register(selector, SelectionKey.OP_READ);
+            SelectionKey newSelectionKey = newConnectionSocketChannel.register(selector, SelectionKey.OP_READ);
 
+            NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = new NetworkEnvelopeSocketChannel(newConnectionSocketChannel);
+            networkEnvelopeSocketChannel.setSelectionKey(newSelectionKey);
+            networkEnvelopeChannelBySocketChannel.put(newConnectionSocketChannel, networkEnvelopeSocketChannel);
             inboundHandshakeChannels.add(newConnectionSocketChannel);
         } catch (IOException e) {
             log.warn("Cannot accept new connection", e);
@@ -98,58 +107,47 @@ public class InboundConnectionsManager {
 
     public void handleInboundConnection(SocketChannel socketChannel) {
         if (inboundHandshakeChannels.contains(socketChannel)) {
-            NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = new NetworkEnvelopeSocketChannel(socketChannel);
-            networkEnvelopeChannelBySocketChannel.put(socketChannel, networkEnvelopeSocketChannel);
-
-            log.debug("Inbound handshake request at: {}", myCapability.getAddress());
-            Optional<InboundConnectionChannel> inboundConnectionOptional = performHandshake(networkEnvelopeSocketChannel);
-
-            if (inboundConnectionOptional.isPresent()) {
-                InboundConnectionChannel inboundConnection = inboundConnectionOptional.get();
-                Address peerAddress = inboundConnection.getPeerAddress();
-                log.debug("Inbound handshake completed: Initiated by {} to {}",
-                        peerAddress, myCapability.getAddress());
-
-                if (isAlreadyConnectedToPeer(peerAddress)) {
-                    log.warn("Node {} have already an InboundConnection from {}. This can happen when a " + "handshake was in progress while we received a new connection from that address. " + "We will close the socket of that new connection and use the existing instead.", this, peerAddress);
-                    closeChannel(networkEnvelopeSocketChannel);
-                } else {
-                    connectionByChannel.put(socketChannel, inboundConnection);
-                    connectionByAddress.put(peerAddress, inboundConnection);
-                    verifiedConnections.add(socketChannel);
-
-                    log.info("Calling node.onNewIncomingConnection for peer {}", peerAddress.getFullAddress());
-                    node.onNewIncomingConnection(inboundConnection);
-                }
-
-            } else {
-                closeChannel(networkEnvelopeSocketChannel);
+            handleHandshakeRequest(socketChannel);
+        } else {
+            InboundConnectionChannel inboundConnection = connectionByChannel.get(socketChannel);
+            if (inboundConnection != null) {
+                receiveAndDispatch(inboundConnection);
             }
+        }
+    }
 
-            inboundHandshakeChannels.remove(socketChannel);
-
-        } else if (verifiedConnections.contains(socketChannel)) {
+    public void handleWritableChannel(SocketChannel socketChannel) {
+        NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = networkEnvelopeChannelBySocketChannel.get(socketChannel);
+        if (networkEnvelopeSocketChannel == null) {
+            return;
+        }
+        try {
+            networkEnvelopeSocketChannel.flushPendingWrites();
+        } catch (IOException e) {
+            log.debug("Couldn't write to socketChannel {}", socketChannel, e);
             InboundConnectionChannel inboundConnection = connectionByChannel.get(socketChannel);
-            Address peerAddress = inboundConnection.getPeerAddress();
-
-            NetworkEnvelopeSocketChannel networkEnvelopeChannel = networkEnvelopeChannelBySocketChannel.get(socketChannel);
-            try {
-                List<NetworkEnvelope> networkEnvelopes = networkEnvelopeChannel.receiveNetworkEnvelopes();
-                log.debug("Received {} messages from peer {}.", networkEnvelopes.size(), peerAddress.getFullAddress());
-
-                networkEnvelopes.forEach(networkEnvelope -> node.handleNetworkMessage(
-                        networkEnvelope.getNetworkMessage(),
-                        networkEnvelope.getAuthorizationToken(),
-                        inboundConnection
-                ));
-            } catch (IOException e) {
-                log.error("Couldn't receive messages from socketChannel", e);
+            if (inboundConnection != null) {
+                inboundConnection.close(CloseReason.EXCEPTION.exception(e));
+            } else {
+                removeHandshakeChannel(socketChannel);
             }
         }
     }
 
+    /**
+     * Closes the connection or the channel in handshake after an exception which was not handled otherwise.
+     */
+    public void handleException(SocketChannel socketChannel, Exception exception) {
+        InboundConnectionChannel inboundConnection = connectionByChannel.get(socketChannel);
+        if (inboundConnection != null) {
+            inboundConnection.close(CloseReason.EXCEPTION.exception(exception));
+        } else {
+            removeHandshakeChannel(socketChannel);
+        }
+    }
+
     public boolean isInboundConnection(SocketChannel socketChannel) {
-        return inboundHandshakeChannels.contains(socketChannel) || verifiedConnections.contains(socketChannel);
+        return inboundHandshakeChannels.contains(socketChannel) || connectionByChannel.containsKey(socketChannel);
     }
 
     public Optional<InboundConnectionChannel> getConnectionByAddress(Address address) {
@@ -161,7 +159,121 @@ public class InboundConnectionsManager {
         return connectionByAddress.values();
     }
 
-    private Optional<InboundConnectionChannel> performHandshake(NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel) {
+    public void shutdown() {
+        new ArrayList<>(connectionByChannel.values())
+                .forEach(connection -> connection.close(CloseReason.SHUTDOWN));
+        // Remaining channels are in handshake
+        new HashSet<>(networkEnvelopeChannelBySocketChannel.keySet()).forEach(this::removeHandshakeChannel);
+    }
+
+    private void handleHandshakeRequest(SocketChannel socketChannel) {
+        NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = networkEnvelopeChannelBySocketChannel.get(socketChannel);
+        if (networkEnvelopeSocketChannel == null) {
+            removeHandshakeChannel(socketChannel);
+            return;
+        }
+
+        List<NetworkEnvelope> requestEnvelopes;
+        try {
+            requestEnvelopes = networkEnvelopeSocketChannel.receiveNetworkEnvelopes();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Couldn't read handshake request from {}", socketChannel, e);
+            removeHandshakeChannel(socketChannel);
+            return;
+        }
+
+        if (!networkEnvelopeSocketChannel.isOpen()) {
+            removeHandshakeChannel(socketChannel);
+            return;
+        }
+        if (requestEnvelopes.isEmpty()) {
+            // Request not fully received yet
+            return;
+        }
+
+        // We stop reading until the handshake is completed
+        inboundHandshakeChannels.remove(socketChannel);
+        SelectionKey selectionKey = socketChannel.keyFor(selector);
+        if (selectionKey != null && selectionKey.isValid()) {
+            selectionKey.interestOpsAnd(~SelectionKey.OP_READ);
+        }
+
+        log.debug("Inbound handshake request at: {}", myCapability.getAddress());
+        NetworkService.NETWORK_IO_POOL.submit(() -> completeHandshake(socketChannel, networkEnvelopeSocketChannel, requestEnvelopes));
+    }
+
+    private void completeHandshake(SocketChannel socketChannel,
+                                   NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel,
+                                   List<NetworkEnvelope> requestEnvelopes) {
+        Optional<InboundConnectionChannel> inboundConnectionOptional = performHandshake(networkEnvelopeSocketChannel, requestEnvelopes);
+        if (inboundConnectionOptional.isEmpty()) {
+            removeHandshakeChannel(socketChannel);
+            return;
+        }
+
+        InboundConnectionChannel inboundConnection = inboundConnectionOptional.get();
+        Address peerAddress = inboundConnection.getPeerAddress();
+        log.debug("Inbound handshake completed: Initiated by {} to {}",
+                peerAddress, myCapability.getAddress());
+
+        if (isAlreadyConnectedToPeer(peerAddress)) {
+            log.warn("Node {} have already an InboundConnection from {}. This can happen when a " + "handshake was in progress while we received a new connection from that address. " + "We will close the socket of that new connection and use the existing instead.", this, peerAddress);
+            removeHandshakeChannel(socketChannel);
+            return;
+        }
+
+        connectionByChannel.put(socketChannel, inboundConnection);
+        connectionByAddress.put(peerAddress, inboundConnection);
+        inboundConnection.addListener(new ConnectionChannel.Listener() {
+            @Override
+            public void onNetworkMessage(NetworkMessage networkMessage) {
+            }
+
+            @Override
+            public void onConnectionClosed(CloseReason closeReason) {
+                connectionByChannel.remove(socketChannel);
+                connectionByAddress.remove(peerAddress, inboundConnection);
+                networkEnvelopeChannelBySocketChannel.remove(socketChannel);
+            }
+        });
+
+        log.debug("Calling node.onNewIncomingConnection for peer {}", peerAddress.getFullAddress());
+        node.onNewIncomingConnection(inboundConnection);
+
+        // Node is aware of the connection, so we can start reading messages from the peer
+        SelectionKey selectionKey = socketChannel.keyFor(selector);
+        if (selectionKey != null && selectionKey.isValid()) {
+            selectionKey.interestOpsOr(SelectionKey.OP_READ);
+            selector.wakeup();
+        }
+    }
+
+    private void receiveAndDispatch(InboundConnectionChannel inboundConnection) {
+        NetworkEnvelopeSocketChannel networkEnvelopeChannel = inboundConnection.getNetworkEnvelopeSocketChannel();
+        Address peerAddress = inboundConnection.getPeerAddress();
+        try {
+            List<NetworkEnvelope> networkEnvelopes = networkEnvelopeChannel.receiveNetworkEnvelopes();
+            log.debug("Received {} messages from peer {}.", networkEnvelopes.size(), peerAddress.getFullAddress());
+
+            networkEnvelopes.forEach(networkEnvelope -> {
+                node.handleNetworkMessage(networkEnvelope.getNetworkMessage(),
+                        networkEnvelope.getAuthorizationToken(),
+                        inboundConnection);
+            });
+
+            if (!networkEnvelopeChannel.isOpen()) {
+                inboundConnection.close(CloseReason.EXCEPTION.exception(new EOFException("Connection closed by peer " + peerAddress)));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Besides IO errors, a peer can cause RuntimeExceptions at parsing or validating a message (e.g.
+            // UnresolvableProtobufMessageException for unknown message types), which must only close its connection.
+            log.debug("Couldn't receive messages from socketChannel of peer {}", peerAddress, e);
+            inboundConnection.close(CloseReason.EXCEPTION.exception(e));
+        }
+    }
+
+    private Optional<InboundConnectionChannel> performHandshake(NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel,
+                                                                List<NetworkEnvelope> requestEnvelopes) {
         try {
             var handshakeResponder = new ConnectionHandshakeResponder(
                     banList,
@@ -170,13 +282,13 @@ public class InboundConnectionsManager {
                     networkEnvelopeSocketChannel
             );
             Pair<ConnectionHandshake.Request, NetworkEnvelope>
-                    requestAndResponseNetworkEnvelopes = handshakeResponder.verifyAndBuildRespond();
+                    requestAndResponseNetworkEnvelopes = handshakeResponder.verifyAndBuildRespond(requestEnvelopes);
 
             ConnectionHandshake.Request handshakeRequest = requestAndResponseNetworkEnvelopes.getFirst();
             Address peerAddress = handshakeRequest.getCapability().getAddress();
 
             log.debug("Sending PoW response to peer {}", peerAddress.getFullAddress());
-            bisq.network.p2p.message.NetworkEnvelope responseEnvelope = requestAndResponseNetworkEnvelopes.getSecond();
+            NetworkEnvelope responseEnvelope = requestAndResponseNetworkEnvelopes.getSecond();
             try {
                 networkEnvelopeSocketChannel.send(responseEnvelope);
             } catch (IOException e) {
@@ -189,13 +301,15 @@ public class InboundConnectionsManager {
                             handshakeRequest.getCapability(),
                             handshakeRequest.getLoad(),
                             networkEnvelopeSocketChannel,
-                            new Metrics()
+                            networkEnvelopeSocketChannel.getMetrics()
                     )
             );
         } catch (ConnectionException e) {
             log.warn("Peer failed PoW challenge.", e);
         } catch (IOException e) {
             log.warn("Handshake failed with peer: ", e);
+        } catch (Exception e) {
+            log.error("Unexpected exception at inbound handshake", e);
         }
 
         return Optional.empty();
@@ -205,6 +319,19 @@ public class InboundConnectionsManager {
         return connectionByAddress.containsKey(peerAddress);
     }
 
+    private void removeHandshakeChannel(SocketChannel socketChannel) {
+        inboundHandshakeChannels.remove(socketChannel);
+        NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = networkEnvelopeChannelBySocketChannel.remove(socketChannel);
+        if (networkEnvelopeSocketChannel != null) {
+            closeChannel(networkEnvelopeSocketChannel);
+        } else {
+            try {
+                socketChannel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
     private void closeChannel(NetworkEnvelopeSocketChannel networkEnvelopeSocket) {
         try {
             networkEnvelopeSocket.close();
@@ -0,0 +1,101 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size histogram for latencies in ms. Recording is lock free and does not allocate, percentiles are
+ * approximated by the upper bound of the bucket they fall into.
+ */
+public class LatencyHistogram {
+    // Upper bounds (inclusive) of the buckets in ms. The last bucket collects all larger values.
+    private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000};
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long latency = Math.max(0, value);
+        bucketCounts.incrementAndGet(getBucketIndex(latency));
+        count.increment();
+        sum.add(latency);
+        max.accumulateAndGet(latency, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long numValues = count.sum();
+        return numValues == 0 ? 0 : sum.sum() / (double) numValues;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile In range [0, 1]
+     * @return The upper bound of the bucket containing the percentile, or the max. value if it falls into the last
+     * bucket. 0 if no values have been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] counts = new long[bucketCounts.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = bucketCounts.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            accumulated += counts[i];
+            if (accumulated >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() +
+                ", mean=" + String.format("%.2f", getMean()) + " ms" +
+                ", p50=" + getPercentile(0.5) + " ms" +
+                ", p90=" + getPercentile(0.9) + " ms" +
+                ", p99=" + getPercentile(0.99) + " ms" +
+                ", max=" + getMax() + " ms";
+    }
+
+    private static int getBucketIndex(long latency) {
+        int index = Arrays.binarySearch(BUCKET_BOUNDS, latency);
+        // If not found binarySearch returns (-(insertion point) - 1), the insertion point is the first larger bound
+        return index >= 0 ? index : -index - 1;
+    }
+}
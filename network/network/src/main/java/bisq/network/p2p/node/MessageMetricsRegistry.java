@@ -0,0 +1,99 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import bisq.network.p2p.message.NetworkMessage;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counters and latencies per message type aggregated over all connections.
+ * Updates only touch the entry of the given message class, so that it is cheap to be called for each message.
+ */
+public class MessageMetricsRegistry {
+    public static final MessageMetricsRegistry GLOBAL = new MessageMetricsRegistry();
+
+    @Getter
+    public static final class MessageTypeMetrics {
+        private final String messageType;
+        private final LongAdder numSent = new LongAdder();
+        private final LongAdder sentBytes = new LongAdder();
+        private final LongAdder numReceived = new LongAdder();
+        private final LongAdder receivedBytes = new LongAdder();
+        private final LatencyHistogram rttHistogram = new LatencyHistogram();
+
+        private MessageTypeMetrics(String messageType) {
+            this.messageType = messageType;
+        }
+
+        @Override
+        public String toString() {
+            return messageType +
+                    ": numSent=" + numSent.sum() +
+                    ", sentBytes=" + sentBytes.sum() +
+                    ", numReceived=" + numReceived.sum() +
+                    ", receivedBytes=" + receivedBytes.sum() +
+                    (rttHistogram.getCount() > 0 ? ", rtt: " + rttHistogram : "");
+        }
+    }
+
+    private final Map<Class<?>, MessageTypeMetrics> metricsByMessageClass = new ConcurrentHashMap<>();
+
+    public void onSent(NetworkMessage networkMessage, int numBytes) {
+        MessageTypeMetrics metrics = getOrCreate(networkMessage.getClass());
+        metrics.numSent.increment();
+        metrics.sentBytes.add(numBytes);
+    }
+
+    public void onReceived(NetworkMessage networkMessage, int numBytes) {
+        MessageTypeMetrics metrics = getOrCreate(networkMessage.getClass());
+        metrics.numReceived.increment();
+        metrics.receivedBytes.add(numBytes);
+    }
+
+    public void addRtt(Class<? extends NetworkMessage> requestClass, long rtt) {
+        getOrCreate(requestClass).rttHistogram.record(rtt);
+    }
+
+    public Map<Class<?>, MessageTypeMetrics> getMetricsByMessageClass() {
+        return Collections.unmodifiableMap(metricsByMessageClass);
+    }
+
+    public String getMetricsAsString() {
+        return metricsByMessageClass.values().stream()
+                .sorted(Comparator.comparing(MessageTypeMetrics::getMessageType))
+                .map(MessageTypeMetrics::toString)
+                .collect(Collectors.joining("\n", "Message metrics:\n", ""));
+    }
+
+    private MessageTypeMetrics getOrCreate(Class<?> messageClass) {
+        // get before computeIfAbsent to avoid locking of the bin for the common case of an existing entry
+        MessageTypeMetrics metrics = metricsByMessageClass.get(messageClass);
+        if (metrics == null) {
+            metrics = metricsByMessageClass.computeIfAbsent(messageClass,
+                    key -> new MessageTypeMetrics(key.getSimpleName()));
+        }
+        return metrics;
+    }
+}
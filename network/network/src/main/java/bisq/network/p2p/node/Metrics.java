@@ -18,14 +18,18 @@
 package bisq.network.p2p.node;
 
 import bisq.network.p2p.message.NetworkEnvelope;
+import bisq.network.p2p.message.NetworkMessage;
 import lombok.Getter;
 import lombok.ToString;
 
 import java.util.Date;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Per connection metrics. The byte counts are provided by the framing layer (NetworkEnvelopeSocket and
+ * NetworkEnvelopeSocketChannel), which knows the size of the frames without serializing the envelope again.
+ * All updates are also reported to the MessageMetricsRegistry.
+ */
 @Getter
 @ToString
 public class Metrics {
@@ -35,9 +39,16 @@ public class Metrics {
     private final AtomicLong receivedBytes = new AtomicLong();
     private final AtomicLong numMessagesSent = new AtomicLong();
     private final AtomicLong numMessagesReceived = new AtomicLong();
-    private final List<Long> rrtList = new CopyOnWriteArrayList<>();
+    private final LatencyHistogram rttHistogram = new LatencyHistogram();
+    @ToString.Exclude
+    private final MessageMetricsRegistry messageMetricsRegistry;
 
     public Metrics() {
+        this(MessageMetricsRegistry.GLOBAL);
+    }
+
+    public Metrics(MessageMetricsRegistry messageMetricsRegistry) {
+        this.messageMetricsRegistry = messageMetricsRegistry;
         created = new Date().getTime();
     }
 
@@ -49,23 +60,26 @@ public class Metrics {
         return System.currentTimeMillis() - created;
     }
 
-    public void onSent(NetworkEnvelope networkEnvelope) {
+    public void onSent(NetworkEnvelope networkEnvelope, int numBytes) {
         lastUpdate.set(System.currentTimeMillis());
-        sentBytes.addAndGet(networkEnvelope.toProto().getSerializedSize());
+        sentBytes.addAndGet(numBytes);
         numMessagesSent.incrementAndGet();
+        messageMetricsRegistry.onSent(networkEnvelope.getNetworkMessage(), numBytes);
     }
 
-    public void onReceived(NetworkEnvelope networkEnvelope) {
+    public void onReceived(NetworkEnvelope networkEnvelope, int numBytes) {
         lastUpdate.set(System.currentTimeMillis());
-        receivedBytes.addAndGet(networkEnvelope.toProto().getSerializedSize());
+        receivedBytes.addAndGet(numBytes);
         numMessagesReceived.incrementAndGet();
+        messageMetricsRegistry.onReceived(networkEnvelope.getNetworkMessage(), numBytes);
     }
 
-    public void addRtt(long value) {
-        this.rrtList.add(value);
+    public void addRtt(Class<? extends NetworkMessage> requestClass, long value) {
+        rttHistogram.record(value);
+        messageMetricsRegistry.addRtt(requestClass, value);
     }
 
     public double getAverageRtt() {
-        return rrtList.stream().mapToLong(e -> e).average().orElse(0d);
+        return rttHistogram.getMean();
     }
-}
\ No newline at end of file
+}
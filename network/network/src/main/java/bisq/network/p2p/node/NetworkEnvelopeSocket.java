@@ -18,24 +18,38 @@
 package bisq.network.p2p.node;
 
 import bisq.network.p2p.message.NetworkEnvelope;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Reads and writes length delimited NetworkEnvelopes on a blocking socket and reports the frame sizes to the
+ * connection's Metrics.
+ */
 @Slf4j
 public class NetworkEnvelopeSocket implements Closeable {
+    private static final int BATCH_BUFFER_SIZE = 16 * 1024;
+    private static final int END_OF_STREAM = -1;
+
     private final Socket socket;
+    private final Metrics metrics;
     private final InputStream inputStream;
     private final OutputStream outputStream;
 
-    public NetworkEnvelopeSocket(Socket socket) throws IOException {
+    public NetworkEnvelopeSocket(Socket socket, Metrics metrics) throws IOException {
         this.socket = socket;
+        this.metrics = metrics;
         this.inputStream = socket.getInputStream();
         this.outputStream = socket.getOutputStream();
     }
@@ -45,14 +59,55 @@ public class NetworkEnvelopeSocket implements Closeable {
                 "networkEnvelope.toProto() must not be null");
         proto.writeDelimitedTo(outputStream);
         outputStream.flush();
+        // The serialized size got memoized by writeDelimitedTo
+        metrics.onSent(networkEnvelope, getFrameLength(proto.getSerializedSize()));
     }
 
-    public bisq.network.protobuf.NetworkEnvelope receiveNextEnvelope() throws IOException {
-        return bisq.network.protobuf.NetworkEnvelope.parseDelimitedFrom(inputStream);
+    /**
+     * Writes the envelopes delimited as with writeDelimitedTo but flushes only once at the end, so that a batch of
+     * small messages results in a single write to the socket.
+     */
+    public void send(List<NetworkEnvelope> networkEnvelopes) throws IOException {
+        CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(outputStream, BATCH_BUFFER_SIZE);
+        int[] frameLengths = new int[networkEnvelopes.size()];
+        for (int i = 0; i < frameLengths.length; i++) {
+            bisq.network.protobuf.NetworkEnvelope proto = checkNotNull(networkEnvelopes.get(i).toProto(),
+                    "networkEnvelope.toProto() must not be null");
+            int messageLength = proto.getSerializedSize();
+            codedOutputStream.writeUInt32NoTag(messageLength);
+            proto.writeTo(codedOutputStream);
+            frameLengths[i] = getFrameLength(messageLength);
+        }
+        codedOutputStream.flush();
+        outputStream.flush();
+        for (int i = 0; i < frameLengths.length; i++) {
+            metrics.onSent(networkEnvelopes.get(i), frameLengths[i]);
+        }
+    }
+
+    /**
+     * @return The next envelope or null if the end of the stream has been reached.
+     */
+    @Nullable
+    public NetworkEnvelope receiveNextEnvelope() throws IOException {
+        int firstByte = inputStream.read();
+        if (firstByte == END_OF_STREAM) {
+            return null;
+        }
+        int messageLength = CodedInputStream.readRawVarint32(firstByte, inputStream);
+        bisq.network.protobuf.NetworkEnvelope proto = bisq.network.protobuf.NetworkEnvelope.parseFrom(
+                ByteStreams.limit(inputStream, messageLength));
+        NetworkEnvelope networkEnvelope = NetworkEnvelope.fromProto(proto);
+        metrics.onReceived(networkEnvelope, getFrameLength(messageLength));
+        return networkEnvelope;
     }
 
     @Override
     public void close() throws IOException {
         socket.close();
     }
+
+    private static int getFrameLength(int messageLength) {
+        return CodedOutputStream.computeUInt32SizeNoTag(messageLength) + messageLength;
+    }
 }
@@ -20,28 +20,64 @@ package bisq.network.p2p.node;
 import bisq.common.util.StringUtils;
 import bisq.network.p2p.message.NetworkEnvelope;
 import bisq.network.p2p.message.NetworkMessage;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Frames NetworkEnvelopes as length delimited protobuf messages on a SocketChannel.
+ * Outgoing envelopes are serialized directly into pooled direct buffers and multiple envelopes can be sent with a
+ * single gathering write. Incoming frames are parsed in place from the read buffer, which only gets enlarged
+ * temporarily if a frame does not fit into it.
+ * If the channel is in non-blocking mode, data which could not be written immediately is queued and written by the
+ * selector thread once the channel becomes writable. For that the selection key of the channel has to be set after
+ * registration at the selector.
+ */
 @Slf4j
 public class NetworkEnvelopeSocketChannel implements Closeable {
-    public static final int BYTE_BUFFER_SIZE = 1024;
+    public static final int BYTE_BUFFER_SIZE = 16 * 1024;
+    // If the peer does not read our data we stop queuing at that limit
+    public static final int MAX_PENDING_WRITE_BYTES = 16 * 1024 * 1024;
+    // Frames announcing a larger message are treated as protocol violation
+    public static final int MAX_MESSAGE_SIZE = 32 * 1024 * 1024;
+    // Shared by all channels. Retained buffers are capped at 64 MB.
+    public static final ByteBufferPool BUFFER_POOL = new ByteBufferPool("NetworkEnvelopeSocketChannel.buffer-pool",
+            64 * 1024 * 1024);
 
     private static final int END_OF_STREAM = -1;
+    private static final int INCOMPLETE_MESSAGE_LENGTH = -1;
+    private static final int MAX_VARINT_32_BYTES = 5;
 
     @Getter
     private final SocketChannel socketChannel;
-    private final ByteBuffer byteBuffer;
-    private final NetworkEnvelopeDeserializer networkEnvelopeDeserializer;
+    private final ByteBufferPool bufferPool;
+    @Getter
+    private final Metrics metrics = new Metrics();
+    private final int byteBufferSize;
+    private final Object readLock = new Object();
+    @Nullable
+    private ByteBuffer readBuffer;
+    private final Queue<ByteBuffer> pendingWrites = new ArrayDeque<>();
+    private long pendingWriteBytes;
+    @Setter
+    @Nullable
+    private volatile SelectionKey selectionKey;
 
 
     public NetworkEnvelopeSocketChannel(SocketChannel socketChannel) {
@@ -49,43 +85,238 @@ public class NetworkEnvelopeSocketChannel implements Closeable {
     }
 
     public NetworkEnvelopeSocketChannel(SocketChannel socketChannel, int byteBufferSize) {
+        this(socketChannel, byteBufferSize, BUFFER_POOL);
+    }
+
+    public NetworkEnvelopeSocketChannel(SocketChannel socketChannel, int byteBufferSize, ByteBufferPool bufferPool) {
         this.socketChannel = socketChannel;
-        this.byteBuffer = ByteBuffer.allocate(byteBufferSize);
-        this.networkEnvelopeDeserializer = new NetworkEnvelopeDeserializer(byteBuffer);
+        this.byteBufferSize = byteBufferSize;
+        this.bufferPool = bufferPool;
+        readBuffer = bufferPool.acquire(byteBufferSize);
     }
 
     public void send(NetworkEnvelope networkEnvelope) throws IOException {
-        bisq.network.protobuf.NetworkEnvelope proto = checkNotNull(networkEnvelope.toProto(),
-                "networkEnvelope.toProto() must not be null");
-        byte[] protoInBytes = proto.toByteArray();
-        int messageLength = protoInBytes.length;
+        send(Collections.singletonList(networkEnvelope));
+    }
+
+    /**
+     * Writes all envelopes with a single gathering write. Data which could not be written is queued.
+     */
+    public void send(List<NetworkEnvelope> networkEnvelopes) throws IOException {
+        ByteBuffer[] frames = new ByteBuffer[networkEnvelopes.size()];
+        try {
+            for (int i = 0; i < frames.length; i++) {
+                frames[i] = encode(networkEnvelopes.get(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            releaseAll(frames);
+            throw e;
+        }
 
-        ByteBuffer byteBuffer1 = ByteBuffer.allocate(messageLength + 10);
-        ProtoBufMessageLengthWriter.writeToBuffer(messageLength, byteBuffer1);
+        synchronized (pendingWrites) {
+            try {
+                // We must not write before already queued data, otherwise we would break the framing
+                if (pendingWrites.isEmpty()) {
+                    socketChannel.write(frames);
+                }
+            } catch (IOException e) {
+                releaseAll(frames);
+                throw e;
+            }
 
-        byteBuffer1.put(protoInBytes);
-        byteBuffer1.flip();
+            long remaining = 0;
+            for (ByteBuffer frame : frames) {
+                remaining += frame.remaining();
+            }
+            if (remaining == 0) {
+                onSent(networkEnvelopes, frames);
+                releaseAll(frames);
+                return;
+            }
 
-        socketChannel.write(byteBuffer1);
+            if (pendingWriteBytes + remaining > MAX_PENDING_WRITE_BYTES) {
+                releaseAll(frames);
+                throw new IOException("Max. pending write bytes exceeded. pendingWriteBytes=" + pendingWriteBytes +
+                        "; socketChannel=" + socketChannel);
+            }
+            onSent(networkEnvelopes, frames);
+            pendingWriteBytes += remaining;
+            for (ByteBuffer frame : frames) {
+                if (frame.hasRemaining()) {
+                    pendingWrites.add(frame);
+                } else {
+                    bufferPool.release(frame);
+                }
+            }
+            requestWriteInterest();
+        }
+    }
+
+    /**
+     * Called from the selector thread if the channel is writable.
+     */
+    public void flushPendingWrites() throws IOException {
+        synchronized (pendingWrites) {
+            while (!pendingWrites.isEmpty()) {
+                pendingWriteBytes -= socketChannel.write(pendingWrites.toArray(new ByteBuffer[0]));
+                while (!pendingWrites.isEmpty() && !pendingWrites.peek().hasRemaining()) {
+                    bufferPool.release(pendingWrites.poll());
+                }
+                if (!pendingWrites.isEmpty()) {
+                    // Socket send buffer is full, we get called again once the channel is writable
+                    return;
+                }
+            }
+
+            SelectionKey key = selectionKey;
+            if (key != null && key.isValid()) {
+                key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    public boolean hasPendingWrites() {
+        synchronized (pendingWrites) {
+            return !pendingWrites.isEmpty();
+        }
     }
 
     public List<NetworkEnvelope> receiveNetworkEnvelopes() throws IOException {
-        byteBuffer.clear();
+        synchronized (readLock) {
+            if (readBuffer == null) {
+                // Already closed
+                return Collections.emptyList();
+            }
 
-        int numberOfReadBytes = socketChannel.read(byteBuffer);
-        if (numberOfReadBytes == END_OF_STREAM) {
-            socketChannel.close();
-            return Collections.emptyList();
+            int numberOfReadBytes = socketChannel.read(readBuffer);
+            if (numberOfReadBytes == END_OF_STREAM) {
+                socketChannel.close();
+                return Collections.emptyList();
+            }
+
+            readBuffer.flip();
+            int requiredCapacity = 0;
+            List<NetworkEnvelope> networkEnvelopes = new ArrayList<>();
+            while (readBuffer.hasRemaining()) {
+                int frameStart = readBuffer.position();
+                int messageLength = readMessageLength(readBuffer);
+                if (messageLength == INCOMPLETE_MESSAGE_LENGTH) {
+                    readBuffer.position(frameStart);
+                    break;
+                }
+                if (readBuffer.remaining() < messageLength) {
+                    requiredCapacity = readBuffer.position() - frameStart + messageLength;
+                    readBuffer.position(frameStart);
+                    break;
+                }
+
+                // The slice shares the content of the read buffer, so the message is parsed without copying the frame
+                ByteBuffer frame = readBuffer.slice();
+                frame.limit(messageLength);
+                readBuffer.position(readBuffer.position() + messageLength);
+                try {
+                    bisq.network.protobuf.NetworkEnvelope proto = bisq.network.protobuf.NetworkEnvelope.parseFrom(frame);
+                    NetworkEnvelope networkEnvelope = NetworkEnvelope.fromProto(proto);
+                    metrics.onReceived(networkEnvelope, readBuffer.position() - frameStart);
+                    networkEnvelopes.add(networkEnvelope);
+                } catch (InvalidProtocolBufferException e) {
+                    log.error("Couldn't parse protocol buffer message.", e);
+                }
+            }
+            readBuffer.compact();
+            adjustReadBufferCapacity(requiredCapacity);
+
+            networkEnvelopes.forEach(this::validateNetworkMessage);
+            return networkEnvelopes;
+        }
+    }
+
+    public boolean isOpen() {
+        return socketChannel.isOpen();
+    }
+
+    private ByteBuffer encode(NetworkEnvelope networkEnvelope) throws IOException {
+        bisq.network.protobuf.NetworkEnvelope proto = checkNotNull(networkEnvelope.toProto(),
+                "networkEnvelope.toProto() must not be null");
+        int messageLength = proto.getSerializedSize();
+        int frameLength = CodedOutputStream.computeUInt32SizeNoTag(messageLength) + messageLength;
+        ByteBuffer buffer = bufferPool.acquire(frameLength);
+        try {
+            CodedOutputStream outputStream = CodedOutputStream.newInstance(buffer);
+            outputStream.writeUInt32NoTag(messageLength);
+            proto.writeTo(outputStream);
+            outputStream.flush();
+        } catch (IOException | RuntimeException e) {
+            bufferPool.release(buffer);
+            throw e;
         }
+        buffer.flip();
+        return buffer;
+    }
 
-        byteBuffer.flip();
-        networkEnvelopeDeserializer.readFromByteBuffer();
+    /**
+     * Reads the varint encoded message length and advances the position of the buffer behind it.
+     *
+     * @return The message length or INCOMPLETE_MESSAGE_LENGTH if the buffer does not contain all bytes of the varint.
+     */
+    private static int readMessageLength(ByteBuffer buffer) {
+        long result = 0;
+        for (int i = 0; i < MAX_VARINT_32_BYTES; i++) {
+            if (!buffer.hasRemaining()) {
+                return INCOMPLETE_MESSAGE_LENGTH;
+            }
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                if (result > MAX_MESSAGE_SIZE) {
+                    throw new ConnectionException("Message length exceeds MAX_MESSAGE_SIZE. messageLength=" + result);
+                }
+                return (int) result;
+            }
+        }
+        throw new ConnectionException("Malformed message length");
+    }
 
-        List<NetworkEnvelope>
-                allNetworkEnvelopes = networkEnvelopeDeserializer.getAllNetworkEnvelopes();
-        allNetworkEnvelopes.forEach(this::validateNetworkMessage);
+    /**
+     * Enlarges the read buffer if a partially received frame does not fit into it, and switches back to a buffer
+     * of the default size once a large frame has been consumed. Expects the read buffer to be in write mode.
+     */
+    private void adjustReadBufferCapacity(int requiredCapacity) {
+        ByteBuffer buffer = checkNotNull(readBuffer);
+        if (requiredCapacity > buffer.capacity()) {
+            ByteBuffer enlarged = bufferPool.acquire(requiredCapacity);
+            buffer.flip();
+            enlarged.put(buffer);
+            bufferPool.release(buffer);
+            readBuffer = enlarged;
+        } else if (buffer.position() == 0 && buffer.capacity() >= 2 * byteBufferSize) {
+            bufferPool.release(buffer);
+            readBuffer = bufferPool.acquire(byteBufferSize);
+        }
+    }
 
-        return allNetworkEnvelopes;
+    private void onSent(List<NetworkEnvelope> networkEnvelopes, ByteBuffer[] frames) {
+        // Queued frames are counted as sent as well. The limit of a frame buffer is the length of the frame.
+        for (int i = 0; i < frames.length; i++) {
+            metrics.onSent(networkEnvelopes.get(i), frames[i].limit());
+        }
+    }
+
+    private void releaseAll(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer != null) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    private void requestWriteInterest() {
+        SelectionKey key = selectionKey;
+        if (key != null && key.isValid()) {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+            key.selector().wakeup();
+        }
+        // If not registered yet, the registering code adds OP_WRITE in case we have pending writes
     }
 
     private void validateNetworkMessage(NetworkEnvelope networkEnvelope) {
@@ -101,6 +332,26 @@ public class NetworkEnvelopeSocketChannel implements Closeable {
 
     @Override
     public void close() throws IOException {
-        socketChannel.close();
+        synchronized (pendingWrites) {
+            pendingWrites.forEach(bufferPool::release);
+            pendingWrites.clear();
+            pendingWriteBytes = 0;
+        }
+        // Closing the channel first terminates a potentially blocking read, so we can take the read lock afterwards
+        try {
+            socketChannel.close();
+        } finally {
+            synchronized (readLock) {
+                if (readBuffer != null) {
+                    bufferPool.release(readBuffer);
+                    readBuffer = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(socketChannel);
     }
 }
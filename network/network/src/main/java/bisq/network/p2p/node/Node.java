@@ -32,6 +32,7 @@ import bisq.network.p2p.node.transport.I2PTransport;
 import bisq.network.p2p.node.transport.TorTransport;
 import bisq.network.p2p.node.transport.Transport;
 import bisq.network.p2p.services.peergroup.BanList;
+import bisq.security.KeyGeneration;
 import com.runjva.sourceforge.jsocks.protocol.Socks5Proxy;
 import dev.failsafe.Failsafe;
 import dev.failsafe.RetryPolicy;
@@ -45,6 +46,8 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Map;
@@ -56,7 +59,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
-import static bisq.network.NetworkService.DISPATCHER;
+import static bisq.network.NetworkService.MESSAGE_DISPATCHER;
 import static bisq.network.p2p.node.Node.State.*;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.concurrent.CompletableFuture.runAsync;
@@ -77,6 +80,14 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 public class Node implements Connection.Handler {
     public static final String DEFAULT = "default";
 
+    public enum IoMode {
+        // Each connection uses a thread which blocks at reading from the socket
+        BLOCKING,
+        // Connections use non-blocking socket channels which are served by a small fixed number of selector threads.
+        // Only supported for clear net.
+        NIO
+    }
+
     public enum State {
         NEW,
         STARTING,
@@ -107,22 +118,47 @@ public class Node implements Connection.Handler {
         private final AuthorizationService authorizationService;
         private final TransportConfig transportConfig;
         private final int socketTimeout;
+        private final IoMode ioMode;
+        private final OutboundQueue.Config outboundQueueConfig;
 
         public Config(Transport.Type transportType,
                       Set<Transport.Type> supportedTransportTypes,
                       AuthorizationService authorizationService,
                       TransportConfig transportConfig,
                       int socketTimeout) {
+            this(transportType, supportedTransportTypes, authorizationService, transportConfig, socketTimeout, IoMode.BLOCKING);
+        }
+
+        public Config(Transport.Type transportType,
+                      Set<Transport.Type> supportedTransportTypes,
+                      AuthorizationService authorizationService,
+                      TransportConfig transportConfig,
+                      int socketTimeout,
+                      IoMode ioMode) {
+            this(transportType, supportedTransportTypes, authorizationService, transportConfig, socketTimeout, ioMode,
+                    new OutboundQueue.Config());
+        }
+
+        public Config(Transport.Type transportType,
+                      Set<Transport.Type> supportedTransportTypes,
+                      AuthorizationService authorizationService,
+                      TransportConfig transportConfig,
+                      int socketTimeout,
+                      IoMode ioMode,
+                      OutboundQueue.Config outboundQueueConfig) {
             this.transportType = transportType;
             this.supportedTransportTypes = supportedTransportTypes;
             this.authorizationService = authorizationService;
             this.transportConfig = transportConfig;
             this.socketTimeout = socketTimeout;
+            this.ioMode = ioMode;
+            this.outboundQueueConfig = outboundQueueConfig;
         }
     }
 
     private final BanList banList;
     private final Transport transport;
+    @Getter
     private final AuthorizationService authorizationService;
     private final Config config;
     @Getter
@@ -135,8 +171,14 @@ public class Node implements Connection.Handler {
     private final Transport.Type transportType;
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private final Map<String, ConnectionHandshake> connectionHandshakes = new ConcurrentHashMap<>();
+    // Connections backed by a ConnectionChannel use the id of the channel
+    private final Map<String, Connection> connectionByChannelId = new ConcurrentHashMap<>();
     private final RetryPolicy<Boolean> retryPolicy;
+    private final boolean isNioMode;
+    // Used for signing reusable AuthorizationTokens. We use a key per node to not link our identities.
+    private final KeyPair authorizationKeyPair;
     private Optional<Server> server = Optional.empty();
+    private Optional<PeerConnectionsManager> peerConnectionsManager = Optional.empty();
     private Optional<Capability> myCapability = Optional.empty();
     @Getter
     public AtomicReference<State> state = new AtomicReference<>(State.NEW);
@@ -150,6 +192,16 @@ public class Node implements Connection.Handler {
         authorizationService = config.getAuthorizationService();
         this.config = config;
         this.nodeId = nodeId;
+        try {
+            authorizationKeyPair = KeyGeneration.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (config.getIoMode() == IoMode.NIO && transportType != Transport.Type.CLEAR) {
+            log.warn("IoMode NIO is only supported for clear net. We use IoMode BLOCKING for transportType {}", transportType);
+        }
+        isNioMode = config.getIoMode() == IoMode.NIO && transportType == Transport.Type.CLEAR;
 
         retryPolicy = RetryPolicy.<Boolean>builder()
                 .handle(IllegalStateException.class)
@@ -184,7 +236,11 @@ public class Node implements Connection.Handler {
                     CompletableFuture<Boolean> completableFuture = transport.initialize();
                     completableFuture.join();
 
-                    createServerAndListen(port);
+                    if (isNioMode) {
+                        startPeerConnectionsManager(port);
+                    } else {
+                        createServerAndListen(port);
+                    }
                     setState(State.RUNNING);
                     break;
                 }
@@ -208,7 +264,9 @@ public class Node implements Connection.Handler {
 
     private void createServerAndListen(int port) {
         Transport.ServerSocketResult serverSocketResult = transport.getServerSocket(port, nodeId);
-        myCapability = Optional.of(new Capability(serverSocketResult.getAddress(), new ArrayList<>(config.getSupportedTransportTypes())));
+        myCapability = Optional.of(new Capability(serverSocketResult.getAddress(),
+                new ArrayList<>(config.getSupportedTransportTypes()),
+                Feature.getSupportedFeatures()));
         server = Optional.of(new Server(serverSocketResult,
                 socket -> onClientSocket(socket, serverSocketResult, myCapability.get()),
                 exception -> {
@@ -218,6 +276,13 @@ public class Node implements Connection.Handler {
                 }));
     }
 
+    private void startPeerConnectionsManager(int port) {
+        PeerConnectionsManager manager = new PeerConnectionsManager(config, nodeId, banList, authorizationService);
+        Capability capability = manager.start(this, port);
+        myCapability = Optional.of(capability);
+        peerConnectionsManager = Optional.of(manager);
+    }
+
     private void onClientSocket(Socket socket, Transport.ServerSocketResult serverSocketResult, Capability myCapability) {
         ConnectionHandshake connectionHandshake = new ConnectionHandshake(socket,
                 banList,
@@ -243,9 +308,9 @@ public class Node implements Connection.Handler {
                 return;
             }
 
-            InboundConnection connection = new InboundConnection(socket, serverSocketResult, result.getCapability(), result.getLoad(), result.getMetrics(), this, this::handleException);
+            InboundConnection connection = new InboundConnection(socket, serverSocketResult, result.getCapability(), result.getLoad(), result.getMetrics(), this, config.getOutboundQueueConfig(), this::handleException);
             inboundConnectionsByAddress.put(connection.getPeerAddress(), connection);
-            DISPATCHER.submit(() -> listeners.forEach(listener -> listener.onConnection(connection)));
+            MESSAGE_DISPATCHER.submit(connection.getId(), () -> listeners.forEach(listener -> listener.onConnection(connection)));
         } catch (Throwable throwable) {
             connectionHandshake.shutdown();
             connectionHandshakes.remove(connectionHandshake.getId());
@@ -258,10 +323,13 @@ public class Node implements Connection.Handler {
         }
     }
 
+    // Called from the InboundConnectionsManager after the handshake has been completed
     public void onNewIncomingConnection(InboundConnectionChannel inboundConnectionChannel) {
         try {
-            // inboundConnectionsByAddress.put(inboundConnectionChannel.getPeerAddress(), inboundConnectionChannel);
-            // DISPATCHER.submit(() -> listeners.forEach(listener -> listener.onConnection(inboundConnectionChannel)));
+            InboundConnection connection = new InboundConnection(inboundConnectionChannel, this);
+            connectionByChannelId.put(connection.getId(), connection);
+            inboundConnectionsByAddress.put(connection.getPeerAddress(), connection);
+            MESSAGE_DISPATCHER.submit(connection.getId(), () -> listeners.forEach(listener -> listener.onConnection(connection)));
         } catch (Throwable throwable) {
             try {
                 inboundConnectionChannel.getNetworkEnvelopeSocketChannel().close();
@@ -272,6 +340,14 @@ public class Node implements Connection.Handler {
         }
     }
 
+    // Called from the selector thread of the OutboundConnectionManager after the handshake has been completed
+    public void onNewOutboundConnection(OutboundConnectionChannel outboundConnectionChannel) {
+        OutboundConnection connection = new OutboundConnection(outboundConnectionChannel, this);
+        connectionByChannelId.put(connection.getId(), connection);
+        outboundConnectionsByAddress.put(connection.getPeerAddress(), connection);
+        MESSAGE_DISPATCHER.submit(connection.getId(), () -> listeners.forEach(listener -> listener.onConnection(connection)));
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Send
@@ -287,10 +363,14 @@ public class Node implements Connection.Handler {
             throw new ConnectionClosedException(connection);
         }
         try {
+            // If the peer supports it, the pow of the token is cached and reused if we send the same message to other
+            // peers (e.g. at broadcast)
             AuthorizationToken token = authorizationService.createToken(networkMessage,
                     connection.getPeersLoad(),
                     connection.getPeerAddress().getFullAddress(),
-                    connection.getSentMessageCounter().incrementAndGet());
+                    connection.getSentMessageCounter().incrementAndGet(),
+                    connection.getPeersCapability(),
+                    authorizationKeyPair);
             return connection.send(networkMessage, token);
         } catch (Throwable throwable) {
             if (connection.isRunning()) {
@@ -339,6 +419,9 @@ public class Node implements Connection.Handler {
         if (banList.isBanned(address)) {
             throw new ConnectionException("Create outbound connection failed. PeerAddress is banned. address=" + address);
         }
+        if (isNioMode) {
+            return createOutboundConnectionChannel(address);
+        }
         Socket socket;
         try {
             socket = transport.getSocket(address); // Blocking call
@@ -382,9 +465,9 @@ public class Node implements Connection.Handler {
                 return outboundConnectionsByAddress.get(address);
             }
 
-            OutboundConnection connection = new OutboundConnection(socket, address, result.getCapability(), result.getLoad(), result.getMetrics(), this, this::handleException);
+            OutboundConnection connection = new OutboundConnection(socket, address, result.getCapability(), result.getLoad(), result.getMetrics(), this, config.getOutboundQueueConfig(), this::handleException);
             outboundConnectionsByAddress.put(address, connection);
-            DISPATCHER.submit(() -> listeners.forEach(listener -> listener.onConnection(connection)));
+            MESSAGE_DISPATCHER.submit(connection.getId(), () -> listeners.forEach(listener -> listener.onConnection(connection)));
             return connection;
         } catch (Throwable throwable) {
             connectionHandshake.shutdown();
@@ -399,6 +482,15 @@ public class Node implements Connection.Handler {
         }
     }
 
+    private Connection createOutboundConnectionChannel(Address address) {
+        ConnectionChannel connectionChannel = peerConnectionsManager.orElseThrow().getConnection(address); // Blocking call
+        Connection connection = connectionByChannelId.get(connectionChannel.getId());
+        if (connection == null) {
+            throw new ConnectionException("No connection found for connectionChannel " + connectionChannel);
+        }
+        return connection;
+    }
+
     public Stream<Connection> getAllConnections() {
         return Stream.concat(inboundConnectionsByAddress.values().stream(), outboundConnectionsByAddress.values().stream());
     }
@@ -425,7 +517,7 @@ public class Node implements Connection.Handler {
                 log.debug("Node {} received CloseConnectionMessage from {} with reason: {}", this, connection.getPeerAddress(), closeConnectionMessage.getCloseReason());
                 closeConnection(connection, CloseReason.CLOSE_MSG_RECEIVED.details(closeConnectionMessage.getCloseReason().name()));
             } else {
-                // We got called from Connection on the dispatcher thread, so no mapping needed here.
+                // We got called from Connection on the dispatcher shard of that connection, so no mapping needed here.
                 connection.notifyListeners(networkMessage);
                 listeners.forEach(listener -> listener.onMessage(networkMessage, connection, nodeId));
             }
@@ -435,38 +527,28 @@ public class Node implements Connection.Handler {
         }
     }
 
-    public void handleNetworkMessage(NetworkMessage networkMessage, AuthorizationToken authorizationToken, ConnectionChannel connection) {
+    // Called from the selector threads of the ServerChannel and OutboundConnectionMultiplexer
+    public void handleNetworkMessage(NetworkMessage networkMessage, AuthorizationToken authorizationToken, ConnectionChannel connectionChannel) {
         if (isShutdown()) {
             return;
         }
-        String myAddress = findMyAddress().orElseThrow().getFullAddress();
-        boolean isAuthorized = authorizationService.isAuthorized(networkMessage,
-                authorizationToken,
-                getMyLoad(),
-                connection.getId(),
-                myAddress);
-        if (isAuthorized) {
-            if (networkMessage instanceof CloseConnectionMessage) {
-                CloseConnectionMessage closeConnectionMessage = (CloseConnectionMessage) networkMessage;
-                log.debug("Node {} received CloseConnectionMessage from {} with reason: {}", this, connection.getPeerAddress(), closeConnectionMessage.getCloseReason());
-                // closeConnection(connection, CloseReason.CLOSE_MSG_RECEIVED.details(closeConnectionMessage.getCloseReason().name()));
-            } else {
-                // We got called from Connection on the dispatcher thread, so no mapping needed here.
-                connection.notifyListeners(networkMessage);
-                // listeners.forEach(listener -> listener.onMessage(networkMessage, connection, nodeId));
-            }
-        } else {
-            //todo handle
-            log.warn("Message authorization failed. authorizedMessage={}", StringUtils.truncate(networkMessage.toString()));
+        Connection connection = connectionByChannelId.get(connectionChannel.getId());
+        if (connection == null) {
+            log.warn("No connection found for connectionChannel {}", connectionChannel);
+            return;
+        }
+        if (connection.isListening()) {
+            MESSAGE_DISPATCHER.submit(connection.getId(), () -> handleNetworkMessage(networkMessage, authorizationToken, connection));
         }
     }
 
-
     @Override
     public void handleConnectionClosed(Connection connection, CloseReason closeReason) {
         Address peerAddress = connection.getPeerAddress();
         log.debug("Node {} got called onConnectionClosed. connection={}, peerAddress={}", this, connection, peerAddress);
         boolean wasRemoved = false;
+        connectionByChannelId.remove(connection.getId());
+        authorizationService.onConnectionClosed(connection.getId());
         if (connection instanceof InboundConnection) {
             wasRemoved = inboundConnectionsByAddress.remove(peerAddress) != null;
             if (!wasRemoved) {
@@ -525,6 +607,7 @@ public class Node implements Connection.Handler {
                     if (throwable != null) {
                         log.warn("Exception at node shutdown", throwable);
                     }
+                    peerConnectionsManager.ifPresent(PeerConnectionsManager::shutdown);
                     transport.shutdown();
                     outboundConnectionsByAddress.clear();
                     inboundConnectionsByAddress.clear();
@@ -548,7 +631,8 @@ public class Node implements Connection.Handler {
     }
 
     public Optional<Address> findMyAddress() {
-        return server.map(Server::getAddress);
+        return server.map(Server::getAddress)
+                .or(() -> peerConnectionsManager.flatMap(PeerConnectionsManager::findMyAddress));
     }
 
     public int getNumConnections() {
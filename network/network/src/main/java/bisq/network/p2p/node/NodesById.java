@@ -38,8 +38,22 @@ import static com.google.common.base.Preconditions.checkArgument;
 /**
  * Maintains a map with nodes by nodeId.
  * Provides delegate methods to node with given nodeId
+ * In MULTIPLEXED mode all nodeIds (except isolated ones) are mapped to the default node, thus they share its
+ * transport endpoint and its connections.
  */
 public class NodesById implements Node.Listener {
+    public enum IdentityMode {
+        // All identities share the transport endpoint (e.g. the onion service) and the peer connections of the default
+        // node. Confidential messages are routed to the identity by the receiverKeyId inside the message.
+        MULTIPLEXED,
+        // Each identity uses its own node with its own transport endpoint and connections. Peers cannot link
+        // identities by their address, at the cost of a server, handshakes and connections per identity.
+        ISOLATED;
+
+        // Used if not set in the config. Applications opt in to MULTIPLEXED by their config.
+        public static final IdentityMode DEFAULT = ISOLATED;
+    }
+
     public interface Listener {
         void onNodeAdded(Node node);
 
@@ -50,12 +64,19 @@ public class NodesById implements Node.Listener {
     private final Map<String, Node> map = new ConcurrentHashMap<>();
     private final BanList banList;
     private final Node.Config nodeConfig;
+    private final IdentityMode identityMode;
+    private final Set<String> isolatedNodeIds = ConcurrentHashMap.newKeySet();
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private final Set<Node.Listener> nodeListeners = new CopyOnWriteArraySet<>();
 
     public NodesById(BanList banList, Node.Config nodeConfig) {
+        this(banList, nodeConfig, IdentityMode.DEFAULT);
+    }
+
+    public NodesById(BanList banList, Node.Config nodeConfig, IdentityMode identityMode) {
         this.banList = banList;
         this.nodeConfig = nodeConfig;
+        this.identityMode = identityMode;
     }
 
 
@@ -80,7 +101,7 @@ public class NodesById implements Node.Listener {
     }
 
     public CompletableFuture<Boolean> shutdown() {
-        Stream<CompletableFuture<Boolean>> futures = map.values().stream().map(Node::shutdown);
+        Stream<CompletableFuture<Boolean>> futures = map.values().stream().distinct().map(Node::shutdown);
         return CompletableFutureUtils.allOf(futures)
                 .orTimeout(10, TimeUnit.SECONDS)
                 .handle((list, throwable) -> {
@@ -114,7 +135,28 @@ public class NodesById implements Node.Listener {
     }
 
     public Collection<Node> getAllNodes() {
-        return map.values();
+        return map.values().stream().distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * @return True if the given nodeId shares the default node.
+     */
+    public boolean isMultiplexed(String nodeId) {
+        return identityMode == IdentityMode.MULTIPLEXED &&
+                !nodeId.equals(Node.DEFAULT) &&
+                !isolatedNodeIds.contains(nodeId);
+    }
+
+    /**
+     * Lets the nodeId use its own node also in MULTIPLEXED mode. Used for identities which have published the
+     * address of their own node before.
+     */
+    public void addIsolatedNodeId(String nodeId) {
+        if (isolatedNodeIds.add(nodeId)) {
+            findNode(nodeId)
+                    .filter(node -> !node.getNodeId().equals(nodeId))
+                    .ifPresent(defaultNode -> map.remove(nodeId, defaultNode));
+        }
     }
 
     /**
@@ -164,7 +206,8 @@ public class NodesById implements Node.Listener {
 
     @Override
     public void onShutdown(Node node) {
-        map.remove(node.getNodeId());
+        // Removes the multiplexed nodeIds as well
+        map.values().removeIf(value -> value == node);
         node.removeListener(this);
         listeners.forEach(listener -> listener.onNodeRemoved(node));
     }
@@ -177,6 +220,11 @@ public class NodesById implements Node.Listener {
     private Node getOrCreateNode(String nodeId) {
         return findNode(nodeId)
                 .orElseGet(() -> {
+                    if (isMultiplexed(nodeId)) {
+                        Node defaultNode = getOrCreateDefaultNode();
+                        map.put(nodeId, defaultNode);
+                        return defaultNode;
+                    }
                     Node node = new Node(banList, nodeConfig, nodeId);
                     map.put(nodeId, node);
                     node.addListener(this);
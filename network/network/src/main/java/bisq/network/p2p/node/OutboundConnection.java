@@ -35,13 +35,21 @@ public class OutboundConnection extends Connection {
                        Load peersLoad,
                        Metrics metrics,
                        Handler handler,
+                       OutboundQueue.Config outboundQueueConfig,
                        BiConsumer<Connection, Exception> errorHandler) {
-        super(socket, peersCapability, peersLoad, metrics, handler, errorHandler);
+        super(socket, peersCapability, peersLoad, metrics, handler, outboundQueueConfig, errorHandler);
 
         this.address = address;
         log.debug("Create outboundConnection to {}", address);
     }
 
+    OutboundConnection(OutboundConnectionChannel outboundConnectionChannel, Handler handler) {
+        super(outboundConnectionChannel, handler);
+
+        this.address = outboundConnectionChannel.getPeerAddress();
+        log.debug("Create outboundConnection to {}", address);
+    }
+
     @Override
     public boolean isPeerAddressVerified() {
         return true;
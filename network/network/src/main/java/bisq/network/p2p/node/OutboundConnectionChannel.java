@@ -30,9 +30,17 @@ public class OutboundConnectionChannel extends ConnectionChannel {
                                      Load peersLoad,
                                      NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel,
                                      Metrics metrics) {
+        this(peersCapability.getAddress(), peersCapability, peersLoad, networkEnvelopeSocketChannel, metrics);
+    }
+
+    public OutboundConnectionChannel(Address address,
+                                     Capability peersCapability,
+                                     Load peersLoad,
+                                     NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel,
+                                     Metrics metrics) {
         super(peersCapability, peersLoad, networkEnvelopeSocketChannel, metrics);
 
-        this.address = peersCapability.getAddress();
+        this.address = address;
         log.debug("Create outboundConnection to {}", this.address);
     }
 
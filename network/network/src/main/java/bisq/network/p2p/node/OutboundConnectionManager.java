@@ -17,29 +17,32 @@
 
 package bisq.network.p2p.node;
 
+import bisq.network.NetworkService;
 import bisq.network.p2p.ConnectionHandshakeInitiator;
 import bisq.network.p2p.message.NetworkEnvelope;
+import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.authorization.AuthorizationService;
 import bisq.network.p2p.services.peergroup.BanList;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.net.ConnectException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
-import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Creates and handles the outbound connections. Channel registration and the handle methods are executed on the
+ * selector thread of the OutboundConnectionMultiplexer. The proof of work for the handshake request is created on
+ * the NETWORK_IO_POOL.
+ */
 @Slf4j
 public class OutboundConnectionManager {
     public interface Listener {
@@ -57,13 +60,15 @@ public class OutboundConnectionManager {
     private final Map<SocketChannel, Address> addressByChannel = new ConcurrentHashMap<>();
     private final Map<Address, SocketChannel> channelByAddress = new ConcurrentHashMap<>();
     private final Map<SocketChannel, ConnectionHandshakeInitiator> handshakeInitiatorByChannel = new ConcurrentHashMap<>();
+    private final Map<SocketChannel, NetworkEnvelopeSocketChannel> networkEnvelopeChannelBySocketChannel = new ConcurrentHashMap<>();
 
-    private final List<SocketChannel> outboundHandshakeChannels = new CopyOnWriteArrayList<>();
-    private final List<SocketChannel> verifiedConnections = new CopyOnWriteArrayList<>();
+    private final Set<SocketChannel> outboundHandshakeChannels = ConcurrentHashMap.newKeySet();
 
     private final Map<SocketChannel, OutboundConnectionChannel> connectionByChannel = new ConcurrentHashMap<>();
     private final Map<Address, CompletableFuture<OutboundConnectionChannel>> completableFutureByPeerAddress = new ConcurrentHashMap<>();
     private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Channels must be registered at the selector thread, otherwise register would block while the selector is in select
+    private final Queue<Runnable> pendingSelectorTasks = new ConcurrentLinkedQueue<>();
 
     public OutboundConnectionManager(AuthorizationService authorizationService,
                                      BanList banList,
@@ -80,116 +85,104 @@ public class OutboundConnectionManager {
     }
 
     public CompletableFuture<OutboundConnectionChannel> createNewConnection(Address address) {
-        if (completableFutureByPeerAddress.containsKey(address)) {
-            return completableFutureByPeerAddress.get(address);
+        var completableFuture = new CompletableFuture<OutboundConnectionChannel>();
+        CompletableFuture<OutboundConnectionChannel> pendingFuture = completableFutureByPeerAddress.putIfAbsent(address, completableFuture);
+        if (pendingFuture != null) {
+            return pendingFuture;
         }
 
-        var completableFuture = new CompletableFuture<OutboundConnectionChannel>();
-        completableFutureByPeerAddress.put(address, completableFuture);
+        if (banList.isBanned(address)) {
+            completableFutureByPeerAddress.remove(address);
+            completableFuture.completeExceptionally(new ConnectionException("Create outbound connection failed. PeerAddress is banned. address=" + address));
+            return completableFuture;
+        }
 
         try {
             SocketChannel socketChannel = SocketChannel.open();
             socketChannel.configureBlocking(false);
-            socketChannel.register(selector, SelectionKey.OP_CONNECT);
 
             addressByChannel.put(socketChannel, address);
             channelByAddress.put(address, socketChannel);
 
-            InetSocketAddress socketAddress = new InetSocketAddress(address.getHost(), address.getPort());
-            boolean isConnectedImmediately = socketChannel.connect(socketAddress);
-            if (isConnectedImmediately) {
-                handleConnectedChannel(socketChannel);
-            }
-
+            pendingSelectorTasks.add(() -> registerAndConnect(socketChannel, address));
+            selector.wakeup();
         } catch (IOException e) {
             log.warn("Couldn't create connection to " + address.getFullAddress(), e);
+            completableFutureByPeerAddress.remove(address);
+            completableFuture.completeExceptionally(new ConnectionException(e));
         }
 
         return completableFuture;
     }
 
+    public void runPendingSelectorTasks() {
+        Runnable task;
+        while ((task = pendingSelectorTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Pending selector task failed", e);
+            }
+        }
+    }
+
     public void handleConnectableChannel(SocketChannel socketChannel) throws IOException {
         try {
-            socketChannel.finishConnect();
-            handleConnectedChannel(socketChannel);
-
-        } catch (ConnectException e) {
+            if (socketChannel.finishConnect()) {
+                handleConnectedChannel(socketChannel);
+            }
+        } catch (IOException e) {
             // Couldn't connect to peer, nothing we can do.
-            Address address = addressByChannel.get(socketChannel);
-            channelByAddress.remove(address);
-
-            addressByChannel.remove(socketChannel);
+            failConnection(socketChannel, e);
         }
     }
 
     public void handleWritableChannel(SocketChannel socketChannel) throws IOException {
-        if (outboundHandshakeChannels.contains(socketChannel)) {
-            var handshakeInitiator = new ConnectionHandshakeInitiator(
-                    myCapability,
-                    authorizationService,
-                    banList,
-                    myLoad,
-                    addressByChannel.get(socketChannel)
-            );
-            handshakeInitiatorByChannel.put(socketChannel, handshakeInitiator);
-
-            NetworkEnvelope handshakeRequest = handshakeInitiator.initiate();
-            ByteBuffer byteBuffer = wrapPayloadInByteBuffer(handshakeRequest);
-
-            socketChannel.register(selector, SelectionKey.OP_READ);
-
-            log.info("Sending PoW request to peer.");
-            socketChannel.write(byteBuffer);
+        NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = networkEnvelopeChannelBySocketChannel.get(socketChannel);
+        if (networkEnvelopeSocketChannel == null) {
+            return;
+        }
+        try {
+            networkEnvelopeSocketChannel.flushPendingWrites();
+        } catch (IOException e) {
+            handleException(socketChannel, e);
         }
     }
 
     public void handleReadableChannel(SocketChannel socketChannel) throws IOException {
-        if (outboundHandshakeChannels.contains(socketChannel)) {
-            NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = new NetworkEnvelopeSocketChannel(socketChannel);
-            List<NetworkEnvelope> networkEnvelopeList = networkEnvelopeSocketChannel.receiveNetworkEnvelopes();
-
-            ConnectionHandshakeInitiator handshakeInitiator = handshakeInitiatorByChannel.get(socketChannel);
-            ConnectionHandshake.Response handshakeResponse = handshakeInitiator.finish(networkEnvelopeList);
-
-            verifiedConnections.add(socketChannel);
-            outboundHandshakeChannels.remove(socketChannel);
-
-            Capability peerCapability = handshakeResponse.getCapability();
-            OutboundConnectionChannel outboundConnectionChannel = new OutboundConnectionChannel(
-                    peerCapability,
-                    handshakeResponse.getLoad(),
-                    networkEnvelopeSocketChannel,
-                    new Metrics()
-            );
-
-            connectionByChannel.put(socketChannel, outboundConnectionChannel);
-            listeners.forEach(l -> l.onNewConnection(outboundConnectionChannel));
-
-            CompletableFuture<OutboundConnectionChannel> completableFuture =
-                    completableFutureByPeerAddress.get(peerCapability.getAddress());
-            completableFuture.complete(outboundConnectionChannel);
-
-        } else if (verifiedConnections.contains(socketChannel)) {
-            OutboundConnectionChannel connectionChannel = connectionByChannel.get(socketChannel);
-
-            NetworkEnvelopeSocketChannel envelopeSocketChannel = connectionChannel.getNetworkEnvelopeSocketChannel();
-            List<NetworkEnvelope> networkEnvelopes = envelopeSocketChannel.receiveNetworkEnvelopes();
-            log.debug("Received {} messages from peer {}.",
-                    networkEnvelopes.size(), connectionChannel.getPeerAddress().getFullAddress());
+        NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = networkEnvelopeChannelBySocketChannel.get(socketChannel);
+        if (networkEnvelopeSocketChannel == null) {
+            return;
+        }
 
-            networkEnvelopes.forEach(networkEnvelope -> node.handleNetworkMessage(
-                    networkEnvelope.getNetworkMessage(),
-                    networkEnvelope.getAuthorizationToken(),
-                    connectionChannel
-            ));
+        try {
+            if (outboundHandshakeChannels.contains(socketChannel)) {
+                handleHandshakeResponse(socketChannel, networkEnvelopeSocketChannel);
+            } else {
+                OutboundConnectionChannel connectionChannel = connectionByChannel.get(socketChannel);
+                if (connectionChannel != null) {
+                    List<NetworkEnvelope> networkEnvelopes = networkEnvelopeSocketChannel.receiveNetworkEnvelopes();
+                    log.debug("Received {} messages from peer {}.",
+                            networkEnvelopes.size(), connectionChannel.getPeerAddress().getFullAddress());
+                    dispatch(connectionChannel, networkEnvelopes);
+
+                    if (!networkEnvelopeSocketChannel.isOpen()) {
+                        connectionChannel.close(CloseReason.EXCEPTION.exception(
+                                new EOFException("Connection closed by peer " + connectionChannel.getPeerAddress())));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Besides IO errors, a peer can cause RuntimeExceptions at parsing or validating a message (e.g.
+            // UnresolvableProtobufMessageException for unknown message types), which must only close its channel.
+            handleException(socketChannel, e);
         }
     }
 
     public Optional<OutboundConnectionChannel> getConnection(Address address) {
-        if (channelByAddress.containsKey(address)) {
-            SocketChannel socketChannel = channelByAddress.get(address);
-            OutboundConnectionChannel connectionChannel = connectionByChannel.get(socketChannel);
-            return Optional.ofNullable(connectionChannel);
+        SocketChannel socketChannel = channelByAddress.get(address);
+        if (socketChannel != null) {
+            return Optional.ofNullable(connectionByChannel.get(socketChannel));
         }
 
         return Optional.empty();
@@ -207,32 +200,168 @@ public class OutboundConnectionManager {
         listeners.remove(l);
     }
 
-    private void handleConnectedChannel(SocketChannel socketChannel) {
+    public void shutdown() {
+        new ArrayList<>(connectionByChannel.values())
+                .forEach(connection -> connection.close(CloseReason.SHUTDOWN));
+        new HashSet<>(addressByChannel.keySet())
+                .forEach(socketChannel -> failConnection(socketChannel, new ConnectionException("Shutdown")));
+    }
+
+    private void registerAndConnect(SocketChannel socketChannel, Address address) {
         try {
-            socketChannel.register(selector, SelectionKey.OP_WRITE);
-            outboundHandshakeChannels.add(socketChannel);
+            socketChannel.register(selector, SelectionKey.OP_CONNECT);
+            InetSocketAddress socketAddress = new InetSocketAddress(address.getHost(), address.getPort());
+            boolean isConnectedImmediately = socketChannel.connect(socketAddress);
+            if (isConnectedImmediately) {
+                handleConnectedChannel(socketChannel);
+            }
+        } catch (IOException e) {
+            log.warn("Couldn't create connection to " + address.getFullAddress(), e);
+            failConnection(socketChannel, e);
+        }
+    }
 
-            Address address = addressByChannel.get(socketChannel);
-            log.info("Created outbound connection to {}", address.getFullAddress());
-        } catch (ClosedChannelException e) {
-            log.error("Couldn't connect to channel.", e);
+    private void handleConnectedChannel(SocketChannel socketChannel) {
+        Address address = addressByChannel.get(socketChannel);
+        SelectionKey selectionKey = socketChannel.keyFor(selector);
+        if (address == null || selectionKey == null || !selectionKey.isValid()) {
+            failConnection(socketChannel, new ConnectionException("Connection closed before handshake"));
+            return;
+        }
+        log.debug("Created outbound connection to {}", address.getFullAddress());
+
+        // We do not listen to any events until our handshake request is sent
+        selectionKey.interestOps(0);
+        NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = new NetworkEnvelopeSocketChannel(socketChannel);
+        networkEnvelopeSocketChannel.setSelectionKey(selectionKey);
+        networkEnvelopeChannelBySocketChannel.put(socketChannel, networkEnvelopeSocketChannel);
+        outboundHandshakeChannels.add(socketChannel);
+
+        var handshakeInitiator = new ConnectionHandshakeInitiator(
+                myCapability,
+                authorizationService,
+                banList,
+                myLoad,
+                address
+        );
+        handshakeInitiatorByChannel.put(socketChannel, handshakeInitiator);
+
+        // Creating the handshake request requires a proof of work, so we must not do it on the selector thread
+        CompletableFuture.runAsync(() -> {
+            try {
+                NetworkEnvelope handshakeRequest = handshakeInitiator.initiate();
+                log.debug("Sending PoW request to peer {}.", address.getFullAddress());
+                networkEnvelopeSocketChannel.send(handshakeRequest);
+                selectionKey.interestOpsOr(SelectionKey.OP_READ);
+                selector.wakeup();
+            } catch (Exception e) {
+                failConnection(socketChannel, e);
+            }
+        }, NetworkService.NETWORK_IO_POOL);
+    }
+
+    private void handleHandshakeResponse(SocketChannel socketChannel,
+                                         NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel) throws IOException {
+        List<NetworkEnvelope> networkEnvelopeList = networkEnvelopeSocketChannel.receiveNetworkEnvelopes();
+        if (!networkEnvelopeSocketChannel.isOpen()) {
+            failConnection(socketChannel, new EOFException("Connection closed by peer at handshake"));
+            return;
+        }
+        if (networkEnvelopeList.isEmpty()) {
+            // Response not fully received yet
+            return;
+        }
 
-            // Connection closed.
-            Address address = addressByChannel.get(socketChannel);
-            channelByAddress.remove(address);
+        ConnectionHandshakeInitiator handshakeInitiator = handshakeInitiatorByChannel.remove(socketChannel);
+        ConnectionHandshake.Response handshakeResponse = handshakeInitiator.finish(networkEnvelopeList.subList(0, 1));
+
+        outboundHandshakeChannels.remove(socketChannel);
+
+        Address address = addressByChannel.get(socketChannel);
+        Capability peerCapability = handshakeResponse.getCapability();
+        OutboundConnectionChannel outboundConnectionChannel = new OutboundConnectionChannel(
+                address,
+                peerCapability,
+                handshakeResponse.getLoad(),
+                networkEnvelopeSocketChannel,
+                networkEnvelopeSocketChannel.getMetrics()
+        );
+
+        connectionByChannel.put(socketChannel, outboundConnectionChannel);
+        outboundConnectionChannel.addListener(new ConnectionChannel.Listener() {
+            @Override
+            public void onNetworkMessage(NetworkMessage networkMessage) {
+            }
+
+            @Override
+            public void onConnectionClosed(CloseReason closeReason) {
+                removeChannel(socketChannel);
+            }
+        });
 
-            addressByChannel.remove(socketChannel);
+        // Node need to know the connection before we dispatch any message
+        node.onNewOutboundConnection(outboundConnectionChannel);
+        listeners.forEach(l -> l.onNewConnection(outboundConnectionChannel));
+
+        CompletableFuture<OutboundConnectionChannel> completableFuture = completableFutureByPeerAddress.remove(address);
+        if (completableFuture != null) {
+            completableFuture.complete(outboundConnectionChannel);
+        }
+
+        // Peer might have sent messages directly after the handshake response
+        dispatch(outboundConnectionChannel, networkEnvelopeList.subList(1, networkEnvelopeList.size()));
+    }
+
+    private void dispatch(OutboundConnectionChannel connectionChannel, List<NetworkEnvelope> networkEnvelopes) {
+        networkEnvelopes.forEach(networkEnvelope -> {
+            node.handleNetworkMessage(
+                    networkEnvelope.getNetworkMessage(),
+                    networkEnvelope.getAuthorizationToken(),
+                    connectionChannel
+            );
+        });
+    }
+
+    void handleException(SocketChannel socketChannel, Exception exception) {
+        OutboundConnectionChannel connectionChannel = connectionByChannel.get(socketChannel);
+        if (connectionChannel != null) {
+            log.debug("Exception at connection {}", connectionChannel, exception);
+            connectionChannel.close(CloseReason.EXCEPTION.exception(exception));
+        } else {
+            failConnection(socketChannel, exception);
+        }
+    }
+
+    private void failConnection(SocketChannel socketChannel, Throwable throwable) {
+        Address address = removeChannel(socketChannel);
+        if (address != null) {
+            CompletableFuture<OutboundConnectionChannel> completableFuture = completableFutureByPeerAddress.remove(address);
+            if (completableFuture != null) {
+                completableFuture.completeExceptionally(throwable instanceof ConnectionException ?
+                        throwable :
+                        new ConnectionException(throwable));
+            }
         }
     }
 
-    private ByteBuffer wrapPayloadInByteBuffer(NetworkEnvelope networkEnvelope) {
-        bisq.network.protobuf.NetworkEnvelope poWRequest = networkEnvelope.toProto();
-        byte[] requestInBytes = poWRequest.toByteArray();
-        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
-        ProtoBufMessageLengthWriter.writeToBuffer(requestInBytes.length, byteBuffer);
-        byteBuffer.put(requestInBytes);
+    private Address removeChannel(SocketChannel socketChannel) {
+        outboundHandshakeChannels.remove(socketChannel);
+        handshakeInitiatorByChannel.remove(socketChannel);
+        connectionByChannel.remove(socketChannel);
+        NetworkEnvelopeSocketChannel networkEnvelopeSocketChannel = networkEnvelopeChannelBySocketChannel.remove(socketChannel);
+        try {
+            if (networkEnvelopeSocketChannel != null) {
+                networkEnvelopeSocketChannel.close();
+            } else {
+                socketChannel.close();
+            }
+        } catch (IOException ignore) {
+        }
 
-        byteBuffer.flip();
-        return byteBuffer;
+        Address address = addressByChannel.remove(socketChannel);
+        if (address != null) {
+            channelByAddress.remove(address, socketChannel);
+        }
+        return address;
     }
 }
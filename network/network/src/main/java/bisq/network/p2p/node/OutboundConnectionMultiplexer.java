@@ -21,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
@@ -37,6 +38,7 @@ public class OutboundConnectionMultiplexer implements OutboundConnectionManager.
     private final OutboundConnectionManager outboundConnectionManager;
 
     private Optional<Thread> workerThread = Optional.empty();
+    private volatile boolean isStopped;
 
 
     public OutboundConnectionMultiplexer(OutboundConnectionManager outboundConnectionManager) {
@@ -47,13 +49,24 @@ public class OutboundConnectionMultiplexer implements OutboundConnectionManager.
     public void start() {
         outboundConnectionManager.registerListener(this);
 
-        var thread = new Thread(this::workerLoop);
+        var thread = new Thread(this::workerLoop, "OutboundConnectionMultiplexer.selector");
+        thread.setDaemon(true);
         workerThread = Optional.of(thread);
         thread.start();
     }
 
     public void shutdown() {
+        if (isStopped) {
+            return;
+        }
+        isStopped = true;
+        outboundConnectionManager.removeListener(this);
+        outboundConnectionManager.shutdown();
         workerThread.ifPresent(Thread::interrupt);
+        try {
+            selector.close();
+        } catch (IOException ignore) {
+        }
     }
 
     public CompletableFuture<OutboundConnectionChannel> getConnection(Address address) {
@@ -66,10 +79,7 @@ public class OutboundConnectionMultiplexer implements OutboundConnectionManager.
             );
         }
 
-        CompletableFuture<OutboundConnectionChannel> completableFuture = outboundConnectionManager.createNewConnection(address);
-        selector.wakeup();
-
-        return completableFuture;
+        return outboundConnectionManager.createNewConnection(address);
     }
 
     @Override
@@ -81,41 +91,53 @@ public class OutboundConnectionMultiplexer implements OutboundConnectionManager.
     }
 
     private void workerLoop() {
-        while (true) {
-            selectorLoop();
+        while (!isStopped && !Thread.currentThread().isInterrupted()) {
+            try {
+                selectorLoop();
+            } catch (ClosedSelectorException e) {
+                return;
+            }
         }
     }
 
     private void selectorLoop() {
         try {
-            while (selector.select() > 0) {
-                Set<SelectionKey> readyKeys = selector.selectedKeys();
-                Iterator<SelectionKey> keyIterator = readyKeys.iterator();
-
-                while (keyIterator.hasNext()) {
-                    SelectionKey selectionKey = keyIterator.next();
-                    keyIterator.remove();
+            selector.select();
+        } catch (IOException e) {
+            log.warn("IOException in OutboundConnectionMultiplexer selector.", e);
+            return;
+        }
+        outboundConnectionManager.runPendingSelectorTasks();
 
-                    SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
+        Set<SelectionKey> readyKeys = selector.selectedKeys();
+        Iterator<SelectionKey> keyIterator = readyKeys.iterator();
 
-                    if (selectionKey.isConnectable()) {
-                        outboundConnectionManager.handleConnectableChannel(socketChannel);
-                    }
+        while (keyIterator.hasNext()) {
+            SelectionKey selectionKey = keyIterator.next();
+            keyIterator.remove();
 
-                    if (selectionKey.isReadable()) {
-                        outboundConnectionManager.handleReadableChannel(socketChannel);
-                    }
+            SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
+            try {
+                if (selectionKey.isValid() && selectionKey.isConnectable()) {
+                    outboundConnectionManager.handleConnectableChannel(socketChannel);
+                }
 
-                    if (selectionKey.isWritable()) {
-                        outboundConnectionManager.handleWritableChannel(socketChannel);
-                    }
+                if (selectionKey.isValid() && selectionKey.isReadable()) {
+                    outboundConnectionManager.handleReadableChannel(socketChannel);
+                }
 
+                if (selectionKey.isValid() && selectionKey.isWritable()) {
+                    outboundConnectionManager.handleWritableChannel(socketChannel);
                 }
+            } catch (IOException e) {
+                log.warn("IOException in OutboundConnectionMultiplexer selector.", e);
+            } catch (CancelledKeyException e) {
+                // Connection attempt failed or connection got closed. Nothing we can do here.
+            } catch (RuntimeException e) {
+                // A single peer must not be able to stop the selector thread, so we only close its channel
+                log.warn("Unexpected exception at channel {}. We close the channel.", socketChannel, e);
+                outboundConnectionManager.handleException(socketChannel, e);
             }
-        } catch (IOException e) {
-            log.warn("IOException in OutboundConnectionMultiplexer selector.", e);
-        } catch (CancelledKeyException e) {
-            // Connection attempt failed. Nothing we can do here.
         }
     }
 }
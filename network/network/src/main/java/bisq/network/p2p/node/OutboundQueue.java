@@ -0,0 +1,296 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import bisq.network.NetworkService;
+import bisq.network.p2p.message.NetworkEnvelope;
+import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.services.data.inventory.InventoryResponse;
+import bisq.network.p2p.services.peergroup.keepalive.Ping;
+import bisq.network.p2p.services.peergroup.keepalive.Pong;
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Coalesces the outbound envelopes of a connection into batched writes.
+ * The first sender which finds no active writer becomes the writer. It waits up to maxLatency for more envelopes
+ * (unless a control message is queued or the batch is full) and writes all queued envelopes with a single flush.
+ * Concurrent senders only wait until their envelope got written. Once the writer's own envelope is written, remaining
+ * envelopes are drained on the NETWORK_IO_POOL, so a caller is never held back by the traffic of others.
+ * Envelopes are taken in lane order, so control messages skip ahead of bulk traffic. To avoid starvation each batch
+ * contains at least one envelope of each non-empty lane.
+ */
+public class OutboundQueue {
+    public enum Lane {
+        CONTROL,
+        DEFAULT,
+        BULK;
+
+        public static Lane from(NetworkMessage networkMessage) {
+            if (networkMessage instanceof CloseConnectionMessage ||
+                    networkMessage instanceof Ping ||
+                    networkMessage instanceof Pong) {
+                return CONTROL;
+            } else if (networkMessage instanceof InventoryResponse) {
+                return BULK;
+            } else {
+                return DEFAULT;
+            }
+        }
+    }
+
+    @Getter
+    @ToString
+    public static final class Config {
+        private final int maxBatchSize;
+        private final long maxLatency;
+
+        public Config() {
+            this(64, 5);
+        }
+
+        /**
+         * @param maxBatchSize Max. number of envelopes written with one flush
+         * @param maxLatency   Max. time in ms an envelope is held back for coalescing. 0 disables waiting, then only
+         *                     envelopes which got queued while a write was in progress are batched.
+         */
+        public Config(int maxBatchSize, long maxLatency) {
+            checkArgument(maxBatchSize > 0, "maxBatchSize must be > 0");
+            checkArgument(maxLatency >= 0, "maxLatency must not be negative");
+            this.maxBatchSize = maxBatchSize;
+            this.maxLatency = maxLatency;
+        }
+
+        public static Config from(com.typesafe.config.Config typesafeConfig) {
+            return new Config(typesafeConfig.getInt("maxBatchSize"),
+                    typesafeConfig.getLong("maxLatencyInMs"));
+        }
+    }
+
+    public interface BatchWriter {
+        void write(List<NetworkEnvelope> networkEnvelopes) throws IOException;
+    }
+
+    private static final class Entry {
+        private final NetworkEnvelope networkEnvelope;
+        private final long enqueueTime = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Entry(NetworkEnvelope networkEnvelope) {
+            this.networkEnvelope = networkEnvelope;
+        }
+    }
+
+    private final Config config;
+    private final BatchWriter batchWriter;
+    private final List<Queue<Entry>> lanes = new ArrayList<>();
+    // We use a ReentrantLock instead of synchronized as the writer waits inside the lock for coalescing, which
+    // would pin the carrier thread if the NETWORK_IO_POOL runs on virtual threads.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private int size;
+    private boolean writerActive;
+    private boolean closed;
+
+    public OutboundQueue(Config config, BatchWriter batchWriter) {
+        this.config = config;
+        this.batchWriter = batchWriter;
+        for (int i = 0; i < Lane.values().length; i++) {
+            lanes.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Queues the envelope and blocks until it has been written.
+     *
+     * @throws IOException If the batch containing the envelope could not be written or the queue got closed.
+     */
+    public void send(NetworkEnvelope networkEnvelope, Lane lane) throws IOException {
+        Entry entry = new Entry(networkEnvelope);
+        boolean isWriter;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("OutboundQueue is closed");
+            }
+            lanes.get(lane.ordinal()).add(entry);
+            size++;
+            if (lane == Lane.CONTROL || size >= config.getMaxBatchSize()) {
+                batchReady.signal();
+            }
+            isWriter = !writerActive;
+            writerActive = true;
+        } finally {
+            lock.unlock();
+        }
+
+        if (isWriter) {
+            drain(entry);
+        }
+
+        try {
+            entry.future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    public void close() {
+        List<Entry> entries = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            lanes.forEach(queue -> {
+                entries.addAll(queue);
+                queue.clear();
+            });
+            size = 0;
+            batchReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        IOException exception = new IOException("OutboundQueue got closed");
+        entries.forEach(entry -> entry.future.completeExceptionally(exception));
+    }
+
+    public int getSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param ownEntry The entry of the sender acting as writer. Null if called from the NETWORK_IO_POOL.
+     */
+    private void drain(@Nullable Entry ownEntry) {
+        while (true) {
+            List<Entry> batch;
+            lock.lock();
+            try {
+                if (size == 0) {
+                    writerActive = false;
+                    return;
+                }
+                if (ownEntry != null && ownEntry.future.isDone()) {
+                    // Our caller must not wait for the traffic of others, we hand over to the pool.
+                    // writerActive stays true so no other sender starts writing concurrently.
+                    try {
+                        NetworkService.NETWORK_IO_POOL.submit(() -> drain(null));
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // Pool got shut down, we continue draining ourselves
+                        ownEntry = null;
+                    }
+                }
+                awaitBatch();
+                batch = pollBatch();
+            } finally {
+                lock.unlock();
+            }
+            write(batch);
+        }
+    }
+
+    private void awaitBatch() {
+        if (config.getMaxLatency() == 0) {
+            return;
+        }
+        long deadline = getOldestEnqueueTime() + TimeUnit.MILLISECONDS.toNanos(config.getMaxLatency());
+        long remaining = deadline - System.nanoTime();
+        while (remaining > 0 &&
+                !closed &&
+                size < config.getMaxBatchSize() &&
+                lanes.get(Lane.CONTROL.ordinal()).isEmpty()) {
+            try {
+                remaining = batchReady.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long getOldestEnqueueTime() {
+        long oldest = Long.MAX_VALUE;
+        for (Queue<Entry> queue : lanes) {
+            Entry head = queue.peek();
+            if (head != null && head.enqueueTime - oldest < 0) {
+                oldest = head.enqueueTime;
+            }
+        }
+        return oldest == Long.MAX_VALUE ? System.nanoTime() : oldest;
+    }
+
+    private List<Entry> pollBatch() {
+        int maxBatchSize = config.getMaxBatchSize();
+        List<Entry> batch = new ArrayList<>(Math.min(size, maxBatchSize));
+        // Reserve one slot for each lower priority lane which has entries queued
+        int reserved = 0;
+        for (Queue<Entry> queue : lanes) {
+            if (!queue.isEmpty()) {
+                reserved++;
+            }
+        }
+        for (Queue<Entry> queue : lanes) {
+            if (!queue.isEmpty()) {
+                reserved--;
+            }
+            while (!queue.isEmpty() && batch.size() < Math.max(1, maxBatchSize - reserved)) {
+                batch.add(queue.poll());
+            }
+        }
+        size -= batch.size();
+        return batch;
+    }
+
+    private void write(List<Entry> batch) {
+        List<NetworkEnvelope> networkEnvelopes = new ArrayList<>(batch.size());
+        batch.forEach(entry -> networkEnvelopes.add(entry.networkEnvelope));
+        try {
+            batchWriter.write(networkEnvelopes);
+            batch.forEach(entry -> entry.future.complete(null));
+        } catch (Throwable throwable) {
+            batch.forEach(entry -> entry.future.completeExceptionally(throwable));
+        }
+    }
+}
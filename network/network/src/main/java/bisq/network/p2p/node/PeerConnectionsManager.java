@@ -18,7 +18,6 @@
 package bisq.network.p2p.node;
 
 import bisq.network.p2p.node.authorization.AuthorizationService;
-import bisq.network.p2p.node.transport.Transport;
 import bisq.network.p2p.services.peergroup.BanList;
 import lombok.extern.slf4j.Slf4j;
 
@@ -34,8 +33,13 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Stream;
 
-import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Manages the inbound and outbound connections of a Node running in NIO mode.
+ * Uses 2 selector threads: One for the server and inbound connections and one for the outbound connections.
+ * Only clear net is supported as Tor and I2P transports provide blocking sockets only.
+ */
 @Slf4j
 public class PeerConnectionsManager {
 
@@ -43,29 +47,29 @@ public class PeerConnectionsManager {
     private final String nodeId;
     private final BanList banList;
     private final AuthorizationService authorizationService;
-    private final Transport transport;
 
     private Optional<ServerChannel> server = Optional.empty();
-    private Optional<OutboundConnectionMultiplexer> outboundConnectionMultiplexer;
+    private Optional<OutboundConnectionMultiplexer> outboundConnectionMultiplexer = Optional.empty();
 
     public PeerConnectionsManager(Node.Config config,
                                   String nodeId,
                                   BanList banList,
-                                  AuthorizationService authorizationService,
-                                  Transport transport) {
+                                  AuthorizationService authorizationService) {
         this.config = config;
         this.nodeId = nodeId;
         this.banList = banList;
         this.authorizationService = authorizationService;
-        this.transport = transport;
     }
 
-    public void start(Node node, int port) {
+    public Capability start(Node node, int port) {
         try {
             Capability myCapability = createServerAndListen(node, port);
             createAndStartOutboundConnectionMultiplexer(myCapability, node);
+            return myCapability;
         } catch (IOException e) {
-            log.error("Couldn't start PeerConnectionsManager", e);
+            log.error("Couldn't start PeerConnectionsManager for nodeId {}", nodeId, e);
+            shutdown();
+            throw new ConnectionException(e);
         }
     }
 
@@ -86,16 +90,24 @@ public class PeerConnectionsManager {
             }
         }
 
-        if (outboundConnectionMultiplexer.isPresent()) {
-            CompletableFuture<OutboundConnectionChannel> connection = outboundConnectionMultiplexer.get().getConnection(address);
-            try {
-                return connection.get(2, MINUTES);
-            } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                log.warn("Couldn't connect to {}", address);
-            }
+        if (outboundConnectionMultiplexer.isEmpty()) {
+            throw new ConnectionException("OutboundConnectionMultiplexer not started yet. address=" + address);
         }
 
-        return null;
+        CompletableFuture<OutboundConnectionChannel> connection = outboundConnectionMultiplexer.get().getConnection(address);
+        try {
+            // Blocking call like in the blocking IO mode
+            return connection.get(config.getSocketTimeout(), MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException(e);
+        } catch (ExecutionException e) {
+            log.warn("Couldn't connect to {}", address);
+            throw new ConnectionException(e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Couldn't connect to {} within {} ms", address, config.getSocketTimeout());
+            throw new ConnectionException(e);
+        }
     }
 
     public Stream<ConnectionChannel> getAllConnections() {
@@ -116,8 +128,10 @@ public class PeerConnectionsManager {
     }
 
     private Capability createServerAndListen(Node node, int port) throws IOException {
-        Transport.ServerSocketResult serverSocketResult = transport.getServerSocket(port, nodeId);
-        Capability serverCapability = new Capability(serverSocketResult.getAddress(), new ArrayList<>(config.getSupportedTransportTypes()));
+        Address myAddress = Address.localHost(port);
+        Capability serverCapability = new Capability(myAddress,
+                new ArrayList<>(config.getSupportedTransportTypes()),
+                Feature.getSupportedFeatures());
         ServerChannel serverChannel = new ServerChannel(
                 serverCapability,
                 banList,
@@ -131,22 +145,18 @@ public class PeerConnectionsManager {
         return serverCapability;
     }
 
-    private void createAndStartOutboundConnectionMultiplexer(Capability serverCapability, Node node) {
-        try {
-            OutboundConnectionManager outboundConnectionManager = new OutboundConnectionManager(
-                    authorizationService,
-                    banList,
-                    Load.INITIAL_LOAD,
-                    serverCapability,
-                    node,
-                    SelectorProvider.provider().openSelector()
-            );
-            OutboundConnectionMultiplexer connectionMultiplexer =
-                    new OutboundConnectionMultiplexer(outboundConnectionManager);
-            outboundConnectionMultiplexer = Optional.of(connectionMultiplexer);
-            connectionMultiplexer.start();
-        } catch (IOException e) {
-            log.error("Couldn't create OutboundConnectionManager", e);
-        }
+    private void createAndStartOutboundConnectionMultiplexer(Capability serverCapability, Node node) throws IOException {
+        OutboundConnectionManager outboundConnectionManager = new OutboundConnectionManager(
+                authorizationService,
+                banList,
+                Load.INITIAL_LOAD,
+                serverCapability,
+                node,
+                SelectorProvider.provider().openSelector()
+        );
+        OutboundConnectionMultiplexer connectionMultiplexer =
+                new OutboundConnectionMultiplexer(outboundConnectionManager);
+        outboundConnectionMultiplexer = Optional.of(connectionMultiplexer);
+        connectionMultiplexer.start();
     }
 }
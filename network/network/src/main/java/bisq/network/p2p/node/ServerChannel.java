@@ -23,15 +23,14 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.nio.channels.ServerSocketChannel;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.*;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.*;
 
+/**
+ * Accepts inbound connections and reads from all inbound connections with a single selector thread.
+ */
 @Slf4j
 public class ServerChannel {
 
@@ -47,7 +46,9 @@ public class ServerChannel {
     private final ServerSocketChannel serverSocketChannel;
 
     private Thread serverThread;
+    private Optional<Selector> selector = Optional.empty();
     private Optional<InboundConnectionsManager> inboundConnectionsManager = Optional.empty();
+    private volatile boolean isStopped;
 
     @Setter
     private Optional<Listener> onServerReadyListener = Optional.empty();
@@ -64,34 +65,33 @@ public class ServerChannel {
         this.serverSocketChannel = serverSocketChannel;
     }
 
-    public void start() {
+    public void start() throws IOException {
         Address myAddress = myCapability.getAddress();
         log.debug("Create server: {}", myAddress);
 
+        // We bind at the caller thread so that bind failures are reported to the caller.
+        // Like the ServerSocket used in ClearNetTransport we bind to all local addresses.
+        serverSocketChannel.socket().bind(new InetSocketAddress(myAddress.getPort()));
+
+        Selector selector = SelectorProvider.provider().openSelector();
+        this.selector = Optional.of(selector);
+        InboundConnectionsManager inboundConnectionsManager =
+                new InboundConnectionsManager(
+                        banList,
+                        myCapability,
+                        authorizationService,
+                        serverSocketChannel,
+                        selector,
+                        node
+                );
+        this.inboundConnectionsManager = Optional.of(inboundConnectionsManager);
+        inboundConnectionsManager.registerOpAccept();
+
         serverThread = new Thread(() -> {
+            onServerReadyListener.ifPresent(Listener::onServerReady);
             try {
-                InetSocketAddress socketAddress = new InetSocketAddress(
-                        InetAddress.getLocalHost(),
-                        myAddress.getPort()
-                );
-                serverSocketChannel.socket().bind(socketAddress);
-
-                Selector selector = SelectorProvider.provider().openSelector();
-                InboundConnectionsManager inboundConnectionsManager =
-                        new InboundConnectionsManager(
-                                banList,
-                                myCapability,
-                                authorizationService,
-                                serverSocketChannel,
-                                selector,
-                                node
-                        );
-                this.inboundConnectionsManager = Optional.of(inboundConnectionsManager);
-
-                inboundConnectionsManager.registerOpAccept();
-                onServerReadyListener.ifPresent(Listener::onServerReady);
-
-                while (selector.select() > 0) {
+                while (!isServerStopped()) {
+                    selector.select();
                     if (isServerStopped()) {
                         return;
                     }
@@ -103,22 +103,36 @@ public class ServerChannel {
                         SelectionKey selectionKey = keyIterator.next();
                         keyIterator.remove();
 
-                        if (selectionKey.isAcceptable()) {
-                            inboundConnectionsManager.acceptNewConnection(selectionKey);
-                        }
+                        try {
+                            if (!selectionKey.isValid()) {
+                                continue;
+                            }
 
-                        if (selectionKey.isReadable()) {
-                            SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
-                            log.info("Received message from {}", socketChannel.getRemoteAddress());
+                            if (selectionKey.isAcceptable()) {
+                                inboundConnectionsManager.acceptNewConnection(selectionKey);
+                                continue;
+                            }
 
-                            if (inboundConnectionsManager.isInboundConnection(socketChannel)) {
+                            SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
+                            if (selectionKey.isReadable() && inboundConnectionsManager.isInboundConnection(socketChannel)) {
                                 inboundConnectionsManager.handleInboundConnection(socketChannel);
                             }
+
+                            if (selectionKey.isValid() && selectionKey.isWritable()) {
+                                inboundConnectionsManager.handleWritableChannel(socketChannel);
+                            }
+                        } catch (CancelledKeyException ignore) {
+                            // Connection got closed
+                        } catch (RuntimeException e) {
+                            // E.g. a message we cannot parse. We close only the affected channel and keep serving the others.
+                            log.warn("Unexpected exception at channel {}. We close the channel.", selectionKey.channel(), e);
+                            if (selectionKey.channel() instanceof SocketChannel) {
+                                inboundConnectionsManager.handleException((SocketChannel) selectionKey.channel(), e);
+                            }
                         }
                     }
                 }
-
-            } catch (IOException e) {
+            } catch (IOException | ClosedSelectorException e) {
                 if (!isServerStopped()) {
                     log.error("Unhandled exception in ServerChannel: ", e);
                     shutdown();
@@ -126,26 +140,37 @@ public class ServerChannel {
             }
 
         }, "Server.listen-" + myAddress);
-
+        serverThread.setDaemon(true);
         serverThread.start();
     }
 
     public void shutdown() {
-        try {
-            Address myAddress = myCapability.getAddress();
-            log.info("shutdown {}", myAddress);
+        if (isStopped) {
+            return;
+        }
+        isStopped = true;
 
-            if (!isServerStopped()) {
-                serverThread.interrupt();
-                serverSocketChannel.close();
-            }
+        Address myAddress = myCapability.getAddress();
+        log.info("shutdown {}", myAddress);
 
+        inboundConnectionsManager.ifPresent(InboundConnectionsManager::shutdown);
+        if (serverThread != null) {
+            serverThread.interrupt();
+        }
+        try {
+            serverSocketChannel.close();
         } catch (IOException ignore) {
         }
+        selector.ifPresent(selector -> {
+            try {
+                selector.close();
+            } catch (IOException ignore) {
+            }
+        });
     }
 
     private boolean isServerStopped() {
-        return serverThread.isInterrupted();
+        return isStopped || Thread.currentThread().isInterrupted();
     }
 
     public Address getAddress() {
@@ -17,27 +17,60 @@
 
 package bisq.network.p2p.node.authorization;
 
+import bisq.common.data.ByteArray;
 import bisq.common.util.ByteArrayUtils;
 import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.Capability;
+import bisq.network.p2p.node.Feature;
 import bisq.network.p2p.node.Load;
 import bisq.security.DigestUtil;
+import bisq.security.PublicKeyCache;
+import bisq.security.SignatureUtil;
 import bisq.security.pow.ProofOfWork;
 import bisq.security.pow.ProofOfWorkService;
 import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigInteger;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public class AuthorizationService {
+    private static final int MAX_CACHED_PROOFS_OF_WORK = 500;
+    private static final long CACHED_PROOF_OF_WORK_TTL_SEC = 120;
+    private static final int MAX_RECEIVED_SOLUTIONS_PER_CONNECTION = 1000;
+    // Rough heap usage of an entry in the set of received solutions (ByteArray, byte[] and the LinkedHashMap entry)
+    private static final int RECEIVED_SOLUTION_ENTRY_OVERHEAD = 100;
+
     private final ProofOfWorkService proofOfWorkService;
-    // Keep track of message counter per connection to avoid reuse of pow
-    private final Map<String, Set<Integer>> receivedMessageCountersByConnectionId = new ConcurrentHashMap<>();
+    // Keep track of message counter per connection to avoid reuse of pow. Entries are removed when the connection closes.
+    private final Map<String, ReplayWindow> messageCounterWindowByConnectionId = new ConcurrentHashMap<>();
+    // Keep track of received reusable pow per connection to avoid that a peer sends the same message repeatedly.
+    // We keep only the most recent MAX_RECEIVED_SOLUTIONS_PER_CONNECTION solutions, so a peer would need to send that
+    // many other messages with valid pow before it could reuse a solution.
+    private final Map<String, Set<ByteArray>> receivedProofOfWorkSolutionsByConnectionId = new ConcurrentHashMap<>();
+    // Reusable pow by hash of the message payload. Used when the same message is sent to multiple peers.
+    private final Cache<ByteArray, ProofOfWork> proofOfWorkCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PROOFS_OF_WORK)
+            .expireAfterWrite(CACHED_PROOF_OF_WORK_TTL_SEC, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+    @Getter
+    private final AtomicLong numMintedProofsOfWork = new AtomicLong();
+    @Getter
+    private final AtomicLong accumulatedMintTime = new AtomicLong();
 
     public AuthorizationService(ProofOfWorkService proofOfWorkService) {
         this.proofOfWorkService = proofOfWorkService;
@@ -53,23 +86,120 @@ public class AuthorizationService {
         return token;
     }
 
-    public boolean isAuthorized(NetworkMessage message, AuthorizationToken authorizationToken, Load myLoad, String connectionId, String myAddress) {
-        ProofOfWork proofOfWork = authorizationToken.getProofOfWork();
-        int messageCounter = authorizationToken.getMessageCounter();
+    /**
+     * Creates a token with a reusable proof of work if the peer supports it, otherwise a token with a proof of work
+     * bound to the peer.
+     */
+    public AuthorizationToken createToken(NetworkMessage message,
+                                          Load peersLoad,
+                                          String peerAddress,
+                                          int messageCounter,
+                                          Capability peersCapability,
+                                          KeyPair senderKeyPair) {
+        if (peersCapability.hasFeature(Feature.REUSABLE_AUTHORIZATION_TOKEN)) {
+            return createReusableToken(message, peersLoad, peerAddress, messageCounter, senderKeyPair);
+        } else {
+            return createToken(message, peersLoad, peerAddress, messageCounter);
+        }
+    }
 
-        // Verify that pow is not reused
-        Set<Integer> receivedMessageCounters;
-        if (receivedMessageCountersByConnectionId.containsKey(connectionId)) {
-            receivedMessageCounters = receivedMessageCountersByConnectionId.get(connectionId);
-            if (receivedMessageCounters.contains(messageCounter)) {
-                log.warn("Invalid receivedMessageCounters. We received the proofOfWork for that message already.");
-                return false;
+    /**
+     * Creates a token where the proof of work covers only the message and the senders public key (as challenge) but
+     * not the peer. The proof of work is cached, so if the same message is sent to multiple peers (e.g. at a
+     * broadcast) it is minted only once. The token gets bound to the peer and messageCounter by a signature of the
+     * sender, so a peer which received the token cannot reuse the proof of work for its own messages.
+     * Must only be used for peers supporting Feature.REUSABLE_AUTHORIZATION_TOKEN.
+     */
+    public AuthorizationToken createReusableToken(NetworkMessage message,
+                                                  Load peersLoad,
+                                                  String peerAddress,
+                                                  int messageCounter,
+                                                  KeyPair senderKeyPair) {
+        long ts = System.currentTimeMillis();
+        byte[] payload = getPayload(message);
+        byte[] senderPublicKey = senderKeyPair.getPublic().getEncoded();
+        double difficulty = calculateDifficulty(message, peersLoad);
+        ProofOfWork proofOfWork = getOrMintReusableProofOfWork(payload, senderPublicKey, difficulty);
+        byte[] signature;
+        try {
+            signature = SignatureUtil.sign(getSignatureData(proofOfWork, peerAddress, messageCounter),
+                    senderKeyPair.getPrivate());
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+        AuthorizationToken token = new AuthorizationToken(proofOfWork, messageCounter, senderPublicKey, signature);
+        log.debug("Create reusable token for {} took {} ms\n token={}, peersLoad={}, peerAddress={}",
+                message.getClass().getSimpleName(), System.currentTimeMillis() - ts, token, peersLoad, peerAddress);
+        return token;
+    }
+
+    public CacheStats getProofOfWorkCacheStats() {
+        return proofOfWorkCache.stats();
+    }
+
+    public long getProofOfWorkCacheSize() {
+        return proofOfWorkCache.size();
+    }
+
+    public void onConnectionClosed(String connectionId) {
+        messageCounterWindowByConnectionId.remove(connectionId);
+        receivedProofOfWorkSolutionsByConnectionId.remove(connectionId);
+    }
+
+    /**
+     * @return Approximate heap usage in bytes of the replay protection state by connection id
+     */
+    public Map<String, Long> getReplayProtectionMemoryUseByConnectionId() {
+        Map<String, Long> result = new HashMap<>();
+        messageCounterWindowByConnectionId.forEach((connectionId, window) ->
+                result.merge(connectionId, (long) window.getMemoryUse(), Long::sum));
+        receivedProofOfWorkSolutionsByConnectionId.forEach((connectionId, solutions) -> {
+            long memoryUse;
+            synchronized (solutions) {
+                memoryUse = solutions.stream()
+                        .mapToLong(solution -> solution.getBytes().length + RECEIVED_SOLUTION_ENTRY_OVERHEAD)
+                        .sum();
             }
-        } else {
-            receivedMessageCounters = new HashSet<>();
-            receivedMessageCountersByConnectionId.put(connectionId, receivedMessageCounters);
+            result.merge(connectionId, memoryUse, Long::sum);
+        });
+        return result;
+    }
+
+    public int getNumConnectionsWithReplayProtectionState() {
+        Set<String> connectionIds = new HashSet<>(messageCounterWindowByConnectionId.keySet());
+        connectionIds.addAll(receivedProofOfWorkSolutionsByConnectionId.keySet());
+        return connectionIds.size();
+    }
+
+    /**
+     * Used for the handshake, where no connection exists yet. We do not keep replay protection state as it would
+     * not be released.
+     */
+    public boolean isAuthorized(NetworkMessage message, AuthorizationToken authorizationToken, Load myLoad, String myAddress) {
+        if (authorizationToken.hasReusableProofOfWork()) {
+            return isReusableTokenAuthorized(message, authorizationToken, myLoad, Optional.empty(), myAddress);
+        }
+        return isTokenAuthorized(message, authorizationToken, myLoad, myAddress);
+    }
+
+    public boolean isAuthorized(NetworkMessage message, AuthorizationToken authorizationToken, Load myLoad, String connectionId, String myAddress) {
+        // Verify that pow is not reused
+        ReplayWindow messageCounterWindow = messageCounterWindowByConnectionId.computeIfAbsent(connectionId,
+                key -> new ReplayWindow());
+        if (!messageCounterWindow.add(authorizationToken.getMessageCounter())) {
+            log.warn("Invalid messageCounter. We received the proofOfWork for that message already or the messageCounter is outside of the replay window.");
+            return false;
+        }
+
+        if (authorizationToken.hasReusableProofOfWork()) {
+            return isReusableTokenAuthorized(message, authorizationToken, myLoad, Optional.of(connectionId), myAddress);
         }
-        receivedMessageCounters.add(messageCounter);
+        return isTokenAuthorized(message, authorizationToken, myLoad, myAddress);
+    }
+
+    private boolean isTokenAuthorized(NetworkMessage message, AuthorizationToken authorizationToken, Load myLoad, String myAddress) {
+        ProofOfWork proofOfWork = authorizationToken.getProofOfWork();
+        int messageCounter = authorizationToken.getMessageCounter();
 
         // Verify difficulty
         if (calculateDifficulty(message, myLoad) != proofOfWork.getDifficulty()) {
@@ -94,8 +224,110 @@ public class AuthorizationService {
         return proofOfWorkService.verify(proofOfWork);
     }
 
+    private boolean isReusableTokenAuthorized(NetworkMessage message,
+                                              AuthorizationToken authorizationToken,
+                                              Load myLoad,
+                                              Optional<String> connectionId,
+                                              String myAddress) {
+        ProofOfWork proofOfWork = authorizationToken.getProofOfWork();
+
+        // A reusable pow might have been minted for a peer with a higher load, so we accept a higher difficulty
+        if (proofOfWork.getDifficulty() < calculateDifficulty(message, myLoad)) {
+            log.warn("Invalid difficulty");
+            return false;
+        }
+
+        // Verify payload
+        if (!Arrays.equals(getPayload(message), proofOfWork.getPayload())) {
+            log.warn("Invalid payload");
+            return false;
+        }
+
+        // Reusable pow is bound to the sender by using the hash of its public key as challenge
+        byte[] senderPublicKey = authorizationToken.getSenderPublicKey();
+        if (!Arrays.equals(getReusableChallenge(senderPublicKey), proofOfWork.getChallenge())) {
+            log.warn("Invalid challenge");
+            return false;
+        }
+
+        // Verify that token was created by the sender for us and that messageCounter was not altered
+        try {
+            byte[] signatureData = getSignatureData(proofOfWork, myAddress, authorizationToken.getMessageCounter());
+            PublicKey publicKey = PublicKeyCache.getPublicKey(senderPublicKey);
+            if (!SignatureUtil.verify(signatureData, authorizationToken.getSignature(), publicKey)) {
+                log.warn("Invalid signature");
+                return false;
+            }
+        } catch (GeneralSecurityException e) {
+            log.warn("Signature verification failed", e);
+            return false;
+        }
+
+        // Verify that pow is not reused at that connection
+        if (connectionId.isPresent()) {
+            ByteArray solution = new ByteArray(proofOfWork.getSolution());
+            Set<ByteArray> receivedSolutions = receivedProofOfWorkSolutionsByConnectionId.computeIfAbsent(connectionId.get(),
+                    key -> createBoundedSet(MAX_RECEIVED_SOLUTIONS_PER_CONNECTION));
+            if (!receivedSolutions.add(solution)) {
+                log.warn("We received the reusable proofOfWork at that connection already.");
+                return false;
+            }
+        }
+
+        log.debug("Verify reusable token for {}. token={}, myLoad={}, myAddress={}",
+                message.getClass().getSimpleName(), authorizationToken, myLoad, myAddress);
+        return proofOfWorkService.verify(proofOfWork);
+    }
+
+    private ProofOfWork getOrMintReusableProofOfWork(byte[] payload, byte[] senderPublicKey, double difficulty) {
+        ByteArray key = new ByteArray(DigestUtil.sha256(ByteArrayUtils.concat(payload, senderPublicKey)));
+        try {
+            ProofOfWork proofOfWork = proofOfWorkCache.get(key,
+                    () -> mintReusableProofOfWork(payload, senderPublicKey, difficulty));
+            if (proofOfWork.getDifficulty() >= difficulty) {
+                return proofOfWork;
+            }
+            // The cached pow was minted for a peer with a lower load. We replace it with one of the higher difficulty.
+            ProofOfWork newProofOfWork = mintReusableProofOfWork(payload, senderPublicKey, difficulty);
+            proofOfWorkCache.put(key, newProofOfWork);
+            return newProofOfWork;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private ProofOfWork mintReusableProofOfWork(byte[] payload, byte[] senderPublicKey, double difficulty) {
+        long ts = System.currentTimeMillis();
+        ProofOfWork proofOfWork = proofOfWorkService.mint(payload, getReusableChallenge(senderPublicKey), difficulty).join();
+        numMintedProofsOfWork.incrementAndGet();
+        accumulatedMintTime.addAndGet(System.currentTimeMillis() - ts);
+        return proofOfWork;
+    }
+
+    private static <T> Set<T> createBoundedSet(int maxSize) {
+        return Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<T, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        }));
+    }
+
+    private byte[] getSignatureData(ProofOfWork proofOfWork, String peerAddress, int messageCounter) {
+        return ByteArrayUtils.concat(proofOfWork.getSolution(),
+                peerAddress.getBytes(Charsets.UTF_8),
+                BigInteger.valueOf(messageCounter).toByteArray());
+    }
+
     private byte[] getPayload(NetworkMessage message) {
-        return message.toProto().toByteArray();
+        return message.getAuthorizationPayload();
+    }
+
+    private byte[] getReusableChallenge(byte[] senderPublicKey) {
+        return DigestUtil.sha256(senderPublicKey);
     }
 
     private byte[] getChallenge(String peerAddress, int messageCounter) {
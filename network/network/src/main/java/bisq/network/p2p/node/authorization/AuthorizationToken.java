@@ -18,17 +18,40 @@
 package bisq.network.p2p.node.authorization;
 
 import bisq.common.proto.Proto;
+import bisq.common.validation.NetworkDataValidation;
 import bisq.security.pow.ProofOfWork;
+import com.google.protobuf.ByteString;
 import lombok.Data;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 @Data
 public final class AuthorizationToken implements Proto {
     private final ProofOfWork proofOfWork;
     private final int messageCounter;
+    // Empty if the proofOfWork challenge is bound to the peer (used at the connection handshake and with peers not
+    // supporting Feature.REUSABLE_AUTHORIZATION_TOKEN).
+    // Otherwise, the proofOfWork covers the message and the senders public key. The signature of the sender ties the
+    // token to the peer and messageCounter.
+    private final byte[] senderPublicKey;
+    private final byte[] signature;
 
     public AuthorizationToken(ProofOfWork proofOfWork, int messageCounter) {
+        this(proofOfWork, messageCounter, new byte[0], new byte[0]);
+    }
+
+    public AuthorizationToken(ProofOfWork proofOfWork, int messageCounter, byte[] senderPublicKey, byte[] signature) {
         this.proofOfWork = proofOfWork;
         this.messageCounter = messageCounter;
+        this.senderPublicKey = senderPublicKey;
+        this.signature = signature;
+
+        if (signature.length > 0) {
+            NetworkDataValidation.validateECPubKey(senderPublicKey);
+            NetworkDataValidation.validateECSignature(signature);
+        } else {
+            checkArgument(senderPublicKey.length == 0, "senderPublicKey must be empty if no signature is set");
+        }
     }
 
     @Override
@@ -36,10 +59,19 @@ public final class AuthorizationToken implements Proto {
         return bisq.network.protobuf.AuthorizationToken.newBuilder()
                 .setProofOfWork(proofOfWork.toProto())
                 .setMessageCounter(messageCounter)
+                .setSenderPublicKey(ByteString.copyFrom(senderPublicKey))
+                .setSignature(ByteString.copyFrom(signature))
                 .build();
     }
 
     public static AuthorizationToken fromProto(bisq.network.protobuf.AuthorizationToken proto) {
-        return new AuthorizationToken(ProofOfWork.fromProto(proto.getProofOfWork()), proto.getMessageCounter());
+        return new AuthorizationToken(ProofOfWork.fromProto(proto.getProofOfWork()),
+                proto.getMessageCounter(),
+                proto.getSenderPublicKey().toByteArray(),
+                proto.getSignature().toByteArray());
+    }
+
+    public boolean hasReusableProofOfWork() {
+        return signature.length > 0;
     }
 }
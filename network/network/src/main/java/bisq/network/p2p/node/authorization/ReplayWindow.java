@@ -0,0 +1,119 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node.authorization;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Sliding window for detecting replayed message counters, like the anti-replay window of IPsec (RFC 4303) or DTLS.
+ * A counter above the highest received one advances the window. A counter inside the window is accepted if its bit
+ * is not set yet. A counter below the window is rejected, as we cannot tell if it has been received already.
+ * The window tolerates reordering of up to size messages (e.g. caused by the lanes of the OutboundQueue) and uses
+ * constant memory.
+ */
+public final class ReplayWindow {
+    public static final int DEFAULT_SIZE = 4096;
+
+    private final int size;
+    private final long[] bitmap;
+    private long highest;
+    private boolean isEmpty = true;
+
+    public ReplayWindow() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size Number of counters covered by the window. Must be a positive multiple of 64.
+     */
+    public ReplayWindow(int size) {
+        checkArgument(size > 0 && size % 64 == 0, "size must be a positive multiple of 64");
+        this.size = size;
+        bitmap = new long[size / 64];
+    }
+
+    /**
+     * @return True if the counter has not been received before and got added. False if it is a replay or too old.
+     */
+    public synchronized boolean add(int counter) {
+        long value = counter;
+        if (isEmpty) {
+            isEmpty = false;
+            highest = value;
+            set(value);
+            return true;
+        }
+
+        if (value > highest) {
+            long shift = value - highest;
+            if (shift >= size) {
+                Arrays.fill(bitmap, 0);
+            } else {
+                // Clear the bits of the counters we skipped, they are now part of the window
+                for (long skipped = highest + 1; skipped < value; skipped++) {
+                    clear(skipped);
+                }
+            }
+            highest = value;
+            set(value);
+            return true;
+        }
+
+        if (highest - value >= size) {
+            return false;
+        }
+        if (isSet(value)) {
+            return false;
+        }
+        set(value);
+        return true;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Approximate heap usage in bytes
+     */
+    public int getMemoryUse() {
+        // Object header and fields plus the bitmap array with its header
+        return 32 + 16 + bitmap.length * 8;
+    }
+
+    private int bitIndex(long value) {
+        return (int) Math.floorMod(value, (long) size);
+    }
+
+    private void set(long value) {
+        int index = bitIndex(value);
+        bitmap[index >>> 6] |= 1L << (index & 63);
+    }
+
+    private void clear(long value) {
+        int index = bitIndex(value);
+        bitmap[index >>> 6] &= ~(1L << (index & 63));
+    }
+
+    private boolean isSet(long value) {
+        int index = bitIndex(value);
+        return (bitmap[index >>> 6] & (1L << (index & 63))) != 0;
+    }
+}
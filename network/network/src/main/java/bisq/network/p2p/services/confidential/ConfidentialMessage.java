@@ -22,7 +22,7 @@ import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.services.data.storage.DistributedData;
 import bisq.network.p2p.services.data.storage.MetaData;
 import bisq.security.ConfidentialData;
-import bisq.security.DigestUtil;
+import bisq.security.PublicKeyCache;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
@@ -83,6 +83,6 @@ public final class ConfidentialMessage implements NetworkMessage, DistributedDat
     public boolean isDataInvalid(byte[] pubKeyHash) {
         return confidentialData == null ||
                 receiverKeyId == null ||
-                !Arrays.equals(DigestUtil.hash(confidentialData.getSenderPublicKey()), pubKeyHash);
+                !Arrays.equals(PublicKeyCache.getHash(confidentialData.getSenderPublicKey()), pubKeyHash);
     }
 }
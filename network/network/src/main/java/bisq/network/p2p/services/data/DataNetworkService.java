@@ -18,6 +18,7 @@
 package bisq.network.p2p.services.data;
 
 import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.Capability;
 import bisq.network.p2p.node.CloseReason;
 import bisq.network.p2p.node.Connection;
 import bisq.network.p2p.node.Node;
@@ -26,15 +27,19 @@ import bisq.network.p2p.services.data.broadcast.BroadcastResult;
 import bisq.network.p2p.services.data.broadcast.Broadcaster;
 import bisq.network.p2p.services.data.filter.DataFilter;
 import bisq.network.p2p.services.data.inventory.Inventory;
+import bisq.network.p2p.services.data.inventory.InventoryCursor;
 import bisq.network.p2p.services.data.inventory.InventoryService;
 import bisq.network.p2p.services.peergroup.PeerGroup;
 import bisq.network.p2p.services.peergroup.PeerGroupService;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -61,13 +66,15 @@ public class DataNetworkService implements PeerGroupService.Listener, Node.Liste
 
     public DataNetworkService(Node node,
                               PeerGroupService peerGroupService,
-                              Function<DataFilter, Inventory> inventoryProvider) {
+                              Function<DataFilter, Inventory> inventoryProvider,
+                              BiFunction<DataFilter, Optional<InventoryCursor>, Inventory> inventoryBatchProvider,
+                              Broadcaster.Config broadcasterConfig) {
         this.node = node;
         peerGroup = peerGroupService.getPeerGroup();
         this.peerGroupService = peerGroupService;
         peerGroupService.addListener(this);
-        broadcaster = new Broadcaster(node, peerGroup);
-        inventoryService = new InventoryService(node, peerGroup, inventoryProvider);
+        broadcaster = new Broadcaster(node, peerGroup, broadcasterConfig);
+        inventoryService = new InventoryService(node, peerGroup, inventoryProvider, inventoryBatchProvider);
         node.addListener(this);
     }
 
@@ -121,8 +128,9 @@ public class DataNetworkService implements PeerGroupService.Listener, Node.Liste
         return broadcaster.reBroadcast(broadcastMessage);
     }
 
-    List<CompletableFuture<Inventory>> requestInventory(DataFilter dataFilter) {
-        return inventoryService.request(dataFilter);
+    List<CompletableFuture<Integer>> requestInventory(Function<Capability, DataFilter> dataFilterProvider,
+                                                      Consumer<Inventory> inventoryBatchHandler) {
+        return inventoryService.request(dataFilterProvider, inventoryBatchHandler);
     }
 
     void addListener(DataNetworkService.Listener listener) {
@@ -17,13 +17,20 @@
 
 package bisq.network.p2p.services.data;
 
+import bisq.common.data.ByteArray;
 import bisq.common.timer.Scheduler;
+import bisq.network.NetworkService;
 import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.Capability;
 import bisq.network.p2p.node.Connection;
 import bisq.network.p2p.node.Node;
 import bisq.network.p2p.node.transport.Transport;
 import bisq.network.p2p.services.data.broadcast.BroadcastResult;
+import bisq.network.p2p.services.data.broadcast.Broadcaster;
 import bisq.network.p2p.services.data.filter.DataFilter;
+import bisq.network.p2p.services.data.filter.FilterEntry;
+import bisq.network.p2p.services.data.inventory.Inventory;
+import bisq.network.p2p.services.data.storage.DistributedData;
 import bisq.network.p2p.services.data.storage.Result;
 import bisq.network.p2p.services.data.storage.StorageData;
 import bisq.network.p2p.services.data.storage.StorageService;
@@ -31,8 +38,10 @@ import bisq.network.p2p.services.data.storage.append.AddAppendOnlyDataRequest;
 import bisq.network.p2p.services.data.storage.append.AppendOnlyData;
 import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataIndex;
 import bisq.network.p2p.services.data.storage.auth.RemoveAuthenticatedDataRequest;
 import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedData;
+import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedDistributedData;
 import bisq.network.p2p.services.data.storage.mailbox.AddMailboxRequest;
 import bisq.network.p2p.services.data.storage.mailbox.MailboxData;
 import bisq.network.p2p.services.data.storage.mailbox.RemoveMailboxRequest;
@@ -45,12 +54,16 @@ import java.security.KeyPair;
 import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -70,6 +83,11 @@ public class DataService implements DataNetworkService.Listener {
         }
     }
 
+    /**
+     * Listeners are called on NetworkService.DISPATCHER, so calls never happen concurrently and are in the order the
+     * changes have been applied to the storage, even if the changes got applied in parallel on different threads.
+     * Implementations must not block.
+     */
     public interface Listener {
         default void onAuthorizedDataAdded(AuthorizedData authorizedData) {
         }
@@ -83,6 +101,20 @@ public class DataService implements DataNetworkService.Listener {
         default void onAuthenticatedDataRemoved(AuthenticatedData authenticatedData) {
         }
 
+        /**
+         * Called once for all data added by a batch of an inventory response. The list can contain AuthorizedData.
+         * By default, it delegates to onAuthorizedDataAdded or onAuthenticatedDataAdded for each entry.
+         */
+        default void onAuthenticatedDataAddedAll(List<AuthenticatedData> authenticatedDataList) {
+            authenticatedDataList.forEach(authenticatedData -> {
+                if (authenticatedData instanceof AuthorizedData) {
+                    onAuthorizedDataAdded((AuthorizedData) authenticatedData);
+                } else {
+                    onAuthenticatedDataAdded(authenticatedData);
+                }
+            });
+        }
+
         default void onAppendOnlyDataAdded(AppendOnlyData appendOnlyData) {
         }
 
@@ -95,42 +127,49 @@ public class DataService implements DataNetworkService.Listener {
 
     @Getter
     private final StorageService storageService;
+    private final Broadcaster.Config broadcasterConfig;
+    // If present, our inventory requests ask only for the mailbox entries matching the receiver tags of our keys
+    private final Optional<Supplier<Set<ByteArray>>> mailboxReceiverTagsSupplier;
     private final Set<DataService.Listener> listeners = new CopyOnWriteArraySet<>();
     private final Map<Transport.Type, DataNetworkService> dataNetworkServiceByTransportType = new ConcurrentHashMap<>();
 
-    public DataService(StorageService storageService) {
+    public DataService(StorageService storageService, Broadcaster.Config broadcasterConfig) {
+        this(storageService, broadcasterConfig, Optional.empty());
+    }
+
+    public DataService(StorageService storageService,
+                       Broadcaster.Config broadcasterConfig,
+                       Optional<Supplier<Set<ByteArray>>> mailboxReceiverTagsSupplier) {
         this.storageService = storageService;
+        this.broadcasterConfig = broadcasterConfig;
+        this.mailboxReceiverTagsSupplier = mailboxReceiverTagsSupplier;
 
         storageService.addListener(new StorageService.Listener() {
             @Override
             public void onAdded(StorageData storageData) {
-                if (storageData instanceof AuthorizedData) {
-                    listeners.forEach(e -> e.onAuthorizedDataAdded((AuthorizedData) storageData));
-                } else if (storageData instanceof AuthenticatedData) {
-                    listeners.forEach(e -> e.onAuthenticatedDataAdded((AuthenticatedData) storageData));
-                } else if (storageData instanceof MailboxData) {
-                    listeners.forEach(e -> e.onMailboxDataAdded((MailboxData) storageData));
-                } else if (storageData instanceof AppendOnlyData) {
-                    listeners.forEach(e -> e.onAppendOnlyDataAdded((AppendOnlyData) storageData));
-                }
+                NetworkService.DISPATCHER.execute(() -> notifyAdded(storageData));
+            }
+
+            @Override
+            public void onAddedAll(List<AuthenticatedData> authenticatedDataList) {
+                NetworkService.DISPATCHER.execute(() ->
+                        listeners.forEach(e -> e.onAuthenticatedDataAddedAll(authenticatedDataList)));
             }
 
             @Override
             public void onRemoved(StorageData storageData) {
-                if (storageData instanceof AuthorizedData) {
-                    listeners.forEach(e -> e.onAuthorizedDataRemoved((AuthorizedData) storageData));
-                } else if (storageData instanceof AuthenticatedData) {
-                    listeners.forEach(e -> e.onAuthenticatedDataRemoved((AuthenticatedData) storageData));
-                } else if (storageData instanceof MailboxData) {
-                    listeners.forEach(e -> e.onMailboxDataRemoved((MailboxData) storageData));
-                }
+                NetworkService.DISPATCHER.execute(() -> notifyRemoved(storageData));
             }
         });
     }
 
     // todo a bit of a hack that way...
     public DataNetworkService getDataServicePerTransport(Transport.Type transportType, Node defaultNode, PeerGroupService peerGroupService) {
-        DataNetworkService dataNetworkService = new DataNetworkService(defaultNode, peerGroupService, storageService::getInventoryOfAllStores);
+        DataNetworkService dataNetworkService = new DataNetworkService(defaultNode,
+                peerGroupService,
+                storageService::getInventoryOfAllStores,
+                storageService::getInventoryBatch,
+                broadcasterConfig);
         dataNetworkServiceByTransportType.put(transportType, dataNetworkService);
         dataNetworkService.addListener(this);
         return dataNetworkService;
@@ -190,6 +229,33 @@ public class DataService implements DataNetworkService.Listener {
         return storageService.getAuthenticatedData(storeName);
     }
 
+    /**
+     * Only accesses the store of the given class. The data class must be the exact runtime class of the data, as the
+     * store key is derived from getClass().getSimpleName() in the MetaData.
+     */
+    public Stream<AuthenticatedData> getAuthenticatedData(Class<? extends DistributedData> distributedDataClass) {
+        return storageService.getAuthenticatedDataByClassName(distributedDataClass.getSimpleName());
+    }
+
+    public Stream<AuthorizedData> getAuthorizedData(Class<? extends AuthorizedDistributedData> authorizedDistributedDataClass) {
+        return getAuthenticatedData(authorizedDistributedDataClass)
+                .filter(authenticatedData -> authenticatedData instanceof AuthorizedData)
+                .map(authenticatedData -> (AuthorizedData) authenticatedData);
+    }
+
+    /**
+     * Creates an index on the authenticated data of the given class with a key derived from the distributed data.
+     * Should be called after the persisted data has been read and removed again with removeIndex at shutdown.
+     */
+    public <K> AuthenticatedDataIndex<K> addIndex(Class<? extends DistributedData> distributedDataClass,
+                                                  Function<DistributedData, K> keyFunction) {
+        return storageService.addIndex(distributedDataClass.getSimpleName(), keyFunction);
+    }
+
+    public void removeIndex(AuthenticatedDataIndex<?> index) {
+        storageService.removeIndex(index);
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Add data
@@ -202,11 +268,6 @@ public class DataService implements DataNetworkService.Listener {
                         AddAuthenticatedDataRequest request = AddAuthenticatedDataRequest.from(store, authenticatedData, keyPair);
                         Result result = store.add(request);
                         if (result.isSuccess()) {
-                            if (authenticatedData instanceof AuthorizedData) {
-                                listeners.forEach(e -> e.onAuthorizedDataAdded((AuthorizedData) authenticatedData));
-                            } else {
-                                listeners.forEach(e -> e.onAuthenticatedDataAdded(authenticatedData));
-                            }
                             return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                         } else {
@@ -229,7 +290,6 @@ public class DataService implements DataNetworkService.Listener {
                     AddAppendOnlyDataRequest request = new AddAppendOnlyDataRequest(appendOnlyData);
                     Result result = store.add(request);
                     if (result.isSuccess()) {
-                        listeners.forEach(listener -> listener.onAppendOnlyDataAdded(appendOnlyData));
                         return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                 .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                     } else {
@@ -247,7 +307,6 @@ public class DataService implements DataNetworkService.Listener {
                         AddMailboxRequest request = AddMailboxRequest.from(mailboxData, senderKeyPair, receiverPublicKey);
                         Result result = store.add(request);
                         if (result.isSuccess()) {
-                            listeners.forEach(listener -> listener.onMailboxDataAdded(mailboxData));
                             return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                         } else {
@@ -273,11 +332,6 @@ public class DataService implements DataNetworkService.Listener {
                         RemoveAuthenticatedDataRequest request = RemoveAuthenticatedDataRequest.from(store, authenticatedData, keyPair);
                         Result result = store.remove(request);
                         if (result.isSuccess()) {
-                            if (authenticatedData instanceof AuthorizedData) {
-                                listeners.forEach(e -> e.onAuthorizedDataRemoved((AuthorizedData) authenticatedData));
-                            } else {
-                                listeners.forEach(e -> e.onAuthenticatedDataRemoved(authenticatedData));
-                            }
                             return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                         } else {
@@ -301,7 +355,6 @@ public class DataService implements DataNetworkService.Listener {
                         RemoveMailboxRequest request = RemoveMailboxRequest.from(mailboxData, keyPair);
                         Result result = store.remove(request);
                         if (result.isSuccess()) {
-                            listeners.forEach(listener -> listener.onMailboxDataRemoved(mailboxData));
                             return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                         } else {
@@ -324,27 +377,36 @@ public class DataService implements DataNetworkService.Listener {
     }
 
     public void requestInventory(StorageService.StoreType storeType) {
-        requestInventory(new DataFilter(new ArrayList<>(storageService.getFilterEntries(storeType))));
+        requestInventory(getDataFilterProvider(storageService.getFilterEntries(storeType)));
     }
 
     public void requestInventory(String storeName) {
-        requestInventory(new DataFilter(new ArrayList<>(storageService.getFilterEntries(storeName))));
+        requestInventory(getDataFilterProvider(storageService.getFilterEntries(storeName)));
     }
 
     public void requestInventory(DataFilter dataFilter) {
-        dataNetworkServiceByTransportType.values().forEach(service -> requestInventory(dataFilter, service));
+        requestInventory(peersCapability -> dataFilter);
     }
 
     public void requestInventory(DataFilter dataFilter, DataNetworkService dataNetworkService) {
-        dataNetworkService.requestInventory(dataFilter).forEach(future -> {
-            future.whenComplete(((inventory, throwable) -> {
-                inventory.getEntries().forEach(dataRequest -> {
-                    if (dataRequest instanceof AddDataRequest) {
-                        processAddDataRequest((AddDataRequest) dataRequest, false);
-                    } else if (dataRequest instanceof RemoveDataRequest) {
-                        processRemoveDataRequest((RemoveDataRequest) dataRequest, false);
-                    }
-                });
+        requestInventory(peersCapability -> dataFilter, dataNetworkService);
+    }
+
+    /**
+     * @param dataFilterProvider Creates the DataFilter for the capability of the peer we send the request to.
+     */
+    public void requestInventory(Function<Capability, DataFilter> dataFilterProvider) {
+        dataNetworkServiceByTransportType.values().forEach(service -> requestInventory(dataFilterProvider, service));
+    }
+
+    public void requestInventory(Function<Capability, DataFilter> dataFilterProvider, DataNetworkService dataNetworkService) {
+        dataNetworkService.requestInventory(dataFilterProvider, this::processInventoryBatch).forEach(future -> {
+            future.whenComplete(((numEntries, throwable) -> {
+                if (throwable != null) {
+                    log.info("Inventory request failed or got interrupted. {}", throwable.toString());
+                } else {
+                    log.debug("Inventory request completed. Received {} entries", numEntries);
+                }
             }));
         });
     }
@@ -367,22 +429,36 @@ public class DataService implements DataNetworkService.Listener {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////////////
 
+    private void processInventoryBatch(Inventory inventory) {
+        // AddAuthenticatedDataRequests are the bulk of the inventory, we add them in one batch per store.
+        List<AddAuthenticatedDataRequest> addAuthenticatedDataRequests = new ArrayList<>();
+        inventory.getEntries().forEach(dataRequest -> {
+            if (dataRequest instanceof AddAuthenticatedDataRequest) {
+                addAuthenticatedDataRequests.add((AddAuthenticatedDataRequest) dataRequest);
+            } else if (dataRequest instanceof AddDataRequest) {
+                processAddDataRequest((AddDataRequest) dataRequest, false);
+            } else if (dataRequest instanceof RemoveDataRequest) {
+                processRemoveDataRequest((RemoveDataRequest) dataRequest, false);
+            }
+        });
+        if (addAuthenticatedDataRequests.isEmpty()) {
+            return;
+        }
+
+        // Listeners get notified once per store by the storage listener
+        storageService.onAddAuthenticatedDataRequests(addAuthenticatedDataRequests)
+                .whenComplete((addedData, throwable) -> {
+                    if (throwable != null) {
+                        log.error("Adding inventory data failed", throwable);
+                    }
+                });
+    }
+
     private void processAddDataRequest(AddDataRequest addDataRequest, boolean allowReBroadcast) {
         storageService.onAddDataRequest(addDataRequest)
                 .whenComplete((optionalData, throwable) -> {
+                    // Listeners get notified by the storage listener, in the order the changes got applied
                     optionalData.ifPresent(storageData -> {
-                        // We get called on dispatcher thread with onMessage, and we don't switch thread in 
-                        // async calls
-
-                        if (storageData instanceof AuthorizedData) {
-                            listeners.forEach(e -> e.onAuthorizedDataAdded((AuthorizedData) storageData));
-                        } else if (storageData instanceof AuthenticatedData) {
-                            listeners.forEach(e -> e.onAuthenticatedDataAdded((AuthenticatedData) storageData));
-                        } else if (storageData instanceof MailboxData) {
-                            listeners.forEach(listener -> listener.onMailboxDataAdded((MailboxData) storageData));
-                        } else if (storageData instanceof AppendOnlyData) {
-                            listeners.forEach(listener -> listener.onAppendOnlyDataAdded((AppendOnlyData) storageData));
-                        }
                         if (allowReBroadcast) {
                             dataNetworkServiceByTransportType.values().forEach(e -> e.reBroadcast(addDataRequest));
                         }
@@ -393,14 +469,8 @@ public class DataService implements DataNetworkService.Listener {
     private void processRemoveDataRequest(RemoveDataRequest removeDataRequest, boolean allowReBroadcast) {
         storageService.onRemoveDataRequest(removeDataRequest)
                 .whenComplete((optionalData, throwable) -> {
+                    // Listeners get notified by the storage listener, in the order the changes got applied
                     optionalData.ifPresent(storageData -> {
-                        // We get called on dispatcher thread with onMessage, and we don't switch thread in 
-                        // async calls
-                        if (storageData instanceof AuthorizedData) {
-                            listeners.forEach(e -> e.onAuthorizedDataRemoved((AuthorizedData) storageData));
-                        } else if (storageData instanceof AuthenticatedData) {
-                            listeners.forEach(e -> e.onAuthenticatedDataRemoved((AuthenticatedData) storageData));
-                        }
                         if (allowReBroadcast) {
                             dataNetworkServiceByTransportType.values().forEach(e -> e.reBroadcast(removeDataRequest));
                         }
@@ -408,7 +478,38 @@ public class DataService implements DataNetworkService.Listener {
                 });
     }
 
+    private void notifyAdded(StorageData storageData) {
+        if (storageData instanceof AuthorizedData) {
+            listeners.forEach(e -> e.onAuthorizedDataAdded((AuthorizedData) storageData));
+        } else if (storageData instanceof AuthenticatedData) {
+            listeners.forEach(e -> e.onAuthenticatedDataAdded((AuthenticatedData) storageData));
+        } else if (storageData instanceof MailboxData) {
+            listeners.forEach(e -> e.onMailboxDataAdded((MailboxData) storageData));
+        } else if (storageData instanceof AppendOnlyData) {
+            listeners.forEach(e -> e.onAppendOnlyDataAdded((AppendOnlyData) storageData));
+        }
+    }
+
+    private void notifyRemoved(StorageData storageData) {
+        if (storageData instanceof AuthorizedData) {
+            listeners.forEach(e -> e.onAuthorizedDataRemoved((AuthorizedData) storageData));
+        } else if (storageData instanceof AuthenticatedData) {
+            listeners.forEach(e -> e.onAuthenticatedDataRemoved((AuthenticatedData) storageData));
+        } else if (storageData instanceof MailboxData) {
+            listeners.forEach(e -> e.onMailboxDataRemoved((MailboxData) storageData));
+        }
+    }
+
     private void doRequestInventory(DataNetworkService dataNetworkService) {
-        requestInventory(new DataFilter(new ArrayList<>(storageService.getFilterEntries(StorageService.StoreType.ALL))), dataNetworkService);
+        requestInventory(getDataFilterProvider(storageService.getFilterEntries(StorageService.StoreType.ALL)), dataNetworkService);
+    }
+
+    private Function<Capability, DataFilter> getDataFilterProvider(Set<FilterEntry> filterEntries) {
+        return peersCapability -> createDataFilter(filterEntries, peersCapability);
+    }
+
+    private DataFilter createDataFilter(Set<FilterEntry> filterEntries, Capability peersCapability) {
+        Set<ByteArray> mailboxReceiverTags = mailboxReceiverTagsSupplier.map(Supplier::get).orElse(Set.of());
+        return DataFilter.create(filterEntries, mailboxReceiverTags, peersCapability);
     }
 }
\ No newline at end of file
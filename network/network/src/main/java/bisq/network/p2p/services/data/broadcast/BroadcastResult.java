@@ -21,17 +21,42 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Getter
 @ToString
 @EqualsAndHashCode
 public final class BroadcastResult {
     private final int numSuccess;
     private final int numFaults;
+    // Number of sends which have not been completed when the result was created (broadcast completed at quorum)
+    private final int numPending;
     private final long duration;
+    // Latency percentiles of the successful sends in ms
+    private final long latencyP50;
+    private final long latencyP90;
+    private final long latencyP99;
 
-    public BroadcastResult(int numSuccess, int numFaults, long duration) {
+    public BroadcastResult(int numSuccess, int numFaults, int numPending, long duration, Collection<Long> latencies) {
         this.numSuccess = numSuccess;
         this.numFaults = numFaults;
+        this.numPending = numPending;
         this.duration = duration;
+
+        List<Long> sorted = latencies.stream().sorted().collect(Collectors.toList());
+        latencyP50 = getPercentile(sorted, 50);
+        latencyP90 = getPercentile(sorted, 90);
+        latencyP99 = getPercentile(sorted, 99);
+    }
+
+    // Nearest-rank method
+    private static long getPercentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100d * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
     }
 }
@@ -25,28 +25,72 @@ import bisq.network.p2p.node.Node;
 import bisq.network.p2p.services.peergroup.PeerGroup;
 import dev.failsafe.Failsafe;
 import dev.failsafe.RetryPolicy;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 @Slf4j
 public class Broadcaster {
     private static final long BROADCAST_TIMEOUT = 90;
     private static final long RE_BROADCAST_DELAY_MS = 100;
 
+    @Getter
+    public static final class Config {
+        private final int maxParallelSends;
+        private final long peerSendTimeout;
+        private final double quorumFactor;
+
+        public Config() {
+            this(8, TimeUnit.SECONDS.toMillis(30), 0.5);
+        }
+
+        /**
+         * @param maxParallelSends Max. number of peers we send to concurrently
+         * @param peerSendTimeout  Timeout in ms for the send to a single peer. A timed out send is counted as fault
+         *                         until it succeeds later. As the send cannot be interrupted it counts towards
+         *                         maxParallelSends until it completes.
+         * @param quorumFactor     Fraction of the target peers after which the broadcast future completes. The
+         *                         remaining sends are completed in the background.
+         */
+        public Config(int maxParallelSends, long peerSendTimeout, double quorumFactor) {
+            checkArgument(maxParallelSends > 0, "maxParallelSends must be > 0");
+            checkArgument(quorumFactor > 0 && quorumFactor <= 1, "quorumFactor must be in range (0, 1]");
+            this.maxParallelSends = maxParallelSends;
+            this.peerSendTimeout = peerSendTimeout;
+            this.quorumFactor = quorumFactor;
+        }
+
+        public static Config from(com.typesafe.config.Config typesafeConfig) {
+            return new Config(
+                    typesafeConfig.getInt("maxParallelSends"),
+                    TimeUnit.SECONDS.toMillis(typesafeConfig.getLong("peerSendTimeoutInSeconds")),
+                    typesafeConfig.getDouble("quorumFactor"));
+        }
+    }
+
     private final Node node;
     private final PeerGroup peerGroup;
+    private final Config config;
     private final RetryPolicy<BroadcastResult> retryPolicy;
 
-    public Broadcaster(Node node, PeerGroup peerGroup) {
+    public Broadcaster(Node node, PeerGroup peerGroup, Config config) {
         this.node = node;
         this.peerGroup = peerGroup;
+        this.config = config;
 
         retryPolicy = RetryPolicy.<BroadcastResult>builder()
                 .handle(IllegalStateException.class)
@@ -74,40 +118,25 @@ public class Broadcaster {
 
     public CompletableFuture<BroadcastResult> doBroadcast(BroadcastMessage broadcastMessage, double distributionFactor) {
         if (!node.isInitialized()) {
-            throw new IllegalStateException("Node not initialized. node=" + node.getNodeId() + 
+            throw new IllegalStateException("Node not initialized. node=" + node.getNodeId() +
                     "; transportType=" + node.getTransportType());
         }
 
-        long ts = System.currentTimeMillis();
-        CompletableFuture<BroadcastResult> future = new CompletableFuture<BroadcastResult>()
-                .orTimeout(BROADCAST_TIMEOUT, TimeUnit.SECONDS);
-        AtomicInteger numSuccess = new AtomicInteger(0);
-        AtomicInteger numFaults = new AtomicInteger(0);
         long numConnections = peerGroup.getAllConnections().count();
-        long numBroadcasts = Math.min(numConnections, Math.round(numConnections * distributionFactor));
+        int numBroadcasts = (int) Math.min(numConnections, Math.round(numConnections * distributionFactor));
         log.debug("Broadcast {} to {} out of {} peers. distributionFactor={}",
                 broadcastMessage.getClass().getSimpleName(), numBroadcasts, numConnections, distributionFactor);
         List<Connection> allConnections = peerGroup.getAllConnections().collect(Collectors.toList());
         Collections.shuffle(allConnections);
-        NetworkService.NETWORK_IO_POOL.submit(() -> {
-            allConnections.stream()
-                    .limit(numBroadcasts)
-                    .forEach(connection -> {
-                        log.debug("Node {} broadcast to {}", node, connection.getPeerAddress());
-                        try {
-                            node.send(broadcastMessage, connection);
-                            numSuccess.incrementAndGet();
-                        } catch (Throwable throwable) {
-                            numFaults.incrementAndGet();
-                        }
-                        if (numSuccess.get() + numFaults.get() == numBroadcasts) {
-                            future.complete(new BroadcastResult(numSuccess.get(),
-                                    numFaults.get(),
-                                    System.currentTimeMillis() - ts));
-                        }
-                    });
-        });
-        return future;
+        Queue<Connection> pendingConnections = allConnections.stream()
+                .limit(numBroadcasts)
+                .collect(Collectors.toCollection(ConcurrentLinkedQueue::new));
+
+        // We run up to maxParallelSends sends concurrently. A new send is started when a previous send has completed.
+        int numParallelSends = Math.min(config.getMaxParallelSends(), numBroadcasts);
+        BroadcastState broadcastState = new BroadcastState(broadcastMessage, numBroadcasts, numParallelSends);
+        sendToNextPeers(broadcastState, pendingConnections);
+        return broadcastState.getFuture();
     }
 
     public Address getPeerAddressesForInventoryRequest() {
@@ -116,4 +145,108 @@ public class Broadcaster {
 
     public void shutdown() {
     }
+
+    private void sendToNextPeers(BroadcastState broadcastState, Queue<Connection> pendingConnections) {
+        while (!pendingConnections.isEmpty() && broadcastState.getSendPermits().tryAcquire()) {
+            Connection connection = pendingConnections.poll();
+            if (connection == null) {
+                broadcastState.getSendPermits().release();
+                return;
+            }
+            sendToPeer(broadcastState, pendingConnections, connection);
+        }
+    }
+
+    private void sendToPeer(BroadcastState broadcastState, Queue<Connection> pendingConnections, Connection connection) {
+        log.debug("Node {} broadcast to {}", node, connection.getPeerAddress());
+        long ts = System.currentTimeMillis();
+        // Set by the first of send completion or timeout
+        AtomicBoolean isCounted = new AtomicBoolean();
+        CompletableFuture<Connection> sendFuture = CompletableFuture.supplyAsync(() ->
+                node.send(broadcastState.getBroadcastMessage(), connection), NetworkService.NETWORK_IO_POOL);
+
+        // orTimeout on the copy does not complete the sendFuture, so the permit is only released once the
+        // send has completed
+        sendFuture.copy()
+                .orTimeout(config.getPeerSendTimeout(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, throwable) -> {
+                    if (throwable instanceof TimeoutException && isCounted.compareAndSet(false, true)) {
+                        log.debug("Broadcast to {} timed out", connection.getPeerAddress());
+                        broadcastState.onTimeout();
+                    }
+                });
+
+        sendFuture.whenComplete((result, throwable) -> {
+            broadcastState.getSendPermits().release();
+            boolean timedOut = !isCounted.compareAndSet(false, true);
+            if (throwable != null) {
+                log.debug("Broadcast to {} failed. {}", connection.getPeerAddress(), throwable.toString());
+            }
+            broadcastState.onSendCompleted(throwable == null, timedOut, System.currentTimeMillis() - ts);
+            sendToNextPeers(broadcastState, pendingConnections);
+        });
+    }
+
+    private final class BroadcastState {
+        @Getter
+        private final BroadcastMessage broadcastMessage;
+        @Getter
+        private final CompletableFuture<BroadcastResult> future = new CompletableFuture<BroadcastResult>()
+                .orTimeout(BROADCAST_TIMEOUT, TimeUnit.SECONDS);
+        // Released when the send has completed, not at the timeout, thus limiting the number of running sends
+        @Getter
+        private final Semaphore sendPermits;
+        private final int numBroadcasts;
+        private final int quorum;
+        private final long ts = System.currentTimeMillis();
+        private final AtomicInteger numSuccess = new AtomicInteger();
+        private final AtomicInteger numFaults = new AtomicInteger();
+        private final AtomicInteger numCompletedSends = new AtomicInteger();
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+        private BroadcastState(BroadcastMessage broadcastMessage, int numBroadcasts, int numParallelSends) {
+            this.broadcastMessage = broadcastMessage;
+            this.numBroadcasts = numBroadcasts;
+            sendPermits = new Semaphore(numParallelSends);
+            quorum = Math.max(1, (int) Math.ceil(numBroadcasts * config.getQuorumFactor()));
+        }
+
+        // A timed out send is counted as fault. If it succeeds later we count it as success.
+        private void onTimeout() {
+            numFaults.incrementAndGet();
+        }
+
+        private void onSendCompleted(boolean isSuccess, boolean timedOut, long latency) {
+            if (isSuccess) {
+                if (timedOut) {
+                    numFaults.decrementAndGet();
+                }
+                latencies.add(latency);
+                if (numSuccess.incrementAndGet() >= quorum) {
+                    // Only the first call completes the future, later sends complete in the background
+                    future.complete(createResult());
+                }
+            } else if (!timedOut) {
+                numFaults.incrementAndGet();
+            }
+
+            if (numCompletedSends.incrementAndGet() == numBroadcasts) {
+                BroadcastResult result = createResult();
+                if (!future.complete(result)) {
+                    log.debug("All sends of broadcast {} completed. {}",
+                            broadcastMessage.getClass().getSimpleName(), result);
+                }
+            }
+        }
+
+        private BroadcastResult createResult() {
+            int success = numSuccess.get();
+            int faults = numFaults.get();
+            return new BroadcastResult(success,
+                    faults,
+                    numBroadcasts - success - faults,
+                    System.currentTimeMillis() - ts,
+                    latencies);
+        }
+    }
 }
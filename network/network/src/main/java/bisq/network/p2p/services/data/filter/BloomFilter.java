@@ -0,0 +1,133 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.filter;
+
+import bisq.common.proto.Proto;
+import bisq.common.validation.NetworkDataValidation;
+import com.google.protobuf.ByteString;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Compact probabilistic set of filter entries. A lookup never returns a false negative but might return a false
+ * positive with the probability defined at creation. The bit indices are derived from the entry hash (already a
+ * digest), the sequence number and the tweak by double hashing, so the filter is deterministic across platforms.
+ * The requester uses a random tweak per request so that false positives differ between requests.
+ */
+@Getter
+@EqualsAndHashCode
+public final class BloomFilter implements Proto {
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+    public static final int MAX_NUM_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_NUM_HASH_FUNCTIONS = 30;
+
+    private final byte[] bits;
+    private final int numHashFunctions;
+    private final long tweak;
+    @EqualsAndHashCode.Exclude
+    private final long numBits;
+
+    public static BloomFilter create(Collection<FilterEntry> filterEntries, double falsePositiveRate, long tweak) {
+        checkArgument(falsePositiveRate > 0 && falsePositiveRate < 1, "falsePositiveRate must be in range (0, 1)");
+        int numEntries = Math.max(1, filterEntries.size());
+        // m = -n * ln(p) / ln(2)^2; k = m / n * ln(2)
+        long numBits = (long) Math.ceil(-numEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int numBytes = (int) Math.min(MAX_NUM_BYTES, Math.max(1, (numBits + 7) / 8));
+        int numHashFunctions = (int) Math.max(1, Math.min(MAX_NUM_HASH_FUNCTIONS,
+                Math.round((double) numBytes * 8 / numEntries * Math.log(2))));
+        BloomFilter bloomFilter = new BloomFilter(new byte[numBytes], numHashFunctions, tweak);
+        filterEntries.forEach(bloomFilter::put);
+        return bloomFilter;
+    }
+
+    public BloomFilter(byte[] bits, int numHashFunctions, long tweak) {
+        NetworkDataValidation.validateByteArray(bits, MAX_NUM_BYTES);
+        checkArgument(bits.length > 0, "bits must not be empty");
+        checkArgument(numHashFunctions > 0 && numHashFunctions <= MAX_NUM_HASH_FUNCTIONS,
+                "numHashFunctions must be in range [1, " + MAX_NUM_HASH_FUNCTIONS + "]");
+        this.bits = bits;
+        this.numHashFunctions = numHashFunctions;
+        this.tweak = tweak;
+        numBits = (long) bits.length * 8;
+    }
+
+    @Override
+    public bisq.network.protobuf.BloomFilter toProto() {
+        return bisq.network.protobuf.BloomFilter.newBuilder()
+                .setBits(ByteString.copyFrom(bits))
+                .setNumHashFunctions(numHashFunctions)
+                .setTweak(tweak)
+                .build();
+    }
+
+    public static BloomFilter fromProto(bisq.network.protobuf.BloomFilter proto) {
+        return new BloomFilter(proto.getBits().toByteArray(), proto.getNumHashFunctions(), proto.getTweak());
+    }
+
+    public boolean mightContain(FilterEntry filterEntry) {
+        long hash1 = getHash1(filterEntry);
+        long hash2 = getHash2(filterEntry);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, numBits);
+            if ((bits[(int) (index >>> 3)] & (1 << (index & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter(numBytes=" + bits.length + ", numHashFunctions=" + numHashFunctions + ", tweak=" + tweak + ")";
+    }
+
+    private void put(FilterEntry filterEntry) {
+        long hash1 = getHash1(filterEntry);
+        long hash2 = getHash2(filterEntry);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, numBits);
+            bits[(int) (index >>> 3)] |= (byte) (1 << (index & 7));
+        }
+    }
+
+    private long getHash1(FilterEntry filterEntry) {
+        long value = ByteBuffer.wrap(filterEntry.getHash(), 0, 8).getLong();
+        return mix(value ^ tweak ^ (filterEntry.getSequenceNumber() * 0x9E3779B97F4A7C15L));
+    }
+
+    private long getHash2(FilterEntry filterEntry) {
+        long value = ByteBuffer.wrap(filterEntry.getHash(), 8, 8).getLong();
+        return mix(value ^ Long.rotateLeft(tweak, 32) ^ (filterEntry.getSequenceNumber() * 0xC2B2AE3D27D4EB4FL));
+    }
+
+    // Finalizer of MurmurHash3 (fmix64)
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -18,38 +18,138 @@
 package bisq.network.p2p.services.data.filter;
 
 
+import bisq.common.data.ByteArray;
 import bisq.common.proto.Proto;
+import bisq.network.p2p.node.Capability;
+import bisq.network.p2p.node.Feature;
+import com.google.protobuf.ByteString;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.util.Collections;
-import java.util.List;
+import java.security.SecureRandom;
+import java.util.*;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Describes the data the requester has already, so that the responder only sends the missing data.
+ * Either an exact list of filter entries or a BloomFilter is used. The bloom filter is much smaller but might cause
+ * that some missing data is not delivered (false positive). As the tweak is random per request, that data will be
+ * delivered at a later request. Older peers would drop the unknown bloom filter field at the proof of work check and
+ * reject the request, thus the bloom filter must only be sent to peers supporting Feature.INVENTORY_BLOOM_FILTER.
+ * Mailbox receiver tags restrict the requested mailbox entries to those addressed to the requester's keys. A tag is a
+ * short prefix of the receiver's public key hash, thus it matches the entries of many receivers and does not reveal
+ * the key. Like the bloom filter, tags must only be sent to peers supporting Feature.MAILBOX_RECEIVER_TAGS.
+ * Use create to get a filter with the features the peer supports.
+ */
 @Getter
 @ToString
 @EqualsAndHashCode
 public final class DataFilter implements Proto {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    public static final int MAX_MAILBOX_RECEIVER_TAGS = 1000;
+    public static final int MAX_MAILBOX_RECEIVER_TAG_LENGTH = 8;
+
     private final List<FilterEntry> filterEntries;
+    private final Optional<BloomFilter> bloomFilter;
+    private final List<ByteArray> mailboxReceiverTags;
+    // Used for O(1) lookups at the exact mode
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Set<FilterEntry> filterEntrySet;
+
+    /**
+     * Creates the filter for a peer with the given capability. Only the features the peer supports are used, so that
+     * the request serializes for peers of older versions exactly like before. We create the filter per peer, thus
+     * each bloom filter has its own random tweak and data missed by a false positive at one peer is most likely
+     * delivered by another one.
+     *
+     * @param mailboxReceiverTags The tags of the mailbox entries we request. If empty or if there are too many tags,
+     *                            we request all mailbox entries.
+     */
+    public static DataFilter create(Collection<FilterEntry> filterEntries,
+                                    Collection<ByteArray> mailboxReceiverTags,
+                                    Capability peersCapability) {
+        DataFilter dataFilter = peersCapability.hasFeature(Feature.INVENTORY_BLOOM_FILTER) ?
+                createWithBloomFilter(filterEntries) :
+                new DataFilter(new ArrayList<>(filterEntries));
+        if (peersCapability.hasFeature(Feature.MAILBOX_RECEIVER_TAGS) &&
+                !mailboxReceiverTags.isEmpty() &&
+                mailboxReceiverTags.size() <= MAX_MAILBOX_RECEIVER_TAGS) {
+            return dataFilter.withMailboxReceiverTags(mailboxReceiverTags);
+        }
+        return dataFilter;
+    }
+
+    public static DataFilter createWithBloomFilter(Collection<FilterEntry> filterEntries) {
+        return new DataFilter(new ArrayList<>(),
+                Optional.of(BloomFilter.create(filterEntries, BloomFilter.DEFAULT_FALSE_POSITIVE_RATE, RANDOM.nextLong())),
+                new ArrayList<>());
+    }
 
     public DataFilter(List<FilterEntry> filterEntries) {
+        this(filterEntries, Optional.empty(), new ArrayList<>());
+    }
+
+    private DataFilter(List<FilterEntry> filterEntries,
+                       Optional<BloomFilter> bloomFilter,
+                       List<ByteArray> mailboxReceiverTags) {
         this.filterEntries = filterEntries;
+        this.bloomFilter = bloomFilter;
+        this.mailboxReceiverTags = mailboxReceiverTags;
         // We need to sort deterministically as the data is used in the proof of work check
         Collections.sort(this.filterEntries);
+        Collections.sort(this.mailboxReceiverTags);
+        filterEntrySet = new HashSet<>(filterEntries);
+
+        checkArgument(mailboxReceiverTags.size() <= MAX_MAILBOX_RECEIVER_TAGS, "Too many mailboxReceiverTags");
+        checkArgument(mailboxReceiverTags.stream().allMatch(tag -> tag.getBytes().length > 0 &&
+                        tag.getBytes().length <= MAX_MAILBOX_RECEIVER_TAG_LENGTH),
+                "Invalid length of mailboxReceiverTag");
+    }
+
+    /**
+     * @return A copy of that filter which requests only the mailbox entries matching the given receiver tags.
+     */
+    public DataFilter withMailboxReceiverTags(Collection<ByteArray> mailboxReceiverTags) {
+        return new DataFilter(new ArrayList<>(filterEntries), bloomFilter, new ArrayList<>(mailboxReceiverTags));
     }
 
     public bisq.network.protobuf.DataFilter toProto() {
-        return bisq.network.protobuf.DataFilter.newBuilder()
+        bisq.network.protobuf.DataFilter.Builder builder = bisq.network.protobuf.DataFilter.newBuilder()
                 .addAllFilterEntries(filterEntries.stream()
                         .map(FilterEntry::toProto)
-                        .collect(Collectors.toList()))
-                .build();
+                        .collect(Collectors.toList()));
+        bloomFilter.ifPresent(bloomFilter -> builder.setBloomFilter(bloomFilter.toProto()));
+        builder.addAllMailboxReceiverTags(mailboxReceiverTags.stream()
+                .map(tag -> ByteString.copyFrom(tag.getBytes()))
+                .collect(Collectors.toList()));
+        return builder.build();
     }
 
     public static DataFilter fromProto(bisq.network.protobuf.DataFilter proto) {
         return new DataFilter(proto.getFilterEntriesList().stream()
                 .map(FilterEntry::fromProto)
-                .collect(Collectors.toList()));
+                .collect(Collectors.toList()),
+                proto.hasBloomFilter() ? Optional.of(BloomFilter.fromProto(proto.getBloomFilter())) : Optional.empty(),
+                proto.getMailboxReceiverTagsList().stream()
+                        .map(tag -> new ByteArray(tag.toByteArray()))
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return True if the requester has (or with the bloom filter, most likely has) the entry.
+     */
+    public boolean contains(FilterEntry filterEntry) {
+        if (bloomFilter.isPresent()) {
+            return bloomFilter.get().mightContain(filterEntry);
+        }
+        return filterEntrySet.contains(filterEntry);
+    }
+
+    public boolean hasMailboxReceiverTags() {
+        return !mailboxReceiverTags.isEmpty();
     }
-}
\ No newline at end of file
+}
@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Getter
@@ -38,10 +39,17 @@ import java.util.stream.Collectors;
 public final class Inventory implements Proto {
     private final List<? extends DataRequest> entries;
     private final int peersNumEntries;
+    // Present if that inventory is a batch and the peer has more data for us
+    private final Optional<InventoryCursor> nextCursor;
 
     public Inventory(Collection<? extends DataRequest> entries, int peersNumEntries) {
+        this(entries, peersNumEntries, Optional.empty());
+    }
+
+    public Inventory(Collection<? extends DataRequest> entries, int peersNumEntries, Optional<InventoryCursor> nextCursor) {
         this.entries = new ArrayList<>(entries);
         this.peersNumEntries = peersNumEntries;
+        this.nextCursor = nextCursor;
 
         // We need to sort deterministically as the data is used in the proof of work check
         // todo find cheaper solution or cache serialized result to avoid that its done repeatedly 
@@ -49,10 +57,11 @@ public final class Inventory implements Proto {
     }
 
     public bisq.network.protobuf.Inventory toProto() {
-        return bisq.network.protobuf.Inventory.newBuilder()
+        bisq.network.protobuf.Inventory.Builder builder = bisq.network.protobuf.Inventory.newBuilder()
                 .addAllEntries(entries.stream().map(e -> e.toProto().getDataRequest()).collect(Collectors.toList()))
-                .setPeersNumEntries(peersNumEntries)
-                .build();
+                .setPeersNumEntries(peersNumEntries);
+        nextCursor.ifPresent(cursor -> builder.setNextCursor(cursor.toProto()));
+        return builder.build();
     }
 
     public static Inventory fromProto(bisq.network.protobuf.Inventory proto) {
@@ -60,6 +69,8 @@ public final class Inventory implements Proto {
         List<DataRequest> entries = entriesList.stream()
                 .map(DataRequest::fromProto)
                 .collect(Collectors.toList());
-        return new Inventory(entries, proto.getPeersNumEntries());
+        return new Inventory(entries,
+                proto.getPeersNumEntries(),
+                proto.hasNextCursor() ? Optional.of(InventoryCursor.fromProto(proto.getNextCursor())) : Optional.empty());
     }
 }
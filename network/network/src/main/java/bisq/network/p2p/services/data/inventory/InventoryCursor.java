@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.inventory;
+
+import bisq.common.encoding.Hex;
+import bisq.common.proto.Proto;
+import bisq.common.validation.NetworkDataValidation;
+import com.google.protobuf.ByteString;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * Position in the inventory ordered by created date and hash. Used as continuation token for requesting the next
+ * inventory batch.
+ */
+@Getter
+@EqualsAndHashCode
+public final class InventoryCursor implements Proto, Comparable<InventoryCursor> {
+    private final long created;
+    private final byte[] hash;
+
+    public InventoryCursor(long created, byte[] hash) {
+        this.created = created;
+        this.hash = hash;
+
+        NetworkDataValidation.validateHash(hash);
+    }
+
+    @Override
+    public bisq.network.protobuf.InventoryCursor toProto() {
+        return bisq.network.protobuf.InventoryCursor.newBuilder()
+                .setCreated(created)
+                .setHash(ByteString.copyFrom(hash))
+                .build();
+    }
+
+    public static InventoryCursor fromProto(bisq.network.protobuf.InventoryCursor proto) {
+        return new InventoryCursor(proto.getCreated(), proto.getHash().toByteArray());
+    }
+
+    @Override
+    public int compareTo(@Nonnull InventoryCursor o) {
+        int result = Long.compare(created, o.getCreated());
+        return result != 0 ? result : Arrays.compare(hash, o.getHash());
+    }
+
+    @Override
+    public String toString() {
+        return "InventoryCursor(created=" + created + ", hash=" + Hex.encode(hash) + ")";
+    }
+}
@@ -21,6 +21,7 @@ import bisq.network.NetworkService;
 import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.CloseReason;
 import bisq.network.p2p.node.Connection;
+import bisq.network.p2p.node.Feature;
 import bisq.network.p2p.node.Node;
 import bisq.network.p2p.services.data.filter.DataFilter;
 import bisq.network.p2p.services.data.storage.append.AddAppendOnlyDataRequest;
@@ -31,40 +32,51 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 
+/**
+ * Requests the inventory from a peer. The peer delivers it in batches. After each batch we request the next one with
+ * the nextCursor of the received batch until the peer has no more data for us. Peers which do not support
+ * Feature.PAGINATED_INVENTORY get a legacy request, as they would reject a request with the unknown pagination fields
+ * at the proof of work check. They respond with the full inventory in one batch.
+ */
 @Getter
 @Slf4j
 class InventoryHandler implements Connection.Listener {
     private final Node node;
     private final Connection connection;
-    private final CompletableFuture<Inventory> future = new CompletableFuture<>();
-    private final int nonce;
+    private final Consumer<Inventory> inventoryBatchHandler;
+    // Completes with the number of received entries
+    private final CompletableFuture<Integer> future = new CompletableFuture<>();
+    private final Map<String, Integer> numEntriesByClassName = new HashMap<>();
+    private DataFilter dataFilter;
+    private volatile int nonce;
+    private volatile Optional<InventoryCursor> lastCursor = Optional.empty();
+    private int numBatches;
+    private int numReceivedEntries;
     private long ts;
 
-    InventoryHandler(Node node, Connection connection) {
+    InventoryHandler(Node node, Connection connection, Consumer<Inventory> inventoryBatchHandler) {
         this.node = node;
         this.connection = connection;
+        this.inventoryBatchHandler = inventoryBatchHandler;
 
-        nonce = new Random().nextInt();
         connection.addListener(this);
     }
 
-    CompletableFuture<Inventory> request(DataFilter dataFilter) {
+    CompletableFuture<Integer> request(DataFilter dataFilter, Optional<InventoryCursor> resumeCursor) {
         // log.debug("Node {} send GetInventoryRequest to {} with dataFilter {} and nonce {}. Connection={}",
         //        node, connection.getPeerAddress(), dataFilter, nonce, connection.getId());
+        this.dataFilter = dataFilter;
         ts = System.currentTimeMillis();
-        supplyAsync(() -> node.send(new InventoryRequest(dataFilter, nonce), connection), NetworkService.NETWORK_IO_POOL)
-                .whenComplete((c, throwable) -> {
-                    if (throwable != null) {
-                        future.completeExceptionally(throwable);
-                        dispose();
-                    }
-                });
+        lastCursor = resumeCursor;
+        requestBatch(resumeCursor);
         return future;
     }
 
@@ -73,38 +85,21 @@ class InventoryHandler implements Connection.Listener {
         if (networkMessage instanceof InventoryResponse) {
             InventoryResponse response = (InventoryResponse) networkMessage;
             if (response.getRequestNonce() == nonce) {
-                Map<String, Integer> map = new HashMap<>();
-                response.getInventory().getEntries().stream()
-                        .filter(e -> e instanceof AddAuthenticatedDataRequest)
-                        .map(e -> (AddAuthenticatedDataRequest) e)
-                        .map(AddAuthenticatedDataRequest::getAuthenticatedSequentialData)
-                        .map(AuthenticatedSequentialData::getAuthenticatedData)
-                        .forEach(e -> {
-                            String simpleName = e.getDistributedData().getClass().getSimpleName();
-                            map.putIfAbsent(simpleName, 0);
-                            map.put(simpleName, map.get(simpleName) + 1);
-                        });
-                response.getInventory().getEntries().stream()
-                        .filter(e -> e instanceof AddAppendOnlyDataRequest)
-                        .map(e -> (AddAppendOnlyDataRequest) e)
-                        .map(AddAppendOnlyDataRequest::getAppendOnlyData)
-                        .forEach(e -> {
-                            String simpleName = e.getClass().getSimpleName();
-                            map.putIfAbsent(simpleName, 0);
-                            map.put(simpleName, map.get(simpleName) + 1);
-                        });
-              /*  log.info("Node {} received GetInventoryResponse from {} with inventory {} and nonce {}. Connection={}",
-                        node, connection.getPeerAddress(), response.inventory(), response.requestNonce(), connection.getId());*/
-                log.info("\n##########################################################################################\n" +
-                        "## INVENTORY from: " + connection.getPeerAddress() + "\n" +
-                        "##########################################################################################\n" +
-                        map.entrySet().stream().map(e -> e.getValue() + " " + e.getKey()).collect(Collectors.joining("\n")) +
-                        "\n##########################################################################################");
-                removeListeners();
-                connection.getMetrics().addRtt(ts = System.currentTimeMillis() - ts);
-                future.complete(response.getInventory());
+                Inventory inventory = response.getInventory();
+                numBatches++;
+                numReceivedEntries += inventory.getEntries().size();
+                addToStatistics(inventory);
+                if (inventory.getNextCursor().isPresent()) {
+                    // We request the next batch before we process the received one
+                    lastCursor = inventory.getNextCursor();
+                    requestBatch(lastCursor);
+                    inventoryBatchHandler.accept(inventory);
+                } else {
+                    inventoryBatchHandler.accept(inventory);
+                    onCompleted();
+                }
             } else {
-                log.warn("Node {} received Pong from {} with invalid nonce {}. Request nonce was {}. Connection={}",
+                log.warn("Node {} received InventoryResponse from {} with invalid nonce {}. Request nonce was {}. Connection={}",
                         node, connection.getPeerAddress(), response.getRequestNonce(), nonce, connection.getId());
             }
         }
@@ -120,7 +115,52 @@ class InventoryHandler implements Connection.Listener {
         future.cancel(true);
     }
 
+    boolean isCompleted() {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    private void requestBatch(Optional<InventoryCursor> cursor) {
+        nonce = new Random().nextInt();
+        InventoryRequest request = connection.getPeersCapability().hasFeature(Feature.PAGINATED_INVENTORY) ?
+                new InventoryRequest(dataFilter, nonce, true, cursor) :
+                new InventoryRequest(dataFilter, nonce);
+        supplyAsync(() -> node.send(request, connection), NetworkService.NETWORK_IO_POOL)
+                .whenComplete((c, throwable) -> {
+                    if (throwable != null) {
+                        future.completeExceptionally(throwable);
+                        dispose();
+                    }
+                });
+    }
+
+    private void onCompleted() {
+        /*  log.info("Node {} received GetInventoryResponse from {} with inventory {} and nonce {}. Connection={}",
+                        node, connection.getPeerAddress(), response.inventory(), response.requestNonce(), connection.getId());*/
+        log.info("\n##########################################################################################\n" +
+                "## INVENTORY from: " + connection.getPeerAddress() + " in " + numBatches + " batch(es)\n" +
+                "##########################################################################################\n" +
+                numEntriesByClassName.entrySet().stream().map(e -> e.getValue() + " " + e.getKey()).collect(Collectors.joining("\n")) +
+                "\n##########################################################################################");
+        removeListeners();
+        connection.getMetrics().addRtt(InventoryRequest.class, ts = System.currentTimeMillis() - ts);
+        future.complete(numReceivedEntries);
+    }
+
+    private void addToStatistics(Inventory inventory) {
+        inventory.getEntries().stream()
+                .filter(e -> e instanceof AddAuthenticatedDataRequest)
+                .map(e -> (AddAuthenticatedDataRequest) e)
+                .map(AddAuthenticatedDataRequest::getAuthenticatedSequentialData)
+                .map(AuthenticatedSequentialData::getAuthenticatedData)
+                .forEach(e -> numEntriesByClassName.merge(e.getDistributedData().getClass().getSimpleName(), 1, Integer::sum));
+        inventory.getEntries().stream()
+                .filter(e -> e instanceof AddAppendOnlyDataRequest)
+                .map(e -> (AddAppendOnlyDataRequest) e)
+                .map(AddAppendOnlyDataRequest::getAppendOnlyData)
+                .forEach(e -> numEntriesByClassName.merge(e.getClass().getSimpleName(), 1, Integer::sum));
+    }
+
     private void removeListeners() {
         connection.removeListener(this);
     }
-}
\ No newline at end of file
+}
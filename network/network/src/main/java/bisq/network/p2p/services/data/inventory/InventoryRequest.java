@@ -24,28 +24,43 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.Optional;
+
 @Getter
 @ToString
 @EqualsAndHashCode
 public final class InventoryRequest implements BroadcastMessage {
     private final DataFilter dataFilter;
     private final int nonce;
+    // Must only be set for peers supporting Feature.PAGINATED_INVENTORY
+    private final boolean paginated;
+    private final Optional<InventoryCursor> cursor;
 
     public InventoryRequest(DataFilter dataFilter, int nonce) {
+        this(dataFilter, nonce, false, Optional.empty());
+    }
+
+    public InventoryRequest(DataFilter dataFilter, int nonce, boolean paginated, Optional<InventoryCursor> cursor) {
         this.dataFilter = dataFilter;
         this.nonce = nonce;
+        this.paginated = paginated;
+        this.cursor = cursor;
     }
 
     @Override
     public NetworkMessage toProto() {
-        return getNetworkMessageBuilder().setInventoryRequest(
-                        bisq.network.protobuf.InventoryRequest.newBuilder()
-                                .setDataFilter(dataFilter.toProto())
-                                .setNonce(nonce))
-                .build();
+        bisq.network.protobuf.InventoryRequest.Builder builder = bisq.network.protobuf.InventoryRequest.newBuilder()
+                .setDataFilter(dataFilter.toProto())
+                .setNonce(nonce)
+                .setPaginated(paginated);
+        cursor.ifPresent(cursor -> builder.setCursor(cursor.toProto()));
+        return getNetworkMessageBuilder().setInventoryRequest(builder).build();
     }
 
     public static InventoryRequest fromProto(bisq.network.protobuf.InventoryRequest proto) {
-        return new InventoryRequest(DataFilter.fromProto(proto.getDataFilter()), proto.getNonce());
+        return new InventoryRequest(DataFilter.fromProto(proto.getDataFilter()),
+                proto.getNonce(),
+                proto.getPaginated(),
+                proto.hasCursor() ? Optional.of(InventoryCursor.fromProto(proto.getCursor())) : Optional.empty());
     }
 }
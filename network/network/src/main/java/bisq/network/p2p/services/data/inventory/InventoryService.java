@@ -17,8 +17,11 @@
 
 package bisq.network.p2p.services.data.inventory;
 
+import bisq.common.data.Pair;
 import bisq.network.NetworkService;
 import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.Address;
+import bisq.network.p2p.node.Capability;
 import bisq.network.p2p.node.CloseReason;
 import bisq.network.p2p.node.Connection;
 import bisq.network.p2p.node.Node;
@@ -28,43 +31,68 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class InventoryService implements Node.Listener {
     private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    private static final long RESUME_CURSOR_TTL = TimeUnit.MINUTES.toMillis(10);
 
     private final Node node;
     private final PeerGroup peerGroup;
     private final Map<String, InventoryHandler> requestHandlerMap = new ConcurrentHashMap<>();
     private final Function<DataFilter, Inventory> inventoryProvider;
+    private final BiFunction<DataFilter, Optional<InventoryCursor>, Inventory> inventoryBatchProvider;
+    // Cursor of the last received batch and the time when we received it by peer address. If a paginated request got
+    // interrupted we continue from there at the next request to that peer.
+    private final Map<Address, Pair<InventoryCursor, Long>> resumeCursorByAddress = new ConcurrentHashMap<>();
 
-    public InventoryService(Node node, PeerGroup peerGroup, Function<DataFilter, Inventory> inventoryProvider) {
+    public InventoryService(Node node,
+                            PeerGroup peerGroup,
+                            Function<DataFilter, Inventory> inventoryProvider,
+                            BiFunction<DataFilter, Optional<InventoryCursor>, Inventory> inventoryBatchProvider) {
         this.node = node;
         this.peerGroup = peerGroup;
         this.inventoryProvider = inventoryProvider;
+        this.inventoryBatchProvider = inventoryBatchProvider;
         this.node.addListener(this);
     }
 
     public void initialize() {
     }
 
-    public List<CompletableFuture<Inventory>> request(DataFilter dataFilter) {
+    /**
+     * Requests the inventory from all connected peers. Each received batch is passed to the inventoryBatchHandler.
+     *
+     * @param dataFilterProvider Creates the DataFilter for the capability of the peer, so that we only use filter
+     *                           features the peer supports.
+     * @return A future per peer which completes with the number of received entries once all batches are received.
+     */
+    public List<CompletableFuture<Integer>> request(Function<Capability, DataFilter> dataFilterProvider,
+                                                    Consumer<Inventory> inventoryBatchHandler) {
         int maxRequests = 400;
         return peerGroup.getAllConnections()
                 .filter(connection -> !requestHandlerMap.containsKey(connection.getId()))
                 .limit(maxRequests)
                 .map(connection -> {
                     String key = connection.getId();
-                    InventoryHandler handler = new InventoryHandler(node, connection);
+                    Address peerAddress = connection.getPeerAddress();
+                    InventoryHandler handler = new InventoryHandler(node, connection, inventoryBatchHandler);
                     requestHandlerMap.put(key, handler);
-                    return handler.request(dataFilter)
+                    DataFilter dataFilter = dataFilterProvider.apply(connection.getPeersCapability());
+                    return handler.request(dataFilter, getResumeCursor(peerAddress))
                             .orTimeout(TIMEOUT, TimeUnit.SECONDS)
-                            .whenComplete((__, throwable) -> requestHandlerMap.remove(key));
+                            .whenComplete((__, throwable) -> {
+                                requestHandlerMap.remove(key);
+                                onRequestEnded(peerAddress, handler);
+                            });
                 })
                 .collect(Collectors.toList());
     }
@@ -79,7 +107,9 @@ public class InventoryService implements Node.Listener {
         if (networkMessage instanceof InventoryRequest) {
             InventoryRequest request = (InventoryRequest) networkMessage;
             log.debug("Node {} received GetInventoryRequest with nonce {} from {}", node, request.getNonce(), connection.getPeerAddress());
-            Inventory inventory = inventoryProvider.apply(request.getDataFilter());
+            Inventory inventory = request.isPaginated() ?
+                    inventoryBatchProvider.apply(request.getDataFilter(), request.getCursor()) :
+                    inventoryProvider.apply(request.getDataFilter());
             NetworkService.NETWORK_IO_POOL.submit(() -> node.send(new InventoryResponse(inventory, request.getNonce()), connection));
             log.debug("Node {} sent GetInventoryResponse with inventory {} and nonce {} to {}. Connection={}",
                     node, inventory, request.getNonce(), connection.getPeerAddress(), connection.getId());
@@ -98,4 +128,22 @@ public class InventoryService implements Node.Listener {
             requestHandlerMap.remove(key);
         }
     }
+
+    private Optional<InventoryCursor> getResumeCursor(Address peerAddress) {
+        Pair<InventoryCursor, Long> pair = resumeCursorByAddress.remove(peerAddress);
+        if (pair == null || System.currentTimeMillis() - pair.getSecond() > RESUME_CURSOR_TTL) {
+            return Optional.empty();
+        }
+        log.info("Resume inventory request to {} from {}", peerAddress, pair.getFirst());
+        return Optional.of(pair.getFirst());
+    }
+
+    private void onRequestEnded(Address peerAddress, InventoryHandler handler) {
+        if (handler.isCompleted()) {
+            resumeCursorByAddress.remove(peerAddress);
+        } else {
+            handler.getLastCursor().ifPresent(cursor ->
+                    resumeCursorByAddress.put(peerAddress, new Pair<>(cursor, System.currentTimeMillis())));
+        }
+    }
 }
\ No newline at end of file
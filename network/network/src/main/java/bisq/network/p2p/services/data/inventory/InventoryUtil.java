@@ -17,16 +17,89 @@
 
 package bisq.network.p2p.services.data.inventory;
 
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.services.data.DataRequest;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataRequest;
 
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 public class InventoryUtil {
+    public static final int MAX_BATCH_ITEMS = 2000;
+    public static final int MAX_BATCH_SIZE_IN_BYTES = 1024 * 1024;
+
+    private static final class Candidate {
+        private final InventoryCursor position;
+        private final DataRequest dataRequest;
+
+        private Candidate(InventoryCursor position, DataRequest dataRequest) {
+            this.position = position;
+            this.dataRequest = dataRequest;
+        }
+    }
+
+    /**
+     * Returns the next batch of entries after the cursor, ordered by created date and hash. The batch is bounded by
+     * maxItems and maxSizeInBytes (at least one entry is added). We keep only the maxItems oldest matching entries in
+     * a bounded heap, so memory usage does not depend on the store size.
+     *
+     * @param entries     The store entries by hash
+     * @param isRequested Predicate for entries the requester does not have yet
+     * @param cursor      The last position the requester has received
+     * @return The inventory batch. Has a nextCursor if there are more entries after that batch.
+     */
+    public static Inventory getBatch(Stream<? extends Map.Entry<ByteArray, ? extends DataRequest>> entries,
+                                     Predicate<Map.Entry<ByteArray, ? extends DataRequest>> isRequested,
+                                     Optional<InventoryCursor> cursor,
+                                     int maxItems,
+                                     int maxSizeInBytes) {
+        checkArgument(maxItems > 0);
+        Comparator<Candidate> comparator = Comparator.comparing(candidate -> candidate.position);
+        PriorityQueue<Candidate> oldestCandidates = new PriorityQueue<>(comparator.reversed());
+        int numEntries = 0;
+        int numCandidates = 0;
+        Iterator<? extends Map.Entry<ByteArray, ? extends DataRequest>> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ByteArray, ? extends DataRequest> entry = iterator.next();
+            numEntries++;
+            InventoryCursor position = new InventoryCursor(entry.getValue().getCreated(), entry.getKey().getBytes());
+            if (cursor.isPresent() && position.compareTo(cursor.get()) <= 0) {
+                continue;
+            }
+            if (!isRequested.test(entry)) {
+                continue;
+            }
+            numCandidates++;
+            oldestCandidates.add(new Candidate(position, entry.getValue()));
+            if (oldestCandidates.size() > maxItems) {
+                oldestCandidates.poll();
+            }
+        }
+
+        List<Candidate> sortedCandidates = new ArrayList<>(oldestCandidates);
+        sortedCandidates.sort(comparator);
+        List<DataRequest> batch = new ArrayList<>();
+        InventoryCursor lastPosition = null;
+        long sizeInBytes = 0;
+        for (Candidate candidate : sortedCandidates) {
+            int size = candidate.dataRequest.toProto().getSerializedSize();
+            if (!batch.isEmpty() && sizeInBytes + size > maxSizeInBytes) {
+                break;
+            }
+            batch.add(candidate.dataRequest);
+            sizeInBytes += size;
+            lastPosition = candidate.position;
+        }
+        Optional<InventoryCursor> nextCursor = batch.size() < numCandidates ?
+                Optional.ofNullable(lastPosition) :
+                Optional.empty();
+        return new Inventory(batch, numEntries, nextCursor);
+    }
+
     public static List<? extends AuthenticatedDataRequest> getSubList(
             Collection<? extends AuthenticatedDataRequest> requests,
             int filterOffset,
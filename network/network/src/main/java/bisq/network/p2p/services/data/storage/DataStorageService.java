@@ -20,21 +20,41 @@ package bisq.network.p2p.services.data.storage;
 import bisq.common.data.ByteArray;
 import bisq.common.util.StringUtils;
 import bisq.network.p2p.services.data.DataRequest;
+import bisq.persistence.Journal;
 import bisq.persistence.Persistence;
 import bisq.persistence.PersistenceService;
 import bisq.persistence.RateLimitedPersistenceClient;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Slf4j
 public abstract class DataStorageService<T extends DataRequest> extends RateLimitedPersistenceClient<DataStore<T>> {
     public static final String SUB_PATH = "db" + File.separator + "network";
     public static final String STORE_POST_FIX = "Store";
+    private static final int COMPACTION_THRESHOLD = 5000;
+    private static final long COMPACTION_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * SNAPSHOT writes the whole store at each (rate limited) persist call.
+     * JOURNAL appends each change as a small record to a journal and writes a snapshot only at compaction, which
+     * happens once the journal has reached COMPACTION_THRESHOLD records or COMPACTION_INTERVAL has passed since the
+     * last compaction. At startup the journal is replayed on top of the snapshot.
+     */
+    public enum PersistenceMode {
+        SNAPSHOT,
+        JOURNAL
+    }
 
     @Getter
     protected final Persistence<DataStore<T>> persistence;
@@ -45,16 +65,30 @@ public abstract class DataStorageService<T extends DataRequest> extends RateLimi
     @Getter
     protected final String subDirectory;
     protected Optional<Integer> maxMapSize = Optional.empty();
+    @Getter
+    private final PersistenceMode persistenceMode;
+    private final Optional<Journal> journal;
+    private final AtomicBoolean compactionInProgress = new AtomicBoolean();
+    private volatile long lastCompaction = System.currentTimeMillis();
 
-    public DataStorageService(PersistenceService persistenceService, String storeName, String storeKey) {
+    public DataStorageService(PersistenceService persistenceService,
+                              String storeName,
+                              String storeKey,
+                              PersistenceMode persistenceMode) {
         super();
         this.storeKey = storeKey;
+        this.persistenceMode = persistenceMode;
         String storageFileName = StringUtils.camelCaseToSnakeCase(storeKey + STORE_POST_FIX);
         subDirectory = SUB_PATH + File.separator + storeName;
-        persistence = persistenceService.getOrCreatePersistence(this, subDirectory, storageFileName, persistableStore);
+        // Network data can be requested again from the network, so we can use the StoreFileFormat (see StoreFileFormat)
+        persistence = persistenceService.getOrCreatePersistence(this, subDirectory, storageFileName, persistableStore, true);
+        journal = persistenceMode == PersistenceMode.JOURNAL ?
+                Optional.of(new Journal(persistence.getStorePath())) :
+                Optional.empty();
     }
 
     public void shutdown() {
+        journal.ifPresent(Journal::close);
     }
 
     @Override
@@ -62,6 +96,66 @@ public abstract class DataStorageService<T extends DataRequest> extends RateLimi
         return 1000;
     }
 
+    @Override
+    public CompletableFuture<Optional<DataStore<T>>> readPersisted() {
+        CompletableFuture<Optional<DataStore<T>>> future = super.readPersisted();
+        if (journal.isEmpty()) {
+            return future;
+        }
+        // The snapshot has been applied when the future of super.readPersisted completes
+        return future.thenApply(result -> {
+            replayJournal(journal.get());
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> persist() {
+        if (journal.isEmpty()) {
+            return super.persist();
+        }
+
+        // The change has already been appended to the journal, we only check if we should compact.
+        Journal journal = this.journal.get();
+        int numRecords = journal.getNumRecords();
+        if (numRecords >= COMPACTION_THRESHOLD ||
+                (numRecords > 0 && System.currentTimeMillis() - lastCompaction > COMPACTION_INTERVAL)) {
+            compact(journal);
+        }
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Puts the entry to the map and appends it to the journal if in JOURNAL mode. Must be called while holding the
+     * lock used for the map access, so that the order of the journal records matches the order of the map updates.
+     */
+    protected void putEntry(ByteArray key, T dataRequest) {
+        persistableStore.getMap().put(key, dataRequest);
+        journal.ifPresent(journal -> appendToJournal(journal, key, dataRequest));
+    }
+
+    /**
+     * Removes the entry from the map and appends a remove record to the journal if in JOURNAL mode. Must be called
+     * while holding the lock used for the map access.
+     */
+    protected void removeEntry(ByteArray key) {
+        persistableStore.getMap().remove(key);
+        journal.ifPresent(journal -> appendToJournal(journal, key, null));
+    }
+
+    /**
+     * Like removeEntry, but only removes the entry if it is still mapped to the given dataRequest.
+     *
+     * @return True if the entry got removed.
+     */
+    protected boolean removeEntry(ByteArray key, T dataRequest) {
+        if (!persistableStore.getMap().remove(key, dataRequest)) {
+            return false;
+        }
+        journal.ifPresent(journal -> appendToJournal(journal, key, null));
+        return true;
+    }
+
     @Override
     public DataStore<T> prunePersisted(DataStore<T> persisted) {
         Map<ByteArray, T> map = persisted.getMap();
@@ -86,4 +180,70 @@ public abstract class DataStorageService<T extends DataRequest> extends RateLimi
         maxMapSize = persistableStore.getMap().values().stream().map(DataRequest::getMaxMapSize).findFirst();
         return maxMapSize.orElse(MetaData.MAX_MAP_SIZE_10_000);
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Journal
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private void appendToJournal(Journal journal, ByteArray key, @Nullable T dataRequest) {
+        bisq.network.protobuf.DataStoreJournalRecord.Builder builder = bisq.network.protobuf.DataStoreJournalRecord.newBuilder()
+                .setKey(key.toProto());
+        if (dataRequest != null) {
+            builder.setDataRequest(dataRequest.toProto().getDataRequest());
+        }
+        if (!journal.append(builder.build())) {
+            // We fall back to a snapshot so that the change is not lost
+            compact(journal);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replayJournal(Journal journal) {
+        List<bisq.network.protobuf.DataStoreJournalRecord> records =
+                journal.readAll(bisq.network.protobuf.DataStoreJournalRecord.parser());
+        if (records.isEmpty()) {
+            return;
+        }
+
+        Map<ByteArray, T> map = persistableStore.getMap();
+        records.forEach(record -> {
+            ByteArray key = ByteArray.fromProto(record.getKey());
+            if (record.hasDataRequest()) {
+                map.put(key, (T) DataRequest.fromProto(record.getDataRequest()));
+            } else {
+                map.remove(key);
+            }
+        });
+        log.info("Replayed {} journal records for {}. Map size is now {}", records.size(), storeKey, map.size());
+        // We write a fresh snapshot so that we do not need to replay those records again at the next start
+        compact(journal);
+    }
+
+    private void compact(Journal journal) {
+        if (!compactionInProgress.compareAndSet(false, true)) {
+            return;
+        }
+
+        lastCompaction = System.currentTimeMillis();
+        try {
+            // We rotate before taking the snapshot, so all records in the rotated file are covered by it.
+            journal.rotate();
+        } catch (IOException e) {
+            log.error("Couldn't rotate journal " + journal.getJournalPath(), e);
+            compactionInProgress.set(false);
+            return;
+        }
+
+        persistence.persistAsync(persistableStore.getClone())
+                .whenComplete((success, throwable) -> {
+                    if (throwable == null && success) {
+                        journal.deleteRotated();
+                    } else {
+                        // The rotated file is kept and will be replayed at next start or included at the next compaction
+                        log.warn("Compaction of {} failed. We keep the rotated journal.", storeKey, throwable);
+                    }
+                    compactionInProgress.set(false);
+                });
+    }
 }
@@ -18,6 +18,7 @@
 package bisq.network.p2p.services.data.storage;
 
 import bisq.common.data.ByteArray;
+import bisq.common.data.SnapshotHashMap;
 import bisq.common.proto.ProtoResolver;
 import bisq.common.proto.UnresolvableProtobufMessageException;
 import bisq.network.p2p.services.data.DataRequest;
@@ -29,20 +30,28 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @ToString
 public final class DataStore<T extends DataRequest> implements PersistableStore<DataStore<T>> {
+    private static final int PARALLEL_DECODING_THRESHOLD = 1000;
+
+    // Clones share the immutable trie of the map, so getClone is O(1) and gives a consistent view without copying.
     @Getter
-    private final Map<ByteArray, T> map = new ConcurrentHashMap<>();
+    private final SnapshotHashMap<ByteArray, T> map;
 
     public DataStore() {
+        map = new SnapshotHashMap<>();
     }
 
     public DataStore(Map<ByteArray, T> map) {
-        this.map.putAll(map);
+        this.map = new SnapshotHashMap<>(map);
+    }
+
+    private DataStore(SnapshotHashMap<ByteArray, T> map) {
+        this.map = map;
     }
 
     @Override
@@ -60,8 +69,13 @@ public final class DataStore<T extends DataRequest> implements PersistableStore<
     }
 
     public static PersistableStore<?> fromProto(bisq.network.protobuf.DataStore proto) {
-        return new DataStore<>(proto.getMapEntriesList().stream()
-                .collect(Collectors.toMap(e -> ByteArray.fromProto(e.getKey()), e -> DataRequest.fromProto(e.getValue()))));
+        // Decoding the data requests includes the reconstruction of public keys, so we decode large stores in parallel
+        List<bisq.network.protobuf.DataStore.MapEntry> mapEntries = proto.getMapEntriesList();
+        Stream<bisq.network.protobuf.DataStore.MapEntry> stream = mapEntries.size() >= PARALLEL_DECODING_THRESHOLD ?
+                mapEntries.parallelStream() :
+                mapEntries.stream();
+        return new DataStore<>(stream
+                .collect(Collectors.toConcurrentMap(e -> ByteArray.fromProto(e.getKey()), e -> DataRequest.fromProto(e.getValue()))));
     }
 
     @Override
@@ -83,6 +97,6 @@ public final class DataStore<T extends DataRequest> implements PersistableStore<
 
     @Override
     public DataStore<T> getClone() {
-        return new DataStore<>(map);
+        return new DataStore<>(map.snapshot());
     }
 }
\ No newline at end of file
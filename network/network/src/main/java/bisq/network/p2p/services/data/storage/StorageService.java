@@ -20,6 +20,7 @@ package bisq.network.p2p.services.data.storage;
 
 import bisq.common.data.ByteArray;
 import bisq.common.proto.NetworkStorageWhiteList;
+import bisq.common.util.CompletableFutureUtils;
 import bisq.common.util.StringUtils;
 import bisq.network.NetworkService;
 import bisq.network.p2p.services.data.AddDataRequest;
@@ -28,17 +29,21 @@ import bisq.network.p2p.services.data.RemoveDataRequest;
 import bisq.network.p2p.services.data.filter.DataFilter;
 import bisq.network.p2p.services.data.filter.FilterEntry;
 import bisq.network.p2p.services.data.inventory.Inventory;
+import bisq.network.p2p.services.data.inventory.InventoryCursor;
+import bisq.network.p2p.services.data.inventory.InventoryUtil;
 import bisq.network.p2p.services.data.storage.append.AddAppendOnlyDataRequest;
 import bisq.network.p2p.services.data.storage.append.AppendOnlyData;
 import bisq.network.p2p.services.data.storage.append.AppendOnlyDataStorageService;
 import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataIndex;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataStorageService;
 import bisq.network.p2p.services.data.storage.auth.RemoveAuthenticatedDataRequest;
 import bisq.network.p2p.services.data.storage.mailbox.AddMailboxRequest;
 import bisq.network.p2p.services.data.storage.mailbox.MailboxData;
 import bisq.network.p2p.services.data.storage.mailbox.MailboxDataStorageService;
 import bisq.network.p2p.services.data.storage.mailbox.RemoveMailboxRequest;
+import bisq.persistence.Journal;
 import bisq.persistence.Persistence;
 import bisq.persistence.PersistenceService;
 import lombok.Getter;
@@ -50,6 +55,7 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -71,9 +77,22 @@ public class StorageService {
     }
 
 
+    /**
+     * Listeners are called on the thread which applied the change to the store, while holding the lock of the changed
+     * entry. As inbound messages of different connections are processed in parallel (see
+     * NetworkService.MESSAGE_DISPATCHER), calls for different entries can happen concurrently. Implementations must
+     * be thread safe and must not block. DataService delivers the changes to its own listeners on a single thread.
+     */
     public interface Listener {
         void onAdded(StorageData storageData);
 
+        /**
+         * Called once for all authenticated data added by a batch of an inventory response.
+         */
+        default void onAddedAll(List<AuthenticatedData> authenticatedDataList) {
+            authenticatedDataList.forEach(this::onAdded);
+        }
+
         void onRemoved(StorageData storageData);
     }
 
@@ -81,10 +100,17 @@ public class StorageService {
     final Map<String, MailboxDataStorageService> mailboxStores = new ConcurrentHashMap<>();
     final Map<String, AppendOnlyDataStorageService> appendOnlyDataStores = new ConcurrentHashMap<>();
     private final PersistenceService persistenceService;
+    private final DataStorageService.PersistenceMode persistenceMode;
     private final Set<StorageService.Listener> listeners = new CopyOnWriteArraySet<>();
+    private final Map<String, Set<AuthenticatedDataIndex<?>>> indexesByClassName = new ConcurrentHashMap<>();
 
     public StorageService(PersistenceService persistenceService) {
+        this(persistenceService, DataStorageService.PersistenceMode.SNAPSHOT);
+    }
+
+    public StorageService(PersistenceService persistenceService, DataStorageService.PersistenceMode persistenceMode) {
         this.persistenceService = persistenceService;
+        this.persistenceMode = persistenceMode;
 
         // We create all stores for those files we have already persisted.
         // Persisted data is read at the very early stages of the application start.
@@ -95,16 +121,21 @@ public class StorageService {
             if (new File(directory).exists()) {
                 getExistingStoreKeys(directory)
                         .forEach(storeKey -> {
-                            AuthenticatedDataStorageService dataStore = new AuthenticatedDataStorageService(persistenceService, authStoreName, storeKey);
+                            AuthenticatedDataStorageService dataStore = new AuthenticatedDataStorageService(persistenceService, authStoreName, storeKey, persistenceMode);
                             dataStore.addListener(new AuthenticatedDataStorageService.Listener() {
                                 @Override
                                 public void onAdded(AuthenticatedData authenticatedData) {
-                                    listeners.forEach(listener -> listener.onAdded(authenticatedData));
+                                    onAuthenticatedDataAdded(authenticatedData);
+                                }
+
+                                @Override
+                                public void onAddedAll(List<AuthenticatedData> authenticatedDataList) {
+                                    onAuthenticatedDataAddedAll(authenticatedDataList);
                                 }
 
                                 @Override
                                 public void onRemoved(AuthenticatedData authenticatedData) {
-                                    listeners.forEach(listener -> listener.onRemoved(authenticatedData));
+                                    onAuthenticatedDataRemoved(authenticatedData);
                                 }
                             });
                             authenticatedDataStores.put(storeKey, dataStore);
@@ -115,7 +146,7 @@ public class StorageService {
             if (new File(directory).exists()) {
                 getExistingStoreKeys(directory)
                         .forEach(storeKey -> {
-                            MailboxDataStorageService dataStore = new MailboxDataStorageService(persistenceService, mailboxStoreName, storeKey);
+                            MailboxDataStorageService dataStore = new MailboxDataStorageService(persistenceService, mailboxStoreName, storeKey, persistenceMode);
                             dataStore.addListener(new MailboxDataStorageService.Listener() {
                                 @Override
                                 public void onAdded(MailboxData mailboxData) {
@@ -136,7 +167,7 @@ public class StorageService {
             if (new File(directory).exists()) {
                 getExistingStoreKeys(directory)
                         .forEach(storeKey -> {
-                            AppendOnlyDataStorageService dataStore = new AppendOnlyDataStorageService(persistenceService, appendStoreName, storeKey);
+                            AppendOnlyDataStorageService dataStore = new AppendOnlyDataStorageService(persistenceService, appendStoreName, storeKey, persistenceMode);
                             dataStore.addListener(appendOnlyData -> listeners.forEach(listener -> listener.onAdded(appendOnlyData)));
                             appendOnlyDataStores.put(storeKey, dataStore);
                         });
@@ -177,6 +208,15 @@ public class StorageService {
         return stores.flatMap(this::getAuthenticatedData);
     }
 
+    /**
+     * @param className The class name of the DistributedData as used in its MetaData. As stores are created per class
+     *                  name, only the store of that class is accessed.
+     */
+    public Stream<AuthenticatedData> getAuthenticatedDataByClassName(String className) {
+        return Optional.ofNullable(authenticatedDataStores.get(className)).stream()
+                .flatMap(this::getAuthenticatedData);
+    }
+
     private Stream<AuthenticatedData> getAuthenticatedData(DataStorageService<? extends DataRequest> store) {
         return store.getPersistableStore().getClone().getMap().values().stream()
                 .filter(e -> e instanceof AddAuthenticatedDataRequest)
@@ -185,6 +225,49 @@ public class StorageService {
     }
 
 
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Secondary indexes
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Creates an index on the authenticated data of the given class, which is kept up to date on add and remove.
+     * Indexes should be created once the persisted data has been read (e.g. at the initialize of a service).
+     */
+    public <K> AuthenticatedDataIndex<K> addIndex(String className, Function<DistributedData, K> keyFunction) {
+        AuthenticatedDataIndex<K> index = new AuthenticatedDataIndex<>(className, keyFunction);
+        // We register before adding the existing data so that we do not miss concurrently added data. The existing data
+        // is added while holding the entry locks, so that concurrently removed data does not remain in the index.
+        indexesByClassName.computeIfAbsent(className, key -> new CopyOnWriteArraySet<>()).add(index);
+        Optional.ofNullable(authenticatedDataStores.get(className))
+                .ifPresent(store -> store.forEachAuthenticatedData(index::add));
+        return index;
+    }
+
+    public void removeIndex(AuthenticatedDataIndex<?> index) {
+        Optional.ofNullable(indexesByClassName.get(index.getClassName()))
+                .ifPresent(indexes -> indexes.remove(index));
+    }
+
+    private void onAuthenticatedDataAdded(AuthenticatedData authenticatedData) {
+        Optional.ofNullable(indexesByClassName.get(authenticatedData.getClassName()))
+                .ifPresent(indexes -> indexes.forEach(index -> index.add(authenticatedData)));
+        listeners.forEach(listener -> listener.onAdded(authenticatedData));
+    }
+
+    private void onAuthenticatedDataAddedAll(List<AuthenticatedData> authenticatedDataList) {
+        authenticatedDataList.forEach(authenticatedData ->
+                Optional.ofNullable(indexesByClassName.get(authenticatedData.getClassName()))
+                        .ifPresent(indexes -> indexes.forEach(index -> index.add(authenticatedData))));
+        listeners.forEach(listener -> listener.onAddedAll(authenticatedDataList));
+    }
+
+    private void onAuthenticatedDataRemoved(AuthenticatedData authenticatedData) {
+        Optional.ofNullable(indexesByClassName.get(authenticatedData.getClassName()))
+                .ifPresent(indexes -> indexes.forEach(index -> index.remove(authenticatedData)));
+        listeners.forEach(listener -> listener.onRemoved(authenticatedData));
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Add data
     ///////////////////////////////////////////////////////////////////////////////////////////////////
@@ -219,6 +302,26 @@ public class StorageService {
                 });
     }
 
+    /**
+     * Bulk ingestion of the AddAuthenticatedDataRequests of an inventory. Signatures are verified in parallel on the
+     * NetworkService.VERIFICATION_POOL and each store gets persisted once.
+     *
+     * @return The added data
+     */
+    public CompletableFuture<List<AuthenticatedData>> onAddAuthenticatedDataRequests(List<AddAuthenticatedDataRequest> requests) {
+        Map<String, List<AddAuthenticatedDataRequest>> requestsByClassName = requests.stream()
+                .collect(Collectors.groupingBy(request ->
+                        request.getAuthenticatedSequentialData().getAuthenticatedData().getClassName()));
+        List<CompletableFuture<List<AuthenticatedData>>> futures = requestsByClassName.entrySet().stream()
+                .map(entry -> getOrCreateAuthenticatedDataStore(entry.getKey())
+                        .thenCompose(store -> store.addAll(entry.getValue(), NetworkService.VERIFICATION_POOL)))
+                .collect(Collectors.toList());
+        return CompletableFutureUtils.allOf(futures)
+                .thenApply(lists -> lists.stream()
+                        .flatMap(List::stream)
+                        .collect(Collectors.toList()));
+    }
+
     private CompletableFuture<Optional<StorageData>> onAddAuthenticatedDataRequest(AddAuthenticatedDataRequest request) {
         AuthenticatedData authenticatedData = request.getAuthenticatedSequentialData().getAuthenticatedData();
         return getOrCreateAuthenticatedDataStore(authenticatedData.getClassName())
@@ -305,17 +408,47 @@ public class StorageService {
 
     public Inventory getInventoryOfAllStores(DataFilter dataFilter) {
         return getInventory(dataFilter, getAllStores()
-                .flatMap(store -> store.getPersistableStore().getClone().getMap().entrySet().stream()).collect(Collectors.toSet()));
+                .flatMap(store -> getEntries(store, dataFilter, true)).collect(Collectors.toSet()));
+    }
+
+    /**
+     * Returns a size-bounded batch of the data missing at the requester, ordered by created date. We iterate the
+     * concurrent maps of the stores directly instead of cloning them.
+     */
+    public Inventory getInventoryBatch(DataFilter dataFilter, Optional<InventoryCursor> cursor) {
+        return InventoryUtil.getBatch(getAllStores()
+                        .flatMap(store -> getEntries(store, dataFilter, false)),
+                mapEntry -> !dataFilter.contains(getFilterEntry(mapEntry)),
+                cursor,
+                InventoryUtil.MAX_BATCH_ITEMS,
+                InventoryUtil.MAX_BATCH_SIZE_IN_BYTES);
     }
 
     public Inventory getInventoryFromStore(DataFilter dataFilter, DataStorageService<? extends DataRequest> store) {
-        return getInventory(dataFilter, store.getPersistableStore().getClone().getMap().entrySet());
+        return getInventory(dataFilter, getEntries(store, dataFilter, true).collect(Collectors.toSet()));
+    }
+
+    /**
+     * If the requester has set mailbox receiver tags we deliver only the matching mailbox entries, which we look up
+     * by the receiver tag index of the mailbox store.
+     */
+    private Stream<? extends Map.Entry<ByteArray, ? extends DataRequest>> getEntries(
+            DataStorageService<? extends DataRequest> store,
+            DataFilter dataFilter,
+            boolean useClone) {
+        if (store instanceof MailboxDataStorageService && dataFilter.hasMailboxReceiverTags()) {
+            return ((MailboxDataStorageService) store).getEntriesByReceiverTags(dataFilter.getMailboxReceiverTags());
+        }
+        DataStore<? extends DataRequest> dataStore = useClone ?
+                store.getPersistableStore().getClone() :
+                store.getPersistableStore();
+        return dataStore.getMap().entrySet().stream();
     }
 
     private Inventory getInventory(DataFilter dataFilter,
                                    Set<? extends Map.Entry<ByteArray, ? extends DataRequest>> entrySet) {
         Set<? extends DataRequest> result = entrySet.stream()
-                .filter(mapEntry -> !dataFilter.getFilterEntries().contains(getFilterEntry(mapEntry)))
+                .filter(mapEntry -> !dataFilter.contains(getFilterEntry(mapEntry)))
                 .map(Map.Entry::getValue)
                 .collect(Collectors.toSet());
         return new Inventory(result, entrySet.size());
@@ -335,7 +468,7 @@ public class StorageService {
     }
 
     private Set<FilterEntry> getFilterEntries(Stream<DataStorageService<? extends DataRequest>> stores) {
-        return stores.flatMap(store -> new HashMap<>(store.getPersistableStore().getMap()).entrySet().stream())
+        return stores.flatMap(store -> store.getPersistableStore().getClone().getMap().entrySet().stream())
                 .map(this::getFilterEntry)
                 .collect(Collectors.toSet());
     }
@@ -366,16 +499,22 @@ public class StorageService {
         if (!authenticatedDataStores.containsKey(storeKey)) {
             AuthenticatedDataStorageService dataStore = new AuthenticatedDataStorageService(persistenceService,
                     AUTHENTICATED_DATA_STORE.getStoreName(),
-                    storeKey);
+                    storeKey,
+                    persistenceMode);
             dataStore.addListener(new AuthenticatedDataStorageService.Listener() {
                 @Override
                 public void onAdded(AuthenticatedData authenticatedData) {
-                    listeners.forEach(listener -> listener.onAdded(authenticatedData));
+                    onAuthenticatedDataAdded(authenticatedData);
+                }
+
+                @Override
+                public void onAddedAll(List<AuthenticatedData> authenticatedDataList) {
+                    onAuthenticatedDataAddedAll(authenticatedDataList);
                 }
 
                 @Override
                 public void onRemoved(AuthenticatedData authenticatedData) {
-                    listeners.forEach(listener -> listener.onRemoved(authenticatedData));
+                    onAuthenticatedDataRemoved(authenticatedData);
                 }
             });
             authenticatedDataStores.put(storeKey, dataStore);
@@ -389,7 +528,8 @@ public class StorageService {
         if (!mailboxStores.containsKey(storeKey)) {
             MailboxDataStorageService dataStore = new MailboxDataStorageService(persistenceService,
                     MAILBOX_DATA_STORE.getStoreName(),
-                    storeKey);
+                    storeKey,
+                    persistenceMode);
             dataStore.addListener(new MailboxDataStorageService.Listener() {
                 @Override
                 public void onAdded(MailboxData mailboxData) {
@@ -412,7 +552,9 @@ public class StorageService {
         if (!appendOnlyDataStores.containsKey(storeKey)) {
             AppendOnlyDataStorageService dataStore = new AppendOnlyDataStorageService(persistenceService,
                     APPEND_ONLY_DATA_STORE.getStoreName(),
-                    storeKey);
+                    storeKey,
+                    persistenceMode);
+            dataStore.addListener(appendOnlyData -> listeners.forEach(listener -> listener.onAdded(appendOnlyData)));
             appendOnlyDataStores.put(storeKey, dataStore);
             return dataStore.readPersisted().thenApply(nil -> dataStore);
         } else {
@@ -460,8 +602,11 @@ public class StorageService {
     private Set<String> getExistingStoreKeys(String directory) {
         return NetworkStorageWhiteList.getClassNames().stream()
                 .filter(storeKey -> {
-                    String storageFileName = StringUtils.camelCaseToSnakeCase(storeKey + DataStorageService.STORE_POST_FIX) + Persistence.EXTENSION;
-                    return Path.of(directory, storageFileName).toFile().exists();
+                    String fileName = StringUtils.camelCaseToSnakeCase(storeKey + DataStorageService.STORE_POST_FIX);
+                    // In journal mode a store might have only journal records but no snapshot yet
+                    return Path.of(directory, fileName + Persistence.EXTENSION).toFile().exists() ||
+                            Path.of(directory, fileName + Journal.EXTENSION).toFile().exists() ||
+                            Path.of(directory, fileName + Journal.ROTATED_EXTENSION).toFile().exists();
                 })
                 .collect(Collectors.toSet());
     }
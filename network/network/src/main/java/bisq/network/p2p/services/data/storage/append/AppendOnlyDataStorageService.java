@@ -35,6 +35,10 @@ import java.util.concurrent.CopyOnWriteArraySet;
  */
 @Slf4j
 public class AppendOnlyDataStorageService extends DataStorageService<AddAppendOnlyDataRequest> {
+    /**
+     * Listeners are called while holding the lock for the map access, so calls are in the order the data has been
+     * added to the map. Implementations must be thread safe and must not block.
+     */
     public interface Listener {
         void onAppended(AppendOnlyData appendOnlyData);
     }
@@ -42,8 +46,11 @@ public class AppendOnlyDataStorageService extends DataStorageService<AddAppendOn
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private final Object mapAccessLock = new Object();
 
-    public AppendOnlyDataStorageService(PersistenceService persistenceService, String storeName, String storeKey) {
-        super(persistenceService, storeName, storeKey);
+    public AppendOnlyDataStorageService(PersistenceService persistenceService,
+                                        String storeName,
+                                        String storeKey,
+                                        PersistenceMode persistenceMode) {
+        super(persistenceService, storeName, storeKey, persistenceMode);
     }
 
     @Override
@@ -71,10 +78,10 @@ public class AppendOnlyDataStorageService extends DataStorageService<AddAppendOn
                 return new Result(false).payloadAlreadyStored();
             }
 
-            map.put(byteArray, addAppendOnlyDataRequest);
+            putEntry(byteArray, addAppendOnlyDataRequest);
+            listeners.forEach(listener -> listener.onAppended(appendOnlyData));
         }
         persist();
-        listeners.forEach(listener -> listener.onAppended(appendOnlyData));
         return new Result(true);
     }
 
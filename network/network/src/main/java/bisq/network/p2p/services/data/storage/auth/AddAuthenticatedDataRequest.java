@@ -22,6 +22,7 @@ import bisq.common.validation.NetworkDataValidation;
 import bisq.network.p2p.services.data.AddDataRequest;
 import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
+import bisq.security.PublicKeyCache;
 import bisq.security.SignatureUtil;
 import com.google.protobuf.ByteString;
 import lombok.EqualsAndHashCode;
@@ -126,7 +127,7 @@ public final class AddAuthenticatedDataRequest implements AuthenticatedDataReque
 
     public boolean isPublicKeyInvalid() {
         try {
-            return !Arrays.equals(authenticatedSequentialData.getPubKeyHash(), DigestUtil.hash(ownerPublicKeyBytes));
+            return !Arrays.equals(authenticatedSequentialData.getPubKeyHash(), PublicKeyCache.getHash(ownerPublicKeyBytes));
         } catch (Exception e) {
             return true;
         }
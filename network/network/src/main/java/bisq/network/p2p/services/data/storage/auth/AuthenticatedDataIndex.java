@@ -0,0 +1,80 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.storage.auth;
+
+import bisq.network.p2p.services.data.storage.DistributedData;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Secondary index on the authenticated data of one DistributedData class, keyed by a key derived from the
+ * distributed data (e.g. the profile id). Indexes are created by StorageService, which keeps them up to date when
+ * data gets added or removed. If the key function returns null, the data is not indexed.
+ */
+public final class AuthenticatedDataIndex<K> {
+    @Getter
+    private final String className;
+    private final Function<DistributedData, K> keyFunction;
+    private final Map<K, Set<AuthenticatedData>> dataByKey = new ConcurrentHashMap<>();
+
+    public AuthenticatedDataIndex(String className, Function<DistributedData, K> keyFunction) {
+        this.className = className;
+        this.keyFunction = keyFunction;
+    }
+
+    public Set<AuthenticatedData> get(K key) {
+        Set<AuthenticatedData> set = dataByKey.get(key);
+        return set != null ? Set.copyOf(set) : Set.of();
+    }
+
+    public boolean containsKey(K key) {
+        return dataByKey.containsKey(key);
+    }
+
+    public Set<K> getKeys() {
+        return Collections.unmodifiableSet(dataByKey.keySet());
+    }
+
+    public void add(AuthenticatedData authenticatedData) {
+        K key = keyFunction.apply(authenticatedData.getDistributedData());
+        if (key == null) {
+            return;
+        }
+        dataByKey.compute(key, (k, set) -> {
+            Set<AuthenticatedData> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            result.add(authenticatedData);
+            return result;
+        });
+    }
+
+    public void remove(AuthenticatedData authenticatedData) {
+        K key = keyFunction.apply(authenticatedData.getDistributedData());
+        if (key == null) {
+            return;
+        }
+        dataByKey.computeIfPresent(key, (k, set) -> {
+            set.remove(authenticatedData);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
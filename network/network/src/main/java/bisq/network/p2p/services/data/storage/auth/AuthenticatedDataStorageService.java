@@ -25,21 +25,40 @@ import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedData;
 import bisq.persistence.PersistenceService;
 import bisq.security.DigestUtil;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Striped;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Map;
-import java.util.Set;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 @Slf4j
 public class AuthenticatedDataStorageService extends DataStorageService<AuthenticatedDataRequest> {
+    /**
+     * Listeners are called on the thread which applied the change. As inbound messages of different connections are
+     * processed in parallel, calls for different entries can happen concurrently. Calls for the same entry are done
+     * while holding the lock of that entry, so they are in the order the changes have been applied to the map.
+     * Implementations must be thread safe and must not block.
+     */
     public interface Listener {
         void onAdded(AuthenticatedData authenticatedData);
 
+        /**
+         * Called once for all data added by addAll, while holding the locks of all added entries.
+         */
+        default void onAddedAll(List<AuthenticatedData> authenticatedDataList) {
+            authenticatedDataList.forEach(this::onAdded);
+        }
+
         void onRemoved(AuthenticatedData authenticatedData);
 
         default void onRefreshed(AuthenticatedData authenticatedData) {
@@ -47,11 +66,16 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
     }
 
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
-    private final Object mapAccessLock = new Object();
+    // Entries are validated without holding a lock. Only the final check against the map entry and the update are
+    // done while holding the lock for the hash of the entry.
+    private final Striped<Lock> locks = Striped.lock(64);
     private final Scheduler scheduler;
 
-    public AuthenticatedDataStorageService(PersistenceService persistenceService, String storeName, String storeKey) {
-        super(persistenceService, storeName, storeKey);
+    public AuthenticatedDataStorageService(PersistenceService persistenceService,
+                                           String storeName,
+                                           String storeKey,
+                                           PersistenceMode persistenceMode) {
+        super(persistenceService, storeName, storeKey, persistenceMode);
         scheduler = Scheduler.run(this::pruneExpired).periodically(60, TimeUnit.SECONDS);
     }
 
@@ -62,80 +86,142 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
     }
 
     public Result add(AddAuthenticatedDataRequest request) {
-        AuthenticatedSequentialData authenticatedSequentialData = request.getAuthenticatedSequentialData();
-        AuthenticatedData authenticatedData = authenticatedSequentialData.getAuthenticatedData();
-        byte[] hash = DigestUtil.hash(authenticatedData.serialize());
-        ByteArray byteArray = new ByteArray(hash);
-        AuthenticatedDataRequest requestFromMap;
+        AuthenticatedData authenticatedData = request.getAuthenticatedSequentialData().getAuthenticatedData();
+        ByteArray byteArray = getHash(request);
         Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
-        synchronized (mapAccessLock) {
-            if (map.size() > getMaxMapSize()) {
-                return new Result(false).maxMapSizeReached();
-            }
-            requestFromMap = map.get(byteArray);
-            if (request.equals(requestFromMap)) {
-                return new Result(false).requestAlreadyReceived();
-            }
 
-            if (requestFromMap != null && authenticatedSequentialData.isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
-                return new Result(false).sequenceNrInvalid();
-            }
+        // We check first against the current entry, so that we do not verify requests we would reject anyway
+        // (e.g. already received ones).
+        Optional<Result> invalidResult = validateAddAgainstMap(request, map.get(byteArray));
+        if (invalidResult.isPresent()) {
+            return invalidResult.get();
+        }
 
-            if (authenticatedSequentialData.isExpired()) {
-                log.info("Data is expired at add. request object={}",
-                        request.getAuthenticatedSequentialData().getAuthenticatedData().distributedData.getClass().getSimpleName());
-                log.debug("Data is expired at add. request={}", request);
-                return new Result(false).expired();
-            }
+        // The expensive stateless checks (incl. signature verification) are done without holding a lock.
+        invalidResult = validateAdd(request);
+        if (invalidResult.isPresent()) {
+            return invalidResult.get();
+        }
 
-            if (authenticatedData.isDataInvalid(authenticatedSequentialData.getPubKeyHash())) {
-                log.warn("AuthenticatedData is invalid at add. request={}", request);
-                return new Result(false).dataInvalid();
+        Lock lock = locks.get(byteArray);
+        lock.lock();
+        try {
+            // The entry might have been changed in the meantime, so we need to check again.
+            invalidResult = validateAddAgainstMap(request, map.get(byteArray));
+            if (invalidResult.isPresent()) {
+                return invalidResult.get();
             }
+            putEntry(byteArray, request);
 
-            if (authenticatedData instanceof AuthorizedData) {
-                AuthorizedData authorizedData = (AuthorizedData) authenticatedData;
-                if (authorizedData.isNotAuthorized()) {
-                    log.warn("AuthorizedData is not authorized. request={}", request);
-                    return new Result(false).isNotAuthorized();
-                }
-            }
+            // If we had already the data (only updated seq nr) we return false as well and do not notify listeners.
+           /* if (requestFromMap != null) {
+                log.warn("requestFromMap != null. request={}", request);
+                return new Result(false).payloadAlreadyStored();
+            }*/
 
-            if (request.isPublicKeyInvalid()) {
-                log.warn("PublicKey is invalid at add. request={}", request);
-                return new Result(false).publicKeyHashInvalid();
-            }
+            listeners.forEach(listener -> listener.onAdded(authenticatedData));
+        } finally {
+            lock.unlock();
+        }
 
-            if (request.isSignatureInvalid()) {
-                log.warn("Signature is invalid at add. request={}", request);
-                return new Result(false).signatureInvalid();
+        persist();
+        return new Result(true);
+    }
+
+    /**
+     * Bulk variant of add used for the data we receive from inventory responses. Requests which are already known
+     * or have an outdated sequence number get dropped before any signature gets verified. The remaining requests are
+     * validated in parallel on the given executor and then committed with one persist call and one onAddedAll call at
+     * the listeners. The caller thread does not block, the commit is done on the thread which completes the last
+     * validation.
+     *
+     * @return Future of the added data
+     */
+    public CompletableFuture<List<AuthenticatedData>> addAll(List<AddAuthenticatedDataRequest> requests, Executor executor) {
+        Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
+        Map<ByteArray, AddAuthenticatedDataRequest> candidates = new HashMap<>();
+        requests.forEach(request -> {
+            ByteArray byteArray = getHash(request);
+            if (validateAddAgainstMap(request, map.get(byteArray)).isEmpty()) {
+                // In case we got the same data multiple times we keep the one with the highest sequence number
+                candidates.merge(byteArray, request, (existing, candidate) ->
+                        candidate.getSequenceNumber() > existing.getSequenceNumber() ? candidate : existing);
             }
-            map.put(byteArray, request);
+        });
+        if (candidates.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
         }
 
-        persist();
+        Map<ByteArray, AddAuthenticatedDataRequest> validRequests = new ConcurrentHashMap<>();
+        return CompletableFuture.allOf(candidates.entrySet().stream()
+                        .map(entry -> CompletableFuture.runAsync(() -> {
+                            if (validateAdd(entry.getValue()).isEmpty()) {
+                                validRequests.put(entry.getKey(), entry.getValue());
+                            }
+                        }, executor))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(nil -> commitAll(validRequests));
+    }
 
-        // If we had already the data (only updated seq nr) we return false as well and do not notify listeners.
-       /* if (requestFromMap != null) {
-            log.warn("requestFromMap != null. request={}", request);
-            return new Result(false).payloadAlreadyStored();
-        }*/
+    private List<AuthenticatedData> commitAll(Map<ByteArray, AddAuthenticatedDataRequest> validRequests) {
+        Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
+        List<AuthenticatedData> added = new ArrayList<>();
+        // We hold the locks of all entries until the listeners are notified, so that a concurrent change of an added
+        // entry cannot be notified before the batch. bulkGet returns the locks in a fixed order, which prevents
+        // deadlocks with other bulk commits.
+        Iterable<Lock> bulkLocks = locks.bulkGet(validRequests.keySet());
+        bulkLocks.forEach(Lock::lock);
+        try {
+            validRequests.forEach((byteArray, request) -> {
+                if (validateAddAgainstMap(request, map.get(byteArray)).isEmpty()) {
+                    putEntry(byteArray, request);
+                    added.add(request.getAuthenticatedSequentialData().getAuthenticatedData());
+                }
+            });
+            if (!added.isEmpty()) {
+                List<AuthenticatedData> addedList = Collections.unmodifiableList(added);
+                listeners.forEach(listener -> listener.onAddedAll(addedList));
+            }
+        } finally {
+            bulkLocks.forEach(Lock::unlock);
+        }
+        if (added.isEmpty()) {
+            return added;
+        }
 
-        listeners.forEach(listener -> listener.onAdded(authenticatedData));
-        return new Result(true);
+        persist();
+        return added;
     }
 
     public Result remove(RemoveAuthenticatedDataRequest request) {
         ByteArray byteArray = new ByteArray(request.getHash());
         AuthenticatedData authenticatedDataFromMap;
         Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
-        synchronized (mapAccessLock) {
-            AuthenticatedDataRequest requestFromMap = map.get(byteArray);
+
+        // If we have the entry, we verify the signature before acquiring the lock.
+        boolean isSignatureVerified = false;
+        AuthenticatedDataRequest requestFromMap = map.get(byteArray);
+        if (requestFromMap instanceof AddAuthenticatedDataRequest) {
+            Optional<Result> invalidResult = validateRemoveAgainstMap(request, (AddAuthenticatedDataRequest) requestFromMap);
+            if (invalidResult.isPresent()) {
+                return invalidResult.get();
+            }
+            if (request.isSignatureInvalid()) {
+                log.warn("Signature is invalid at remove. request={}", request);
+                return new Result(false).signatureInvalid();
+            }
+            isSignatureVerified = true;
+        }
+
+        Lock lock = locks.get(byteArray);
+        lock.lock();
+        try {
+            requestFromMap = map.get(byteArray);
             if (requestFromMap == null) {
                 log.debug("No entry at remove. hash={}", byteArray);
                 // We don't have any entry, but it might be that we would receive later an add request, so we need to keep
                 // track of the sequence number
-                map.put(byteArray, request);
+                putEntry(byteArray, request);
                 persist();
                 return new Result(false).noEntry();
             }
@@ -145,7 +231,7 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
                 // We have had the entry already removed.
                 if (!request.isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
                     // We update the map with the new request with the fresh sequence number.
-                    map.put(byteArray, request);
+                    putEntry(byteArray, request);
                     persist();
                 }
                 return new Result(false).alreadyRemoved();
@@ -155,87 +241,62 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
             checkArgument(requestFromMap instanceof AddAuthenticatedDataRequest,
                     "requestFromMap expected be type of AddProtectedDataRequest");
             AddAuthenticatedDataRequest addRequestFromMap = (AddAuthenticatedDataRequest) requestFromMap;
-
-            // The metaData provided in the RemoveAuthenticatedDataRequest must be the same as we had in the AddAuthenticatedDataRequest
-            // The AddAuthenticatedDataRequest does use the metaData from the code base, not one provided by the message, thus it is trusted.
-            if (!request.getMetaData().equals(addRequestFromMap.getAuthenticatedSequentialData().getAuthenticatedData().getMetaData())) {
-                log.warn("MetaData of remove request not matching the one from the addRequest from the map. {} vs. {}",
-                        request.getMetaData(),
-                        addRequestFromMap.getAuthenticatedSequentialData().getAuthenticatedData().getMetaData());
-                return new Result(false).metaDataInvalid();
+            Optional<Result> invalidResult = validateRemoveAgainstMap(request, addRequestFromMap);
+            if (invalidResult.isPresent()) {
+                return invalidResult.get();
             }
 
-            // We have an entry, lets validate if we can remove it
-            AuthenticatedSequentialData dataFromMap = addRequestFromMap.getAuthenticatedSequentialData();
-            authenticatedDataFromMap = dataFromMap.getAuthenticatedData();
-            if (request.isSequenceNrInvalid(dataFromMap.getSequenceNumber())) {
-                log.warn("SequenceNr has not increased at remove. request={}", request);
-                return new Result(false).sequenceNrInvalid();
-            }
-
-            if (request.isPublicKeyHashInvalid(dataFromMap)) {
-                log.warn("PublicKey hash is invalid at remove. request={}", request);
-                return new Result(false).publicKeyHashInvalid();
-            }
-
-            if (request.isSignatureInvalid()) {
+            // Only if the entry got added in the meantime we have not verified the signature yet.
+            if (!isSignatureVerified && request.isSignatureInvalid()) {
                 log.warn("Signature is invalid at remove. request={}", request);
                 return new Result(false).signatureInvalid();
             }
-            map.put(byteArray, request);
+            authenticatedDataFromMap = addRequestFromMap.getAuthenticatedSequentialData().getAuthenticatedData();
+            putEntry(byteArray, request);
+            listeners.forEach(listener -> listener.onRemoved(authenticatedDataFromMap));
+        } finally {
+            lock.unlock();
         }
         persist();
-        listeners.forEach(listener -> listener.onRemoved(authenticatedDataFromMap));
         return new Result(true).removedData(authenticatedDataFromMap);
     }
 
     public Result refresh(RefreshAuthenticatedDataRequest request) {
         ByteArray byteArray = new ByteArray(request.getHash());
-        AddAuthenticatedDataRequest updatedRequest;
         Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
-        synchronized (mapAccessLock) {
-            AuthenticatedDataRequest requestFromMap = map.get(byteArray);
 
-            if (requestFromMap == null) {
-                return new Result(false).noEntry();
-            }
+        Optional<Result> invalidResult = validateRefreshAgainstMap(request, map.get(byteArray));
+        if (invalidResult.isPresent()) {
+            return invalidResult.get();
+        }
 
-            if (requestFromMap instanceof RemoveAuthenticatedDataRequest) {
-                return new Result(false).alreadyRemoved();
+        if (request.isSignatureInvalid()) {
+            log.warn("Signature is invalid at refresh. request={}", request);
+            return new Result(false).signatureInvalid();
+        }
+
+        Lock lock = locks.get(byteArray);
+        lock.lock();
+        try {
+            AuthenticatedDataRequest requestFromMap = map.get(byteArray);
+            invalidResult = validateRefreshAgainstMap(request, requestFromMap);
+            if (invalidResult.isPresent()) {
+                return invalidResult.get();
             }
 
-            // At that point we know requestFromMap is an AddProtectedDataRequest
-            checkArgument(requestFromMap instanceof AddAuthenticatedDataRequest,
-                    "requestFromMap expected be type of AddAuthenticatedDataRequest");
             AddAuthenticatedDataRequest addRequestFromMap = (AddAuthenticatedDataRequest) requestFromMap;
-            // We have an entry, lets validate if we can remove it
             AuthenticatedSequentialData dataFromMap = addRequestFromMap.getAuthenticatedSequentialData();
-            if (request.isSequenceNrInvalid(dataFromMap.getSequenceNumber())) {
-                log.warn("SequenceNr is invalid at refresh. request={}", request);
-                // Sequence number has not increased
-                return new Result(false).sequenceNrInvalid();
-            }
-
-            if (request.isPublicKeyInvalid(dataFromMap)) {
-                log.warn("PublicKey is invalid at refresh. request={}", request);
-                // Hash of pubKey of data does not match provided one
-                return new Result(false).publicKeyHashInvalid();
-            }
-
-            if (request.isSignatureInvalid()) {
-                log.warn("Signature is invalid at refresh. request={}", request);
-                return new Result(false).signatureInvalid();
-            }
-
             AuthenticatedSequentialData updatedData = AuthenticatedSequentialData.from(dataFromMap, request.getSequenceNumber());
-            updatedRequest = new AddAuthenticatedDataRequest(updatedData,
+            AddAuthenticatedDataRequest updatedRequest = new AddAuthenticatedDataRequest(updatedData,
                     addRequestFromMap.getSignature(),
                     addRequestFromMap.getOwnerPublicKey());
 
-            map.put(byteArray, updatedRequest);
+            putEntry(byteArray, updatedRequest);
+            listeners.forEach(listener -> listener.onRefreshed(updatedData.getAuthenticatedData()));
+        } finally {
+            lock.unlock();
         }
         persist();
-        listeners.forEach(listener -> listener.onRefreshed(updatedRequest.getAuthenticatedSequentialData().getAuthenticatedData()));
         return new Result(true);
     }
 
@@ -247,32 +308,175 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
         listeners.remove(listener);
     }
 
-    @VisibleForTesting
-    public int getSequenceNumber(byte[] hash) {
-        ByteArray byteArray = new ByteArray(hash);
-        int sequenceNumber = 0;
+    /**
+     * Passes the data of all entries to the consumer. Each entry is checked against the live map while holding its
+     * lock, so data which got removed concurrently is skipped, and the consumer call is ordered with the listener
+     * calls for that entry.
+     */
+    public void forEachAuthenticatedData(Consumer<AuthenticatedData> consumer) {
         Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
-        synchronized (mapAccessLock) {
-            if (map.containsKey(byteArray)) {
-                sequenceNumber = map.get(byteArray).getSequenceNumber();
+        Set<ByteArray> keys = persistableStore.getClone().getMap().keySet();
+        keys.forEach(byteArray -> {
+            Lock lock = locks.get(byteArray);
+            lock.lock();
+            try {
+                AuthenticatedDataRequest requestFromMap = map.get(byteArray);
+                if (requestFromMap instanceof AddAuthenticatedDataRequest) {
+                    AddAuthenticatedDataRequest addRequest = (AddAuthenticatedDataRequest) requestFromMap;
+                    consumer.accept(addRequest.getAuthenticatedSequentialData().getAuthenticatedData());
+                }
+            } finally {
+                lock.unlock();
             }
-        }
-        return sequenceNumber;
+        });
+    }
+
+    @VisibleForTesting
+    public int getSequenceNumber(byte[] hash) {
+        AuthenticatedDataRequest requestFromMap = persistableStore.getMap().get(new ByteArray(hash));
+        return requestFromMap != null ? requestFromMap.getSequenceNumber() : 0;
     }
 
-    private void pruneExpired() {
+    @VisibleForTesting
+    public void pruneExpired() {
         Set<Map.Entry<ByteArray, AuthenticatedDataRequest>> expiredEntries = persistableStore.getMap().entrySet().stream()
                 .filter(entry -> entry.getValue().isExpired())
                 .collect(Collectors.toSet());
         if (!expiredEntries.isEmpty()) {
             log.info("We remove {} expired entries from our map", expiredEntries.size());
             expiredEntries.forEach(entry -> {
-                persistableStore.getMap().remove(entry.getKey());
-                if (entry.getValue() instanceof AddAuthenticatedDataRequest) {
-                    AuthenticatedData data = ((AddAuthenticatedDataRequest) entry.getValue()).getAuthenticatedSequentialData().getAuthenticatedData();
-                    listeners.forEach(listener -> listener.onRemoved(data));
+                Lock lock = locks.get(entry.getKey());
+                lock.lock();
+                try {
+                    // We only remove the entry if it has not been changed in the meantime
+                    if (!removeEntry(entry.getKey(), entry.getValue())) {
+                        return;
+                    }
+                    if (entry.getValue() instanceof AddAuthenticatedDataRequest) {
+                        AuthenticatedData data = ((AddAuthenticatedDataRequest) entry.getValue()).getAuthenticatedSequentialData().getAuthenticatedData();
+                        listeners.forEach(listener -> listener.onRemoved(data));
+                    }
+                } finally {
+                    lock.unlock();
                 }
             });
+            persist();
         }
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Validation against the map entry
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Those checks are cheap and are done before the stateless validation and again while holding the lock of the entry.
+
+    private Optional<Result> validateAddAgainstMap(AddAuthenticatedDataRequest request,
+                                                   @Nullable AuthenticatedDataRequest requestFromMap) {
+        if (persistableStore.getMap().size() > getMaxMapSize()) {
+            return Optional.of(new Result(false).maxMapSizeReached());
+        }
+        if (request.equals(requestFromMap)) {
+            return Optional.of(new Result(false).requestAlreadyReceived());
+        }
+        if (requestFromMap != null && request.getAuthenticatedSequentialData().isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
+            return Optional.of(new Result(false).sequenceNrInvalid());
+        }
+        return Optional.empty();
+    }
+
+    // Stateless validation, which does not depend on the map entry
+    private Optional<Result> validateAdd(AddAuthenticatedDataRequest request) {
+        AuthenticatedSequentialData authenticatedSequentialData = request.getAuthenticatedSequentialData();
+        AuthenticatedData authenticatedData = authenticatedSequentialData.getAuthenticatedData();
+        if (authenticatedSequentialData.isExpired()) {
+            log.info("Data is expired at add. request object={}",
+                    authenticatedData.getDistributedData().getClass().getSimpleName());
+            log.debug("Data is expired at add. request={}", request);
+            return Optional.of(new Result(false).expired());
+        }
+
+        if (authenticatedData.isDataInvalid(authenticatedSequentialData.getPubKeyHash())) {
+            log.warn("AuthenticatedData is invalid at add. request={}", request);
+            return Optional.of(new Result(false).dataInvalid());
+        }
+
+        if (authenticatedData instanceof AuthorizedData) {
+            AuthorizedData authorizedData = (AuthorizedData) authenticatedData;
+            if (authorizedData.isNotAuthorized()) {
+                log.warn("AuthorizedData is not authorized. request={}", request);
+                return Optional.of(new Result(false).isNotAuthorized());
+            }
+        }
+
+        if (request.isPublicKeyInvalid()) {
+            log.warn("PublicKey is invalid at add. request={}", request);
+            return Optional.of(new Result(false).publicKeyHashInvalid());
+        }
+
+        if (request.isSignatureInvalid()) {
+            log.warn("Signature is invalid at add. request={}", request);
+            return Optional.of(new Result(false).signatureInvalid());
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Result> validateRemoveAgainstMap(RemoveAuthenticatedDataRequest request,
+                                                      AddAuthenticatedDataRequest addRequestFromMap) {
+        // The metaData provided in the RemoveAuthenticatedDataRequest must be the same as we had in the AddAuthenticatedDataRequest
+        // The AddAuthenticatedDataRequest does use the metaData from the code base, not one provided by the message, thus it is trusted.
+        if (!request.getMetaData().equals(addRequestFromMap.getAuthenticatedSequentialData().getAuthenticatedData().getMetaData())) {
+            log.warn("MetaData of remove request not matching the one from the addRequest from the map. {} vs. {}",
+                    request.getMetaData(),
+                    addRequestFromMap.getAuthenticatedSequentialData().getAuthenticatedData().getMetaData());
+            return Optional.of(new Result(false).metaDataInvalid());
+        }
+
+        // We have an entry, lets validate if we can remove it
+        AuthenticatedSequentialData dataFromMap = addRequestFromMap.getAuthenticatedSequentialData();
+        if (request.isSequenceNrInvalid(dataFromMap.getSequenceNumber())) {
+            log.warn("SequenceNr has not increased at remove. request={}", request);
+            return Optional.of(new Result(false).sequenceNrInvalid());
+        }
+
+        if (request.isPublicKeyHashInvalid(dataFromMap)) {
+            log.warn("PublicKey hash is invalid at remove. request={}", request);
+            return Optional.of(new Result(false).publicKeyHashInvalid());
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Result> validateRefreshAgainstMap(RefreshAuthenticatedDataRequest request,
+                                                       @Nullable AuthenticatedDataRequest requestFromMap) {
+        if (requestFromMap == null) {
+            return Optional.of(new Result(false).noEntry());
+        }
+
+        if (requestFromMap instanceof RemoveAuthenticatedDataRequest) {
+            return Optional.of(new Result(false).alreadyRemoved());
+        }
+
+        // At that point we know requestFromMap is an AddProtectedDataRequest
+        checkArgument(requestFromMap instanceof AddAuthenticatedDataRequest,
+                "requestFromMap expected be type of AddAuthenticatedDataRequest");
+        AddAuthenticatedDataRequest addRequestFromMap = (AddAuthenticatedDataRequest) requestFromMap;
+        // We have an entry, lets validate if we can remove it
+        AuthenticatedSequentialData dataFromMap = addRequestFromMap.getAuthenticatedSequentialData();
+        if (request.isSequenceNrInvalid(dataFromMap.getSequenceNumber())) {
+            log.warn("SequenceNr is invalid at refresh. request={}", request);
+            // Sequence number has not increased
+            return Optional.of(new Result(false).sequenceNrInvalid());
+        }
+
+        if (request.isPublicKeyInvalid(dataFromMap)) {
+            log.warn("PublicKey is invalid at refresh. request={}", request);
+            // Hash of pubKey of data does not match provided one
+            return Optional.of(new Result(false).publicKeyHashInvalid());
+        }
+        return Optional.empty();
+    }
+
+    private static ByteArray getHash(AddAuthenticatedDataRequest request) {
+        return new ByteArray(DigestUtil.hash(request.getAuthenticatedSequentialData().getAuthenticatedData().serialize()));
+    }
 }
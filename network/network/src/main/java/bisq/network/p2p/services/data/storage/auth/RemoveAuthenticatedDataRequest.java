@@ -23,6 +23,7 @@ import bisq.network.p2p.services.data.RemoveDataRequest;
 import bisq.network.p2p.services.data.storage.MetaData;
 import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
+import bisq.security.PublicKeyCache;
 import bisq.security.SignatureUtil;
 import com.google.protobuf.ByteString;
 import lombok.EqualsAndHashCode;
@@ -154,7 +155,7 @@ public final class RemoveAuthenticatedDataRequest implements AuthenticatedDataRe
 
     public boolean isPublicKeyHashInvalid(AuthenticatedSequentialData entryFromMap) {
         try {
-            return !Arrays.equals(entryFromMap.getPubKeyHash(), DigestUtil.hash(ownerPublicKeyBytes));
+            return !Arrays.equals(entryFromMap.getPubKeyHash(), PublicKeyCache.getHash(ownerPublicKeyBytes));
         } catch (Exception e) {
             return true;
         }
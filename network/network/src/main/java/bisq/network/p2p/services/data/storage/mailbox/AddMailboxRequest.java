@@ -21,6 +21,7 @@ import bisq.common.validation.NetworkDataValidation;
 import bisq.network.p2p.services.data.AddDataRequest;
 import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
+import bisq.security.PublicKeyCache;
 import bisq.security.SignatureUtil;
 import com.google.protobuf.ByteString;
 import lombok.EqualsAndHashCode;
@@ -117,7 +118,7 @@ public final class AddMailboxRequest implements MailboxRequest, AddDataRequest {
     public boolean isPublicKeyInvalid() {
         try {
             return !Arrays.equals(mailboxSequentialData.getSenderPublicKeyHash(),
-                    DigestUtil.hash(senderPublicKeyBytes));
+                    PublicKeyCache.getHash(senderPublicKeyBytes));
         } catch (Exception e) {
             return true;
         }
@@ -20,19 +20,29 @@ package bisq.network.p2p.services.data.storage.mailbox;
 import bisq.common.data.ByteArray;
 import bisq.common.timer.Scheduler;
 import bisq.network.p2p.services.data.storage.DataStorageService;
+import bisq.network.p2p.services.data.storage.DataStore;
 import bisq.network.p2p.services.data.storage.Result;
 import bisq.persistence.PersistenceService;
 import bisq.security.DigestUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 public class MailboxDataStorageService extends DataStorageService<MailboxRequest> {
+    /**
+     * Listeners are called while holding the lock for the map access, so calls are in the order the changes have been
+     * applied to the map. Implementations must be thread safe and must not block.
+     */
     public interface Listener {
         void onAdded(MailboxData mailboxData);
 
@@ -41,10 +51,15 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
 
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private final Object mapAccessLock = new Object();
+    // Used for delivering the mailbox entries of given receivers without iterating the whole map
+    private final Map<ByteArray, Set<ByteArray>> hashesByReceiverTag = new ConcurrentHashMap<>();
     private final Scheduler scheduler;
 
-    public MailboxDataStorageService(PersistenceService persistenceService, String storeName, String storeKey) {
-        super(persistenceService, storeName, storeKey);
+    public MailboxDataStorageService(PersistenceService persistenceService,
+                                     String storeName,
+                                     String storeKey,
+                                     PersistenceMode persistenceMode) {
+        super(persistenceService, storeName, storeKey, persistenceMode);
         scheduler = Scheduler.run(this::pruneExpired).periodically(60, TimeUnit.SECONDS);
     }
 
@@ -54,6 +69,17 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
         scheduler.stop();
     }
 
+    @Override
+    public CompletableFuture<Optional<DataStore<MailboxRequest>>> readPersisted() {
+        return super.readPersisted().thenApply(result -> {
+            synchronized (mapAccessLock) {
+                hashesByReceiverTag.clear();
+                persistableStore.getMap().forEach(this::addToReceiverTagIndex);
+            }
+            return result;
+        });
+    }
+
     public Result add(AddMailboxRequest request) {
         MailboxSequentialData mailboxSequentialData = request.getMailboxSequentialData();
         MailboxData mailboxData = mailboxSequentialData.getMailboxData();
@@ -91,7 +117,10 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
             if (request.isSignatureInvalid()) {
                 return new Result(false).signatureInvalid();
             }
-            map.put(byteArray, request);
+            putEntry(byteArray, request);
+            if (requestFromMap == null) {
+                listeners.forEach(listener -> listener.onAdded(mailboxData));
+            }
         }
         persist();
 
@@ -100,8 +129,6 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
         if (requestFromMap != null) {
             return new Result(false).payloadAlreadyStored();
         }
-
-        listeners.forEach(listener -> listener.onAdded(mailboxData));
         return new Result(true);
     }
 
@@ -114,7 +141,7 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
             if (requestFromMap == null) {
                 // We don't have any entry, but it might be that we would receive later an add request, so we need to keep
                 // track of the sequence number
-                map.put(byteArray, request);
+                putEntry(byteArray, request);
                 persist();
                 return new Result(false).noEntry();
             }
@@ -123,7 +150,7 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
                 // We have had the entry already removed.
                 if (!request.isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
                     // We update the request, so we have the latest sequence number.
-                    map.put(byteArray, request);
+                    putEntry(byteArray, request);
                     persist();
                 }
                 return new Result(false).alreadyRemoved();
@@ -147,7 +174,7 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
                 return new Result(false).signatureInvalid();
             }
 
-            map.put(byteArray, request);
+            putEntry(byteArray, request);
             listeners.forEach(listener -> listener.onRemoved(sequentialDataFromMap.getMailboxData()));
         }
 
@@ -155,6 +182,19 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
         return new Result(true).removedData(sequentialDataFromMap.getMailboxData());
     }
 
+    /**
+     * @return The entries of the mailbox requests addressed to receivers matching one of the given tags.
+     */
+    public Stream<Map.Entry<ByteArray, MailboxRequest>> getEntriesByReceiverTags(Collection<ByteArray> receiverTags) {
+        Map<ByteArray, MailboxRequest> map = persistableStore.getMap();
+        return receiverTags.stream()
+                .distinct()
+                .flatMap(receiverTag -> hashesByReceiverTag.getOrDefault(receiverTag, Set.of()).stream())
+                .flatMap(hash -> Optional.ofNullable(map.get(hash))
+                        .map(request -> Map.entry(hash, request))
+                        .stream());
+    }
+
     public void addListener(Listener listener) {
         listeners.add(listener);
     }
@@ -180,6 +220,12 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
         return sequenceNumber;
     }
 
+    @Override
+    protected void putEntry(ByteArray key, MailboxRequest request) {
+        super.putEntry(key, request);
+        addToReceiverTagIndex(key, request);
+    }
+
     boolean contains(byte[] hash) {
         Map<ByteArray, MailboxRequest> map = persistableStore.getMap();
         synchronized (mapAccessLock) {
@@ -198,7 +244,27 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
                 .collect(Collectors.toSet());
         if (!expiredEntries.isEmpty()) {
             log.info("We remove {} expired entries from our map", expiredEntries.size());
-            expiredEntries.forEach(entry -> persistableStore.getMap().remove(entry.getKey()));
+            synchronized (mapAccessLock) {
+                expiredEntries.forEach(entry -> {
+                    // We only remove the entry if it has not been changed in the meantime
+                    if (removeEntry(entry.getKey(), entry.getValue())) {
+                        removeFromReceiverTagIndex(entry.getKey(), entry.getValue());
+                    }
+                });
+            }
+            persist();
         }
     }
+
+    private void addToReceiverTagIndex(ByteArray hash, MailboxRequest request) {
+        hashesByReceiverTag.computeIfAbsent(MailboxReceiverTag.from(request), tag -> ConcurrentHashMap.newKeySet())
+                .add(hash);
+    }
+
+    private void removeFromReceiverTagIndex(ByteArray hash, MailboxRequest request) {
+        hashesByReceiverTag.computeIfPresent(MailboxReceiverTag.from(request), (tag, hashes) -> {
+            hashes.remove(hash);
+            return hashes.isEmpty() ? null : hashes;
+        });
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.storage.mailbox;
+
+import bisq.common.data.ByteArray;
+import bisq.security.PublicKeyCache;
+
+import java.security.PublicKey;
+import java.util.Arrays;
+
+/**
+ * Short prefix of the hash of the receiver's public key. With 2 bytes there are 65536 tags, so a tag matches the
+ * mailbox entries of many receivers while it still reduces the delivered mailbox inventory to a small fraction.
+ */
+public final class MailboxReceiverTag {
+    public static final int TAG_LENGTH = 2;
+
+    public static ByteArray from(MailboxRequest mailboxRequest) {
+        if (mailboxRequest instanceof AddMailboxRequest) {
+            return fromPublicKeyBytes(((AddMailboxRequest) mailboxRequest).getMailboxSequentialData().getReceiversPubKeyBytes());
+        } else if (mailboxRequest instanceof RemoveMailboxRequest) {
+            return fromPublicKeyBytes(((RemoveMailboxRequest) mailboxRequest).getReceiverPublicKeyBytes());
+        } else {
+            throw new IllegalArgumentException("Unexpected mailboxRequest " + mailboxRequest.getClass().getSimpleName());
+        }
+    }
+
+    public static ByteArray fromPublicKey(PublicKey publicKey) {
+        return fromPublicKeyBytes(publicKey.getEncoded());
+    }
+
+    public static ByteArray fromPublicKeyBytes(byte[] encodedPublicKey) {
+        return new ByteArray(Arrays.copyOf(PublicKeyCache.getHash(encodedPublicKey), TAG_LENGTH));
+    }
+
+    private MailboxReceiverTag() {
+    }
+}
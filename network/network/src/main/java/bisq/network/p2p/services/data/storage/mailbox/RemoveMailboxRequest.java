@@ -22,6 +22,7 @@ import bisq.network.p2p.services.data.RemoveDataRequest;
 import bisq.network.p2p.services.data.storage.MetaData;
 import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
+import bisq.security.PublicKeyCache;
 import bisq.security.SignatureUtil;
 import com.google.protobuf.ByteString;
 import lombok.EqualsAndHashCode;
@@ -116,7 +117,7 @@ public final class RemoveMailboxRequest implements MailboxRequest, RemoveDataReq
     public boolean isPublicKeyHashInvalid(MailboxSequentialData mailboxSequentialData) {
         try {
             return !Arrays.equals(mailboxSequentialData.getReceiversPublicKeyHash(),
-                    DigestUtil.hash(receiverPublicKeyBytes));
+                    PublicKeyCache.getHash(receiverPublicKeyBytes));
         } catch (Exception e) {
             return true;
         }
@@ -17,15 +17,21 @@
 
 package bisq.network.p2p.services.monitor;
 
+import bisq.network.NetworkService;
 import bisq.network.p2p.node.Address;
 import bisq.network.p2p.node.Connection;
+import bisq.network.p2p.node.MessageMetricsRegistry;
+import bisq.network.p2p.node.NetworkEnvelopeSocketChannel;
 import bisq.network.p2p.node.Node;
+import bisq.network.p2p.node.authorization.AuthorizationService;
 import bisq.network.p2p.services.peergroup.Peer;
 import bisq.network.p2p.services.peergroup.PeerGroup;
 import bisq.network.p2p.services.peergroup.PeerGroupStore;
 
 import java.text.SimpleDateFormat;
 import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -69,6 +75,45 @@ public class MonitorService {
         return sb.append("\n").toString();
     }
 
+    /**
+     * Aggregated counters and latencies per message type of all connections in this JVM.
+     */
+    public String getMessageMetricsInfo() {
+        return MessageMetricsRegistry.GLOBAL.getMetricsAsString() + "\n" +
+                NetworkEnvelopeSocketChannel.BUFFER_POOL.getMetricsAsString() + "\n" +
+                getMessageDispatcherInfo() +
+                getReplayProtectionInfo();
+    }
+
+    /**
+     * Queue depth and latencies per shard of the executor dispatching the inbound messages.
+     */
+    public String getMessageDispatcherInfo() {
+        return NetworkService.MESSAGE_DISPATCHER.getMetricsAsString() + "\n";
+    }
+
+    /**
+     * Approximate heap usage of the replay protection state of the AuthorizationService, in total and per connection.
+     */
+    public String getReplayProtectionInfo() {
+        AuthorizationService authorizationService = node.getAuthorizationService();
+        Map<String, Long> memoryUseByConnectionId = authorizationService.getReplayProtectionMemoryUseByConnectionId();
+        Map<String, Address> peerAddressByConnectionId = node.getAllConnections()
+                .collect(Collectors.toMap(Connection::getId, Connection::getPeerAddress, (a, b) -> a));
+        StringBuilder sb = new StringBuilder("Replay protection:\n")
+                .append("Num connections with state: ")
+                .append(authorizationService.getNumConnectionsWithReplayProtectionState())
+                .append("\n").append("Total memory use: ")
+                .append(memoryUseByConnectionId.values().stream().mapToLong(Long::longValue).sum()).append(" bytes\n");
+        memoryUseByConnectionId.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> sb.append(Optional.ofNullable(peerAddressByConnectionId.get(entry.getKey()))
+                                .map(Address::toString)
+                                .orElse(entry.getKey()))
+                        .append(": ").append(entry.getValue()).append(" bytes\n"));
+        return sb.toString();
+    }
+
     private void appendConnectionInfo(StringBuilder sb, Connection connection, boolean isOutbound) {
         String date = " at " + new SimpleDateFormat("HH:mm:ss.SSS").format(connection.getMetrics().getCreationDate());
         String peerAddressVerified = connection.isPeerAddressVerified() ? " !]" : " ?]";
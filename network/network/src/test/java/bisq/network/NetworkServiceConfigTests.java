@@ -0,0 +1,61 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network;
+
+import bisq.common.threading.ExecutorFactory;
+import bisq.network.p2p.node.Node;
+import bisq.network.p2p.services.data.storage.DataStorageService;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NetworkServiceConfigTests {
+    @TempDir
+    Path baseDir;
+
+    @Test
+    void modesAreReadFromConfig() {
+        NetworkServiceConfig networkServiceConfig = NetworkServiceConfig.from(baseDir, getNetworkConfig());
+
+        assertThat(networkServiceConfig.getDataStorePersistenceMode()).isEqualTo(DataStorageService.PersistenceMode.JOURNAL);
+        assertThat(networkServiceConfig.getIoExecutorMode()).isEqualTo(ExecutorFactory.ExecutorMode.VIRTUAL_THREADS);
+        assertThat(networkServiceConfig.getNodeIoMode()).isEqualTo(Node.IoMode.NIO);
+    }
+
+    @Test
+    void defaultModesAreUsedIfNotSet() {
+        Config config = getNetworkConfig()
+                .withoutPath("dataStorePersistenceMode")
+                .withoutPath("ioExecutorMode")
+                .withoutPath("nodeIoMode");
+        NetworkServiceConfig networkServiceConfig = NetworkServiceConfig.from(baseDir, config);
+
+        assertThat(networkServiceConfig.getDataStorePersistenceMode()).isEqualTo(DataStorageService.PersistenceMode.SNAPSHOT);
+        assertThat(networkServiceConfig.getIoExecutorMode()).isEqualTo(ExecutorFactory.ExecutorMode.PLATFORM_THREADS);
+        assertThat(networkServiceConfig.getNodeIoMode()).isEqualTo(Node.IoMode.BLOCKING);
+    }
+
+    private static Config getNetworkConfig() {
+        return ConfigFactory.parseResources("network_service_config_tests.conf").getConfig("network");
+    }
+}
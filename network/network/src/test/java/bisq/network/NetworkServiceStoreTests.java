@@ -0,0 +1,64 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network;
+
+import bisq.network.p2p.node.Address;
+import bisq.network.p2p.node.Node;
+import bisq.network.p2p.node.transport.Transport;
+import bisq.security.KeyGeneration;
+import bisq.security.PubKey;
+import org.junit.jupiter.api.Test;
+
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NetworkServiceStoreTests {
+    @Test
+    void switchFromMultiplexedToIsolatedMode() throws GeneralSecurityException {
+        Map<Transport.Type, Address> defaultAddress = Map.of(Transport.Type.CLEAR, Address.localHost(1000));
+        Map<Transport.Type, Address> ownAddress = Map.of(Transport.Type.CLEAR, Address.localHost(2000));
+        NetworkServiceStore store = new NetworkServiceStore();
+        store.getNetworkIdByNodeId().put(Node.DEFAULT, createNetworkId(defaultAddress, Node.DEFAULT));
+        // Created in MULTIPLEXED mode
+        store.getNetworkIdByNodeId().put("alice", createNetworkId(defaultAddress, "alice"));
+        // Created in ISOLATED mode or published before MULTIPLEXED mode got enabled
+        store.getNetworkIdByNodeId().put("bob", createNetworkId(ownAddress, "bob"));
+
+        assertThat(store.hasDefaultNodeAddress(Node.DEFAULT)).isFalse();
+        assertThat(store.hasDefaultNodeAddress("alice")).isTrue();
+        assertThat(store.hasDefaultNodeAddress("bob")).isFalse();
+
+        assertThat(store.removeNetworkIdIfHasDefaultNodeAddress(Node.DEFAULT)).isFalse();
+        assertThat(store.removeNetworkIdIfHasDefaultNodeAddress("bob")).isFalse();
+        assertThat(store.removeNetworkIdIfHasDefaultNodeAddress("alice")).isTrue();
+        assertThat(store.getNetworkIdByNodeId()).containsOnlyKeys(Node.DEFAULT, "bob");
+
+        // After restart from the persisted store
+        NetworkServiceStore persisted = (NetworkServiceStore) NetworkServiceStore.fromProto(store.toProto());
+        assertThat(persisted.getNetworkIdByNodeId()).containsOnlyKeys(Node.DEFAULT, "bob");
+        assertThat(persisted.hasDefaultNodeAddress("bob")).isFalse();
+    }
+
+    private static NetworkId createNetworkId(Map<Transport.Type, Address> addressByNetworkType, String nodeId)
+            throws GeneralSecurityException {
+        PubKey pubKey = new PubKey(KeyGeneration.generateKeyPair().getPublic(), nodeId);
+        return new NetworkId(addressByNetworkType, pubKey, nodeId);
+    }
+}
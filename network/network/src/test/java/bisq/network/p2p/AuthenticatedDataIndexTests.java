@@ -0,0 +1,286 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.common.util.FileUtils;
+import bisq.network.p2p.services.data.DataService;
+import bisq.network.p2p.services.data.broadcast.Broadcaster;
+import bisq.network.p2p.services.data.storage.DistributedData;
+import bisq.network.p2p.services.data.storage.MetaData;
+import bisq.network.p2p.services.data.storage.StorageService;
+import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataIndex;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataStorageService;
+import bisq.network.p2p.services.data.storage.auth.DefaultAuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.RefreshAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.RemoveAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedDistributedData;
+import bisq.persistence.PersistenceService;
+import bisq.security.KeyGeneration;
+import com.google.protobuf.StringValue;
+import lombok.EqualsAndHashCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthenticatedDataIndexTests {
+    private static final long SHORT_TTL = 300;
+
+    @EqualsAndHashCode
+    private static final class MockProfileData implements DistributedData {
+        private final String profileId;
+        private final String text;
+        private final MetaData metaData;
+
+        private MockProfileData(String profileId, String text) {
+            this(profileId, text, MetaData.TTL_10_DAYS);
+        }
+
+        private MockProfileData(String profileId, String text, long ttl) {
+            this.profileId = profileId;
+            this.text = text;
+            metaData = new MetaData(ttl, getClass().getSimpleName(), MetaData.MAX_MAP_SIZE_10_000);
+        }
+
+        @Override
+        public StringValue toProto() {
+            return StringValue.of(profileId + ":" + text);
+        }
+
+        @Override
+        public MetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public boolean isDataInvalid(byte[] pubKeyHash) {
+            return false;
+        }
+    }
+
+    @EqualsAndHashCode
+    private static final class MockOtherData implements DistributedData {
+        private final String text;
+        private final MetaData metaData = new MetaData(MetaData.TTL_10_DAYS, getClass().getSimpleName(), MetaData.MAX_MAP_SIZE_10_000);
+
+        private MockOtherData(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public StringValue toProto() {
+            return StringValue.of(text);
+        }
+
+        @Override
+        public MetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public boolean isDataInvalid(byte[] pubKeyHash) {
+            return false;
+        }
+    }
+
+    private final Path tmpDir = FileUtils.createTempDir();
+    private final StorageService storageService;
+    private final DataService dataService;
+    private final KeyPair keyPair;
+
+    public AuthenticatedDataIndexTests() throws Exception {
+        PersistenceService persistenceService = new PersistenceService(tmpDir.toAbsolutePath().toString());
+        storageService = new StorageService(persistenceService);
+        dataService = new DataService(storageService, new Broadcaster.Config());
+        keyPair = KeyGeneration.generateKeyPair();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataService.shutdown();
+    }
+
+    @Test
+    void indexFollowsAddAndRemove() throws Exception {
+        AuthenticatedData alice1 = new DefaultAuthenticatedData(new MockProfileData("alice", "1"));
+        AuthenticatedData alice2 = new DefaultAuthenticatedData(new MockProfileData("alice", "2"));
+        AuthenticatedData bob1 = new DefaultAuthenticatedData(new MockProfileData("bob", "1"));
+        // Data without a key is not indexed
+        AuthenticatedData noKey = new DefaultAuthenticatedData(new MockProfileData("", "1"));
+
+        add(alice1);
+        AuthenticatedDataIndex<String> index = dataService.addIndex(MockProfileData.class, AuthenticatedDataIndexTests::getProfileId);
+        // Existing data is indexed at creation
+        assertThat(index.get("alice")).containsExactly(alice1);
+
+        add(alice2);
+        add(bob1);
+        add(noKey);
+        assertThat(index.get("alice")).containsExactlyInAnyOrder(alice1, alice2);
+        assertThat(index.get("bob")).containsExactly(bob1);
+        assertThat(index.getKeys()).containsExactlyInAnyOrder("alice", "bob");
+        assertIndexMatchesStore(index);
+
+        remove(alice1);
+        assertThat(index.get("alice")).containsExactly(alice2);
+        assertIndexMatchesStore(index);
+
+        remove(alice2);
+        assertThat(index.containsKey("alice")).isFalse();
+        assertThat(index.get("alice")).isEmpty();
+        assertIndexMatchesStore(index);
+
+        // A removed index is not updated anymore
+        dataService.removeIndex(index);
+        add(new DefaultAuthenticatedData(new MockProfileData("carol", "1")));
+        assertThat(index.containsKey("carol")).isFalse();
+    }
+
+    @Test
+    void indexFollowsRefreshAndExpiryPrune() throws Exception {
+        AuthenticatedData alice = new DefaultAuthenticatedData(new MockProfileData("alice", "1"));
+        AuthenticatedData expiringAlice = new DefaultAuthenticatedData(new MockProfileData("alice", "2", SHORT_TTL));
+        AuthenticatedData expiringBob = new DefaultAuthenticatedData(new MockProfileData("bob", "1", SHORT_TTL));
+        AuthenticatedDataIndex<String> index = dataService.addIndex(MockProfileData.class, AuthenticatedDataIndexTests::getProfileId);
+        add(alice);
+        add(expiringAlice);
+        add(expiringBob);
+        assertThat(index.get("alice")).containsExactlyInAnyOrder(alice, expiringAlice);
+
+        // A refresh does not change the data, so the index stays the same
+        AuthenticatedDataStorageService store = getStore(MockProfileData.class);
+        assertThat(store.refresh(RefreshAuthenticatedDataRequest.from(store, alice, keyPair)).isSuccess()).isTrue();
+        assertThat(index.get("alice")).containsExactlyInAnyOrder(alice, expiringAlice);
+        assertIndexMatchesStore(index);
+
+        Thread.sleep(SHORT_TTL + 100);
+        store.pruneExpired();
+        assertThat(index.get("alice")).containsExactly(alice);
+        assertThat(index.containsKey("bob")).isFalse();
+        assertIndexMatchesStore(index);
+    }
+
+    @Test
+    void dataRemovedWhileCreatingIndexIsNotIndexed() throws Exception {
+        List<AuthenticatedData> dataList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            AuthenticatedData data = new DefaultAuthenticatedData(new MockProfileData("alice", String.valueOf(i)));
+            add(data);
+            dataList.add(data);
+        }
+
+        // When the first entry gets indexed, we remove another entry which has not been indexed yet
+        AtomicBoolean removeTriggered = new AtomicBoolean();
+        AtomicReference<CompletableFuture<Void>> removeFuture = new AtomicReference<>();
+        AuthenticatedDataIndex<String> index = dataService.addIndex(MockProfileData.class, distributedData -> {
+            if (removeTriggered.compareAndSet(false, true)) {
+                AuthenticatedData other = dataList.stream()
+                        .filter(data -> !data.getDistributedData().equals(distributedData))
+                        .findFirst()
+                        .orElseThrow();
+                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                    try {
+                        remove(other);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                removeFuture.set(future);
+                try {
+                    // The remove blocks if the entry shares the lock stripe with the entry we are indexing
+                    future.get(1, TimeUnit.SECONDS);
+                } catch (Exception ignore) {
+                }
+            }
+            return getProfileId(distributedData);
+        });
+        removeFuture.get().get(30, TimeUnit.SECONDS);
+
+        assertThat(index.get("alice")).hasSize(dataList.size() - 1);
+        assertIndexMatchesStore(index);
+    }
+
+    @Test
+    void getAuthenticatedDataByClassReturnsExactlyStoredInstances() throws Exception {
+        AuthenticatedData profile1 = new DefaultAuthenticatedData(new MockProfileData("alice", "1"));
+        AuthenticatedData profile2 = new DefaultAuthenticatedData(new MockProfileData("bob", "1"));
+        AuthenticatedData other1 = new DefaultAuthenticatedData(new MockOtherData("1"));
+        AuthenticatedData other2 = new DefaultAuthenticatedData(new MockOtherData("2"));
+        add(profile1);
+        add(profile2);
+        add(other1);
+        add(other2);
+        remove(other2);
+
+        assertThat(dataService.getAuthenticatedData(MockProfileData.class)).containsExactlyInAnyOrder(profile1, profile2);
+        assertThat(dataService.getAuthenticatedData(MockOtherData.class)).containsExactly(other1);
+        assertThat(dataService.getAuthenticatedData(DistributedData.class)).isEmpty();
+        assertThat(dataService.getAuthorizedData(AuthorizedDistributedData.class)).isEmpty();
+    }
+
+    private static String getProfileId(DistributedData distributedData) {
+        String profileId = ((MockProfileData) distributedData).profileId;
+        return profileId.isEmpty() ? null : profileId;
+    }
+
+    private void add(AuthenticatedData authenticatedData) throws Exception {
+        AuthenticatedDataStorageService store = getStore(authenticatedData.getDistributedData().getClass());
+        assertThat(storageService.onAddDataRequest(AddAuthenticatedDataRequest.from(store, authenticatedData, keyPair)).join())
+                .isPresent();
+    }
+
+    private void remove(AuthenticatedData authenticatedData) throws Exception {
+        AuthenticatedDataStorageService store = getStore(authenticatedData.getDistributedData().getClass());
+        assertThat(storageService.onRemoveDataRequest(RemoveAuthenticatedDataRequest.from(store, authenticatedData, keyPair)).join())
+                .isPresent();
+    }
+
+    private AuthenticatedDataStorageService getStore(Class<? extends DistributedData> distributedDataClass) {
+        return storageService.getOrCreateAuthenticatedDataStore(distributedDataClass.getSimpleName()).join();
+    }
+
+    private void assertIndexMatchesStore(AuthenticatedDataIndex<String> index) {
+        Map<String, Set<AuthenticatedData>> expected = new HashMap<>();
+        dataService.getAuthenticatedData(MockProfileData.class)
+                .forEach(data -> {
+                    String key = getProfileId(data.getDistributedData());
+                    if (key != null) {
+                        expected.computeIfAbsent(key, k -> new HashSet<>()).add(data);
+                    }
+                });
+        Map<String, Set<AuthenticatedData>> actual = index.getKeys().stream()
+                .collect(Collectors.toMap(key -> key, index::get));
+        assertThat(actual).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.common.data.ByteArray;
+import bisq.common.proto.UnresolvableProtobufMessageException;
+import bisq.common.util.FileUtils;
+import bisq.network.p2p.services.data.storage.DataStorageService;
+import bisq.network.p2p.services.data.storage.DistributedData;
+import bisq.network.p2p.services.data.storage.DistributedDataResolver;
+import bisq.network.p2p.services.data.storage.MetaData;
+import bisq.network.p2p.services.data.storage.Result;
+import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataStorageService;
+import bisq.network.p2p.services.data.storage.auth.DefaultAuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.RemoveAuthenticatedDataRequest;
+import bisq.persistence.PersistenceService;
+import bisq.security.KeyGeneration;
+import com.google.protobuf.Any;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.StringValue;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+public class AuthenticatedDataStorageServiceTests {
+    private static final int NUM_THREADS = 8;
+
+    private static final String EXPIRING_PREFIX = "expiring";
+    private static final long SHORT_TTL = 300;
+
+    @EqualsAndHashCode
+    private static final class MockDistributedData implements DistributedData {
+        private final String text;
+        private final MetaData metaData;
+
+        private MockDistributedData(String text) {
+            this.text = text;
+            // The TTL is derived from the text so that it is preserved when resolved from the proto
+            long ttl = text.startsWith(EXPIRING_PREFIX) ? SHORT_TTL : MetaData.TTL_10_DAYS;
+            metaData = new MetaData(ttl, getClass().getSimpleName(), MetaData.MAX_MAP_SIZE_10_000);
+        }
+
+        private static MockDistributedData fromAny(Any any) {
+            try {
+                return new MockDistributedData(any.unpack(StringValue.class).getValue());
+            } catch (InvalidProtocolBufferException e) {
+                throw new UnresolvableProtobufMessageException(e);
+            }
+        }
+
+        @Override
+        public StringValue toProto() {
+            return StringValue.of(text);
+        }
+
+        @Override
+        public MetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public boolean isDataInvalid(byte[] pubKeyHash) {
+            return false;
+        }
+    }
+
+    private final Path tmpDir = FileUtils.createTempDir();
+    private final AuthenticatedDataStorageService store;
+    private final KeyPair keyPair;
+    private final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    private final AtomicInteger numAdded = new AtomicInteger();
+    private final AtomicInteger numRemoved = new AtomicInteger();
+    private final List<Integer> addedAllBatchSizes = new CopyOnWriteArrayList<>();
+
+    public AuthenticatedDataStorageServiceTests() throws Exception {
+        PersistenceService persistenceService = new PersistenceService(tmpDir.toAbsolutePath().toString());
+        store = new AuthenticatedDataStorageService(persistenceService,
+                "AuthenticatedDataStore",
+                "MockDistributedData",
+                DataStorageService.PersistenceMode.SNAPSHOT);
+        store.addListener(new AuthenticatedDataStorageService.Listener() {
+            @Override
+            public void onAdded(AuthenticatedData authenticatedData) {
+                numAdded.incrementAndGet();
+            }
+
+            @Override
+            public void onAddedAll(List<AuthenticatedData> authenticatedDataList) {
+                addedAllBatchSizes.add(authenticatedDataList.size());
+                numAdded.addAndGet(authenticatedDataList.size());
+            }
+
+            @Override
+            public void onRemoved(AuthenticatedData authenticatedData) {
+                numRemoved.incrementAndGet();
+            }
+        });
+        keyPair = KeyGeneration.generateKeyPair();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        store.shutdown();
+    }
+
+    @Test
+    void concurrentDuplicatesAreAcceptedOnce() throws Exception {
+        int numData = 200;
+        List<AuthenticatedData> dataList = createData(numData);
+        List<AddAuthenticatedDataRequest> addRequests = new ArrayList<>();
+        for (AuthenticatedData data : dataList) {
+            addRequests.add(AddAuthenticatedDataRequest.from(store, data, keyPair));
+        }
+
+        // Each request is sent by all threads concurrently
+        int numSuccess = submitByAllThreads(addRequests, store::add);
+        assertThat(numSuccess).isEqualTo(numData);
+        assertThat(numAdded.get()).isEqualTo(numData);
+        assertThat(store.getPersistableStore().getMap()).hasSize(numData);
+
+        List<RemoveAuthenticatedDataRequest> removeRequests = new ArrayList<>();
+        for (AuthenticatedData data : dataList) {
+            removeRequests.add(RemoveAuthenticatedDataRequest.from(store, data, keyPair));
+        }
+        numSuccess = submitByAllThreads(removeRequests, store::remove);
+        assertThat(numSuccess).isEqualTo(numData);
+        assertThat(numRemoved.get()).isEqualTo(numData);
+        assertThat(store.getPersistableStore().getMap().values())
+                .allMatch(request -> request instanceof RemoveAuthenticatedDataRequest);
+
+        // Re-adding with the old sequence number must fail
+        numSuccess = submitByAllThreads(addRequests, store::add);
+        assertThat(numSuccess).isZero();
+        assertThat(numAdded.get()).isEqualTo(numData);
+    }
+
+    @Test
+    void concurrentAddAndRemoveOfSameData() throws Exception {
+        int numData = 200;
+        List<AuthenticatedData> dataList = createData(numData);
+        List<AddAuthenticatedDataRequest> addRequests = new ArrayList<>();
+        List<RemoveAuthenticatedDataRequest> removeRequests = new ArrayList<>();
+        for (AuthenticatedData data : dataList) {
+            addRequests.add(AddAuthenticatedDataRequest.from(store, data, keyPair));
+            // Sequence number 1 as well, so the remove is only accepted if it is applied before the add
+            removeRequests.add(RemoveAuthenticatedDataRequest.from(store, data, keyPair));
+        }
+
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < numData; i++) {
+            AddAuthenticatedDataRequest addRequest = addRequests.get(i);
+            RemoveAuthenticatedDataRequest removeRequest = removeRequests.get(i);
+            futures.add(executor.submit(() -> store.add(addRequest)));
+            futures.add(executor.submit(() -> store.remove(removeRequest)));
+        }
+        for (Future<Result> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        // Either the add or the remove got applied first, in both cases the other one gets rejected.
+        // The listener calls must match the resulting map entries.
+        long numAddEntries = store.getPersistableStore().getMap().values().stream()
+                .filter(request -> request instanceof AddAuthenticatedDataRequest)
+                .count();
+        assertThat(store.getPersistableStore().getMap()).hasSize(numData);
+        assertThat(numAdded.get()).isEqualTo(numAddEntries);
+        assertThat(numRemoved.get()).isZero();
+    }
+
+    @Test
+    void addAllDropsKnownAndDuplicatedRequests() throws Exception {
+        int numData = 100;
+        List<AuthenticatedData> dataList = createData(numData);
+        List<AddAuthenticatedDataRequest> addRequests = new ArrayList<>();
+        for (AuthenticatedData data : dataList) {
+            addRequests.add(AddAuthenticatedDataRequest.from(store, data, keyPair));
+        }
+        // The first 10 are already in the store
+        addRequests.subList(0, 10).forEach(store::add);
+
+        List<AddAuthenticatedDataRequest> batch = new ArrayList<>(addRequests);
+        batch.addAll(addRequests.subList(50, 60));
+        AddAuthenticatedDataRequest validRequest = AddAuthenticatedDataRequest.from(store,
+                new DefaultAuthenticatedData(new MockDistributedData("other")), keyPair);
+        // Signature does not match the data
+        AddAuthenticatedDataRequest invalidRequest = new AddAuthenticatedDataRequest(
+                AddAuthenticatedDataRequest.from(store, new DefaultAuthenticatedData(new MockDistributedData("invalid")), keyPair)
+                        .getAuthenticatedSequentialData(),
+                validRequest.getSignature(),
+                keyPair.getPublic());
+        batch.add(invalidRequest);
+
+        List<AuthenticatedData> added = store.addAll(batch, executor).get(30, TimeUnit.SECONDS);
+        assertThat(added).hasSize(numData - 10);
+        assertThat(numAdded.get()).isEqualTo(numData);
+        // The listeners get notified once for the whole batch
+        assertThat(addedAllBatchSizes).containsExactly(numData - 10);
+        assertThat(store.getPersistableStore().getMap()).hasSize(numData);
+    }
+
+    @Test
+    void expiredEntriesArePrunedFromJournal() throws Exception {
+        DistributedDataResolver.addResolver("google.protobuf.StringValue", MockDistributedData::fromAny);
+        Path journalDir = FileUtils.createTempDir();
+        AuthenticatedDataStorageService journalStore = createJournalStore(journalDir);
+        AuthenticatedData dataA = new DefaultAuthenticatedData(new MockDistributedData("data-a"));
+        AuthenticatedData dataB = new DefaultAuthenticatedData(new MockDistributedData("data-b"));
+        AuthenticatedData dataC = new DefaultAuthenticatedData(new MockDistributedData(EXPIRING_PREFIX + "-c"));
+        assertThat(journalStore.add(AddAuthenticatedDataRequest.from(journalStore, dataA, keyPair)).isSuccess()).isTrue();
+        assertThat(journalStore.add(AddAuthenticatedDataRequest.from(journalStore, dataB, keyPair)).isSuccess()).isTrue();
+        assertThat(journalStore.add(AddAuthenticatedDataRequest.from(journalStore, dataC, keyPair)).isSuccess()).isTrue();
+        assertThat(journalStore.remove(RemoveAuthenticatedDataRequest.from(journalStore, dataB, keyPair)).isSuccess()).isTrue();
+
+        Thread.sleep(SHORT_TTL + 100);
+        journalStore.pruneExpired();
+        assertThat(journalStore.getPersistableStore().getMap()).hasSize(2);
+        journalStore.shutdown();
+
+        // Restart: the state is restored from the journal only, as no compaction has happened yet
+        AuthenticatedDataStorageService restoredStore = createJournalStore(journalDir);
+        try {
+            restoredStore.readPersisted().join();
+            Map<ByteArray, AuthenticatedDataRequest> map = restoredStore.getPersistableStore().getMap();
+            assertThat(map).hasSize(2);
+            assertThat(map.values()).filteredOn(request -> request instanceof AddAuthenticatedDataRequest)
+                    .singleElement()
+                    .extracting(request -> ((AddAuthenticatedDataRequest) request).getAuthenticatedSequentialData().getAuthenticatedData())
+                    .isEqualTo(dataA);
+            assertThat(map.values()).filteredOn(request -> request instanceof RemoveAuthenticatedDataRequest)
+                    .hasSize(1);
+        } finally {
+            restoredStore.shutdown();
+        }
+    }
+
+    private AuthenticatedDataStorageService createJournalStore(Path dir) {
+        PersistenceService persistenceService = new PersistenceService(dir.toAbsolutePath().toString());
+        return new AuthenticatedDataStorageService(persistenceService,
+                "AuthenticatedDataStore",
+                "MockDistributedData",
+                DataStorageService.PersistenceMode.JOURNAL);
+    }
+
+    private List<AuthenticatedData> createData(int numData) {
+        List<AuthenticatedData> dataList = new ArrayList<>();
+        for (int i = 0; i < numData; i++) {
+            dataList.add(new DefaultAuthenticatedData(new MockDistributedData("data-" + i)));
+        }
+        return dataList;
+    }
+
+    private <T> int submitByAllThreads(List<T> requests, Function<T, Result> handler) throws Exception {
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                int numSuccess = 0;
+                for (T request : requests) {
+                    if (handler.apply(request).isSuccess()) {
+                        numSuccess++;
+                    }
+                }
+                return numSuccess;
+            }));
+        }
+        startLatch.countDown();
+        int numSuccess = 0;
+        for (Future<Integer> future : futures) {
+            numSuccess += future.get(60, TimeUnit.SECONDS);
+        }
+        return numSuccess;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.common.util.ByteArrayUtils;
+import bisq.common.util.FileUtils;
+import bisq.network.p2p.node.Address;
+import bisq.network.p2p.node.Capability;
+import bisq.network.p2p.node.ConnectionHandshake;
+import bisq.network.p2p.node.Feature;
+import bisq.network.p2p.node.Load;
+import bisq.network.p2p.node.authorization.AuthorizationService;
+import bisq.network.p2p.node.authorization.AuthorizationToken;
+import bisq.network.p2p.node.transport.Transport;
+import bisq.persistence.PersistenceService;
+import bisq.security.DigestUtil;
+import bisq.security.KeyGeneration;
+import bisq.security.SecurityService;
+import bisq.security.SignatureUtil;
+import bisq.security.pow.ProofOfWork;
+import bisq.security.pow.ProofOfWorkService;
+import com.google.common.base.Charsets;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthorizationServiceTests {
+    private final Path tmpDir = FileUtils.createTempDir();
+    private final ProofOfWorkService proofOfWorkService;
+    private final AuthorizationService authorizationService;
+    private final ConnectionHandshake.Request message;
+    private final KeyPair keyPair;
+    private final String peerA = Address.localHost(2000).getFullAddress();
+    private final String peerB = Address.localHost(3000).getFullAddress();
+    private final Capability peerACapability = new Capability(Address.localHost(2000),
+            List.of(Transport.Type.CLEAR),
+            Feature.getSupportedFeatures());
+    private final Capability peerBCapability = new Capability(Address.localHost(3000),
+            List.of(Transport.Type.CLEAR),
+            Feature.getSupportedFeatures());
+
+    public AuthorizationServiceTests() throws IOException, GeneralSecurityException {
+        PersistenceService persistenceService = new PersistenceService(tmpDir.toAbsolutePath().toString());
+        SecurityService securityService = new SecurityService(persistenceService);
+        securityService.initialize();
+        proofOfWorkService = securityService.getProofOfWorkService();
+        authorizationService = new AuthorizationService(proofOfWorkService);
+        Capability capability = new Capability(Address.localHost(1234),
+                List.of(Transport.Type.CLEAR),
+                Feature.getSupportedFeatures());
+        message = new ConnectionHandshake.Request(capability, Load.INITIAL_LOAD);
+        keyPair = KeyGeneration.generateKeyPair();
+    }
+
+    @Test
+    void reusableTokenIsMintedOncePerMessage() {
+        AuthorizationToken tokenA = authorizationService.createToken(message, Load.INITIAL_LOAD, peerA, 1, peerACapability, keyPair);
+        AuthorizationToken tokenB = authorizationService.createToken(message, Load.INITIAL_LOAD, peerB, 1, peerBCapability, keyPair);
+
+        assertThat(tokenA.hasReusableProofOfWork()).isTrue();
+        assertThat(tokenA.getProofOfWork()).isEqualTo(tokenB.getProofOfWork());
+        assertThat(tokenA.getSignature()).isNotEqualTo(tokenB.getSignature());
+        assertThat(authorizationService.getNumMintedProofsOfWork().get()).isEqualTo(1);
+        assertThat(authorizationService.getProofOfWorkCacheStats().hitCount()).isEqualTo(1);
+
+        assertThat(authorizationService.isAuthorized(message, tokenA, Load.INITIAL_LOAD, "connectionA", peerA)).isTrue();
+        assertThat(authorizationService.isAuthorized(message, tokenB, Load.INITIAL_LOAD, "connectionB", peerB)).isTrue();
+    }
+
+    @Test
+    void reusableTokenIsBoundToPeerAndConnection() {
+        AuthorizationToken token = authorizationService.createReusableToken(message, Load.INITIAL_LOAD, peerA, 1, keyPair);
+
+        // Token created for peerA is not valid for peerB
+        assertThat(authorizationService.isAuthorized(message, token, Load.INITIAL_LOAD, "connectionB", peerB)).isFalse();
+
+        assertThat(authorizationService.isAuthorized(message, token, Load.INITIAL_LOAD, "connectionA", peerA)).isTrue();
+
+        // Same pow with a new messageCounter at the same connection is rejected
+        AuthorizationToken replayedToken = authorizationService.createReusableToken(message, Load.INITIAL_LOAD, peerA, 2, keyPair);
+        assertThat(authorizationService.isAuthorized(message, replayedToken, Load.INITIAL_LOAD, "connectionA", peerA)).isFalse();
+    }
+
+    @Test
+    void receiverCannotReuseProofOfWorkOfReceivedToken() throws GeneralSecurityException {
+        // peerA received the token and tries to forward the message with the senders pow to peerB
+        AuthorizationToken token = authorizationService.createReusableToken(message, Load.INITIAL_LOAD, peerA, 1, keyPair);
+        ProofOfWork proofOfWork = token.getProofOfWork();
+        KeyPair peerAKeyPair = KeyGeneration.generateKeyPair();
+
+        // Signed with its own key, but the pow challenge is bound to the key of the sender
+        byte[] peerASignature = SignatureUtil.sign(getSignatureData(proofOfWork, peerB, 1), peerAKeyPair.getPrivate());
+        AuthorizationToken forgedWithOwnKey = new AuthorizationToken(proofOfWork, 1,
+                peerAKeyPair.getPublic().getEncoded(), peerASignature);
+        assertThat(authorizationService.isAuthorized(message, forgedWithOwnKey, Load.INITIAL_LOAD, "connectionB", peerB)).isFalse();
+
+        // Using the senders public key, but it cannot create the senders signature
+        AuthorizationToken forgedWithSendersKey = new AuthorizationToken(proofOfWork, 1,
+                keyPair.getPublic().getEncoded(), peerASignature);
+        assertThat(authorizationService.isAuthorized(message, forgedWithSendersKey, Load.INITIAL_LOAD, "connectionB", peerB)).isFalse();
+
+        // Using the original token for peerB
+        assertThat(authorizationService.isAuthorized(message, token, Load.INITIAL_LOAD, "connectionB", peerB)).isFalse();
+    }
+
+    @Test
+    void sendingToBaselineVerifier() {
+        // A baseline peer does not announce any features at the handshake
+        Capability baselinePeerCapability = new Capability(Address.localHost(4000), List.of(Transport.Type.CLEAR));
+        String baselinePeer = baselinePeerCapability.getAddress().getFullAddress();
+
+        AuthorizationToken token = authorizationService.createToken(message, Load.INITIAL_LOAD, baselinePeer, 1, baselinePeerCapability, keyPair);
+        assertThat(token.hasReusableProofOfWork()).isFalse();
+        // The baseline verifier does not know our features field, so it does not get parsed and is not part of the
+        // serialized message when the baseline verifier calculates the payload.
+        byte[] baselinePayload = message.toProto().toBuilder()
+                .setConnectionHandshakeRequest(message.toProto().getConnectionHandshakeRequest().toBuilder().clearFeatures())
+                .build()
+                .toByteArray();
+        assertThat(message.toProto().getConnectionHandshakeRequest().getFeaturesCount()).isEqualTo(1);
+        assertThat(isAuthorizedByBaselineVerifier(baselinePayload, token, baselinePeer)).isTrue();
+        // Our verifier accepts the token as well
+        assertThat(authorizationService.isAuthorized(message, token, Load.INITIAL_LOAD, "connection", baselinePeer)).isTrue();
+
+        // A reusable token would be rejected by the baseline verifier
+        AuthorizationToken reusableToken = authorizationService.createReusableToken(message, Load.INITIAL_LOAD, baselinePeer, 2, keyPair);
+        assertThat(isAuthorizedByBaselineVerifier(baselinePayload, reusableToken, baselinePeer)).isFalse();
+    }
+
+    @Test
+    void featuresAreExchangedAtHandshake() {
+        ConnectionHandshake.Request parsed = ConnectionHandshake.Request.fromProto(message.toProto().getConnectionHandshakeRequest());
+        assertThat(parsed.getCapability().hasFeature(Feature.REUSABLE_AUTHORIZATION_TOKEN)).isTrue();
+        assertThat(parsed.getAuthorizationPayload()).isEqualTo(message.getAuthorizationPayload());
+
+        // A request of a baseline peer has no features
+        bisq.network.protobuf.ConnectionHandshake.Request baselineProto = message.toProto().getConnectionHandshakeRequest()
+                .toBuilder()
+                .clearFeatures()
+                .build();
+        ConnectionHandshake.Request baselineRequest = ConnectionHandshake.Request.fromProto(baselineProto);
+        assertThat(baselineRequest.getCapability().hasFeature(Feature.REUSABLE_AUTHORIZATION_TOKEN)).isFalse();
+        assertThat(baselineRequest.getAuthorizationPayload()).isEqualTo(message.getAuthorizationPayload());
+    }
+
+    // Verification of the version before reusable tokens got supported
+    private boolean isAuthorizedByBaselineVerifier(byte[] payload, AuthorizationToken token, String myAddress) {
+        ProofOfWork proofOfWork = token.getProofOfWork();
+        byte[] challenge = DigestUtil.sha256(ByteArrayUtils.concat(myAddress.getBytes(Charsets.UTF_8),
+                BigInteger.valueOf(token.getMessageCounter()).toByteArray()));
+        return Arrays.equals(payload, proofOfWork.getPayload()) &&
+                Arrays.equals(challenge, proofOfWork.getChallenge()) &&
+                proofOfWorkService.verify(proofOfWork);
+    }
+
+    private byte[] getSignatureData(ProofOfWork proofOfWork, String peerAddress, int messageCounter) {
+        return ByteArrayUtils.concat(proofOfWork.getSolution(),
+                peerAddress.getBytes(Charsets.UTF_8),
+                BigInteger.valueOf(messageCounter).toByteArray());
+    }
+}
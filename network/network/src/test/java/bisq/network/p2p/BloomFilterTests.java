@@ -0,0 +1,81 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.network.p2p.services.data.filter.BloomFilter;
+import bisq.network.p2p.services.data.filter.DataFilter;
+import bisq.network.p2p.services.data.filter.FilterEntry;
+import bisq.security.DigestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BloomFilterTests {
+    @Test
+    void noFalseNegatives() {
+        List<FilterEntry> filterEntries = createFilterEntries(0, 1000);
+        DataFilter dataFilter = DataFilter.createWithBloomFilter(filterEntries);
+
+        filterEntries.forEach(filterEntry -> assertThat(dataFilter.contains(filterEntry)).isTrue());
+
+        // Same hash with another sequence number is a different entry
+        long numFound = filterEntries.stream()
+                .map(filterEntry -> new FilterEntry(filterEntry.getHash(), filterEntry.getSequenceNumber() + 1))
+                .filter(dataFilter::contains)
+                .count();
+        assertThat(numFound).isLessThan(20);
+    }
+
+    @Test
+    void falsePositiveRate() {
+        List<FilterEntry> filterEntries = createFilterEntries(0, 10_000);
+        BloomFilter bloomFilter = BloomFilter.create(filterEntries, 0.01, 42);
+
+        long numFalsePositives = createFilterEntries(10_000, 20_000).stream()
+                .filter(bloomFilter::mightContain)
+                .count();
+        // Expected are about 100
+        assertThat(numFalsePositives).isLessThan(200);
+    }
+
+    @Test
+    void protoRoundTrip() {
+        DataFilter dataFilter = DataFilter.createWithBloomFilter(createFilterEntries(0, 100));
+        DataFilter fromProto = DataFilter.fromProto(dataFilter.toProto());
+        assertThat(fromProto).isEqualTo(dataFilter);
+        assertThat(fromProto.getFilterEntries()).isEmpty();
+
+        DataFilter exactDataFilter = new DataFilter(createFilterEntries(0, 100));
+        assertThat(DataFilter.fromProto(exactDataFilter.toProto())).isEqualTo(exactDataFilter);
+        assertThat(exactDataFilter.contains(createFilterEntries(5, 6).get(0))).isTrue();
+        assertThat(exactDataFilter.contains(createFilterEntries(100, 101).get(0))).isFalse();
+    }
+
+    private static List<FilterEntry> createFilterEntries(int from, int to) {
+        List<FilterEntry> filterEntries = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            byte[] hash = DigestUtil.hash(String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+            filterEntries.add(new FilterEntry(hash, i % 3));
+        }
+        return filterEntries;
+    }
+}
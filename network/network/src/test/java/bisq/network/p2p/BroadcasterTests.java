@@ -0,0 +1,161 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.network.p2p.node.Connection;
+import bisq.network.p2p.node.Node;
+import bisq.network.p2p.services.data.broadcast.BroadcastMessage;
+import bisq.network.p2p.services.data.broadcast.BroadcastResult;
+import bisq.network.p2p.services.data.broadcast.Broadcaster;
+import bisq.network.p2p.services.peergroup.PeerGroup;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BroadcasterTests {
+    private final Node node = mock(Node.class);
+    private final PeerGroup peerGroup = mock(PeerGroup.class);
+    private final BroadcastMessage message = mock(BroadcastMessage.class);
+    // Send behaviour by connection
+    private final Map<Connection, Runnable> sendBehaviourByConnection = new ConcurrentHashMap<>();
+    private final Set<Connection> sentConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger numRunningSends = new AtomicInteger();
+    private final AtomicInteger maxNumRunningSends = new AtomicInteger();
+
+    public BroadcasterTests() {
+        when(node.isInitialized()).thenReturn(true);
+        when(node.send(any(BroadcastMessage.class), any(Connection.class))).thenAnswer(invocation -> {
+            Connection connection = invocation.getArgument(1);
+            int numRunning = numRunningSends.incrementAndGet();
+            maxNumRunningSends.accumulateAndGet(numRunning, Math::max);
+            try {
+                sendBehaviourByConnection.get(connection).run();
+                sentConnections.add(connection);
+                return connection;
+            } finally {
+                numRunningSends.decrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    void broadcastCompletesAtQuorum() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Connection> connections = new ArrayList<>();
+        connections.add(createConnection(() -> {
+        }));
+        connections.add(createConnection(() -> {
+        }));
+        connections.add(createConnection(() -> await(latch)));
+        connections.add(createConnection(() -> await(latch)));
+        when(peerGroup.getAllConnections()).thenAnswer(invocation -> connections.stream());
+
+        Broadcaster broadcaster = new Broadcaster(node, peerGroup, new Broadcaster.Config(4, 10_000, 0.5));
+        BroadcastResult result = broadcaster.doBroadcast(message, 1).get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getNumSuccess()).isEqualTo(2);
+        assertThat(result.getNumFaults()).isEqualTo(0);
+        assertThat(result.getNumPending()).isEqualTo(2);
+        latch.countDown();
+    }
+
+    @Test
+    void timedOutSendIsFollowedBySendToNextPeer() throws Exception {
+        List<Connection> connections = new ArrayList<>();
+        connections.add(createConnection(() -> {
+            sleep(300);
+            throw new RuntimeException("Send failed");
+        }));
+        connections.add(createConnection(() -> {
+        }));
+        connections.add(createConnection(() -> {
+        }));
+        when(peerGroup.getAllConnections()).thenAnswer(invocation -> connections.stream());
+
+        Broadcaster broadcaster = new Broadcaster(node, peerGroup, new Broadcaster.Config(1, 100, 1));
+        BroadcastResult result = broadcaster.doBroadcast(message, 1).get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getNumSuccess()).isEqualTo(2);
+        assertThat(result.getNumFaults()).isEqualTo(1);
+        assertThat(result.getNumPending()).isEqualTo(0);
+        assertThat(sentConnections).containsExactlyInAnyOrder(connections.get(1), connections.get(2));
+    }
+
+    @Test
+    void successAfterTimeoutIsCountedAsSuccess() throws Exception {
+        List<Connection> connections = List.of(createConnection(() -> sleep(300)));
+        when(peerGroup.getAllConnections()).thenAnswer(invocation -> connections.stream());
+
+        Broadcaster broadcaster = new Broadcaster(node, peerGroup, new Broadcaster.Config(1, 50, 1));
+        BroadcastResult result = broadcaster.doBroadcast(message, 1).get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getNumSuccess()).isEqualTo(1);
+        assertThat(result.getNumFaults()).isEqualTo(0);
+    }
+
+    @Test
+    void parallelSendsAreLimitedWithSlowPeers() throws Exception {
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            connections.add(createConnection(() -> sleep(200)));
+        }
+        when(peerGroup.getAllConnections()).thenAnswer(invocation -> connections.stream());
+
+        // All sends time out before they complete
+        Broadcaster broadcaster = new Broadcaster(node, peerGroup, new Broadcaster.Config(2, 20, 1));
+        BroadcastResult result = broadcaster.doBroadcast(message, 1).get(5, TimeUnit.SECONDS);
+
+        assertThat(maxNumRunningSends.get()).isLessThanOrEqualTo(2);
+        assertThat(sentConnections).hasSize(6);
+        assertThat(result.getNumSuccess()).isEqualTo(6);
+    }
+
+    private Connection createConnection(Runnable sendBehaviour) {
+        Connection connection = mock(Connection.class);
+        sendBehaviourByConnection.put(connection, sendBehaviour);
+        return connection;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
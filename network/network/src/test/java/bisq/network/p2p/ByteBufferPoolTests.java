@@ -0,0 +1,72 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.network.p2p.node.ByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ByteBufferPoolTests {
+    @Test
+    void reusesReleasedBuffers() {
+        ByteBufferPool pool = new ByteBufferPool("test", 1024 * 1024);
+        ByteBuffer buffer = pool.acquire(1000);
+        assertThat(buffer.isDirect()).isTrue();
+        assertThat(buffer.capacity()).isEqualTo(1024);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquire(600);
+        assertThat(reused).isSameAs(buffer);
+        assertThat(reused.position()).isZero();
+        assertThat(reused.limit()).isEqualTo(1024);
+
+        assertThat(pool.getNumPoolHits().get()).isEqualTo(1);
+        assertThat(pool.getNumPoolMisses().get()).isEqualTo(1);
+        assertThat(pool.getBorrowedBytes().get()).isEqualTo(1024);
+        assertThat(pool.getPooledBytes().get()).isZero();
+    }
+
+    @Test
+    void largeBuffersAreNotPooled() {
+        ByteBufferPool pool = new ByteBufferPool("test", 1024 * 1024);
+        ByteBuffer buffer = pool.acquire(ByteBufferPool.MAX_POOLED_BUFFER_SIZE + 1);
+        assertThat(buffer.isDirect()).isFalse();
+        pool.release(buffer);
+
+        assertThat(pool.getNumUnpooledAllocations().get()).isEqualTo(1);
+        assertThat(pool.getPooledBytes().get()).isZero();
+        assertThat(pool.getBorrowedBytes().get()).isZero();
+    }
+
+    @Test
+    void retainedBytesAreLimited() {
+        ByteBufferPool pool = new ByteBufferPool("test", 2048);
+        ByteBuffer first = pool.acquire(2048);
+        ByteBuffer second = pool.acquire(2048);
+        pool.release(first);
+        pool.release(second);
+
+        assertThat(pool.getPooledBytes().get()).isEqualTo(2048);
+        assertThat(pool.getNumDiscarded().get()).isEqualTo(1);
+        assertThat(pool.getAllocatedDirectBytes().get()).isEqualTo(2048);
+    }
+}
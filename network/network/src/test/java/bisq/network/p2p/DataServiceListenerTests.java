@@ -0,0 +1,163 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.common.util.FileUtils;
+import bisq.network.NetworkService;
+import bisq.network.p2p.services.data.DataService;
+import bisq.network.p2p.services.data.broadcast.Broadcaster;
+import bisq.network.p2p.services.data.storage.DistributedData;
+import bisq.network.p2p.services.data.storage.MetaData;
+import bisq.network.p2p.services.data.storage.StorageService;
+import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataStorageService;
+import bisq.network.p2p.services.data.storage.auth.DefaultAuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.RemoveAuthenticatedDataRequest;
+import bisq.persistence.PersistenceService;
+import bisq.security.KeyGeneration;
+import com.google.protobuf.StringValue;
+import lombok.EqualsAndHashCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataServiceListenerTests {
+    private static final int NUM_THREADS = 8;
+
+    @EqualsAndHashCode
+    private static final class MockDistributedData implements DistributedData {
+        private final String text;
+        private final MetaData metaData = new MetaData(MetaData.TTL_10_DAYS, getClass().getSimpleName(), MetaData.MAX_MAP_SIZE_10_000);
+
+        private MockDistributedData(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public StringValue toProto() {
+            return StringValue.of(text);
+        }
+
+        @Override
+        public MetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public boolean isDataInvalid(byte[] pubKeyHash) {
+            return false;
+        }
+    }
+
+    private final Path tmpDir = FileUtils.createTempDir();
+    private final StorageService storageService;
+    private final DataService dataService;
+    private final KeyPair keyPair;
+    private final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+
+    public DataServiceListenerTests() throws Exception {
+        PersistenceService persistenceService = new PersistenceService(tmpDir.toAbsolutePath().toString());
+        storageService = new StorageService(persistenceService);
+        dataService = new DataService(storageService, new Broadcaster.Config());
+        keyPair = KeyGeneration.generateKeyPair();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        dataService.shutdown();
+    }
+
+    @Test
+    void listenersAreCalledInOrderOnDispatcher() throws Exception {
+        Thread dispatcherThread = NetworkService.DISPATCHER.submit(Thread::currentThread).get();
+        Set<AuthenticatedData> listenerState = ConcurrentHashMap.newKeySet();
+        AtomicInteger numRunningCalls = new AtomicInteger();
+        AtomicBoolean isCalledConcurrently = new AtomicBoolean();
+        AtomicBoolean isCalledOnOtherThread = new AtomicBoolean();
+        dataService.addListener(new DataService.Listener() {
+            @Override
+            public void onAuthenticatedDataAdded(AuthenticatedData authenticatedData) {
+                onCall(() -> listenerState.add(authenticatedData));
+            }
+
+            @Override
+            public void onAuthenticatedDataRemoved(AuthenticatedData authenticatedData) {
+                onCall(() -> listenerState.remove(authenticatedData));
+            }
+
+            private void onCall(Runnable runnable) {
+                if (numRunningCalls.incrementAndGet() > 1) {
+                    isCalledConcurrently.set(true);
+                }
+                if (Thread.currentThread() != dispatcherThread) {
+                    isCalledOnOtherThread.set(true);
+                }
+                runnable.run();
+                numRunningCalls.decrementAndGet();
+            }
+        });
+
+        AuthenticatedDataStorageService store = storageService.getOrCreateAuthenticatedDataStore("MockDistributedData").join();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            AuthenticatedData data = new DefaultAuthenticatedData(new MockDistributedData("data-" + i));
+            AddAuthenticatedDataRequest addRequest = AddAuthenticatedDataRequest.from(store, data, keyPair);
+            // Sequence number 2, so that the remove is only accepted after the add
+            RemoveAuthenticatedDataRequest removeRequest = RemoveAuthenticatedDataRequest.from(store, data, keyPair);
+            RemoveAuthenticatedDataRequest laterRemoveRequest = new RemoveAuthenticatedDataRequest(removeRequest.getMetaData(),
+                    removeRequest.getHash(),
+                    removeRequest.getOwnerPublicKey(),
+                    removeRequest.getSequenceNumber() + 1,
+                    removeRequest.getSignature());
+            boolean isRemoved = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                storageService.onAddDataRequest(addRequest).join();
+                if (isRemoved) {
+                    // Applied on another thread than the add
+                    executor.submit(() -> storageService.onRemoveDataRequest(laterRemoveRequest).join());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        // All notifications have been delivered once a task submitted afterwards got executed
+        NetworkService.DISPATCHER.submit(() -> {
+        }).get(30, TimeUnit.SECONDS);
+
+        assertThat(isCalledConcurrently.get()).isFalse();
+        assertThat(isCalledOnOtherThread.get()).isFalse();
+        assertThat(listenerState).containsExactlyInAnyOrderElementsOf(dataService.getAuthenticatedData(MockDistributedData.class).collect(Collectors.toList()));
+        assertThat(listenerState).hasSize(200);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.services.data.DataRequest;
+import bisq.network.p2p.services.data.inventory.Inventory;
+import bisq.network.p2p.services.data.inventory.InventoryCursor;
+import bisq.network.p2p.services.data.inventory.InventoryUtil;
+import bisq.security.DigestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InventoryBatchTests {
+    @Test
+    void batchesAreOrderedByCreatedAndCoverAllEntries() {
+        Map<ByteArray, DataRequest> store = new HashMap<>();
+        for (int i = 0; i < 25; i++) {
+            DataRequest dataRequest = mock(DataRequest.class);
+            when(dataRequest.getCreated()).thenReturn((long) (i % 5));
+            when(dataRequest.toProto()).thenReturn(bisq.network.protobuf.NetworkMessage.getDefaultInstance());
+            when(dataRequest.serialize()).thenReturn(new byte[]{(byte) i});
+            store.put(new ByteArray(DigestUtil.hash(new byte[]{(byte) i})), dataRequest);
+        }
+
+        Set<DataRequest> received = new HashSet<>();
+        Optional<InventoryCursor> cursor = Optional.empty();
+        long maxCreatedOfPreviousBatch = 0;
+        int numBatches = 0;
+        do {
+            Inventory batch = InventoryUtil.getBatch(store.entrySet().stream(), entry -> true, cursor, 10, 1024);
+            received.addAll(batch.getEntries());
+            assertThat(batch.getPeersNumEntries()).isEqualTo(25);
+            // Batches are ordered by created date
+            long minCreated = batch.getEntries().stream().mapToLong(DataRequest::getCreated).min().orElseThrow();
+            assertThat(minCreated).isGreaterThanOrEqualTo(maxCreatedOfPreviousBatch);
+            maxCreatedOfPreviousBatch = batch.getEntries().stream().mapToLong(DataRequest::getCreated).max().orElseThrow();
+            cursor = batch.getNextCursor();
+            numBatches++;
+        } while (cursor.isPresent());
+
+        assertThat(numBatches).isEqualTo(3);
+        assertThat(received).hasSize(25);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.node.Address;
+import bisq.network.p2p.node.Capability;
+import bisq.network.p2p.node.Feature;
+import bisq.network.p2p.node.transport.Transport;
+import bisq.network.p2p.services.data.filter.DataFilter;
+import bisq.network.p2p.services.data.filter.FilterEntry;
+import bisq.network.p2p.services.data.inventory.InventoryCursor;
+import bisq.network.p2p.services.data.inventory.InventoryRequest;
+import bisq.network.protobuf.NetworkMessage;
+import bisq.security.DigestUtil;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Peers of older versions re-serialize a received InventoryRequest from their domain objects for the proof of work
+ * check, thus fields they do not know get dropped. A request is only accepted by them if it serializes the same with
+ * and without the new fields.
+ */
+public class InventoryRequestCompatibilityTests {
+    private static final Set<ByteArray> MAILBOX_RECEIVER_TAGS = Set.of(new ByteArray(new byte[]{1, 2}),
+            new ByteArray(new byte[]{3, 4}));
+
+    @Test
+    void requestToLegacyPeerSerializesWithoutNewFields() throws InvalidProtocolBufferException {
+        Capability legacyCapability = createCapability(List.of(Feature.REUSABLE_AUTHORIZATION_TOKEN));
+        DataFilter dataFilter = DataFilter.create(createFilterEntries(), MAILBOX_RECEIVER_TAGS, legacyCapability);
+        assertThat(dataFilter.getBloomFilter()).isEmpty();
+        assertThat(dataFilter.hasMailboxReceiverTags()).isFalse();
+        assertThat(dataFilter.getFilterEntries()).hasSize(100);
+
+        // Like InventoryHandler does for peers without Feature.PAGINATED_INVENTORY
+        InventoryRequest request = new InventoryRequest(dataFilter, 42);
+        assertThat(reSerializeAsLegacyPeer(request)).isEqualTo(request.getAuthorizationPayload());
+    }
+
+    @Test
+    void requestToPeerWithAllFeaturesUsesNewFields() throws InvalidProtocolBufferException {
+        Capability capability = createCapability(Feature.getSupportedFeatures());
+        DataFilter dataFilter = DataFilter.create(createFilterEntries(), MAILBOX_RECEIVER_TAGS, capability);
+        assertThat(dataFilter.getBloomFilter()).isPresent();
+        assertThat(dataFilter.getFilterEntries()).isEmpty();
+        assertThat(dataFilter.getMailboxReceiverTags()).containsExactlyInAnyOrderElementsOf(MAILBOX_RECEIVER_TAGS);
+
+        InventoryRequest request = new InventoryRequest(dataFilter,
+                42,
+                true,
+                Optional.of(new InventoryCursor(1000, new byte[20])));
+        assertThat(InventoryRequest.fromProto(request.toProto().getInventoryRequest())).isEqualTo(request);
+        // A legacy peer would reject that request
+        assertThat(reSerializeAsLegacyPeer(request)).isNotEqualTo(request.getAuthorizationPayload());
+    }
+
+    @Test
+    void eachNewFieldIsGatedByItsFeature() {
+        DataFilter withBloomFilterOnly = DataFilter.create(createFilterEntries(),
+                MAILBOX_RECEIVER_TAGS,
+                createCapability(List.of(Feature.INVENTORY_BLOOM_FILTER)));
+        assertThat(withBloomFilterOnly.getBloomFilter()).isPresent();
+        assertThat(withBloomFilterOnly.hasMailboxReceiverTags()).isFalse();
+
+        DataFilter withTagsOnly = DataFilter.create(createFilterEntries(),
+                MAILBOX_RECEIVER_TAGS,
+                createCapability(List.of(Feature.MAILBOX_RECEIVER_TAGS)));
+        assertThat(withTagsOnly.getBloomFilter()).isEmpty();
+        assertThat(withTagsOnly.hasMailboxReceiverTags()).isTrue();
+
+        // Without tags we request all mailbox entries
+        DataFilter withoutTags = DataFilter.create(createFilterEntries(),
+                Set.of(),
+                createCapability(Feature.getSupportedFeatures()));
+        assertThat(withoutTags.hasMailboxReceiverTags()).isFalse();
+    }
+
+    // Drops all fields which were added to InventoryRequest and DataFilter, as a peer of an older version does
+    private static byte[] reSerializeAsLegacyPeer(InventoryRequest request) throws InvalidProtocolBufferException {
+        NetworkMessage proto = NetworkMessage.parseFrom(request.toProto().toByteString());
+        bisq.network.protobuf.InventoryRequest legacyInventoryRequest = proto.getInventoryRequest().toBuilder()
+                .clearPaginated()
+                .clearCursor()
+                .setDataFilter(proto.getInventoryRequest().getDataFilter().toBuilder()
+                        .clearBloomFilter()
+                        .clearMailboxReceiverTags())
+                .build();
+        return proto.toBuilder().setInventoryRequest(legacyInventoryRequest).build().toByteArray();
+    }
+
+    private static Capability createCapability(List<Feature> features) {
+        return new Capability(Address.localHost(8000), new ArrayList<>(List.of(Transport.Type.CLEAR)), features);
+    }
+
+    private static List<FilterEntry> createFilterEntries() {
+        List<FilterEntry> filterEntries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            byte[] hash = DigestUtil.hash(String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+            filterEntries.add(new FilterEntry(hash, i));
+        }
+        return filterEntries;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.common.data.ByteArray;
+import bisq.common.util.FileUtils;
+import bisq.network.p2p.services.confidential.ConfidentialMessage;
+import bisq.network.p2p.services.data.filter.DataFilter;
+import bisq.network.p2p.services.data.filter.FilterEntry;
+import bisq.network.p2p.services.data.storage.DataStorageService;
+import bisq.network.p2p.services.data.storage.MetaData;
+import bisq.network.p2p.services.data.storage.mailbox.*;
+import bisq.persistence.PersistenceService;
+import bisq.security.ConfidentialData;
+import bisq.security.HybridEncryption;
+import bisq.security.KeyGeneration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MailboxReceiverTagTests {
+    private final Path tmpDir = FileUtils.createTempDir();
+    private final MailboxDataStorageService store;
+    private final KeyPair senderKeyPair;
+
+    public MailboxReceiverTagTests() throws Exception {
+        PersistenceService persistenceService = new PersistenceService(tmpDir.toAbsolutePath().toString());
+        store = new MailboxDataStorageService(persistenceService,
+                "MailboxStore",
+                "MailboxMessage",
+                DataStorageService.PersistenceMode.SNAPSHOT);
+        senderKeyPair = KeyGeneration.generateKeyPair();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void entriesAreLookedUpByReceiverTag() throws GeneralSecurityException {
+        KeyPair receiverA = KeyGeneration.generateKeyPair();
+        KeyPair receiverB = KeyGeneration.generateKeyPair();
+        AddMailboxRequest requestA1 = createAddMailboxRequest("a1", receiverA);
+        AddMailboxRequest requestA2 = createAddMailboxRequest("a2", receiverA);
+        AddMailboxRequest requestB = createAddMailboxRequest("b", receiverB);
+        assertThat(store.add(requestA1).isSuccess()).isTrue();
+        assertThat(store.add(requestA2).isSuccess()).isTrue();
+        assertThat(store.add(requestB).isSuccess()).isTrue();
+
+        ByteArray tagA = MailboxReceiverTag.fromPublicKey(receiverA.getPublic());
+        ByteArray tagB = MailboxReceiverTag.fromPublicKey(receiverB.getPublic());
+        assertThat(tagA.getBytes()).hasSize(MailboxReceiverTag.TAG_LENGTH);
+        assertThat(MailboxReceiverTag.from(requestA1)).isEqualTo(tagA);
+
+        List<MailboxRequest> entriesA = store.getEntriesByReceiverTags(List.of(tagA))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+        if (tagA.equals(tagB)) {
+            // Tags collide with a probability of 1/65536
+            assertThat(entriesA).containsExactlyInAnyOrder(requestA1, requestA2, requestB);
+        } else {
+            assertThat(entriesA).containsExactlyInAnyOrder(requestA1, requestA2);
+            assertThat(store.getEntriesByReceiverTags(List.of(tagB)).map(Map.Entry::getValue))
+                    .containsExactly(requestB);
+        }
+        assertThat(store.getEntriesByReceiverTags(List.of(tagA, tagB)).count()).isEqualTo(3);
+    }
+
+    @Test
+    void removeRequestKeepsReceiverTag() throws GeneralSecurityException {
+        KeyPair receiver = KeyGeneration.generateKeyPair();
+        AddMailboxRequest addRequest = createAddMailboxRequest("a", receiver);
+        assertThat(store.add(addRequest).isSuccess()).isTrue();
+
+        RemoveMailboxRequest removeRequest = RemoveMailboxRequest.from(addRequest.getMailboxSequentialData().getMailboxData(), receiver);
+        assertThat(store.remove(removeRequest).isSuccess()).isTrue();
+
+        ByteArray tag = MailboxReceiverTag.fromPublicKey(receiver.getPublic());
+        assertThat(MailboxReceiverTag.from(removeRequest)).isEqualTo(tag);
+        assertThat(store.getEntriesByReceiverTags(List.of(tag)).map(Map.Entry::getValue))
+                .containsExactly(removeRequest);
+    }
+
+    @Test
+    void dataFilterSerializesReceiverTags() {
+        List<FilterEntry> filterEntries = new ArrayList<>();
+        filterEntries.add(new FilterEntry(new byte[20], 1));
+        DataFilter dataFilter = DataFilter.createWithBloomFilter(filterEntries);
+        assertThat(dataFilter.hasMailboxReceiverTags()).isFalse();
+
+        Set<ByteArray> tags = Set.of(new ByteArray(new byte[]{1, 2}), new ByteArray(new byte[]{3, 4}));
+        DataFilter withTags = dataFilter.withMailboxReceiverTags(tags);
+        assertThat(withTags.hasMailboxReceiverTags()).isTrue();
+        assertThat(withTags.getMailboxReceiverTags()).containsExactlyInAnyOrderElementsOf(tags);
+
+        DataFilter fromProto = DataFilter.fromProto(withTags.toProto());
+        assertThat(fromProto).isEqualTo(withTags);
+        assertThat(DataFilter.fromProto(dataFilter.toProto()).hasMailboxReceiverTags()).isFalse();
+    }
+
+    private AddMailboxRequest createAddMailboxRequest(String text, KeyPair receiverKeyPair) throws GeneralSecurityException {
+        ConfidentialData confidentialData = HybridEncryption.encryptAndSign(text.getBytes(),
+                receiverKeyPair.getPublic(),
+                senderKeyPair);
+        ConfidentialMessage confidentialMessage = new ConfidentialMessage(confidentialData, "receiverKeyId");
+        MailboxData mailboxData = new MailboxData(confidentialMessage,
+                new MetaData(MetaData.TTL_10_DAYS, "MailboxMessage", MetaData.MAX_MAP_SIZE_10_000));
+        return AddMailboxRequest.from(mailboxData, senderKeyPair, receiverKeyPair.getPublic());
+    }
+}
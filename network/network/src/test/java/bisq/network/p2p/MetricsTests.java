@@ -0,0 +1,78 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.network.p2p.message.NetworkEnvelope;
+import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.LatencyHistogram;
+import bisq.network.p2p.node.MessageMetricsRegistry;
+import bisq.network.p2p.node.Metrics;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MetricsTests {
+    @Test
+    void latencyHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getPercentile(0.5)).isZero();
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getMean()).isEqualTo(50.5);
+        assertThat(histogram.getMax()).isEqualTo(100);
+        // Values 21..50 are in the bucket with upper bound 50
+        assertThat(histogram.getPercentile(0.5)).isEqualTo(50);
+        // Values 51..100 are in the bucket with upper bound 100
+        assertThat(histogram.getPercentile(0.9)).isEqualTo(100);
+
+        histogram.record(120_000);
+        assertThat(histogram.getPercentile(1)).isEqualTo(120_000);
+    }
+
+    @Test
+    void connectionMetricsAreAggregatedPerMessageType() {
+        MessageMetricsRegistry registry = new MessageMetricsRegistry();
+        Metrics metrics1 = new Metrics(registry);
+        Metrics metrics2 = new Metrics(registry);
+        NetworkEnvelope networkEnvelope = new NetworkEnvelope(NetworkEnvelope.VERSION, null, mock(NetworkMessage.class));
+
+        metrics1.onSent(networkEnvelope, 100);
+        metrics2.onSent(networkEnvelope, 50);
+        metrics2.onReceived(networkEnvelope, 20);
+        metrics1.addRtt(NetworkMessage.class, 10);
+
+        assertThat(metrics1.getSentBytes().get()).isEqualTo(100);
+        assertThat(metrics2.getNumMessagesSent().get()).isEqualTo(1);
+        assertThat(metrics2.getReceivedBytes().get()).isEqualTo(20);
+        assertThat(metrics1.getAverageRtt()).isEqualTo(10);
+
+        MessageMetricsRegistry.MessageTypeMetrics messageTypeMetrics =
+                registry.getMetricsByMessageClass().get(networkEnvelope.getNetworkMessage().getClass());
+        assertThat(messageTypeMetrics.getNumSent().sum()).isEqualTo(2);
+        assertThat(messageTypeMetrics.getSentBytes().sum()).isEqualTo(150);
+        assertThat(messageTypeMetrics.getNumReceived().sum()).isEqualTo(1);
+        assertThat(messageTypeMetrics.getReceivedBytes().sum()).isEqualTo(20);
+        assertThat(registry.getMetricsByMessageClass().get(NetworkMessage.class).getRttHistogram().getCount())
+                .isEqualTo(1);
+    }
+}
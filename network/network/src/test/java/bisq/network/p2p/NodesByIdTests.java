@@ -0,0 +1,91 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.common.util.FileUtils;
+import bisq.common.util.NetworkUtils;
+import bisq.network.p2p.node.Node;
+import bisq.network.p2p.node.NodesById;
+import bisq.network.p2p.node.authorization.AuthorizationService;
+import bisq.network.p2p.node.transport.ClearNetTransport;
+import bisq.network.p2p.node.transport.Transport;
+import bisq.network.p2p.services.peergroup.BanList;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class NodesByIdTests {
+    private NodesById createNodesById(NodesById.IdentityMode identityMode) throws IOException {
+        Node.Config nodeConfig = new Node.Config(Transport.Type.CLEAR,
+                Set.of(Transport.Type.CLEAR),
+                mock(AuthorizationService.class),
+                new ClearNetTransport.Config(FileUtils.createTempDir(), 1000),
+                1000);
+        return new NodesById(new BanList(), nodeConfig, identityMode);
+    }
+
+    @Test
+    void multiplexedNodeIdsShareDefaultNode() throws IOException {
+        NodesById nodesById = createNodesById(NodesById.IdentityMode.MULTIPLEXED);
+        nodesById.initialize(Node.DEFAULT, NetworkUtils.findFreeSystemPort());
+        nodesById.initialize("alice", NetworkUtils.findFreeSystemPort());
+        nodesById.initialize("bob", NetworkUtils.findFreeSystemPort());
+
+        assertThat(nodesById.getAllNodes()).hasSize(1);
+        assertThat(nodesById.isMultiplexed("alice")).isTrue();
+        assertThat(nodesById.isNodeInitialized("alice")).isTrue();
+        assertThat(nodesById.findMyAddress("alice")).isEqualTo(nodesById.findMyAddress(Node.DEFAULT));
+        assertThat(nodesById.findMyAddress("bob")).isEqualTo(nodesById.findMyAddress(Node.DEFAULT));
+        assertThat(nodesById.getAddressesByNodeId()).containsOnlyKeys(Node.DEFAULT, "alice", "bob");
+
+        assertThat(nodesById.shutdown().join()).isTrue();
+    }
+
+    @Test
+    void isolatedNodeIdsUseOwnNode() throws IOException {
+        NodesById nodesById = createNodesById(NodesById.IdentityMode.MULTIPLEXED);
+        nodesById.addIsolatedNodeId("alice");
+        nodesById.initialize(Node.DEFAULT, NetworkUtils.findFreeSystemPort());
+        nodesById.initialize("alice", NetworkUtils.findFreeSystemPort());
+        nodesById.initialize("bob", NetworkUtils.findFreeSystemPort());
+
+        assertThat(nodesById.getAllNodes()).hasSize(2);
+        assertThat(nodesById.isMultiplexed("alice")).isFalse();
+        assertThat(nodesById.findMyAddress("alice")).isNotEqualTo(nodesById.findMyAddress(Node.DEFAULT));
+        assertThat(nodesById.findMyAddress("bob")).isEqualTo(nodesById.findMyAddress(Node.DEFAULT));
+
+        assertThat(nodesById.shutdown().join()).isTrue();
+    }
+
+    @Test
+    void isolatedModeCreatesNodePerNodeId() throws IOException {
+        NodesById nodesById = createNodesById(NodesById.IdentityMode.ISOLATED);
+        nodesById.initialize(Node.DEFAULT, NetworkUtils.findFreeSystemPort());
+        nodesById.initialize("alice", NetworkUtils.findFreeSystemPort());
+
+        assertThat(nodesById.getAllNodes()).hasSize(2);
+        assertThat(nodesById.isMultiplexed("alice")).isFalse();
+        assertThat(nodesById.findMyAddress("alice")).isNotEqualTo(nodesById.findMyAddress(Node.DEFAULT));
+
+        assertThat(nodesById.shutdown().join()).isTrue();
+    }
+}
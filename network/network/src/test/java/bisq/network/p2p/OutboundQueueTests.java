@@ -0,0 +1,128 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.network.p2p.message.NetworkEnvelope;
+import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.OutboundQueue;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class OutboundQueueTests {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Test
+    void queuedEnvelopesAreBatchedInLaneOrder() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<List<NetworkEnvelope>> batches = new ArrayList<>();
+        OutboundQueue outboundQueue = new OutboundQueue(new OutboundQueue.Config(64, 0), networkEnvelopes -> {
+            synchronized (batches) {
+                batches.add(new ArrayList<>(networkEnvelopes));
+            }
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        NetworkEnvelope first = createNetworkEnvelope();
+        CompletableFuture<Void> firstFuture = sendAsync(outboundQueue, first, OutboundQueue.Lane.DEFAULT);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Queued while the first write is blocked
+        NetworkEnvelope bulk = createNetworkEnvelope();
+        NetworkEnvelope normal = createNetworkEnvelope();
+        NetworkEnvelope control = createNetworkEnvelope();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(sendAsync(outboundQueue, bulk, OutboundQueue.Lane.BULK));
+        awaitQueueSize(outboundQueue, 1);
+        futures.add(sendAsync(outboundQueue, normal, OutboundQueue.Lane.DEFAULT));
+        awaitQueueSize(outboundQueue, 2);
+        futures.add(sendAsync(outboundQueue, control, OutboundQueue.Lane.CONTROL));
+        awaitQueueSize(outboundQueue, 3);
+
+        release.countDown();
+        firstFuture.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0)).containsExactly(first);
+        assertThat(batches.get(1)).containsExactly(control, normal, bulk);
+    }
+
+    @Test
+    void writeFailureIsPropagatedToSender() {
+        OutboundQueue outboundQueue = new OutboundQueue(new OutboundQueue.Config(), networkEnvelopes -> {
+            throw new IOException("test");
+        });
+
+        assertThatThrownBy(() -> outboundQueue.send(createNetworkEnvelope(), OutboundQueue.Lane.DEFAULT))
+                .isInstanceOf(IOException.class)
+                .hasMessage("test");
+    }
+
+    @Test
+    void sendAfterCloseFails() {
+        OutboundQueue outboundQueue = new OutboundQueue(new OutboundQueue.Config(), networkEnvelopes -> {
+        });
+        outboundQueue.close();
+
+        assertThatThrownBy(() -> outboundQueue.send(createNetworkEnvelope(), OutboundQueue.Lane.CONTROL))
+                .isInstanceOf(IOException.class);
+    }
+
+    private CompletableFuture<Void> sendAsync(OutboundQueue outboundQueue,
+                                              NetworkEnvelope networkEnvelope,
+                                              OutboundQueue.Lane lane) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                outboundQueue.send(networkEnvelope, lane);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private NetworkEnvelope createNetworkEnvelope() {
+        return new NetworkEnvelope(NetworkEnvelope.VERSION, null, mock(NetworkMessage.class));
+    }
+
+    private void awaitQueueSize(OutboundQueue outboundQueue, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outboundQueue.getSize() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(outboundQueue.getSize()).isEqualTo(size);
+    }
+}
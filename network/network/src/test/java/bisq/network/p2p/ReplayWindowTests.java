@@ -0,0 +1,81 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.network.p2p.node.authorization.ReplayWindow;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplayWindowTests {
+    @Test
+    void rejectsReplayedCounters() {
+        ReplayWindow window = new ReplayWindow(128);
+        assertThat(window.add(1)).isTrue();
+        assertThat(window.add(2)).isTrue();
+        assertThat(window.add(1)).isFalse();
+        assertThat(window.add(2)).isFalse();
+    }
+
+    @Test
+    void acceptsReorderedCountersInsideWindow() {
+        ReplayWindow window = new ReplayWindow(128);
+        assertThat(window.add(10)).isTrue();
+        assertThat(window.add(5)).isTrue();
+        assertThat(window.add(1)).isTrue();
+        assertThat(window.add(5)).isFalse();
+
+        assertThat(window.add(100)).isTrue();
+        // Skipped counters are still accepted
+        assertThat(window.add(50)).isTrue();
+        assertThat(window.add(50)).isFalse();
+        // Received before the window moved
+        assertThat(window.add(10)).isFalse();
+    }
+
+    @Test
+    void rejectsCountersBelowWindow() {
+        ReplayWindow window = new ReplayWindow(128);
+        assertThat(window.add(1)).isTrue();
+        assertThat(window.add(1000)).isTrue();
+        assertThat(window.add(1000 - 128)).isFalse();
+        assertThat(window.add(1000 - 127)).isTrue();
+    }
+
+    @Test
+    void largeJumpClearsWindow() {
+        ReplayWindow window = new ReplayWindow(64);
+        for (int i = 1; i <= 64; i++) {
+            assertThat(window.add(i)).isTrue();
+        }
+        assertThat(window.add(1064)).isTrue();
+        for (int i = 1001; i < 1064; i++) {
+            assertThat(window.add(i)).isTrue();
+        }
+    }
+
+    @Test
+    void memoryUseIsConstant() {
+        ReplayWindow window = new ReplayWindow();
+        int memoryUse = window.getMemoryUse();
+        for (int i = 1; i < 100_000; i++) {
+            window.add(i);
+        }
+        assertThat(window.getMemoryUse()).isEqualTo(memoryUse);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.offer;
+
+import bisq.account.payment_method.FiatPaymentMethod;
+import bisq.account.payment_method.FiatPaymentRail;
+import bisq.common.currency.Market;
+import bisq.common.currency.MarketRepository;
+import bisq.common.monetary.PriceQuote;
+import bisq.network.NetworkId;
+import bisq.network.p2p.node.Address;
+import bisq.network.p2p.node.transport.Transport;
+import bisq.offer.amount.spec.QuoteSideRangeAmountSpec;
+import bisq.offer.bisq_easy.BisqEasyOffer;
+import bisq.offer.price.PriceUtil;
+import bisq.offer.price.spec.FixPriceSpec;
+import bisq.offer.price.spec.FloatPriceSpec;
+import bisq.offer.price.spec.MarketPriceSpec;
+import bisq.offer.price.spec.PriceSpec;
+import bisq.security.KeyGeneration;
+import bisq.security.PubKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Compares the OfferbookIndex with a linear scan over all offers as done before by filtering the offers set. The
+ * offers are spread over all fiat markets. It is not run by the test tasks, run the main method to get the results
+ * logged. The number of offers can be passed as argument, it is at least 10000.
+ * Not a precise micro benchmark, but good enough to see the difference in scale.
+ */
+@Slf4j
+public class OfferbookIndexBenchmark {
+    private static final int MIN_NUM_OFFERS = 10_000;
+    private static final int NUM_QUERIES = 10_000;
+    private static final int NUM_VERIFIED_QUERIES = 1000;
+    private static final int NUM_SCAN_QUERIES = 200;
+    private static final long MIN_QUERY_AMOUNT = 500_000;
+    private static final long MAX_QUERY_AMOUNT = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        List<Market> markets = MarketRepository.getAllFiatMarkets();
+        int numOffers = Math.max(MIN_NUM_OFFERS, args.length > 0 ? Integer.parseInt(args[0]) : markets.size() * 100);
+        String nodeId = "maker";
+        PubKey pubKey = new PubKey(KeyGeneration.generateKeyPair().getPublic(), nodeId);
+        NetworkId makerNetworkId = new NetworkId(Map.of(Transport.Type.CLEAR, Address.localHost(8000)), pubKey, nodeId);
+
+        Random random = new Random(42);
+        List<Offer<?, ?>> offers = new ArrayList<>(numOffers);
+        for (int i = 0; i < numOffers; i++) {
+            Market market = markets.get(i % markets.size());
+            Direction direction = random.nextBoolean() ? Direction.BUY : Direction.SELL;
+            PriceSpec priceSpec;
+            switch (random.nextInt(3)) {
+                case 0:
+                    priceSpec = new FixPriceSpec(PriceQuote.fromFiatPrice(45000 + random.nextInt(10000),
+                            market.getQuoteCurrencyCode()));
+                    break;
+                case 1:
+                    priceSpec = new FloatPriceSpec((random.nextInt(200) - 100) / 1000d);
+                    break;
+                default:
+                    priceSpec = new MarketPriceSpec();
+            }
+            long minAmount = 100_000L * (1 + random.nextInt(100));
+            QuoteSideRangeAmountSpec amountSpec = new QuoteSideRangeAmountSpec(minAmount,
+                    minAmount * (1 + random.nextInt(10)));
+            offers.add(new BisqEasyOffer(makerNetworkId,
+                    direction,
+                    market,
+                    amountSpec,
+                    priceSpec,
+                    List.of(FiatPaymentMethod.fromPaymentRail(FiatPaymentRail.ZELLE)),
+                    "",
+                    0,
+                    new ArrayList<>(List.of("en"))));
+        }
+
+        OfferbookIndex<Offer<?, ?>> index = new OfferbookIndex<>(offer -> offer);
+        long ts = System.nanoTime();
+        offers.forEach(index::add);
+        long addDuration = System.nanoTime() - ts;
+        checkState(index.size() == numOffers, "Index size does not match number of offers");
+
+        Map<Market, Optional<PriceQuote>> marketPrices = markets.stream()
+                .collect(Collectors.toMap(market -> market,
+                        market -> Optional.of(PriceQuote.fromFiatPrice(50000, market.getQuoteCurrencyCode()))));
+        Market[] queryMarkets = new Market[NUM_QUERIES];
+        Direction[] queryDirections = new Direction[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            queryMarkets[i] = markets.get(random.nextInt(markets.size()));
+            queryDirections[i] = random.nextBoolean() ? Direction.BUY : Direction.SELL;
+        }
+
+        // Warm up and verify results against linear scan
+        for (int i = 0; i < NUM_VERIFIED_QUERIES; i++) {
+            PriceQuote marketPrice = marketPrices.get(queryMarkets[i]).orElseThrow();
+            Optional<Long> bestPrice = index.findBestEntry(queryMarkets[i],
+                            queryDirections[i],
+                            Optional.of(marketPrice))
+                    .map(offer -> getPrice(offer, marketPrice));
+            Optional<Long> bestPriceByScan = findBestByScan(offers, queryMarkets[i], queryDirections[i], marketPrice)
+                    .map(offer -> getPrice(offer, marketPrice));
+            checkState(bestPrice.equals(bestPriceByScan), "Best offer does not match linear scan");
+            int numInRange = index.getEntriesInQuoteSideAmountRange(queryMarkets[i],
+                    queryDirections[i],
+                    MIN_QUERY_AMOUNT,
+                    MAX_QUERY_AMOUNT).size();
+            checkState(numInRange == countByScan(offers, queryMarkets[i], queryDirections[i]),
+                    "Offers in amount range do not match linear scan");
+        }
+
+        long sum = 0;
+        ts = System.nanoTime();
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            sum += index.findBestEntry(queryMarkets[i], queryDirections[i], marketPrices.get(queryMarkets[i]))
+                    .isPresent() ? 1 : 0;
+        }
+        long bestDuration = System.nanoTime() - ts;
+
+        ts = System.nanoTime();
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            sum += index.getEntriesInQuoteSideAmountRange(queryMarkets[i],
+                    queryDirections[i],
+                    MIN_QUERY_AMOUNT,
+                    MAX_QUERY_AMOUNT).size();
+        }
+        long amountRangeDuration = System.nanoTime() - ts;
+
+        ts = System.nanoTime();
+        for (int i = 0; i < NUM_SCAN_QUERIES; i++) {
+            PriceQuote marketPrice = marketPrices.get(queryMarkets[i]).orElseThrow();
+            sum += findBestByScan(offers, queryMarkets[i], queryDirections[i], marketPrice).isPresent() ? 1 : 0;
+        }
+        long scanDuration = System.nanoTime() - ts;
+
+        ts = System.nanoTime();
+        offers.forEach(index::remove);
+        long removeDuration = System.nanoTime() - ts;
+        checkState(index.size() == 0 && index.getMarkets().isEmpty(), "Index is not empty after removing all offers");
+
+        log.info("Benchmark with {} offers in {} markets (checksum {}):\n" +
+                        "add: {} ns/offer\n" +
+                        "remove: {} ns/offer\n" +
+                        "findBestEntry: {} ns/query\n" +
+                        "getEntriesInQuoteSideAmountRange: {} ns/query\n" +
+                        "linear scan for best offer: {} ns/query",
+                numOffers, markets.size(), sum,
+                addDuration / numOffers,
+                removeDuration / numOffers,
+                bestDuration / NUM_QUERIES,
+                amountRangeDuration / NUM_QUERIES,
+                scanDuration / NUM_SCAN_QUERIES);
+    }
+
+    private static Optional<Offer<?, ?>> findBestByScan(List<Offer<?, ?>> offers,
+                                                        Market market,
+                                                        Direction direction,
+                                                        PriceQuote marketPrice) {
+        Comparator<Offer<?, ?>> comparator = Comparator.comparingLong(offer -> getPrice(offer, marketPrice));
+        return offers.stream()
+                .filter(offer -> offer.getMarket().equals(market) && offer.getDirection() == direction)
+                .min(direction.isBuy() ? comparator.reversed() : comparator);
+    }
+
+    private static long countByScan(List<Offer<?, ?>> offers, Market market, Direction direction) {
+        return offers.stream()
+                .filter(offer -> offer.getMarket().equals(market) && offer.getDirection() == direction)
+                .map(offer -> (QuoteSideRangeAmountSpec) offer.getAmountSpec())
+                .filter(spec -> spec.getMinAmount() <= MAX_QUERY_AMOUNT && spec.getMaxAmount() >= MIN_QUERY_AMOUNT)
+                .count();
+    }
+
+    private static long getPrice(Offer<?, ?> offer, PriceQuote marketPrice) {
+        PriceSpec priceSpec = offer.getPriceSpec();
+        if (priceSpec instanceof FixPriceSpec) {
+            return ((FixPriceSpec) priceSpec).getPriceQuote().getValue();
+        }
+        double percentage = priceSpec instanceof FloatPriceSpec ? ((FloatPriceSpec) priceSpec).getPercentage() : 0;
+        return PriceUtil.fromMarketPriceMarkup(marketPrice, percentage).getValue();
+    }
+}
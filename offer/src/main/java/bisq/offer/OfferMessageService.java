@@ -37,6 +37,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class OfferMessageService implements Service, DataService.Listener {
     @Getter
     private final ObservableSet<Offer<?, ?>> offers = new ObservableSet<>();
+    @Getter
+    private final OfferbookIndex<Offer<?, ?>> offerbookIndex = new OfferbookIndex<>(offer -> offer);
     private final NetworkService networkService;
     private final IdentityService identityService;
 
@@ -109,11 +111,15 @@ public class OfferMessageService implements Service, DataService.Listener {
     ///////////////////////////////////////////////////////////////////////////////////////////////////
 
     private boolean processAddedMessage(OfferMessage offerMessage) {
-        return offers.add(offerMessage.getOffer());
+        Offer<?, ?> offer = offerMessage.getOffer();
+        offerbookIndex.add(offer);
+        return offers.add(offer);
     }
 
     private boolean processRemovedMessage(OfferMessage offerMessage) {
-        return offers.remove(offerMessage.getOffer());
+        Offer<?, ?> offer = offerMessage.getOffer();
+        offerbookIndex.remove(offer);
+        return offers.remove(offer);
     }
 
     private Optional<Identity> findIdentity(Offer<?, ?> offer) {
@@ -0,0 +1,311 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.offer;
+
+import bisq.common.currency.Market;
+import bisq.common.monetary.PriceQuote;
+import bisq.offer.amount.spec.AmountSpec;
+import bisq.offer.amount.spec.BaseSideAmountSpec;
+import bisq.offer.amount.spec.FixedAmountSpec;
+import bisq.offer.amount.spec.QuoteSideAmountSpec;
+import bisq.offer.amount.spec.RangeAmountSpec;
+import bisq.offer.price.PriceUtil;
+import bisq.offer.price.spec.FixPriceSpec;
+import bisq.offer.price.spec.FloatPriceSpec;
+import bisq.offer.price.spec.PriceSpec;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Offerbook index by market, direction and price.
+ * Each market and direction has its own book with sorted price levels. Offers with a FixPriceSpec are sorted by their
+ * price quote value, offers with a FloatPriceSpec or MarketPriceSpec by their percentage to the market price (0 for
+ * MarketPriceSpec). As both depend on the market price in the same way, the order inside each group does not change
+ * when the market price changes, thus we only need the market price for comparing the best entries of both groups.
+ * Entries are kept in insertion order inside a price level.
+ * <p>
+ * Lookups of a book and of the top of book are O(log n), amount range queries are O(log n + m), with m being the
+ * number of entries with a min. amount lower than the requested max. amount.
+ *
+ * @param <T> The indexed type, either the Offer itself or a wrapper holding the offer.
+ */
+public class OfferbookIndex<T> {
+    private static final class Book<T> {
+        private final TreeMap<Long, Map<String, T>> fixPriceLevels = new TreeMap<>();
+        private final TreeMap<Double, Map<String, T>> floatPriceLevels = new TreeMap<>();
+        private final TreeMap<Long, Map<String, T>> baseSideAmountLevels = new TreeMap<>();
+        private final TreeMap<Long, Map<String, T>> quoteSideAmountLevels = new TreeMap<>();
+        private int size;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    private final Function<T, Offer<?, ?>> offerMapper;
+    private final Map<String, T> entryByOfferId = new HashMap<>();
+    private final Map<Market, Map<Direction, Book<T>>> booksByMarket = new HashMap<>();
+
+    /**
+     * @param offerMapper Maps the indexed entry to its offer.
+     */
+    public OfferbookIndex(Function<T, Offer<?, ?>> offerMapper) {
+        this.offerMapper = offerMapper;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Update
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Adds the entry. An already indexed entry with the same offer ID gets replaced.
+     */
+    public synchronized void add(T entry) {
+        Offer<?, ?> offer = offerMapper.apply(entry);
+        String offerId = offer.getId();
+        remove(offer);
+        entryByOfferId.put(offerId, entry);
+        Book<T> book = booksByMarket.computeIfAbsent(offer.getMarket(), key -> new EnumMap<>(Direction.class))
+                .computeIfAbsent(offer.getDirection(), key -> new Book<>());
+        PriceSpec priceSpec = offer.getPriceSpec();
+        if (priceSpec instanceof FixPriceSpec) {
+            long price = ((FixPriceSpec) priceSpec).getPriceQuote().getValue();
+            book.fixPriceLevels.computeIfAbsent(price, key -> new LinkedHashMap<>()).put(offerId, entry);
+        } else {
+            book.floatPriceLevels.computeIfAbsent(getPercentage(priceSpec), key -> new LinkedHashMap<>()).put(offerId, entry);
+        }
+        getAmountLevels(book, offer.getAmountSpec())
+                .ifPresent(levels -> levels.computeIfAbsent(getMinAmount(offer.getAmountSpec()), key -> new LinkedHashMap<>())
+                        .put(offerId, entry));
+        book.size++;
+    }
+
+    /**
+     * @return The removed entry or empty if no entry was indexed for that offer.
+     */
+    public synchronized Optional<T> remove(Offer<?, ?> offer) {
+        T entry = entryByOfferId.remove(offer.getId());
+        if (entry == null) {
+            return Optional.empty();
+        }
+        Offer<?, ?> indexedOffer = offerMapper.apply(entry);
+        Map<Direction, Book<T>> booksByDirection = booksByMarket.get(indexedOffer.getMarket());
+        Book<T> book = booksByDirection.get(indexedOffer.getDirection());
+        removeFromBook(book, indexedOffer);
+        if (book.isEmpty()) {
+            booksByDirection.remove(indexedOffer.getDirection());
+            if (booksByDirection.isEmpty()) {
+                booksByMarket.remove(indexedOffer.getMarket());
+            }
+        }
+        return Optional.of(entry);
+    }
+
+    public synchronized void clear() {
+        entryByOfferId.clear();
+        booksByMarket.clear();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Queries
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public synchronized int size() {
+        return entryByOfferId.size();
+    }
+
+    public synchronized Optional<T> findEntry(String offerId) {
+        return Optional.ofNullable(entryByOfferId.get(offerId));
+    }
+
+    public synchronized Set<Market> getMarkets() {
+        return new HashSet<>(booksByMarket.keySet());
+    }
+
+    public synchronized int getNumEntries(Market market, Direction direction) {
+        return findBook(market, direction).map(book -> book.size).orElse(0);
+    }
+
+    public synchronized List<T> getEntries(Market market) {
+        List<T> result = new ArrayList<>();
+        for (Direction direction : Direction.values()) {
+            findBook(market, direction).ifPresent(book -> addAll(book, result));
+        }
+        return result;
+    }
+
+    /**
+     * @param direction The direction of the maker.
+     * @return The entries with fix prices in ascending price order followed by the entries with float prices in
+     * ascending percentage order.
+     */
+    public synchronized List<T> getEntries(Market market, Direction direction) {
+        List<T> result = new ArrayList<>();
+        findBook(market, direction).ifPresent(book -> addAll(book, result));
+        return result;
+    }
+
+    /**
+     * Top of book from the taker's perspective: lowest price for sell offers and highest price for buy offers.
+     *
+     * @param direction   The direction of the maker.
+     * @param marketPrice The current market price. If not available, fix price offers are preferred as we cannot
+     *                    compare them with float price offers.
+     */
+    public synchronized Optional<T> findBestEntry(Market market, Direction direction, Optional<PriceQuote> marketPrice) {
+        return findBook(market, direction).flatMap(book -> {
+            boolean highest = direction.isBuy();
+            Optional<Map.Entry<Long, Map<String, T>>> bestFix = Optional.ofNullable(highest ?
+                    book.fixPriceLevels.lastEntry() :
+                    book.fixPriceLevels.firstEntry());
+            Optional<Map.Entry<Double, Map<String, T>>> bestFloat = Optional.ofNullable(highest ?
+                    book.floatPriceLevels.lastEntry() :
+                    book.floatPriceLevels.firstEntry());
+            if (bestFix.isEmpty()) {
+                return bestFloat.map(OfferbookIndex::getFirst);
+            }
+            if (bestFloat.isEmpty() || marketPrice.isEmpty()) {
+                return bestFix.map(OfferbookIndex::getFirst);
+            }
+            long fixPrice = bestFix.get().getKey();
+            long floatPrice = PriceUtil.fromMarketPriceMarkup(marketPrice.get(), bestFloat.get().getKey()).getValue();
+            boolean isFixBetter = highest ? fixPrice >= floatPrice : fixPrice <= floatPrice;
+            return isFixBetter ? bestFix.map(OfferbookIndex::getFirst) : bestFloat.map(OfferbookIndex::getFirst);
+        });
+    }
+
+    /**
+     * @param direction The direction of the maker.
+     * @return The entries with a BaseSideAmountSpec whose amount or amount range overlaps with the given range.
+     */
+    public synchronized List<T> getEntriesInBaseSideAmountRange(Market market,
+                                                               Direction direction,
+                                                               long minAmount,
+                                                               long maxAmount) {
+        return findBook(market, direction)
+                .map(book -> getEntriesInAmountRange(book.baseSideAmountLevels, minAmount, maxAmount))
+                .orElse(new ArrayList<>());
+    }
+
+    /**
+     * @param direction The direction of the maker.
+     * @return The entries with a QuoteSideAmountSpec whose amount or amount range overlaps with the given range.
+     */
+    public synchronized List<T> getEntriesInQuoteSideAmountRange(Market market,
+                                                                Direction direction,
+                                                                long minAmount,
+                                                                long maxAmount) {
+        return findBook(market, direction)
+                .map(book -> getEntriesInAmountRange(book.quoteSideAmountLevels, minAmount, maxAmount))
+                .orElse(new ArrayList<>());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Optional<Book<T>> findBook(Market market, Direction direction) {
+        return Optional.ofNullable(booksByMarket.get(market))
+                .map(booksByDirection -> booksByDirection.get(direction));
+    }
+
+    private void removeFromBook(Book<T> book, Offer<?, ?> offer) {
+        String offerId = offer.getId();
+        PriceSpec priceSpec = offer.getPriceSpec();
+        if (priceSpec instanceof FixPriceSpec) {
+            removeFromLevel(book.fixPriceLevels, ((FixPriceSpec) priceSpec).getPriceQuote().getValue(), offerId);
+        } else {
+            removeFromLevel(book.floatPriceLevels, getPercentage(priceSpec), offerId);
+        }
+        getAmountLevels(book, offer.getAmountSpec())
+                .ifPresent(levels -> removeFromLevel(levels, getMinAmount(offer.getAmountSpec()), offerId));
+        book.size--;
+    }
+
+    private List<T> getEntriesInAmountRange(TreeMap<Long, Map<String, T>> amountLevels, long minAmount, long maxAmount) {
+        List<T> result = new ArrayList<>();
+        if (minAmount > maxAmount) {
+            return result;
+        }
+        amountLevels.headMap(maxAmount, true).values().forEach(level ->
+                level.values().forEach(entry -> {
+                    if (getMaxAmount(offerMapper.apply(entry).getAmountSpec()) >= minAmount) {
+                        result.add(entry);
+                    }
+                }));
+        return result;
+    }
+
+    private Optional<TreeMap<Long, Map<String, T>>> getAmountLevels(Book<T> book, AmountSpec amountSpec) {
+        if (amountSpec instanceof QuoteSideAmountSpec) {
+            return Optional.of(book.quoteSideAmountLevels);
+        } else if (amountSpec instanceof BaseSideAmountSpec) {
+            return Optional.of(book.baseSideAmountLevels);
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    private static <K, T> void removeFromLevel(TreeMap<K, Map<String, T>> levels, K key, String offerId) {
+        Map<String, T> level = levels.get(key);
+        if (level != null) {
+            level.remove(offerId);
+            if (level.isEmpty()) {
+                levels.remove(key);
+            }
+        }
+    }
+
+    private static <T> void addAll(Book<T> book, List<T> result) {
+        book.fixPriceLevels.values().forEach(level -> result.addAll(level.values()));
+        book.floatPriceLevels.values().forEach(level -> result.addAll(level.values()));
+    }
+
+    private static <K, T> T getFirst(Map.Entry<K, Map<String, T>> level) {
+        return level.getValue().values().iterator().next();
+    }
+
+    private static double getPercentage(PriceSpec priceSpec) {
+        // MarketPriceSpec is a float price with 0 percentage
+        return priceSpec instanceof FloatPriceSpec ? ((FloatPriceSpec) priceSpec).getPercentage() : 0;
+    }
+
+    private static long getMinAmount(AmountSpec amountSpec) {
+        if (amountSpec instanceof RangeAmountSpec) {
+            return ((RangeAmountSpec) amountSpec).getMinAmount();
+        } else if (amountSpec instanceof FixedAmountSpec) {
+            return ((FixedAmountSpec) amountSpec).getAmount();
+        } else {
+            throw new IllegalArgumentException("Unsupported amountSpec " + amountSpec.getClass().getSimpleName());
+        }
+    }
+
+    private static long getMaxAmount(AmountSpec amountSpec) {
+        if (amountSpec instanceof RangeAmountSpec) {
+            return ((RangeAmountSpec) amountSpec).getMaxAmount();
+        } else if (amountSpec instanceof FixedAmountSpec) {
+            return ((FixedAmountSpec) amountSpec).getAmount();
+        } else {
+            throw new IllegalArgumentException("Unsupported amountSpec " + amountSpec.getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.offer;
+
+import bisq.account.payment_method.FiatPaymentMethod;
+import bisq.account.payment_method.FiatPaymentRail;
+import bisq.common.currency.Market;
+import bisq.common.currency.MarketRepository;
+import bisq.common.monetary.PriceQuote;
+import bisq.network.NetworkId;
+import bisq.network.p2p.node.Address;
+import bisq.network.p2p.node.transport.Transport;
+import bisq.offer.amount.spec.AmountSpec;
+import bisq.offer.amount.spec.BaseSideFixedAmountSpec;
+import bisq.offer.amount.spec.QuoteSideRangeAmountSpec;
+import bisq.offer.bisq_easy.BisqEasyOffer;
+import bisq.offer.price.spec.FixPriceSpec;
+import bisq.offer.price.spec.FloatPriceSpec;
+import bisq.offer.price.spec.MarketPriceSpec;
+import bisq.offer.price.spec.PriceSpec;
+import bisq.security.KeyGeneration;
+import bisq.security.PubKey;
+import org.junit.jupiter.api.Test;
+
+import java.security.GeneralSecurityException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OfferbookIndexTest {
+    private static final Market USD = MarketRepository.getDefault();
+
+    private final NetworkId makerNetworkId;
+
+    public OfferbookIndexTest() throws GeneralSecurityException {
+        String nodeId = "maker";
+        PubKey pubKey = new PubKey(KeyGeneration.generateKeyPair().getPublic(), nodeId);
+        makerNetworkId = new NetworkId(Map.of(Transport.Type.CLEAR, Address.localHost(8000)), pubKey, nodeId);
+    }
+
+    @Test
+    void testEntriesSortedByPrice() {
+        OfferbookIndex<Offer<?, ?>> index = new OfferbookIndex<>(offer -> offer);
+        Offer<?, ?> fix2 = createOffer("fix2", Direction.SELL, USD, fixPrice(USD, 51000), quoteSideRange(100, 500));
+        Offer<?, ?> fix1 = createOffer("fix1", Direction.SELL, USD, fixPrice(USD, 50000), quoteSideRange(100, 500));
+        Offer<?, ?> float1 = createOffer("float1", Direction.SELL, USD, new FloatPriceSpec(0.02), quoteSideRange(100, 500));
+        Offer<?, ?> market = createOffer("market", Direction.SELL, USD, new MarketPriceSpec(), quoteSideRange(100, 500));
+        Offer<?, ?> buy = createOffer("buy", Direction.BUY, USD, new MarketPriceSpec(), quoteSideRange(100, 500));
+        List.of(fix2, fix1, float1, market, buy).forEach(index::add);
+
+        assertEquals(5, index.size());
+        assertEquals(List.of(fix1, fix2, market, float1), index.getEntries(USD, Direction.SELL));
+        assertEquals(List.of(buy), index.getEntries(USD, Direction.BUY));
+        assertEquals(5, index.getEntries(USD).size());
+        assertEquals(Set.of(USD), index.getMarkets());
+
+        assertEquals(Optional.of(fix1), index.remove(fix1));
+        assertEquals(Optional.empty(), index.remove(fix1));
+        assertEquals(List.of(fix2, market, float1), index.getEntries(USD, Direction.SELL));
+
+        index.remove(buy);
+        assertEquals(0, index.getNumEntries(USD, Direction.BUY));
+        assertTrue(index.getEntries(USD, Direction.BUY).isEmpty());
+    }
+
+    @Test
+    void testReplaceEntryWithSameOfferId() {
+        OfferbookIndex<Offer<?, ?>> index = new OfferbookIndex<>(offer -> offer);
+        Market eur = findMarket("EUR");
+        index.add(createOffer("id", Direction.SELL, USD, fixPrice(USD, 50000), quoteSideRange(100, 500)));
+        Offer<?, ?> replacement = createOffer("id", Direction.BUY, eur, new MarketPriceSpec(), quoteSideRange(100, 500));
+        index.add(replacement);
+
+        assertEquals(1, index.size());
+        assertTrue(index.getEntries(USD).isEmpty());
+        assertEquals(List.of(replacement), index.getEntries(eur, Direction.BUY));
+        assertEquals(Set.of(eur), index.getMarkets());
+    }
+
+    @Test
+    void testFindBestEntry() {
+        OfferbookIndex<Offer<?, ?>> index = new OfferbookIndex<>(offer -> offer);
+        Optional<PriceQuote> marketPrice = Optional.of(PriceQuote.fromFiatPrice(50000, "USD"));
+        assertTrue(index.findBestEntry(USD, Direction.SELL, marketPrice).isEmpty());
+
+        Offer<?, ?> sellFix = createOffer("sellFix", Direction.SELL, USD, fixPrice(USD, 50500), quoteSideRange(100, 500));
+        Offer<?, ?> sellFloat = createOffer("sellFloat", Direction.SELL, USD, new FloatPriceSpec(0.02), quoteSideRange(100, 500));
+        Offer<?, ?> buyFix = createOffer("buyFix", Direction.BUY, USD, fixPrice(USD, 49000), quoteSideRange(100, 500));
+        Offer<?, ?> buyFloat = createOffer("buyFloat", Direction.BUY, USD, new FloatPriceSpec(-0.01), quoteSideRange(100, 500));
+        List.of(sellFix, sellFloat, buyFix, buyFloat).forEach(index::add);
+
+        // Lowest price for sell offers, highest price for buy offers
+        assertEquals(Optional.of(sellFix), index.findBestEntry(USD, Direction.SELL, marketPrice));
+        assertEquals(Optional.of(buyFloat), index.findBestEntry(USD, Direction.BUY, marketPrice));
+
+        // Float offers follow the market price
+        Optional<PriceQuote> lowerMarketPrice = Optional.of(PriceQuote.fromFiatPrice(48000, "USD"));
+        assertEquals(Optional.of(sellFloat), index.findBestEntry(USD, Direction.SELL, lowerMarketPrice));
+        assertEquals(Optional.of(buyFix), index.findBestEntry(USD, Direction.BUY, lowerMarketPrice));
+
+        // Without market price we prefer fix price offers
+        assertEquals(Optional.of(buyFix), index.findBestEntry(USD, Direction.BUY, Optional.empty()));
+        index.remove(buyFix);
+        assertEquals(Optional.of(buyFloat), index.findBestEntry(USD, Direction.BUY, Optional.empty()));
+    }
+
+    @Test
+    void testAmountRange() {
+        OfferbookIndex<Offer<?, ?>> index = new OfferbookIndex<>(offer -> offer);
+        Offer<?, ?> small = createOffer("small", Direction.SELL, USD, new MarketPriceSpec(), quoteSideRange(10, 100));
+        Offer<?, ?> medium = createOffer("medium", Direction.SELL, USD, new MarketPriceSpec(), quoteSideRange(100, 1000));
+        Offer<?, ?> large = createOffer("large", Direction.SELL, USD, new MarketPriceSpec(), quoteSideRange(2000, 5000));
+        Offer<?, ?> baseSide = createOffer("baseSide", Direction.SELL, USD, new MarketPriceSpec(), new BaseSideFixedAmountSpec(100000));
+        List.of(small, medium, large, baseSide).forEach(index::add);
+
+        assertEquals(Set.of(small, medium), toSet(index.getEntriesInQuoteSideAmountRange(USD, Direction.SELL, 50, 500)));
+        assertEquals(Set.of(medium), toSet(index.getEntriesInQuoteSideAmountRange(USD, Direction.SELL, 1000, 1500)));
+        assertEquals(Set.of(large), toSet(index.getEntriesInQuoteSideAmountRange(USD, Direction.SELL, 3000, 3000)));
+        assertTrue(index.getEntriesInQuoteSideAmountRange(USD, Direction.SELL, 6000, 7000).isEmpty());
+        assertTrue(index.getEntriesInQuoteSideAmountRange(USD, Direction.SELL, 500, 50).isEmpty());
+        assertTrue(index.getEntriesInQuoteSideAmountRange(USD, Direction.BUY, 0, Long.MAX_VALUE).isEmpty());
+        assertEquals(List.of(baseSide), index.getEntriesInBaseSideAmountRange(USD, Direction.SELL, 50000, 200000));
+
+        index.remove(medium);
+        assertEquals(Set.of(small), toSet(index.getEntriesInQuoteSideAmountRange(USD, Direction.SELL, 50, 500)));
+    }
+
+    private static Set<Offer<?, ?>> toSet(List<Offer<?, ?>> offers) {
+        return new HashSet<>(offers);
+    }
+
+    private static Market findMarket(String quoteCurrencyCode) {
+        return MarketRepository.getAllFiatMarkets().stream()
+                .filter(market -> market.getQuoteCurrencyCode().equals(quoteCurrencyCode))
+                .findAny()
+                .orElseThrow();
+    }
+
+    private static FixPriceSpec fixPrice(Market market, double price) {
+        return new FixPriceSpec(PriceQuote.fromFiatPrice(price, market.getQuoteCurrencyCode()));
+    }
+
+    private static QuoteSideRangeAmountSpec quoteSideRange(long minAmount, long maxAmount) {
+        return new QuoteSideRangeAmountSpec(minAmount, maxAmount);
+    }
+
+    private Offer<?, ?> createOffer(String id, Direction direction, Market market, PriceSpec priceSpec, AmountSpec amountSpec) {
+        BisqEasyOffer offer = new BisqEasyOffer(makerNetworkId,
+                direction,
+                market,
+                amountSpec,
+                priceSpec,
+                List.of(FiatPaymentMethod.fromPaymentRail(FiatPaymentRail.ZELLE)),
+                "",
+                0,
+                new ArrayList<>(List.of("en")));
+        // We use readable offer IDs for the tests
+        return BisqEasyOffer.fromProto(offer.toProto().toBuilder().setId(id).build());
+    }
+}
@@ -258,7 +258,7 @@ public class Bisq1BridgeService implements Service, ConfidentialMessageListener,
 
     private void republishAuthorizedBondedRoles() {
         networkService.getDataService()
-                .ifPresent(dataService -> dataService.getAuthorizedData()
+                .ifPresent(dataService -> dataService.getAuthorizedData(AuthorizedBondedRole.class)
                         .forEach(authorizedData -> {
                             AuthorizedDistributedData data = authorizedData.getAuthorizedDistributedData();
                             if (data instanceof AuthorizedBondedRole) {
@@ -0,0 +1,172 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only file of length delimited protobuf records, used as write-ahead log next to a store snapshot.
+ * Changes are appended as small records and a periodic compaction writes a new snapshot of the store.
+ * Before the snapshot is taken the journal gets rotated, so that records appended while the snapshot is written go
+ * to a fresh file. Once the snapshot is on disk the rotated file is deleted. If writing the snapshot failed, the
+ * rotated file is kept and replayed before the current file at the next start.
+ * Replaying records which are already contained in the snapshot is harmless as long as records are applied in order
+ * and the last record for a key wins.
+ */
+@Slf4j
+public class Journal {
+    public static final String EXTENSION = ".journal";
+    public static final String ROTATED_EXTENSION = ".journal.old";
+
+    @Getter
+    private final Path journalPath;
+    @Getter
+    private final Path rotatedJournalPath;
+    @Nullable
+    private OutputStream outputStream;
+    // Number of records in the current (not rotated) file
+    private int numRecords;
+
+    /**
+     * @param storePath The path of the snapshot file. The journal files are created in the same directory.
+     */
+    public Journal(Path storePath) {
+        String fileName = storePath.getFileName().toString();
+        if (fileName.endsWith(Persistence.EXTENSION)) {
+            fileName = fileName.substring(0, fileName.length() - Persistence.EXTENSION.length());
+        }
+        journalPath = storePath.resolveSibling(fileName + EXTENSION);
+        rotatedJournalPath = storePath.resolveSibling(fileName + ROTATED_EXTENSION);
+    }
+
+    /**
+     * Appends the record and flushes it to the OS. We do not force a sync to the device, so in case of a system crash
+     * the last records might be lost, which is the same guarantee we have with the rate limited snapshot writes.
+     *
+     * @return True if the record got appended.
+     */
+    public synchronized boolean append(MessageLite record) {
+        try {
+            if (outputStream == null) {
+                Files.createDirectories(journalPath.getParent());
+                outputStream = new BufferedOutputStream(Files.newOutputStream(journalPath,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            }
+            record.writeDelimitedTo(outputStream);
+            outputStream.flush();
+            numRecords++;
+            return true;
+        } catch (IOException e) {
+            log.error("Couldn't append record to journal " + journalPath, e);
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Reads all records of the rotated and the current file in the order they got appended.
+     * A crash while appending can leave a truncated record at the end of a file. We stop reading that file at the
+     * first record we cannot parse.
+     */
+    public synchronized <M> List<M> readAll(Parser<M> parser) {
+        List<M> records = new ArrayList<>();
+        readFile(rotatedJournalPath, parser, records);
+        numRecords = readFile(journalPath, parser, records);
+        return records;
+    }
+
+    /**
+     * Closes the current file and moves its records to the rotated file. If a rotated file exists already because
+     * a previous compaction failed, the records get appended to it.
+     */
+    public synchronized void rotate() throws IOException {
+        close();
+        numRecords = 0;
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+
+        if (Files.exists(rotatedJournalPath)) {
+            try (OutputStream rotatedOutputStream = Files.newOutputStream(rotatedJournalPath, StandardOpenOption.APPEND)) {
+                Files.copy(journalPath, rotatedOutputStream);
+            }
+            Files.delete(journalPath);
+        } else {
+            Files.move(journalPath, rotatedJournalPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    public synchronized void deleteRotated() {
+        try {
+            Files.deleteIfExists(rotatedJournalPath);
+        } catch (IOException e) {
+            log.error("Couldn't delete rotated journal " + rotatedJournalPath, e);
+        }
+    }
+
+    public synchronized int getNumRecords() {
+        return numRecords;
+    }
+
+    public synchronized void close() {
+        if (outputStream == null) {
+            return;
+        }
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            log.error("Couldn't close journal " + journalPath, e);
+        } finally {
+            outputStream = null;
+        }
+    }
+
+    private <M> int readFile(Path path, Parser<M> parser, List<M> records) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        int numRead = 0;
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+            M record;
+            while ((record = parser.parseDelimitedFrom(inputStream)) != null) {
+                records.add(record);
+                numRead++;
+            }
+        } catch (IOException e) {
+            log.warn("Couldn't read all records from journal {}. We got {} records before the error.", path, numRead, e);
+        }
+        return numRead;
+    }
+}
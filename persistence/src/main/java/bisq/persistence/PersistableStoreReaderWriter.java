@@ -18,27 +18,68 @@
 package bisq.persistence;
 
 import bisq.common.util.FileUtils;
+import bisq.common.util.OsUtils;
 import com.google.protobuf.Any;
+import com.google.protobuf.CodedInputStream;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 
 @Slf4j
 public class PersistableStoreReaderWriter<T extends PersistableStore<T>> {
+    // Files in the legacy format of at least that size are memory mapped for reading
+    public static final long MAPPED_READ_THRESHOLD = 1024 * 1024;
 
     private final PersistableStoreFileManager storeFileManager;
     private final Path storeFilePath;
     private final Path parentDirectoryPath;
+    private final long mappedReadThreshold;
+    // If empty, files are written in the legacy format
+    private final Optional<StoreFileFormat.Compression> compression;
 
+    /**
+     * Reads files in both formats and writes them in the legacy format, which can be read by all versions.
+     */
     public PersistableStoreReaderWriter(PersistableStoreFileManager storeFileManager) {
+        this(storeFileManager, Optional.empty());
+    }
+
+    /**
+     * Reads files in both formats and writes them in the StoreFileFormat with the given compression. Must only be
+     * used for stores which can be dropped at a downgrade (see StoreFileFormat).
+     */
+    public PersistableStoreReaderWriter(PersistableStoreFileManager storeFileManager,
+                                        StoreFileFormat.Compression compression) {
+        this(storeFileManager, Optional.of(compression));
+    }
+
+    private PersistableStoreReaderWriter(PersistableStoreFileManager storeFileManager,
+                                         Optional<StoreFileFormat.Compression> compression) {
+        // On Windows a mapped file cannot be renamed until the mapping got garbage collected, which would break the
+        // backup at the next write.
+        this(storeFileManager, compression, OsUtils.isWindows() ? Long.MAX_VALUE : MAPPED_READ_THRESHOLD);
+    }
+
+    PersistableStoreReaderWriter(PersistableStoreFileManager storeFileManager,
+                                 Optional<StoreFileFormat.Compression> compression,
+                                 long mappedReadThreshold) {
         this.storeFileManager = storeFileManager;
         this.storeFilePath = storeFileManager.getStoreFilePath();
         this.parentDirectoryPath = storeFilePath.getParent();
+        this.compression = compression;
+        this.mappedReadThreshold = mappedReadThreshold;
     }
 
     public synchronized Optional<T> read() {
@@ -60,13 +101,17 @@ public class PersistableStoreReaderWriter<T extends PersistableStore<T>> {
         return Optional.empty();
     }
 
-    public synchronized void write(T persistableStore) {
+    /**
+     * @return True if the store got written to disk.
+     */
+    public synchronized boolean write(T persistableStore) {
         storeFileManager.createParentDirectoriesIfNotExisting();
 
         try {
             writeStoreToTempFile(persistableStore);
             storeFileManager.tryToBackupCurrentStoreFile();
             storeFileManager.renameTempFileToCurrentFile();
+            return true;
 
         } catch (CouldNotSerializePersistableStore e) {
             log.error("Couldn't serialize " + persistableStore, e);
@@ -75,12 +120,38 @@ public class PersistableStoreReaderWriter<T extends PersistableStore<T>> {
             log.error("Couldn't write persistable store to disk. Trying restore backup.", e);
             storeFileManager.restoreBackupFileIfCurrentFileNotExisting();
         }
+        return false;
     }
 
     private PersistableStore<?> readStoreFromFile() throws IOException {
         File storeFile = storeFilePath.toFile();
-        try (FileInputStream fileInputStream = new FileInputStream(storeFile)) {
-            Any any = Any.parseDelimitedFrom(fileInputStream);
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(storeFile))) {
+            if (StoreFileFormat.startsWithMagic(inputStream)) {
+                // Each block gets copied for verifying the checksum and inflating, so memory mapping would not
+                // save a copy. We read through the buffered stream.
+                return PersistableStore.fromAny(Any.parseFrom(StoreFileFormat.newInputStream(inputStream)));
+            }
+            // Legacy format. If we write the StoreFileFormat, it gets migrated at the next write.
+            if (storeFile.length() < mappedReadThreshold) {
+                return PersistableStore.fromAny(Any.parseDelimitedFrom(inputStream));
+            }
+        }
+        return readLegacyStoreFromMappedFile();
+    }
+
+    /**
+     * Parses a store in the legacy format directly from the memory mapped file, which avoids copying large files
+     * through the stream buffers. The parsed objects do not alias the mapped buffer, so the mapping can be released
+     * after parsing.
+     */
+    private PersistableStore<?> readLegacyStoreFromMappedFile() throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(storeFilePath, StandardOpenOption.READ)) {
+            MappedByteBuffer mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            CodedInputStream codedInputStream = CodedInputStream.newInstance(mappedByteBuffer);
+            int size = codedInputStream.readRawVarint32();
+            int oldLimit = codedInputStream.pushLimit(size);
+            Any any = Any.parseFrom(codedInputStream);
+            codedInputStream.popLimit(oldLimit);
             return PersistableStore.fromAny(any);
         }
     }
@@ -104,12 +175,19 @@ public class PersistableStoreReaderWriter<T extends PersistableStore<T>> {
     }
 
     private void writeStoreToFile(T persistableStore, File file) {
-        try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
             // We use an Any container (byte blob) as we do not have the dependencies to the
             // external PersistableStore implementations (at deserialization we would have an issue otherwise as
             // it requires static access).
             Any any = persistableStore.toAny();
-            any.writeDelimitedTo(fileOutputStream);
+            if (compression.isPresent()) {
+                // Files in the StoreFileFormat cannot be read by older versions (see StoreFileFormat)
+                try (OutputStream blockOutputStream = StoreFileFormat.newOutputStream(outputStream, compression.get())) {
+                    any.writeTo(blockOutputStream);
+                }
+            } else {
+                any.writeDelimitedTo(outputStream);
+            }
         } catch (IOException e) {
             throw new CouldNotSerializePersistableStore(e);
         }
@@ -17,7 +17,7 @@
 
 package bisq.persistence;
 
-import bisq.common.threading.ExecutorFactory;
+import bisq.common.threading.ShardedExecutor;
 import bisq.common.util.StringUtils;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -25,25 +25,48 @@ import lombok.extern.slf4j.Slf4j;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 @Slf4j
 public class Persistence<T extends PersistableStore<T>> {
     public static final String EXTENSION = ".protobuf";
 
-    private static final ExecutorService executorService = ExecutorFactory.newSingleThreadExecutor("Persistence-io-pool");
+    private static final int NUM_IO_SHARDS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    // I/O of different stores runs in parallel. All operations of one store are executed on the same shard, so they
+    // are executed in the order they got submitted.
+    private static final ShardedExecutor IO_EXECUTOR = new ShardedExecutor("Persistence-io-pool", NUM_IO_SHARDS);
 
     @Getter
     private final Path storePath;
 
     private final PersistableStoreReaderWriter<T> persistableStoreReaderWriter;
+    private final Executor executor;
+    // Time in ms the last read took, -1 if not read yet
+    @Getter
+    private volatile long readDuration = -1;
 
     public Persistence(String directory, String fileName) {
+        this(directory, fileName, false);
+    }
+
+    /**
+     * @param useStoreFileFormat If true the store is written in the StoreFileFormat, otherwise in the legacy format.
+     *                           The StoreFileFormat must only be used for stores which can be dropped at a downgrade,
+     *                           as older versions cannot read it (see StoreFileFormat).
+     */
+    public Persistence(String directory, String fileName, boolean useStoreFileFormat) {
         String storageFileName = StringUtils.camelCaseToSnakeCase(fileName);
         storePath = Path.of(directory, storageFileName + EXTENSION);
         var storeFileManager = new PersistableStoreFileManager(storePath);
-        persistableStoreReaderWriter = new PersistableStoreReaderWriter<>(storeFileManager);
+        persistableStoreReaderWriter = useStoreFileFormat ?
+                new PersistableStoreReaderWriter<>(storeFileManager, StoreFileFormat.Compression.DEFLATE) :
+                new PersistableStoreReaderWriter<>(storeFileManager);
+        executor = task -> IO_EXECUTOR.submit(storePath, task);
+    }
+
+    public static String getIoMetricsAsString() {
+        return IO_EXECUTOR.getMetricsAsString();
     }
 
     public CompletableFuture<Optional<T>> readAsync(Consumer<T> consumer) {
@@ -51,17 +74,22 @@ public class Persistence<T extends PersistableStore<T>> {
     }
 
     public CompletableFuture<Optional<T>> readAsync() {
-        return CompletableFuture.supplyAsync(persistableStoreReaderWriter::read, executorService);
+        return CompletableFuture.supplyAsync(() -> {
+            long ts = System.currentTimeMillis();
+            Optional<T> result = persistableStoreReaderWriter.read();
+            readDuration = System.currentTimeMillis() - ts;
+            return result;
+        }, executor);
     }
 
-    public CompletableFuture<Void> persistAsync(T serializable) {
-        return CompletableFuture.runAsync(() -> {
-            Thread.currentThread().setName("Persistence.persist-" + storePath);
-            persist(serializable);
-        }, executorService);
+    /**
+     * @return A future completing with true if the store got written to disk.
+     */
+    public CompletableFuture<Boolean> persistAsync(T serializable) {
+        return CompletableFuture.supplyAsync(() -> persist(serializable), executor);
     }
 
-    protected void persist(T persistableStore) {
-        persistableStoreReaderWriter.write(persistableStore);
+    protected boolean persist(T persistableStore) {
+        return persistableStoreReaderWriter.write(persistableStore);
     }
 }
@@ -23,9 +23,11 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class PersistenceService {
@@ -54,22 +56,38 @@ public class PersistenceService {
                                                                                  String subDir,
                                                                                  String fileName,
                                                                                  PersistableStore<T> persistableStore) {
+        return getOrCreatePersistence(client, subDir, fileName, persistableStore, false);
+    }
+
+    /**
+     * @param useStoreFileFormat See Persistence. Must not be used for private data like identities or settings.
+     */
+    public <T extends PersistableStore<T>> Persistence<T> getOrCreatePersistence(PersistenceClient<T> client,
+                                                                                 String subDir,
+                                                                                 String fileName,
+                                                                                 PersistableStore<T> persistableStore,
+                                                                                 boolean useStoreFileFormat) {
         PersistableStoreResolver.addResolver(persistableStore.getResolver());
         clients.add(client);
-        Persistence<T> persistence = new Persistence<>(baseDir + File.separator + subDir, fileName);
+        Persistence<T> persistence = new Persistence<>(baseDir + File.separator + subDir, fileName, useStoreFileFormat);
         persistenceInstances.add(persistence);
         return persistence;
     }
 
+    /**
+     * Reads all stores in parallel. Reads of different stores run on different I/O shards (see Persistence).
+     * We log the read time of each store and the slowest stores once all are read.
+     */
     public CompletableFuture<Boolean> readAllPersisted() {
+        long ts = System.currentTimeMillis();
         return CompletableFutureUtils.allOf(clients.stream()
                         .map(persistenceClient -> persistenceClient.readPersisted()
                                 .whenComplete((optionalResult, throwable) -> {
-                                    String storagePath = persistenceClient.getPersistence().getStorePath()
-                                            .toAbsolutePath().toString();
+                                    Persistence<?> persistence = persistenceClient.getPersistence();
+                                    String storagePath = persistence.getStorePath().toAbsolutePath().toString();
                                     if (throwable == null) {
                                         if (optionalResult.isPresent()) {
-                                            log.info("Read persisted data from {}", storagePath);
+                                            log.info("Read persisted data from {} in {} ms", storagePath, persistence.getReadDuration());
                                         } else {
                                             log.debug("No persisted data at {} found", storagePath);
                                         }
@@ -78,7 +96,13 @@ public class PersistenceService {
                                         throwable.printStackTrace();
                                     }
                                 })))
-                .thenApply(list -> true);
+                .thenApply(list -> {
+                    log.info("Read all persisted data in {} ms. Slowest stores:\n{}\n{}",
+                            System.currentTimeMillis() - ts,
+                            getSlowestReadsAsString(10),
+                            Persistence.getIoMetricsAsString());
+                    return true;
+                });
     }
 
     public CompletableFuture<Boolean> persistAllClients() {
@@ -93,4 +117,14 @@ public class PersistenceService {
                                 })))
                 .thenApply(list -> true);
     }
-}
\ No newline at end of file
+
+    private String getSlowestReadsAsString(int limit) {
+        return clients.stream()
+                .<Persistence<?>>map(PersistenceClient::getPersistence)
+                .filter(persistence -> persistence.getReadDuration() >= 0)
+                .sorted(Comparator.comparingLong((Persistence<?> persistence) -> persistence.getReadDuration()).reversed())
+                .limit(limit)
+                .map(persistence -> persistence.getReadDuration() + " ms: " + persistence.getStorePath().getFileName())
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Container format of the store files:
+ * <pre>
+ * header: magic "BSQS" (4 bytes), version (1 byte), compression (1 byte)
+ * block:  type (1 byte), raw length (int), stored length (int), CRC32C of the stored bytes (int), stored bytes
+ * end:    type END (1 byte)
+ * </pre>
+ * The payload (the serialized Any of the store) is split into blocks of max. BLOCK_SIZE bytes. Each block is
+ * compressed on its own and stored uncompressed if compression does not reduce its size. The checksum of a block is
+ * verified when the block is read, so corruption is detected before any data of that block gets parsed and a
+ * truncated file is detected by the missing end marker.
+ * Files without the magic are in the legacy format (delimited Any without header). A legacy file cannot start with
+ * the magic as the Any's first tag byte (0x0A) would follow a one byte length prefix.
+ * <p>
+ * There is no downgrade path: Versions before this format read the file as legacy format, fail to parse it, move it to
+ * corruptedFilesAtRead and start with an empty store. Therefore only the network data stores (db/network) are written
+ * in that format, as their data gets requested again from the network after a downgrade. All other stores (e.g.
+ * identities, key pairs and settings) are written in the legacy format until a release which can read the new format
+ * is old enough that a downgrade below it is not supported anymore.
+ */
+public final class StoreFileFormat {
+    public enum Compression {
+        NONE,
+        DEFLATE
+    }
+
+    public static final byte VERSION = 1;
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final byte[] MAGIC = {'B', 'S', 'Q', 'S'};
+    private static final byte BLOCK_TYPE_END = 0;
+    private static final byte BLOCK_TYPE_RAW = 1;
+    private static final byte BLOCK_TYPE_DEFLATE = 2;
+
+    private StoreFileFormat() {
+    }
+
+    /**
+     * Checks for the magic without consuming it. The inputStream must support mark/reset.
+     */
+    public static boolean startsWithMagic(InputStream inputStream) throws IOException {
+        inputStream.mark(MAGIC.length);
+        byte[] bytes = inputStream.readNBytes(MAGIC.length);
+        inputStream.reset();
+        return Arrays.equals(bytes, MAGIC);
+    }
+
+    /**
+     * Writes the header and returns a stream writing the payload in blocks. Closing the returned stream writes the
+     * end marker and closes the given outputStream.
+     */
+    public static OutputStream newOutputStream(OutputStream outputStream, Compression compression) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.write(MAGIC);
+        dataOutputStream.writeByte(VERSION);
+        dataOutputStream.writeByte(compression.ordinal());
+        return new BlockOutputStream(dataOutputStream, compression);
+    }
+
+    /**
+     * Reads and validates the header and returns a stream of the verified and decompressed payload.
+     */
+    public static InputStream newInputStream(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        byte[] magic = new byte[MAGIC.length];
+        dataInputStream.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Invalid store file header");
+        }
+        int version = dataInputStream.readUnsignedByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported store file version " + version);
+        }
+        // Compression is stored for information only, as each block has its own type
+        dataInputStream.readUnsignedByte();
+        return new BlockInputStream(dataInputStream);
+    }
+
+    private static final class BlockOutputStream extends OutputStream {
+        private final DataOutputStream outputStream;
+        private final byte[] buffer = new byte[BLOCK_SIZE];
+        private final byte[] compressed;
+        private final Deflater deflater;
+        private final CRC32C crc = new CRC32C();
+        private int count;
+        private boolean closed;
+
+        private BlockOutputStream(DataOutputStream outputStream, Compression compression) {
+            this.outputStream = outputStream;
+            if (compression == Compression.DEFLATE) {
+                deflater = new Deflater(Deflater.BEST_SPEED);
+                compressed = new byte[BLOCK_SIZE];
+            } else {
+                deflater = null;
+                compressed = null;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[count++] = (byte) b;
+            if (count == BLOCK_SIZE) {
+                writeBlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                int numBytes = Math.min(length, BLOCK_SIZE - count);
+                System.arraycopy(bytes, offset, buffer, count, numBytes);
+                count += numBytes;
+                offset += numBytes;
+                length -= numBytes;
+                if (count == BLOCK_SIZE) {
+                    writeBlock();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBlock();
+                outputStream.writeByte(BLOCK_TYPE_END);
+                outputStream.flush();
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+                outputStream.close();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (count == 0) {
+                return;
+            }
+
+            byte type = BLOCK_TYPE_RAW;
+            byte[] stored = buffer;
+            int storedLength = count;
+            if (deflater != null) {
+                deflater.reset();
+                deflater.setInput(buffer, 0, count);
+                deflater.finish();
+                int compressedLength = deflater.deflate(compressed, 0, compressed.length);
+                // If the output buffer was too small the data is not compressible and we store it raw
+                if (deflater.finished() && compressedLength < count) {
+                    type = BLOCK_TYPE_DEFLATE;
+                    stored = compressed;
+                    storedLength = compressedLength;
+                }
+            }
+
+            crc.reset();
+            crc.update(stored, 0, storedLength);
+            outputStream.writeByte(type);
+            outputStream.writeInt(count);
+            outputStream.writeInt(storedLength);
+            outputStream.writeInt((int) crc.getValue());
+            outputStream.write(stored, 0, storedLength);
+            count = 0;
+        }
+    }
+
+    private static final class BlockInputStream extends InputStream {
+        private final DataInputStream inputStream;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] stored = new byte[BLOCK_SIZE];
+        private final Inflater inflater = new Inflater();
+        private final CRC32C crc = new CRC32C();
+        private int position;
+        private int limit;
+        private boolean endReached;
+
+        private BlockInputStream(DataInputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!hasData()) {
+                return -1;
+            }
+            return block[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!hasData()) {
+                return -1;
+            }
+            int numBytes = Math.min(length, limit - position);
+            System.arraycopy(block, position, bytes, offset, numBytes);
+            position += numBytes;
+            return numBytes;
+        }
+
+        @Override
+        public int available() {
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            inputStream.close();
+        }
+
+        private boolean hasData() throws IOException {
+            while (position >= limit) {
+                if (endReached) {
+                    return false;
+                }
+                readBlock();
+            }
+            return true;
+        }
+
+        private void readBlock() throws IOException {
+            byte type = inputStream.readByte();
+            if (type == BLOCK_TYPE_END) {
+                endReached = true;
+                return;
+            }
+
+            int rawLength = inputStream.readInt();
+            int storedLength = inputStream.readInt();
+            int checksum = inputStream.readInt();
+            if (rawLength <= 0 || rawLength > BLOCK_SIZE || storedLength <= 0 || storedLength > BLOCK_SIZE) {
+                throw new IOException("Invalid block header. rawLength=" + rawLength + ", storedLength=" + storedLength);
+            }
+
+            inputStream.readFully(stored, 0, storedLength);
+            crc.reset();
+            crc.update(stored, 0, storedLength);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Block checksum mismatch");
+            }
+
+            if (type == BLOCK_TYPE_RAW) {
+                if (storedLength != rawLength) {
+                    throw new IOException("Invalid raw block. rawLength=" + rawLength + ", storedLength=" + storedLength);
+                }
+                System.arraycopy(stored, 0, block, 0, rawLength);
+            } else if (type == BLOCK_TYPE_DEFLATE) {
+                inflate(storedLength, rawLength);
+            } else {
+                throw new IOException("Unknown block type " + type);
+            }
+            position = 0;
+            limit = rawLength;
+        }
+
+        private void inflate(int storedLength, int rawLength) throws IOException {
+            inflater.reset();
+            inflater.setInput(stored, 0, storedLength);
+            try {
+                int inflatedLength = inflater.inflate(block, 0, rawLength);
+                if (inflatedLength != rawLength || !inflater.finished()) {
+                    throw new IOException("Inflated block has unexpected size " + inflatedLength);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Couldn't inflate block", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import com.google.protobuf.StringValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalTests {
+
+    @Test
+    void appendAndReadAll(@TempDir Path tempDir) {
+        Journal journal = new Journal(tempDir.resolve("test_store" + Persistence.EXTENSION));
+        assertThat(journal.getJournalPath().getFileName().toString()).isEqualTo("test_store" + Journal.EXTENSION);
+        assertThat(journal.readAll(StringValue.parser())).isEmpty();
+
+        assertThat(journal.append(StringValue.of("A"))).isTrue();
+        assertThat(journal.append(StringValue.of("B"))).isTrue();
+        journal.close();
+
+        Journal reopened = new Journal(tempDir.resolve("test_store" + Persistence.EXTENSION));
+        assertThat(reopened.readAll(StringValue.parser()))
+                .containsExactly(StringValue.of("A"), StringValue.of("B"));
+        assertThat(reopened.getNumRecords()).isEqualTo(2);
+    }
+
+    @Test
+    void rotatedRecordsAreReadFirst(@TempDir Path tempDir) throws IOException {
+        Journal journal = new Journal(tempDir.resolve("test_store" + Persistence.EXTENSION));
+        journal.append(StringValue.of("A"));
+        journal.rotate();
+        journal.append(StringValue.of("B"));
+        journal.rotate();
+        journal.append(StringValue.of("C"));
+
+        assertThat(journal.getNumRecords()).isEqualTo(1);
+        List<StringValue> records = journal.readAll(StringValue.parser());
+        assertThat(records).containsExactly(StringValue.of("A"), StringValue.of("B"), StringValue.of("C"));
+
+        journal.deleteRotated();
+        assertThat(Files.exists(journal.getRotatedJournalPath())).isFalse();
+        assertThat(journal.readAll(StringValue.parser())).containsExactly(StringValue.of("C"));
+    }
+
+    @Test
+    void truncatedTailIsIgnored(@TempDir Path tempDir) throws IOException {
+        Journal journal = new Journal(tempDir.resolve("test_store" + Persistence.EXTENSION));
+        journal.append(StringValue.of("A"));
+        journal.close();
+
+        // Length prefix of 10 bytes followed by only 2 bytes
+        try (OutputStream outputStream = Files.newOutputStream(journal.getJournalPath(), StandardOpenOption.APPEND)) {
+            outputStream.write(new byte[]{10, 1, 2});
+        }
+
+        assertThat(journal.readAll(StringValue.parser())).containsExactly(StringValue.of("A"));
+    }
+}
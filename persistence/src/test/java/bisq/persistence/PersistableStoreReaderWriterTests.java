@@ -18,10 +18,15 @@
 package bisq.persistence;
 
 import bisq.common.proto.ProtoResolver;
+import com.google.protobuf.Any;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
@@ -69,6 +74,98 @@ public class PersistableStoreReaderWriterTests {
         assertThat(readTimestampsByProfileId.get("C")).isEqualTo(3L);
     }
 
+    @Test
+    void writeAndReadLargeStore(@TempDir Path tempDir) {
+        var timestampStore = new TimestampStore();
+        Map<String, Long> timestampsByProfileId = timestampStore.getTimestampsByProfileId();
+        for (long i = 0; i < 1000; i++) {
+            timestampsByProfileId.put("profile" + i, i);
+        }
+
+        ProtoResolver<PersistableStore<?>> resolver = timestampStore.getResolver();
+        PersistableStoreResolver.addResolver(resolver);
+
+        Path storageFilePath = tempDir.resolve("protoFile");
+        var storeFileManager = new PersistableStoreFileManager(storageFilePath);
+        // Threshold of 0 would use the memory mapped read for files in the legacy format
+        var persistableStoreReaderWriter = new PersistableStoreReaderWriter<TimestampStore>(storeFileManager,
+                Optional.of(StoreFileFormat.Compression.DEFLATE),
+                0);
+        assertThat(persistableStoreReaderWriter.write(timestampStore)).isTrue();
+
+        Optional<TimestampStore> readOptionalStore = persistableStoreReaderWriter.read();
+        assertThat(readOptionalStore).isPresent();
+        assertThat(readOptionalStore.get().getTimestampsByProfileId()).isEqualTo(timestampsByProfileId);
+    }
+
+    @Test
+    void readMappedLegacyStore(@TempDir Path tempDir) throws IOException {
+        var timestampStore = new TimestampStore();
+        Map<String, Long> timestampsByProfileId = timestampStore.getTimestampsByProfileId();
+        for (long i = 0; i < 1000; i++) {
+            timestampsByProfileId.put("profile" + i, i);
+        }
+        PersistableStoreResolver.addResolver(timestampStore.getResolver());
+
+        Path storageFilePath = tempDir.resolve("protoFile");
+        try (OutputStream outputStream = Files.newOutputStream(storageFilePath)) {
+            timestampStore.toAny().writeDelimitedTo(outputStream);
+        }
+
+        var storeFileManager = new PersistableStoreFileManager(storageFilePath);
+        // Threshold of 0 forces the memory mapped read
+        var persistableStoreReaderWriter = new PersistableStoreReaderWriter<TimestampStore>(storeFileManager,
+                Optional.of(StoreFileFormat.Compression.DEFLATE),
+                0);
+        Optional<TimestampStore> readOptionalStore = persistableStoreReaderWriter.read();
+        assertThat(readOptionalStore).isPresent();
+        assertThat(readOptionalStore.get().getTimestampsByProfileId()).isEqualTo(timestampsByProfileId);
+    }
+
+    @Test
+    void readLegacyStoreAndMigrate(@TempDir Path tempDir) throws IOException {
+        var timestampStore = new TimestampStore();
+        timestampStore.getTimestampsByProfileId().put("A", 1L);
+        PersistableStoreResolver.addResolver(timestampStore.getResolver());
+
+        Path storageFilePath = tempDir.resolve("protoFile");
+        try (OutputStream outputStream = Files.newOutputStream(storageFilePath)) {
+            timestampStore.toAny().writeDelimitedTo(outputStream);
+        }
+
+        var storeFileManager = new PersistableStoreFileManager(storageFilePath);
+        var persistableStoreReaderWriter = new PersistableStoreReaderWriter<TimestampStore>(storeFileManager,
+                StoreFileFormat.Compression.DEFLATE);
+        Optional<TimestampStore> readOptionalStore = persistableStoreReaderWriter.read();
+        assertThat(readOptionalStore).isPresent();
+        assertThat(readOptionalStore.get().getTimestampsByProfileId().get("A")).isEqualTo(1L);
+
+        persistableStoreReaderWriter.write(readOptionalStore.get());
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(storageFilePath))) {
+            assertThat(StoreFileFormat.startsWithMagic(inputStream)).isTrue();
+        }
+        assertThat(persistableStoreReaderWriter.read().orElseThrow().getTimestampsByProfileId().get("A")).isEqualTo(1L);
+    }
+
+    @Test
+    void writeLegacyFormatByDefault(@TempDir Path tempDir) throws IOException {
+        var timestampStore = new TimestampStore();
+        timestampStore.getTimestampsByProfileId().put("A", 1L);
+        PersistableStoreResolver.addResolver(timestampStore.getResolver());
+
+        Path storageFilePath = tempDir.resolve("protoFile");
+        var storeFileManager = new PersistableStoreFileManager(storageFilePath);
+        var persistableStoreReaderWriter = new PersistableStoreReaderWriter<TimestampStore>(storeFileManager);
+        assertThat(persistableStoreReaderWriter.write(timestampStore)).isTrue();
+
+        // Must be readable by versions which do not know the StoreFileFormat
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(storageFilePath))) {
+            assertThat(StoreFileFormat.startsWithMagic(inputStream)).isFalse();
+            TimestampStore readStore = (TimestampStore) PersistableStore.fromAny(Any.parseDelimitedFrom(inputStream));
+            assertThat(readStore.getTimestampsByProfileId().get("A")).isEqualTo(1L);
+        }
+    }
+
     @Test
     void writeStoreTwice(@TempDir Path tempDir) {
         var timestampStore = new TimestampStore();
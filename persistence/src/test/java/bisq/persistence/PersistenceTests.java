@@ -0,0 +1,72 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistenceTests {
+
+    @Test
+    void operationsOfOneStoreAreOrdered(@TempDir Path tempDir) {
+        PersistableStoreResolver.addResolver(new TimestampStore().getResolver());
+        Persistence<TimestampStore> persistence = new Persistence<>(tempDir.toString(), "timestampStore");
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (long i = 0; i < 20; i++) {
+            TimestampStore timestampStore = new TimestampStore();
+            timestampStore.getTimestampsByProfileId().put("A", i);
+            futures.add(persistence.persistAsync(timestampStore));
+        }
+        Optional<TimestampStore> result = persistence.readAsync().join();
+
+        futures.forEach(future -> assertThat(future.join()).isTrue());
+        assertThat(result).isPresent();
+        assertThat(result.get().getTimestampsByProfileId().get("A")).isEqualTo(19L);
+        assertThat(persistence.getReadDuration()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    void storesAreReadIndependently(@TempDir Path tempDir) {
+        PersistableStoreResolver.addResolver(new TimestampStore().getResolver());
+        List<Persistence<TimestampStore>> persistenceList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Persistence<TimestampStore> persistence = new Persistence<>(tempDir.toString(), "timestampStore" + i);
+            TimestampStore timestampStore = new TimestampStore();
+            timestampStore.getTimestampsByProfileId().put("A", (long) i);
+            assertThat(persistence.persistAsync(timestampStore).join()).isTrue();
+            persistenceList.add(persistence);
+        }
+
+        List<CompletableFuture<Optional<TimestampStore>>> futures = new ArrayList<>();
+        persistenceList.forEach(persistence -> futures.add(persistence.readAsync()));
+        for (int i = 0; i < 10; i++) {
+            Optional<TimestampStore> result = futures.get(i).join();
+            assertThat(result).isPresent();
+            assertThat(result.get().getTimestampsByProfileId().get("A")).isEqualTo((long) i);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StoreFileFormatTests {
+
+    @Test
+    void roundTripCompressible() throws IOException {
+        byte[] payload = new byte[3 * StoreFileFormat.BLOCK_SIZE + 123];
+        Arrays.fill(payload, (byte) 'a');
+        byte[] encoded = encode(payload, StoreFileFormat.Compression.DEFLATE);
+
+        assertThat(encoded.length).isLessThan(payload.length / 10);
+        assertThat(decode(encoded)).isEqualTo(payload);
+    }
+
+    @Test
+    void roundTripIncompressible() throws IOException {
+        byte[] payload = new byte[2 * StoreFileFormat.BLOCK_SIZE + 7];
+        new Random(1).nextBytes(payload);
+
+        byte[] deflated = encode(payload, StoreFileFormat.Compression.DEFLATE);
+        assertThat(decode(deflated)).isEqualTo(payload);
+
+        byte[] raw = encode(payload, StoreFileFormat.Compression.NONE);
+        assertThat(decode(raw)).isEqualTo(payload);
+        // Incompressible blocks are stored raw, so both encodings have the same size
+        assertThat(deflated.length).isEqualTo(raw.length);
+    }
+
+    @Test
+    void emptyPayload() throws IOException {
+        assertThat(decode(encode(new byte[0], StoreFileFormat.Compression.DEFLATE))).isEmpty();
+    }
+
+    @Test
+    void detectCorruptedBlock() throws IOException {
+        byte[] payload = new byte[1000];
+        new Random(2).nextBytes(payload);
+        byte[] encoded = encode(payload, StoreFileFormat.Compression.NONE);
+        encoded[encoded.length - 10] ^= 1;
+
+        assertThatThrownBy(() -> decode(encoded))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    void detectTruncatedFile() throws IOException {
+        byte[] payload = new byte[1000];
+        byte[] encoded = encode(payload, StoreFileFormat.Compression.DEFLATE);
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+
+        assertThatThrownBy(() -> decode(truncated)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void startsWithMagic() throws IOException {
+        byte[] encoded = encode(new byte[10], StoreFileFormat.Compression.NONE);
+        InputStream inputStream = new ByteArrayInputStream(encoded);
+        assertThat(StoreFileFormat.startsWithMagic(inputStream)).isTrue();
+        // Magic is not consumed
+        assertThat(inputStream.available()).isEqualTo(encoded.length);
+
+        assertThat(StoreFileFormat.startsWithMagic(new ByteArrayInputStream(new byte[]{66, 10, 1, 2}))).isFalse();
+        assertThat(StoreFileFormat.startsWithMagic(new ByteArrayInputStream(new byte[]{'B', 'S'}))).isFalse();
+    }
+
+    private static byte[] encode(byte[] payload, StoreFileFormat.Compression compression) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (OutputStream outputStream = StoreFileFormat.newOutputStream(byteArrayOutputStream, compression)) {
+            outputStream.write(payload);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static byte[] decode(byte[] encoded) throws IOException {
+        try (InputStream inputStream = StoreFileFormat.newInputStream(new ByteArrayInputStream(encoded))) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
@@ -50,8 +50,11 @@ public class KeyGeneration {
         return generator.generateKeyPair();
     }
 
+    /**
+     * Decoded keys are cached in the PublicKeyCache.
+     */
     public static PublicKey generatePublic(byte[] encodedKey) throws GeneralSecurityException {
-        return generatePublic(encodedKey, ECDH);
+        return PublicKeyCache.getPublicKey(encodedKey);
     }
 
     public static PublicKey generatePublic(byte[] encodedKey, String algorithm) throws GeneralSecurityException {
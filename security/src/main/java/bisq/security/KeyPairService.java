@@ -37,9 +37,11 @@ import java.security.spec.DSAPublicKeySpec;
 import java.security.spec.KeySpec;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class KeyPairService implements PersistenceClient<KeyPairStore> {
@@ -62,6 +64,14 @@ public class KeyPairService implements PersistenceClient<KeyPairStore> {
         }
     }
 
+    public Set<PublicKey> getPublicKeys() {
+        synchronized (persistableStore) {
+            return persistableStore.getKeyPairsById().values().stream()
+                    .map(KeyPair::getPublic)
+                    .collect(Collectors.toSet());
+        }
+    }
+
     public KeyPair getOrCreateKeyPair(String keyId) {
         try {
             return getOrCreateKeyPairAsync(keyId).get();
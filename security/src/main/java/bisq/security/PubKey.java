@@ -65,7 +65,7 @@ public final class PubKey implements Proto {
 
     public byte[] getHash() {
         if (hash == null) {
-            hash = DigestUtil.hash(publicKey.getEncoded());
+            hash = PublicKeyCache.getHash(publicKey.getEncoded());
         }
         return hash;
     }
@@ -0,0 +1,94 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.security;
+
+import bisq.common.data.ByteArray;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache of decoded ECDH public keys and of the hashes of encoded public keys, keyed by the encoded key.
+ * Decoding of a X509 encoded EC key is expensive and the same keys (e.g. of user profiles or of owners of network data)
+ * get decoded repeatedly. Keys which fail to decode are not cached.
+ */
+public class PublicKeyCache {
+    private static final int MAX_SIZE = 20_000;
+
+    private static final Cache<ByteArray, PublicKey> publicKeyCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .recordStats()
+            .build();
+    private static final Cache<ByteArray, byte[]> hashCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .recordStats()
+            .build();
+
+    public static PublicKey getPublicKey(byte[] encodedKey) throws GeneralSecurityException {
+        byte[] copy = encodedKey.clone();
+        try {
+            return publicKeyCache.get(new ByteArray(copy),
+                    () -> KeyGeneration.generatePublic(copy, KeyGeneration.ECDH));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) e.getCause();
+            }
+            throw new GeneralSecurityException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw new GeneralSecurityException(e.getCause());
+        }
+    }
+
+    /**
+     * @return The hash (RIPEMD160 of SHA256) of the encoded public key
+     */
+    public static byte[] getHash(byte[] encodedKey) {
+        byte[] copy = encodedKey.clone();
+        try {
+            return hashCache.get(new ByteArray(copy), () -> DigestUtil.hash(copy)).clone();
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public static CacheStats getPublicKeyCacheStats() {
+        return publicKeyCache.stats();
+    }
+
+    public static CacheStats getHashCacheStats() {
+        return hashCache.stats();
+    }
+
+    public static String getStatsAsString() {
+        CacheStats publicKeyStats = publicKeyCache.stats();
+        CacheStats hashStats = hashCache.stats();
+        return "PublicKeyCache: publicKeys: size=" + publicKeyCache.size() +
+                ", hits=" + publicKeyStats.hitCount() +
+                ", misses=" + publicKeyStats.missCount() +
+                ", evictions=" + publicKeyStats.evictionCount() +
+                "; hashes: size=" + hashCache.size() +
+                ", hits=" + hashStats.hitCount() +
+                ", misses=" + hashStats.missCount() +
+                ", evictions=" + hashStats.evictionCount();
+    }
+}
@@ -47,6 +47,7 @@ public class SecurityService implements Service {
     @Override
     public CompletableFuture<Boolean> shutdown() {
         log.info("shutdown");
+        log.info(PublicKeyCache.getStatsAsString());
         return CompletableFuture.completedFuture(true);
     }
 }
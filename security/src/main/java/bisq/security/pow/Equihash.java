@@ -29,6 +29,9 @@ import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -201,16 +204,53 @@ public class Equihash {
 
         public Solution findSolution() {
             Optional<int[]> inputs;
+            var indexMultimap = new IntListMultimap(N / 2);
             for (int nonce = 0; ; nonce++) {
-                if ((inputs = withHashPrefix(seed, nonce).findInputs()).isPresent()) {
+                if ((inputs = withHashPrefix(seed, nonce).findInputs(indexMultimap, true)).isPresent()) {
                     return new Solution(nonce, inputs.get());
                 }
             }
         }
 
+        /**
+         * Searches independent nonces with numThreads workers. Worker i tries the nonces i, i + numThreads,
+         * i + 2 * numThreads, ... and reuses its collision table for all attempts. The calling thread runs the first
+         * worker, the others are submitted to the executor. As the calling thread never waits for the submitted workers,
+         * it is safe to call this method from a task of the same (bounded) executor.
+         * The first solution found is returned, which is not necessarily the one with the lowest nonce.
+         */
+        public Solution findSolution(Executor executor, int numThreads) {
+            checkArgument(numThreads > 0, "numThreads must be positive");
+            CompletableFuture<Solution> result = new CompletableFuture<>();
+            for (int i = 1; i < numThreads; i++) {
+                int firstNonce = i;
+                try {
+                    executor.execute(() -> searchNonces(firstNonce, numThreads, result));
+                } catch (RejectedExecutionException e) {
+                    break;
+                }
+            }
+            searchNonces(0, numThreads, result);
+            return result.join();
+        }
+
+        private void searchNonces(long firstNonce, int step, CompletableFuture<Solution> result) {
+            try {
+                var indexMultimap = new IntListMultimap(N / 2);
+                for (long nonce = firstNonce; !result.isDone(); nonce += step) {
+                    Optional<int[]> inputs = withHashPrefix(seed, nonce).findInputs(indexMultimap, false);
+                    if (inputs.isPresent()) {
+                        result.complete(new Solution(nonce, inputs.get()));
+                    }
+                }
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }
+
         @VisibleForTesting
         int countAllSolutionsForNonce(long nonce) {
-            return (int) withHashPrefix(seed, nonce).streamInputsHits()
+            return (int) withHashPrefix(seed, nonce).streamInputsHits(new IntListMultimap(N / 2), true)
                     .map(ImmutableIntArray::copyOf)
                     .distinct()
                     .count();
@@ -238,10 +278,14 @@ public class Equihash {
             return ByteArrayUtils.bytesToIntegersBE(outputBytes);
         }
 
-        Stream<int[]> streamInputsHits() {
-            var table = computeAllHashes();
+        /**
+         * @param indexMultimap  Reusable table for the collision search, gets cleared before use.
+         * @param parallelHashes If the initial hashes are computed with a parallel stream.
+         */
+        Stream<int[]> streamInputsHits(IntListMultimap indexMultimap, boolean parallelHashes) {
+            var table = computeAllHashes(parallelHashes);
             for (int i = 0; i < k; i++) {
-                table = findCollisions(table, i + 1 < k);
+                table = findCollisions(table, i + 1 < k, indexMultimap);
             }
             return IntStream.range(0, table.numRows)
                     .mapToObj(table::getRow)
@@ -250,16 +294,16 @@ public class Equihash {
                     .filter(this::testDifficultyCondition);
         }
 
-        Optional<int[]> findInputs() {
-            return streamInputsHits().findFirst();
+        Optional<int[]> findInputs(IntListMultimap indexMultimap, boolean parallelHashes) {
+            return streamInputsHits(indexMultimap, parallelHashes).findFirst();
         }
 
-        private XorTable computeAllHashes() {
+        private XorTable computeAllHashes(boolean parallel) {
             var tableValues = IntStream.range(0, N).flatMap(i -> {
                 int[] hash = hashInputs(i);
                 return IntStream.range(0, k + 2).map(j -> j <= k ? hash[j] & (N / 2 - 1) : i);
             });
-            return new XorTable(k + 1, 1, ImmutableIntArray.copyOf(tableValues.parallel()));
+            return new XorTable(k + 1, 1, ImmutableIntArray.copyOf(parallel ? tableValues.parallel() : tableValues));
         }
 
         private boolean testDifficultyCondition(int[] inputs) {
@@ -349,6 +393,11 @@ public class Equihash {
             };
         }
 
+        void clear() {
+            Arrays.fill(shortLists, 0);
+            overspillMultimap.clear();
+        }
+
         // assumes non-negative values only:
         void put(int key, int value) {
             for (int i = 0; i < 4; i++) {
@@ -362,14 +411,14 @@ public class Equihash {
     }
 
     // Apply a single iteration of Wagner's Algorithm.
-    private XorTable findCollisions(XorTable table, boolean isPartial) {
+    private XorTable findCollisions(XorTable table, boolean isPartial, IntListMultimap indexMultimap) {
         int newHashWidth = isPartial ? table.hashWidth - 1 : 0;
         int newIndexTupleWidth = table.indexTupleWidth * 2;
         int newRowWidth = newHashWidth + newIndexTupleWidth;
         var newTableValues = ImmutableIntArray.builder(
                 newRowWidth * (isPartial ? tableCapacity : 10));
 
-        var indexMultimap = new IntListMultimap(N / 2);
+        indexMultimap.clear();
         for (int i = 0; i < table.numRows; i++) {
             var row = table.getRow(i);
             var collisionIndices = indexMultimap.get(row.get(0));
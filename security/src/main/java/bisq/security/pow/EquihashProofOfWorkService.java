@@ -17,6 +17,8 @@
 
 package bisq.security.pow;
 
+import bisq.common.threading.ExecutorFactory;
+import bisq.common.util.OsUtils;
 import bisq.security.DigestUtil;
 import com.google.common.base.Charsets;
 import com.google.common.primitives.Bytes;
@@ -26,6 +28,7 @@ import lombok.extern.slf4j.Slf4j;
 import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 // Borrowed from: https://github.com/bisq-network/bisq
 @Slf4j
@@ -34,6 +37,15 @@ public class EquihashProofOfWorkService extends ProofOfWorkService {
      * Rough cost of two Hashcash iterations compared to solving an Equihash-90-5 puzzle of unit difficulty.
      */
     private static final double DIFFICULTY_SCALE_FACTOR = 3.0e-5;
+    /**
+     * Number of nonces searched in parallel for one mint request.
+     */
+    private static final int NUM_SOLVER_THREADS = OsUtils.availableProcessors();
+    /**
+     * Dedicated bounded executor for minting, so that minting does not starve other users of the common ForkJoin pool.
+     */
+    private static final ExecutorService POW_EXECUTOR = ExecutorFactory.newFixedThreadPool("EquihashProofOfWorkService.pow",
+            NUM_SOLVER_THREADS);
 
     public EquihashProofOfWorkService() {
         super();
@@ -47,13 +59,15 @@ public class EquihashProofOfWorkService extends ProofOfWorkService {
         return CompletableFuture.supplyAsync(() -> {
             long ts = System.currentTimeMillis();
             byte[] seed = getSeed(payload, challenge);
-            byte[] solution = new Equihash(90, 5, scaledDifficulty).puzzle(seed).findSolution().serialize();
+            byte[] solution = new Equihash(90, 5, scaledDifficulty).puzzle(seed)
+                    .findSolution(POW_EXECUTOR, NUM_SOLVER_THREADS)
+                    .serialize();
             var proofOfWork = new ProofOfWork(payload, challenge, difficulty, solution);
             long counter = Longs.fromByteArray(Arrays.copyOf(solution, 8));
             long duration = System.currentTimeMillis() - ts;
             log.debug("Completed minting proofOfWork: {}. {} iterations took {} ms.", proofOfWork, counter, duration);
             return proofOfWork;
-        });
+        }, POW_EXECUTOR);
     }
 
     private byte[] getSeed(byte[] payload, @Nullable byte[] challenge) {
@@ -0,0 +1,63 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublicKeyCacheTest {
+
+    @Test
+    public void testPublicKeyIsDecodedOnce() throws GeneralSecurityException {
+        KeyPair keyPair = KeyGeneration.generateKeyPair();
+        byte[] encoded = keyPair.getPublic().getEncoded();
+
+        long hitCount = PublicKeyCache.getPublicKeyCacheStats().hitCount();
+        PublicKey publicKey = KeyGeneration.generatePublic(encoded);
+        assertEquals(keyPair.getPublic(), publicKey);
+        assertSame(publicKey, KeyGeneration.generatePublic(encoded.clone()));
+        assertEquals(hitCount + 1, PublicKeyCache.getPublicKeyCacheStats().hitCount());
+
+        byte[] message = "hello".getBytes();
+        byte[] signature = SignatureUtil.sign(message, keyPair.getPrivate());
+        assertTrue(SignatureUtil.verify(message, signature, publicKey));
+    }
+
+    @Test
+    public void testInvalidKeyIsNotCached() {
+        byte[] invalid = new byte[]{1, 2, 3};
+        assertThrows(GeneralSecurityException.class, () -> PublicKeyCache.getPublicKey(invalid));
+        assertThrows(GeneralSecurityException.class, () -> PublicKeyCache.getPublicKey(invalid));
+    }
+
+    @Test
+    public void testHash() throws GeneralSecurityException {
+        byte[] encoded = KeyGeneration.generateKeyPair().getPublic().getEncoded();
+        byte[] hash = PublicKeyCache.getHash(encoded);
+        assertArrayEquals(DigestUtil.hash(encoded), hash);
+
+        // Modifying the returned hash must not affect the cached one
+        hash[0] = (byte) (hash[0] + 1);
+        assertArrayEquals(DigestUtil.hash(encoded), PublicKeyCache.getHash(encoded));
+    }
+}
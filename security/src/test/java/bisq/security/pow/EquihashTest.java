@@ -0,0 +1,60 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.security.pow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EquihashTest {
+
+    @Test
+    public void testParallelSolutionIsValid() {
+        byte[] seed = new byte[32];
+        new Random(1).nextBytes(seed);
+        double difficulty = Equihash.adjustDifficulty(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Equihash.Puzzle puzzle = new Equihash(90, 5, difficulty).puzzle(seed);
+            byte[] solution = puzzle.findSolution(executor, 4).serialize();
+            assertTrue(new Equihash(90, 5, difficulty).puzzle(seed).deserializeSolution(solution).verify());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSolverCanBeCalledFromTaskOfSameExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            double difficulty = Equihash.adjustDifficulty(2);
+            Equihash.Puzzle puzzle = new Equihash(90, 5, difficulty).puzzle(new byte[32]);
+            byte[] solution = CompletableFuture.supplyAsync(() -> puzzle.findSolution(executor, 2), executor)
+                    .join()
+                    .serialize();
+            assertTrue(puzzle.deserializeSolution(solution).verify());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
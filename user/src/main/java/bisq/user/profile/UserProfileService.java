@@ -56,7 +56,7 @@ public class UserProfileService implements PersistenceClient<UserProfileStore>,
     public CompletableFuture<Boolean> initialize() {
         log.info("initialize");
         networkService.addDataServiceListener(this);
-        networkService.getDataService().ifPresent(ds -> ds.getAuthenticatedData().forEach(this::onAuthenticatedDataAdded));
+        networkService.getDataService().ifPresent(ds -> ds.getAuthenticatedData(UserProfile.class).forEach(this::onAuthenticatedDataAdded));
         return CompletableFuture.completedFuture(true);
     }
 
@@ -114,6 +114,11 @@ public class AccountAgeService extends SourceReputationService<AuthorizedAccount
         }
     }
 
+    @Override
+    protected Class<AuthorizedAccountAgeData> getDataClass() {
+        return AuthorizedAccountAgeData.class;
+    }
+
     @Override
     protected Optional<AuthorizedAccountAgeData> findRelevantData(AuthorizedDistributedData authorizedDistributedData) {
         return authorizedDistributedData instanceof AuthorizedAccountAgeData ?
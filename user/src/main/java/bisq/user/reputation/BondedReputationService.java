@@ -47,6 +47,11 @@ public class BondedReputationService extends SourceReputationService<AuthorizedB
         super(networkService, userIdentityService, userProfileService, bannedUserService, authorizedBondedRolesService);
     }
 
+    @Override
+    protected Class<AuthorizedBondedReputationData> getDataClass() {
+        return AuthorizedBondedReputationData.class;
+    }
+
     @Override
     protected Optional<AuthorizedBondedReputationData> findRelevantData(AuthorizedDistributedData authorizedDistributedData) {
         return authorizedDistributedData instanceof AuthorizedBondedReputationData ?
@@ -21,6 +21,7 @@ import bisq.bonded_roles.bonded_role.AuthorizedBondedRolesService;
 import bisq.common.data.ByteArray;
 import bisq.common.timer.Scheduler;
 import bisq.network.NetworkService;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataIndex;
 import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedData;
 import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedDistributedData;
 import bisq.persistence.Persistence;
@@ -41,7 +42,6 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 /**
  * We do not apply a score for profile age as otherwise all users would have such a score after 1 day.
@@ -55,6 +55,7 @@ public class ProfileAgeService extends SourceReputationService<AuthorizedTimesta
     private final ProfileAgeStore persistableStore = new ProfileAgeStore();
     @Getter
     private final Persistence<ProfileAgeStore> persistence;
+    private Optional<AuthenticatedDataIndex<String>> timestampDataByProfileId = Optional.empty();
 
     public ProfileAgeService(PersistenceService persistenceService,
                              NetworkService networkService,
@@ -70,6 +71,10 @@ public class ProfileAgeService extends SourceReputationService<AuthorizedTimesta
     public CompletableFuture<Boolean> initialize() {
         super.initialize();
 
+        timestampDataByProfileId = networkService.getDataService()
+                .map(dataService -> dataService.addIndex(AuthorizedTimestampData.class,
+                        distributedData -> ((AuthorizedTimestampData) distributedData).getProfileId()));
+
         // We delay a bit to ensure the network is well established
         Scheduler.run(this::maybeRequestAgain).after(3, TimeUnit.SECONDS);
 
@@ -82,6 +87,12 @@ public class ProfileAgeService extends SourceReputationService<AuthorizedTimesta
         return CompletableFuture.completedFuture(true);
     }
 
+    @Override
+    public CompletableFuture<Boolean> shutdown() {
+        networkService.getDataService().ifPresent(dataService -> timestampDataByProfileId.ifPresent(dataService::removeIndex));
+        return super.shutdown();
+    }
+
     @Override
     public void onAuthorizedDataRemoved(AuthorizedData authorizedData) {
         if (authorizedData.getAuthorizedDistributedData() instanceof AuthorizedTimestampData) {
@@ -97,6 +108,11 @@ public class ProfileAgeService extends SourceReputationService<AuthorizedTimesta
         }
     }
 
+    @Override
+    protected Class<AuthorizedTimestampData> getDataClass() {
+        return AuthorizedTimestampData.class;
+    }
+
     @Override
     protected Optional<AuthorizedTimestampData> findRelevantData(AuthorizedDistributedData authorizedDistributedData) {
         return authorizedDistributedData instanceof AuthorizedTimestampData ?
@@ -155,15 +171,9 @@ public class ProfileAgeService extends SourceReputationService<AuthorizedTimesta
         if (!didRequestForAllProfileIds) {
             // We check if we have some userProfiles which have not been timestamped yet.
             // If so, we request timestamping of the missing one.
-            var timeStamped = networkService.getDataService()
-                    .map(service -> service.getAuthorizedData()
-                            .filter(authorizedData -> authorizedData.getAuthorizedDistributedData() instanceof AuthorizedTimestampData)
-                            .map(authorizedData -> (AuthorizedTimestampData) authorizedData.getAuthorizedDistributedData())
-                            .map(AuthorizedTimestampData::getProfileId)
-                            .collect(Collectors.toSet()));
             userIdentityService.getUserIdentities().stream()
                     .map(userIdentity -> userIdentity.getUserProfile().getId())
-                    .filter(profileId -> timeStamped.isEmpty() || !timeStamped.get().contains(profileId))
+                    .filter(profileId -> timestampDataByProfileId.map(index -> !index.containsKey(profileId)).orElse(true))
                     .forEach(this::requestTimestamp);
         }
     }
@@ -47,6 +47,11 @@ public class ProofOfBurnService extends SourceReputationService<AuthorizedProofO
         super(networkService, userIdentityService, userProfileService, bannedUserService, authorizedBondedRolesService);
     }
 
+    @Override
+    protected Class<AuthorizedProofOfBurnData> getDataClass() {
+        return AuthorizedProofOfBurnData.class;
+    }
+
     @Override
     protected Optional<AuthorizedProofOfBurnData> findRelevantData(AuthorizedDistributedData authorizedDistributedData) {
         return authorizedDistributedData instanceof AuthorizedProofOfBurnData ?
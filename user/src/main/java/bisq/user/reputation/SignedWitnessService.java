@@ -111,6 +111,11 @@ public class SignedWitnessService extends SourceReputationService<AuthorizedSign
         return doRequestAuthorization(json);
     }
 
+    @Override
+    protected Class<AuthorizedSignedWitnessData> getDataClass() {
+        return AuthorizedSignedWitnessData.class;
+    }
+
     @Override
     protected Optional<AuthorizedSignedWitnessData> findRelevantData(AuthorizedDistributedData authorizedDistributedData) {
         return authorizedDistributedData instanceof AuthorizedSignedWitnessData ?
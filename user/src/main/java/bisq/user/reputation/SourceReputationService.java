@@ -79,7 +79,7 @@ public abstract class SourceReputationService<T extends AuthorizedDistributedDat
 
     public CompletableFuture<Boolean> initialize() {
         log.info("initialize");
-        networkService.getDataService().ifPresent(dataService -> dataService.getAuthorizedData().forEach(this::onAuthorizedDataAdded));
+        networkService.getDataService().ifPresent(dataService -> dataService.getAuthorizedData(getDataClass()).forEach(this::onAuthorizedDataAdded));
         networkService.addDataServiceListener(this);
         return CompletableFuture.completedFuture(true);
     }
@@ -109,6 +109,8 @@ public abstract class SourceReputationService<T extends AuthorizedDistributedDat
                 });
     }
 
+    protected abstract Class<T> getDataClass();
+
     protected abstract Optional<T> findRelevantData(AuthorizedDistributedData authorizedDistributedData);
 
     // Some services don't support multiple entries and will override that method